@@ -0,0 +1,137 @@
+package com.example.taskmanager.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение результатов JMH в формате JSON с сохранёнными базовыми результатами. Бенчмарки
+ * сопоставляются по имени и значениям параметров. Сравниваются основная метрика (для режима
+ * {@code thrpt} хуже меньшее значение, для остальных — большее) и выделение памяти на операцию
+ * {@code gc.alloc.rate.norm} профилировщика GC, если оно есть в обоих результатах.
+ *
+ * @author Shebeta N.I.
+ */
+public final class BaselineComparator {
+
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  /**
+   * Абсолютный порог выделения памяти в байтах на операцию, ниже которого относительный рост не
+   * считается регрессией: при почти нулевом выделении малые колебания дают большие доли.
+   */
+  private static final double ALLOCATION_NOISE_BYTES = 64;
+
+  private BaselineComparator() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Сравнивает результаты из файлов: {@code <baseline.json> <current.json> [допуск]}. Завершает
+   * JVM с кодом 1, если есть регрессии.
+   *
+   * @param args пути к базовым и текущим результатам и допустимое ухудшение (по умолчанию 0.1)
+   * @throws IOException если файл результатов не читается
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Использование: BaselineComparator <baseline.json> <current.json> [допуск]");
+      System.exit(2);
+    }
+    double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.1;
+    List<String> regressions = compare(Path.of(args[0]), Path.of(args[1]), tolerance);
+    regressions.forEach(System.out::println);
+    if (!regressions.isEmpty()) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Находит бенчмарки, результаты которых ухудшились больше допустимого. Бенчмарки, которых нет в
+   * базовых результатах, не проверяются.
+   *
+   * @param baseline  файл базовых результатов JMH
+   * @param current   файл текущих результатов JMH
+   * @param tolerance допустимое относительное ухудшение (0.1 — 10%)
+   * @return описания регрессий; пустой список, если регрессий нет
+   * @throws IOException если файл результатов не читается
+   */
+  public static List<String> compare(Path baseline, Path current, double tolerance)
+      throws IOException {
+    Map<String, JsonNode> baselineResults = read(baseline);
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, JsonNode> entry : read(current).entrySet()) {
+      JsonNode before = baselineResults.get(entry.getKey());
+      if (before == null) {
+        continue;
+      }
+      JsonNode after = entry.getValue();
+      boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+      JsonNode beforeScore = before.path("primaryMetric");
+      JsonNode afterScore = after.path("primaryMetric");
+      double change = relativeChange(beforeScore.path("score").asDouble(),
+          afterScore.path("score").asDouble(), higherIsBetter);
+      if (change > tolerance) {
+        regressions.add(String.format("%s: %.3f -> %.3f %s (хуже на %.0f%%)", entry.getKey(),
+            beforeScore.path("score").asDouble(), afterScore.path("score").asDouble(),
+            afterScore.path("scoreUnit").asText(), change * 100));
+      }
+      JsonNode beforeAllocation = allocation(before);
+      JsonNode afterAllocation = allocation(after);
+      if (beforeAllocation != null && afterAllocation != null) {
+        double bytesBefore = beforeAllocation.path("score").asDouble();
+        double bytesAfter = afterAllocation.path("score").asDouble();
+        double allocationChange = relativeChange(bytesBefore, bytesAfter, false);
+        if (allocationChange > tolerance && bytesAfter - bytesBefore > ALLOCATION_NOISE_BYTES) {
+          regressions.add(String.format("%s: выделение памяти %.0f -> %.0f B/op (больше на %.0f%%)",
+              entry.getKey(), bytesBefore, bytesAfter, allocationChange * 100));
+        }
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * Читает результаты JMH и индексирует их по имени бенчмарка и значениям параметров.
+   */
+  private static Map<String, JsonNode> read(Path file) throws IOException {
+    Map<String, JsonNode> results = new LinkedHashMap<>();
+    for (JsonNode result : new ObjectMapper().readTree(file.toFile())) {
+      Map<String, String> params = new TreeMap<>();
+      result.path("params").fields()
+          .forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+      String key = result.path("benchmark").asText() + ":" + result.path("mode").asText()
+          + (params.isEmpty() ? "" : params.toString());
+      results.put(key, result);
+    }
+    return results;
+  }
+
+  /**
+   * Возвращает метрику выделения памяти на операцию. В JMH до 1.37 имена метрик профилировщиков
+   * начинались с символа «·».
+   */
+  private static JsonNode allocation(JsonNode result) {
+    JsonNode metrics = result.path("secondaryMetrics");
+    JsonNode metric = metrics.get(ALLOCATION_METRIC);
+    return metric != null ? metric : metrics.get("·" + ALLOCATION_METRIC);
+  }
+
+  /**
+   * Вычисляет относительное ухудшение результата: положительное значение — хуже базового.
+   */
+  private static double relativeChange(double before, double after, boolean higherIsBetter) {
+    if (before == 0) {
+      return after == 0 || higherIsBetter ? 0 : Double.POSITIVE_INFINITY;
+    }
+    double change = (after - before) / before;
+    return higherIsBetter ? -change : change;
+  }
+}
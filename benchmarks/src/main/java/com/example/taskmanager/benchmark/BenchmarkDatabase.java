@@ -0,0 +1,120 @@
+package com.example.taskmanager.benchmark;
+
+import com.example.taskmanager.dao.TaskDaoImpl;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.DaoException;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * База данных для бенчмарков. Если системное свойство {@code db.url} задано, используется
+ * указанная им БД (например, локальный PostgreSQL), иначе запускается PostgreSQL в
+ * Testcontainers. {@link BenchmarkRunner} запускает один контейнер на все бенчмарки и передаёт его
+ * адрес JVM бенчмарков через {@code -Ddb.url}.
+ * <p>
+ * Внимание: {@link #fill(int)} удаляет все задачи, поэтому внешняя БД должна быть отдельной базой
+ * для бенчмарков, а не рабочей.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public final class BenchmarkDatabase {
+
+  /**
+   * Образ PostgreSQL, версия которого совпадает с интеграционными тестами приложения.
+   */
+  static final String IMAGE = "postgres:16";
+
+  /**
+   * Слово, которое содержит заголовок каждой десятой задачи; по нему выполняются бенчмарки поиска.
+   */
+  public static final String SEARCH_WORD = "отчёт";
+
+  /**
+   * Время создания первой задачи; задачи создаются с интервалом в минуту.
+   */
+  public static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+  private static final String[] WORDS = {"план", "встреча", "релиз", "ревью", "бюджет", "письмо",
+      "звонок", "договор", "макет"};
+
+  private BenchmarkDatabase() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Запускает PostgreSQL в Testcontainers, если БД не задана свойством {@code db.url}, и
+   * настраивает на неё {@link DatabaseConnection} через системные свойства {@code db.*}. Должен
+   * вызываться до первого обращения к {@link DatabaseConnection} в JVM.
+   *
+   * @return запущенный контейнер, который нужно остановить после бенчмарков, или {@code null},
+   *         если используется внешняя БД
+   */
+  public static PostgreSQLContainer<?> start() {
+    if (System.getProperty("db.url") != null) {
+      return null;
+    }
+    PostgreSQLContainer<?> container = new PostgreSQLContainer<>(IMAGE);
+    container.start();
+    System.setProperty("db.url", container.getJdbcUrl());
+    System.setProperty("db.username", container.getUsername());
+    System.setProperty("db.password", container.getPassword());
+    return container;
+  }
+
+  /**
+   * Применяет миграции и заполняет таблицу задач заново.
+   *
+   * @param size количество задач
+   * @return идентификаторы вставленных задач в порядке создания
+   * @throws DaoException если не удалось очистить или заполнить таблицу
+   */
+  public static int[] fill(int size) {
+    LiquibaseRunner.runMigrations();
+    try (Connection conn = DatabaseConnection.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("TRUNCATE tasks, task_tombstones, task_status_counters RESTART IDENTITY");
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка очистки таблицы задач", e);
+    }
+    List<Task> tasks = new TaskDaoImpl().saveAll(newTasks(0, size));
+    try (Connection conn = DatabaseConnection.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("ANALYZE tasks");
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка сбора статистики таблицы задач", e);
+    }
+    return tasks.stream().mapToInt(Task::getId).toArray();
+  }
+
+  /**
+   * Создаёт несохранённые задачи. Статусы чередуются, каждая десятая задача содержит в заголовке
+   * {@link #SEARCH_WORD}, даты создания и изменения идут с интервалом в минуту от
+   * {@link #FIRST_CREATED_AT}.
+   *
+   * @param first номер первой задачи
+   * @param count количество задач
+   * @return новые задачи
+   */
+  public static List<Task> newTasks(int first, int count) {
+    TaskStatus[] statuses = TaskStatus.values();
+    List<Task> tasks = new ArrayList<>(count);
+    for (int i = first; i < first + count; i++) {
+      String word = i % 10 == 0 ? SEARCH_WORD : WORDS[i % WORDS.length];
+      LocalDateTime createdAt = FIRST_CREATED_AT.plusMinutes(i);
+      tasks.add(new Task(0, "Задача " + i + ": " + word,
+          "Описание задачи " + i + ", " + word + ". " + "Подробности ".repeat(i % 20),
+          statuses[i % statuses.length], createdAt, createdAt));
+    }
+    return tasks;
+  }
+}
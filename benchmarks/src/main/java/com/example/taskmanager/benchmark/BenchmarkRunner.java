@@ -0,0 +1,95 @@
+package com.example.taskmanager.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Точка входа {@code benchmarks.jar}. Принимает те же аргументы командной строки, что и JMH
+ * (фильтр бенчмарков, {@code -p datasetSize=1000} и т.д.), и дополнительно:
+ * <ul>
+ *   <li>подключает профилировщик GC, который добавляет к результатам выделение памяти на операцию
+ *   ({@code gc.alloc.rate.norm});</li>
+ *   <li>записывает результаты в JSON в файл из свойства {@code benchmark.result} (по умолчанию
+ *   {@code target/jmh-result.json});</li>
+ *   <li>запускает один PostgreSQL в Testcontainers на все бенчмарки, если БД не задана свойством
+ *   {@code db.url}, и передаёт её параметры JVM бенчмарков;</li>
+ *   <li>если задано свойство {@code benchmark.baseline}, сравнивает результаты с этим файлом
+ *   базовых результатов (см. {@link BaselineComparator}) с допуском {@code benchmark.tolerance}
+ *   (по умолчанию 0.1) и завершается с кодом 1 при регрессии.</li>
+ * </ul>
+ *
+ * @author Shebeta N.I.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Запускает бенчмарки.
+   *
+   * @param args аргументы командной строки JMH
+   * @throws CommandLineOptionException если аргументы некорректны
+   * @throws RunnerException            если бенчмарки не удалось выполнить
+   * @throws IOException                если не удалось записать или сравнить результаты
+   */
+  public static void main(String[] args)
+      throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    Path result = Path.of(System.getProperty("benchmark.result", "target/jmh-result.json"));
+    if (result.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(result.toAbsolutePath().getParent());
+    }
+
+    PostgreSQLContainer<?> container = BenchmarkDatabase.start();
+    try {
+      Options options = new OptionsBuilder()
+          .parent(commandLine)
+          .addProfiler(GCProfiler.class)
+          .resultFormat(ResultFormatType.JSON)
+          .result(result.toString())
+          .jvmArgsAppend(databaseArguments())
+          .build();
+      new Runner(options).run();
+    } finally {
+      if (container != null) {
+        container.stop();
+      }
+    }
+
+    String baseline = System.getProperty("benchmark.baseline");
+    if (baseline != null) {
+      double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.1"));
+      List<String> regressions = BaselineComparator.compare(Path.of(baseline), result, tolerance);
+      if (!regressions.isEmpty()) {
+        System.out.println("Регрессии относительно " + baseline + ":");
+        regressions.forEach(System.out::println);
+        System.exit(1);
+      }
+      System.out.println("Регрессий относительно " + baseline + " нет");
+    }
+  }
+
+  /**
+   * Возвращает системные свойства {@code db.*} этой JVM в виде аргументов для JVM бенчмарков.
+   */
+  private static String[] databaseArguments() {
+    return System.getProperties().stringPropertyNames().stream()
+        .filter(name -> name.startsWith("db."))
+        .map(name -> "-D" + name + "=" + System.getProperty(name))
+        .toArray(String[]::new);
+  }
+}
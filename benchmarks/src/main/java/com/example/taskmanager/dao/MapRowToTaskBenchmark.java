@@ -0,0 +1,100 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.benchmark.BenchmarkDatabase;
+import com.example.taskmanager.db.DatabaseConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк декодирования строк результата в {@link com.example.taskmanager.entity.Task} методом
+ * {@link TaskDaoImpl#mapRowToTask}. Строки один раз читаются драйвером PostgreSQL в прокручиваемый
+ * {@link ResultSet}, поэтому измеряется только преобразование значений столбцов (разбор чисел,
+ * временных меток и статуса) без обмена с БД. Результат — время декодирования всех
+ * {@code rows} строк.
+ *
+ * @author Shebeta N.I.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapRowToTaskBenchmark {
+
+  private static final String SQL = "SELECT g, 'Задача ' || g, "
+      + "'Описание задачи ' || g || repeat(' подробности', g % 20), "
+      + "(ARRAY['TODO', 'IN_PROGRESS', 'DONE'])[g % 3 + 1], "
+      + "timestamp '2026-01-01' + g * interval '1 minute', "
+      + "timestamp '2026-01-01' + g * interval '1 minute', 1 "
+      + "FROM generate_series(1, ?) g";
+
+  /**
+   * Количество строк результата.
+   */
+  @Param({"100", "1000", "10000"})
+  public int rows;
+
+  private PostgreSQLContainer<?> container;
+  private Connection connection;
+  private PreparedStatement statement;
+  private ResultSet resultSet;
+
+  /**
+   * Выполняет запрос и оставляет его результат открытым.
+   *
+   * @throws SQLException при ошибке запроса
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    container = BenchmarkDatabase.start();
+    connection = DatabaseConnection.getConnection();
+    statement = connection.prepareStatement(SQL, ResultSet.TYPE_SCROLL_INSENSITIVE,
+        ResultSet.CONCUR_READ_ONLY);
+    statement.setInt(1, rows);
+    resultSet = statement.executeQuery();
+  }
+
+  /**
+   * Закрывает результат запроса, пул соединений и контейнер.
+   *
+   * @throws SQLException при ошибке закрытия
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    resultSet.close();
+    statement.close();
+    connection.close();
+    DatabaseConnection.close();
+    if (container != null) {
+      container.stop();
+    }
+  }
+
+  @Benchmark
+  public void mapRowToTask(Blackhole blackhole) throws SQLException {
+    resultSet.beforeFirst();
+    while (resultSet.next()) {
+      blackhole.consume(TaskDaoImpl.mapRowToTask(resultSet));
+    }
+  }
+}
@@ -0,0 +1,232 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.benchmark.BenchmarkDatabase;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Бенчмарки операций {@link TaskDaoImpl} на PostgreSQL (см. {@link BenchmarkDatabase}). Таблица
+ * заполняется заново перед каждым бенчмарком, поэтому записи одного бенчмарка не влияют на
+ * результаты другого. Запросы страниц и поиска ограничены {@link #PAGE_SIZE} строками, а полные
+ * выборки ({@code findAll}, потоки) читают весь набор и растут вместе с {@code datasetSize}.
+ *
+ * @author Shebeta N.I.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskDaoImplBenchmark {
+
+  private static final int PAGE_SIZE = 50;
+  private static final int BATCH_SIZE = 100;
+
+  /**
+   * Количество задач в таблице.
+   */
+  @Param({"1000", "10000", "100000"})
+  public int datasetSize;
+
+  private PostgreSQLContainer<?> container;
+  private TaskDaoImpl taskDao;
+  private int[] ids;
+  private int nextId;
+  private Task updated;
+  private TaskQuery firstPage;
+  private LocalDateTime watermark;
+
+  /**
+   * Подключается к БД и заполняет таблицу задач.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    container = BenchmarkDatabase.start();
+    ids = BenchmarkDatabase.fill(datasetSize);
+    taskDao = new TaskDaoImpl();
+    updated = taskDao.findById(ids[ids.length / 2]).orElseThrow();
+    firstPage = TaskQuery.builder()
+        .statuses(TaskStatus.TODO, TaskStatus.IN_PROGRESS)
+        .sortBy(TaskQuery.SortKey.UPDATED_AT, TaskQuery.Direction.DESC)
+        .limit(PAGE_SIZE)
+        .build();
+    // Последние PAGE_SIZE задач по времени изменения
+    watermark = BenchmarkDatabase.FIRST_CREATED_AT.plusMinutes(datasetSize - PAGE_SIZE);
+  }
+
+  /**
+   * Закрывает пул соединений и останавливает контейнер.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    DatabaseConnection.close();
+    if (container != null) {
+      container.stop();
+    }
+  }
+
+  @Benchmark
+  public Optional<Task> findById() {
+    return taskDao.findById(nextId());
+  }
+
+  @Benchmark
+  public List<Task> findAll() {
+    return taskDao.findAll();
+  }
+
+  @Benchmark
+  public List<Task> findByStatus() {
+    return taskDao.findByStatus(TaskStatus.DONE);
+  }
+
+  @Benchmark
+  public List<Task> search() {
+    return taskDao.search(BenchmarkDatabase.SEARCH_WORD);
+  }
+
+  @Benchmark
+  public List<Task> searchRanked() {
+    return taskDao.searchRanked(BenchmarkDatabase.SEARCH_WORD, PAGE_SIZE, 0);
+  }
+
+  @Benchmark
+  public List<TaskSummary> findAllSummaries() {
+    return taskDao.findAllSummaries();
+  }
+
+  @Benchmark
+  public List<TaskSummary> findSummariesByStatus() {
+    return taskDao.findSummariesByStatus(TaskStatus.DONE);
+  }
+
+  @Benchmark
+  public List<TaskSummary> searchSummariesRanked() {
+    return taskDao.searchSummariesRanked(BenchmarkDatabase.SEARCH_WORD, PAGE_SIZE, 0);
+  }
+
+  @Benchmark
+  public List<Task> find() {
+    return taskDao.find(firstPage);
+  }
+
+  @Benchmark
+  public List<TaskSummary> findSummaries() {
+    return taskDao.findSummaries(firstPage);
+  }
+
+  @Benchmark
+  public long count() {
+    return taskDao.count(firstPage);
+  }
+
+  @Benchmark
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    return taskDao.countByStatus();
+  }
+
+  @Benchmark
+  public void streamAll(Blackhole blackhole) {
+    try (Stream<Task> tasks = taskDao.streamAll()) {
+      tasks.forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public void streamByStatus(Blackhole blackhole) {
+    try (Stream<Task> tasks = taskDao.streamByStatus(TaskStatus.DONE)) {
+      tasks.forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public void streamSearch(Blackhole blackhole) {
+    try (Stream<Task> tasks = taskDao.streamSearch(BenchmarkDatabase.SEARCH_WORD)) {
+      tasks.forEach(blackhole::consume);
+    }
+  }
+
+  @Benchmark
+  public TaskDelta findModifiedSince() {
+    return taskDao.findModifiedSince(watermark);
+  }
+
+  /**
+   * Обновление одной и той же задачи: версия задачи увеличивается при каждом сохранении.
+   */
+  @Benchmark
+  public Task update() {
+    updated.setTitle(updated.getTitle().startsWith("*")
+        ? updated.getTitle().substring(1)
+        : "*" + updated.getTitle());
+    return taskDao.save(updated);
+  }
+
+  /**
+   * Вставка новой задачи и её удаление, чтобы количество видимых задач не росло.
+   */
+  @Benchmark
+  public void insertAndDelete() {
+    Task task = taskDao.save(BenchmarkDatabase.newTasks(datasetSize, 1).get(0));
+    taskDao.delete(task.getId());
+  }
+
+  /**
+   * Пакетная вставка {@link #BATCH_SIZE} задач и их пакетное удаление.
+   */
+  @Benchmark
+  public void saveAllAndDeleteAll() {
+    List<Task> tasks = taskDao.saveAll(BenchmarkDatabase.newTasks(datasetSize, BATCH_SIZE));
+    taskDao.deleteAll(tasks.stream().map(Task::getId).toList());
+  }
+
+  /**
+   * Построчная вставка и построчное удаление тех же {@link #BATCH_SIZE} задач, что и в
+   * {@link #saveAllAndDeleteAll()}, для сравнения пакетной записи с построчной.
+   */
+  @Benchmark
+  public void saveAndDeleteRowByRow() {
+    List<Task> tasks = BenchmarkDatabase.newTasks(datasetSize, BATCH_SIZE);
+    tasks.forEach(taskDao::save);
+    tasks.forEach(task -> taskDao.delete(task.getId()));
+  }
+
+  @Benchmark
+  public boolean deleteAndRestore() {
+    int id = nextId();
+    taskDao.delete(id);
+    return taskDao.restore(id);
+  }
+
+  private int nextId() {
+    nextId = (nextId + 7_919) % ids.length;
+    return ids[nextId];
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк {@link TaskTableModel#getValueAt}: чтение всех ячеек видимой области таблицы, как при
+ * её перерисовке, и отдельно столбцов дат, значения которых форматируются при каждом обращении.
+ * Видимая область — {@link #VISIBLE_ROWS} строк, начиная с середины модели из {@code rows} строк.
+ * Модель используется вне потока обработки событий: рисование при этом не выполняется.
+ *
+ * @author Shebeta N.I.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskTableModelBenchmark {
+
+  private static final int VISIBLE_ROWS = 40;
+  private static final int CREATED_AT_COLUMN = 4;
+  private static final int UPDATED_AT_COLUMN = 5;
+
+  /**
+   * Количество строк модели.
+   */
+  @Param({"1000", "100000"})
+  public int rows;
+
+  private TaskTableModel model;
+  private int firstVisibleRow;
+
+  /**
+   * Заполняет модель задачами с разными датами и фрагментами описания.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+    TaskStatus[] statuses = TaskStatus.values();
+    List<TaskSummary> tasks = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      tasks.add(new TaskSummary(i, "Задача " + i, "Описание задачи " + i, i % 2 == 0,
+          statuses[i % statuses.length], start.plusMinutes(i), start.plusMinutes(2L * i)));
+    }
+    model = new TaskTableModel(tasks);
+    firstVisibleRow = (rows - VISIBLE_ROWS) / 2;
+  }
+
+  @Benchmark
+  public void visibleCells(Blackhole blackhole) {
+    int columns = model.getColumnCount();
+    for (int row = firstVisibleRow; row < firstVisibleRow + VISIBLE_ROWS; row++) {
+      for (int column = 0; column < columns; column++) {
+        blackhole.consume(model.getValueAt(row, column));
+      }
+    }
+  }
+
+  @Benchmark
+  public void visibleDates(Blackhole blackhole) {
+    for (int row = firstVisibleRow; row < firstVisibleRow + VISIBLE_ROWS; row++) {
+      blackhole.consume(model.getValueAt(row, CREATED_AT_COLUMN));
+      blackhole.consume(model.getValueAt(row, UPDATED_AT_COLUMN));
+    }
+  }
+}
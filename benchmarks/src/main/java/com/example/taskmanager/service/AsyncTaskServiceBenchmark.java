@@ -0,0 +1,169 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dao.ColumnarTaskDao;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link AsyncTaskService} с блокирующим {@link TaskService} при {@link #CALLERS}
+ * одновременных вызовах. Одна операция бенчмарка — все {@link #CALLERS} вызовов
+ * {@link TaskService#getTask(int)} до завершения последнего.
+ * <p>
+ * Вместо PostgreSQL используется DAO в памяти, каждое чтение которого занимает одно из
+ * {@link #POOL_SIZE} разрешений (как соединение пула HikariCP) и длится {@code latencyMillis},
+ * поэтому результат отражает только накладные расходы потоков и очередей. Блокирующий вариант
+ * обслуживает каждого вызывающего отдельным платформенным потоком, асинхронный — одним потоком,
+ * получающим {@link CompletableFuture}.
+ * </p>
+ * <p>
+ * На Java 21+ {@link AsyncTaskService} выполняет вызовы в виртуальных потоках, на более ранних
+ * версиях — в пуле платформенных потоков; тип потоков, в которых выполнялись чтения DAO, выводится
+ * после каждой серии измерений. Чтобы измерить путь с виртуальными потоками, бенчмарк запускается
+ * на JDK 21: {@code java -jar target/benchmarks.jar AsyncTaskServiceBenchmark -jvm <JDK 21>/bin/java}.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncTaskServiceBenchmark {
+
+  private static final int CALLERS = 1_000;
+  private static final int POOL_SIZE = 10;
+  private static final int TASKS = 100;
+
+  /**
+   * Длительность одного чтения DAO в миллисекундах.
+   */
+  @Param({"0", "1"})
+  public int latencyMillis;
+
+  private TaskService taskService;
+  private AsyncTaskService asyncService;
+  private ExecutorService callers;
+  private final Set<String> daoThreadTypes = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Заполняет DAO и создаёт сервисы и потоки вызывающих.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    PooledTaskDao taskDao = new PooledTaskDao();
+    LocalDateTime now = LocalDateTime.now();
+    for (int i = 0; i < TASKS; i++) {
+      taskDao.save(new Task(0, "Задача " + i, null, TaskStatus.TODO, now, now));
+    }
+    taskService = new TaskService(taskDao);
+    asyncService = new AsyncTaskService(taskService, POOL_SIZE, Duration.ofMinutes(1));
+    callers = Executors.newFixedThreadPool(CALLERS);
+  }
+
+  /**
+   * Выводит тип потоков, в которых выполнялись чтения DAO за серию измерений.
+   */
+  @TearDown(Level.Iteration)
+  public void reportThreads() {
+    System.out.println("Потоки чтений DAO: " + daoThreadTypes);
+    daoThreadTypes.clear();
+  }
+
+  /**
+   * Останавливает потоки вызывающих и асинхронного сервиса.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    callers.shutdownNow();
+    asyncService.close();
+  }
+
+  /**
+   * {@link #CALLERS} платформенных потоков одновременно вызывают блокирующий сервис.
+   */
+  @Benchmark
+  public int blocking() throws InterruptedException, ExecutionException {
+    List<Future<Optional<Task>>> results = new ArrayList<>(CALLERS);
+    for (int i = 0; i < CALLERS; i++) {
+      int id = 1 + i % TASKS;
+      results.add(callers.submit(() -> taskService.getTask(id)));
+    }
+    int found = 0;
+    for (Future<Optional<Task>> result : results) {
+      found += result.get().isPresent() ? 1 : 0;
+    }
+    return found;
+  }
+
+  /**
+   * Один поток выполняет {@link #CALLERS} вызовов асинхронного сервиса и ждёт все результаты.
+   */
+  @Benchmark
+  public int async() {
+    List<CompletableFuture<Optional<Task>>> results = new ArrayList<>(CALLERS);
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(asyncService.getTask(1 + i % TASKS));
+    }
+    int found = 0;
+    for (CompletableFuture<Optional<Task>> result : results) {
+      found += result.join().isPresent() ? 1 : 0;
+    }
+    return found;
+  }
+
+  /**
+   * DAO в памяти, чтение по id в котором имитирует запрос через пул из {@link #POOL_SIZE}
+   * соединений.
+   */
+  private final class PooledTaskDao extends ColumnarTaskDao {
+
+    private final Semaphore connections = new Semaphore(POOL_SIZE, true);
+
+    @Override
+    public Optional<Task> findById(int id) {
+      daoThreadTypes.add(Thread.currentThread().getClass().getSimpleName());
+      connections.acquireUninterruptibly();
+      try {
+        if (latencyMillis > 0) {
+          Thread.sleep(latencyMillis);
+        }
+        return super.findById(id);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return Optional.empty();
+      } finally {
+        connections.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.example.taskmanager.util;
+
+import com.example.taskmanager.benchmark.BenchmarkDatabase;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.exception.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк {@link TaskValidator#validate} для набора корректных задач и для задачи с заголовком
+ * из одних пробелов, который отклоняется исключением. Результат — время проверки всего набора из
+ * {@code tasks} задач или одной некорректной задачи.
+ *
+ * @author Shebeta N.I.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskValidatorBenchmark {
+
+  /**
+   * Количество проверяемых корректных задач.
+   */
+  @Param({"1", "100", "10000"})
+  public int tasks;
+
+  private List<Task> valid;
+  private Task blankTitle;
+
+  /**
+   * Создаёт задачи для проверки.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    valid = BenchmarkDatabase.newTasks(0, tasks);
+    blankTitle = new Task(BenchmarkDatabase.newTasks(0, 1).get(0));
+    blankTitle.setTitle(" ".repeat(200));
+  }
+
+  @Benchmark
+  public void validate() {
+    for (Task task : valid) {
+      TaskValidator.validate(task);
+    }
+  }
+
+  @Benchmark
+  public void validateBlankTitle(Blackhole blackhole) {
+    try {
+      TaskValidator.validate(blankTitle);
+    } catch (ValidationException e) {
+      blackhole.consume(e);
+    }
+  }
+}
@@ -1,41 +1,213 @@
 package com.example.taskmanager;
 
+import com.example.taskmanager.dao.CachingTaskDao;
+import com.example.taskmanager.dao.LocalTaskDao;
+import com.example.taskmanager.dao.MirroredTaskDao;
+import com.example.taskmanager.dao.ShardedTaskDao;
 import com.example.taskmanager.dao.TaskDao;
 import com.example.taskmanager.dao.TaskDaoImpl;
+import com.example.taskmanager.dao.TaskSyncWorker;
+import com.example.taskmanager.db.ConnectionSource;
 import com.example.taskmanager.db.DatabaseConnection;
 import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.db.TaskChangeListener;
 import com.example.taskmanager.gui.MainFrame;
 import com.example.taskmanager.service.TaskService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 
 /**
  * Главный класс приложения для управления задачами. Выполняет инициализацию базы данных (миграции
- * Liquibase), создаёт необходимые компоненты (DAO, сервис) и запускает графический интерфейс. Также
+ * Liquibase), создаёт необходимые компоненты (DAO, сервис), запускает графический интерфейс и
+ * подписывает кэш и интерфейс на уведомления об изменениях задач другими клиентами. Также
  * регистрирует shutdown hook для корректного закрытия пула соединений.
+ * <p>
+ * Окно показывается сразу со снимком прошлого сеанса, а пул соединений и миграции (которые
+ * пропускаются, если changelog не изменился) готовятся параллельно в фоне; задачи загружаются из БД,
+ * когда подготовка завершена. При {@code -Dstartup.reportFirstPaint=true} время до первой
+ * отрисовки окна выводится в журнал.
+ * </p>
+ * <p>
+ * Если задач не больше {@code mirror.maxTasks}, они в фоне загружаются в память
+ * ({@link MirroredTaskDao}), и после загрузки фильтр по статусу и поиск подстроки выполняются без
+ * обращения к БД. При работе с шардами уведомления прослушиваются на каждом шарде, чтобы копия
+ * не отставала от изменений других клиентов.
+ * </p>
+ * <p>
+ * При {@code offline.enabled=true} интерфейс работает с локальным хранилищем {@link LocalTaskDao},
+ * а {@link TaskSyncWorker} в фоне синхронизирует его с PostgreSQL, поэтому ни запуск, ни действия
+ * пользователя не ждут сервер.
+ * </p>
  *
  * @author Shebeta N.I.
  */
 public class Application {
 
+  private static final Logger LOG = LoggerFactory.getLogger(Application.class);
+
   /**
    * Точка входа в приложение.
    *
    * @param args аргументы командной строки (не используются)
    */
   public static void main(String[] args) {
-    // LiquibaseRunner.runMigrations();
+    if (Boolean.parseBoolean(DatabaseConnection.getProperty("offline.enabled", "false"))) {
+      startOffline();
+      return;
+    }
 
-    TaskDao taskDao = new TaskDaoImpl();
+    TaskDao storage = createRemoteDao();
+    MirroredTaskDao mirroredDao = new MirroredTaskDao(storage);
+    CachingTaskDao taskDao = new CachingTaskDao(mirroredDao);
     TaskService taskService = new TaskService(taskDao);
 
+    // Копия в памяти и кэш подписываются первыми, чтобы интерфейс перечитывал задачи уже после
+    // их обновления. Изменённые задачи они перечитывают с основного сервера, так как реплики
+    // могли ещё не получить изменение; остальные чтения по-прежнему выполняются на репликах
+    TaskChangeListener changeListener = createChangeListener();
+    changeListener.addSubscriber(mirroredDao::applyChanges);
+    changeListener.addSubscriber(taskDao::applyChanges);
+
+    // Подключение к БД и проверка миграций выполняются параллельно с созданием и отрисовкой окна;
+    // при startup.fast=false окно создаётся только после них
+    boolean fastStartup =
+        Boolean.parseBoolean(DatabaseConnection.getProperty("startup.fast", "true"));
+    CompletableFuture<Void> databaseReady = CompletableFuture.runAsync(Application::prepareDatabase);
+    if (!fastStartup) {
+      databaseReady.join();
+    }
+    Path sessionFile = fastStartup
+        ? Path.of(DatabaseConnection.getProperty("startup.sessionPath",
+        Path.of(System.getProperty("user.home"), ".taskmanager", "session").toString()))
+        : null;
+
     // Запуск GUI в потоке обработки событий
+    SwingUtilities.invokeLater(() -> {
+      MainFrame mainFrame = new MainFrame(taskService, sessionFile);
+      mainFrame.whenFirstPainted(Application::reportFirstPaint);
+      changeListener.addSubscriber(mainFrame::applyRemoteChanges);
+      mainFrame.setVisible(true);
+      databaseReady.thenRun(() -> {
+        mirroredDao.startLoading();
+        SwingUtilities.invokeLater(() -> {
+          mainFrame.startLoading();
+          changeListener.start();
+        });
+      });
+    });
+
+    // Закрытие соединений при завершении приложения
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      changeListener.close();
+      if (storage instanceof ShardedTaskDao shardedTaskDao) {
+        shardedTaskDao.close();
+      }
+      DatabaseConnection.close();
+    }));
+  }
+
+  /**
+   * Создаёт пул соединений с установленным соединением и, если {@code startup.runMigrations} не
+   * равен {@code false}, выполняет миграции при изменении changelog
+   * ({@link LiquibaseRunner#runMigrationsIfChanged}). Ошибки только записываются в журнал: интерфейс сообщит
+   * о недоступности БД при загрузке задач.
+   */
+  private static void prepareDatabase() {
+    try {
+      DatabaseConnection.warmUp();
+      if (Boolean.parseBoolean(DatabaseConnection.getProperty("startup.runMigrations", "true"))) {
+        LiquibaseRunner.runMigrationsIfChanged(DatabaseConnection.primary());
+      }
+    } catch (SQLException | RuntimeException e) {
+      LOG.error("Ошибка подготовки базы данных", e);
+    }
+  }
+
+  /**
+   * При {@code -Dstartup.reportFirstPaint=true} выводит в журнал время от запуска JVM до первой
+   * отрисовки главного окна. При {@code -Dstartup.exitAfterFirstPaint=true} после этого завершает
+   * приложение: так выполняется обучающий запуск, при выходе из которого JVM записывает архив
+   * классов AppCDS ({@code -XX:ArchiveClassesAtExit}, профиль Maven {@code appcds}).
+   */
+  private static void reportFirstPaint() {
+    if (Boolean.getBoolean("startup.reportFirstPaint")) {
+      LOG.info("Первая отрисовка окна через {} мс после запуска JVM",
+          ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+    if (Boolean.getBoolean("startup.exitAfterFirstPaint")) {
+      SwingUtilities.invokeLater(() -> System.exit(0));
+    }
+  }
+
+  /**
+   * Запускает приложение в офлайн-режиме: интерфейс читает и изменяет локальное хранилище из
+   * {@code offline.path} (по умолчанию {@code ~/.taskmanager/tasks}), изменения отправляются в
+   * PostgreSQL и получаются из него в фоне. Уведомления об изменениях других клиентов только
+   * ускоряют очередной цикл синхронизации.
+   */
+  private static void startOffline() {
+    Path path = Path.of(DatabaseConnection.getProperty("offline.path",
+        Path.of(System.getProperty("user.home"), ".taskmanager", "tasks").toString()));
+    LocalTaskDao localDao = LocalTaskDao.open(path);
+    TaskSyncWorker syncWorker = new TaskSyncWorker(localDao, Application::createRemoteDao);
+    localDao.setWriteListener(syncWorker::requestSync);
+    TaskService taskService = new TaskService(localDao);
+
+    TaskChangeListener changeListener = createChangeListener();
+    changeListener.addSubscriber(events -> syncWorker.requestSync());
+
     SwingUtilities.invokeLater(() -> {
       MainFrame mainFrame = new MainFrame(taskService);
+      mainFrame.whenFirstPainted(Application::reportFirstPaint);
+      syncWorker.addSubscriber(mainFrame::applyRemoteChanges);
+      syncWorker.start();
+      changeListener.start();
       mainFrame.setVisible(true);
     });
 
-    // Закрытие пула соединений при завершении приложения
-    Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConnection::close));
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      changeListener.close();
+      syncWorker.close();
+      localDao.close();
+      DatabaseConnection.close();
+    }));
+  }
+
+  /**
+   * Создаёт DAO PostgreSQL: если заданы шарды ({@code db.shard.urls}), задачи распределяются по
+   * ним, иначе хранятся в {@code db.url}.
+   *
+   * @return DAO задач в PostgreSQL
+   */
+  private static TaskDao createRemoteDao() {
+    List<HikariDataSource> shardPools = DatabaseConnection.createShardPools();
+    return shardPools.isEmpty() ? new TaskDaoImpl() : ShardedTaskDao.open(shardPools);
+  }
+
+  /**
+   * Создаёт слушателя уведомлений об изменениях той же базы данных, что и
+   * {@link #createRemoteDao()}: если заданы шарды, прослушивается каждый из них, иначе
+   * {@code db.url}. Без этого копия в памяти и кэш не узнавали бы об изменениях других клиентов в
+   * шардах.
+   *
+   * @return слушатель уведомлений, ещё не запущенный
+   */
+  private static TaskChangeListener createChangeListener() {
+    List<String> shardUrls = DatabaseConnection.shardUrls();
+    if (shardUrls.isEmpty()) {
+      return new TaskChangeListener();
+    }
+    List<ConnectionSource> sources = shardUrls.stream()
+        .<ConnectionSource>map(url -> () -> DatabaseConnection.openDedicatedConnection(url))
+        .toList();
+    return new TaskChangeListener(sources);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package com.example.taskmanager;
+
+import com.example.taskmanager.bulk.CopyFormat;
+import com.example.taskmanager.bulk.ImportResult;
+import com.example.taskmanager.bulk.ProgressListener;
+import com.example.taskmanager.bulk.TaskBulkTransfer;
+import com.example.taskmanager.db.DatabaseConnection;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Консольная точка входа для массового импорта и экспорта задач без графического интерфейса.
+ * <p>
+ * Использование:
+ * <pre>
+ *   export &lt;файл&gt; [csv|tsv]
+ *   import &lt;файл&gt; &lt;файл отклонённых строк&gt; [csv|tsv]
+ * </pre>
+ * Если формат не указан, он определяется по расширению файла. Ход выполнения (количество строк и
+ * скорость в строках в секунду) выводится в стандартный поток ошибок.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class BulkTransferApplication {
+
+  /**
+   * Точка входа. Завершает JVM с кодом 0 при успехе, 1 при ошибке работы с файлом и 2 при
+   * неверных аргументах.
+   *
+   * @param args команда и её аргументы
+   */
+  public static void main(String[] args) {
+    System.exit(run(args));
+  }
+
+  /**
+   * Выполняет команду и закрывает пул соединений. Аргументы проверяются до обращения к БД.
+   *
+   * @param args команда и её аргументы
+   * @return код завершения: 0 при успехе, 1 при ошибке работы с файлом, 2 при неверных аргументах
+   */
+  static int run(String[] args) {
+    boolean export = args.length >= 2 && args[0].equals("export");
+    boolean importing = args.length >= 3 && args[0].equals("import");
+    if (!export && !importing) {
+      printUsage();
+      return 2;
+    }
+    int formatIndex = export ? 2 : 3;
+    Optional<CopyFormat> format = formatArgument(args, formatIndex);
+    if (format.isEmpty()) {
+      System.err.println("Неизвестный формат: " + args[formatIndex]);
+      printUsage();
+      return 2;
+    }
+
+    TaskBulkTransfer transfer = new TaskBulkTransfer();
+    try {
+      if (export) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(args[1])))) {
+          long rows = transfer.exportTo(out, format.get(), BulkTransferApplication::printProgress);
+          System.err.printf("Экспортировано строк: %d%n", rows);
+        }
+      } else {
+        try (BufferedReader in = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8);
+            Writer rejects = Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8)) {
+          ImportResult result = transfer.importFrom(in, rejects, format.get(),
+              BulkTransferApplication::printProgress);
+          System.err.printf("Импортировано строк: %d, отклонено: %d, %.0f строк/с%n",
+              result.imported(), result.rejected(), result.rowsPerSecond());
+        }
+      }
+      return 0;
+    } catch (IOException e) {
+      System.err.println("Ошибка работы с файлом: " + e.getMessage());
+      return 1;
+    } finally {
+      DatabaseConnection.close();
+    }
+  }
+
+  /**
+   * Возвращает формат из аргумента с указанным номером, а если аргумент не задан — по расширению
+   * файла.
+   *
+   * @param args  аргументы командной строки
+   * @param index номер аргумента формата
+   * @return формат или пустой Optional, если указан неизвестный формат
+   */
+  private static Optional<CopyFormat> formatArgument(String[] args, int index) {
+    if (args.length <= index) {
+      return Optional.of(CopyFormat.fromFileName(args[1]));
+    }
+    for (CopyFormat format : CopyFormat.values()) {
+      if (format.name().equalsIgnoreCase(args[index])) {
+        return Optional.of(format);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Выводит количество обработанных строк и скорость обработки.
+   *
+   * @see ProgressListener#onProgress(long, long)
+   */
+  private static void printProgress(long rows, long elapsedNanos) {
+    double seconds = elapsedNanos / 1_000_000_000.0;
+    System.err.printf("%d строк, %.1f с, %.0f строк/с%n",
+        rows, seconds, seconds == 0 ? 0 : rows / seconds);
+  }
+
+  private static void printUsage() {
+    System.err.println("Использование:");
+    System.err.println("  export <файл> [csv|tsv]");
+    System.err.println("  import <файл> <файл отклонённых строк> [csv|tsv]");
+  }
+}
@@ -0,0 +1,75 @@
+package com.example.taskmanager;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.job.TaskArchiveJob;
+import com.example.taskmanager.job.TaskPurgeJob;
+import com.example.taskmanager.job.TaskReshardJob;
+
+/**
+ * Консольная точка входа для фоновых заданий обслуживания таблицы задач, предназначенная для
+ * запуска по расписанию (например, из cron).
+ * <p>
+ * Использование:
+ * <pre>
+ *   archive
+ *   purge
+ *   reshard &lt;текущее количество шардов&gt; &lt;новое количество шардов&gt;
+ * </pre>
+ * Параметры заданий читаются из application.properties; для {@code reshard} в
+ * {@code db.shard.urls} должны быть перечислены базы данных обоих наборов шардов.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class MaintenanceApplication {
+
+  /**
+   * Точка входа.
+   *
+   * @param args имя задания
+   */
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      printUsage();
+      System.exit(2);
+    }
+    try {
+      switch (args[0]) {
+        case "archive" -> {
+          long archived = new TaskArchiveJob().run();
+          System.err.printf("Перенесено в архив задач: %d%n", archived);
+        }
+        case "purge" -> {
+          long purged = new TaskPurgeJob().run();
+          System.err.printf("Окончательно удалено задач: %d%n", purged);
+        }
+        case "reshard" -> {
+          if (args.length < 3) {
+            printUsage();
+            System.exit(2);
+          }
+          long moved = TaskReshardJob.runFromConfig(Integer.parseInt(args[1]),
+              Integer.parseInt(args[2]));
+          System.err.printf("Перенесено между шардами задач: %d%n", moved);
+        }
+        default -> {
+          printUsage();
+          System.exit(2);
+        }
+      }
+    } catch (DaoException e) {
+      System.err.println(e.getMessage() + ": " + e.getCause());
+      System.exit(1);
+    } finally {
+      DatabaseConnection.close();
+    }
+  }
+
+  private static void printUsage() {
+    System.err.println("Использование:");
+    System.err.println("  archive");
+    System.err.println("  purge");
+    System.err.println("  reshard <текущее количество шардов> <новое количество шардов>");
+  }
+}
@@ -0,0 +1,205 @@
+package com.example.taskmanager.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Формат файлов массового импорта и экспорта задач. Каждый формат совпадает с одноимённым форматом
+ * команды PostgreSQL {@code COPY}, поэтому строки передаются в БД без промежуточных преобразований:
+ * <ul>
+ *   <li>{@link #CSV} — RFC 4180, пустое значение без кавычек означает NULL;</li>
+ *   <li>{@link #TSV} — текстовый формат COPY: поля через табуляцию, {@code \N} означает NULL,
+ *   спецсимволы экранируются обратной косой чертой.</li>
+ * </ul>
+ *
+ * @author Shebeta N.I.
+ */
+public enum CopyFormat {
+
+  /**
+   * Значения, разделённые запятыми.
+   */
+  CSV("(FORMAT csv)"),
+
+  /**
+   * Значения, разделённые табуляцией (текстовый формат COPY).
+   */
+  TSV("(FORMAT text)");
+
+  private final String copyOptions;
+
+  CopyFormat(String copyOptions) {
+    this.copyOptions = copyOptions;
+  }
+
+  /**
+   * Определяет формат по расширению имени файла: {@code .tsv} и {@code .txt} — {@link #TSV}, иначе
+   * {@link #CSV}.
+   *
+   * @param fileName имя файла
+   * @return формат файла
+   */
+  public static CopyFormat fromFileName(String fileName) {
+    String lower = fileName.toLowerCase();
+    return lower.endsWith(".tsv") || lower.endsWith(".txt") ? TSV : CSV;
+  }
+
+  /**
+   * Возвращает параметры команды {@code COPY} для этого формата, например {@code (FORMAT csv)}.
+   *
+   * @return строка параметров COPY
+   */
+  public String copyOptions() {
+    return copyOptions;
+  }
+
+  /**
+   * Читает следующую запись из потока. Читается ровно одна запись, поэтому потребление памяти не
+   * зависит от размера файла.
+   *
+   * @param reader источник данных с поддержкой {@link Reader#mark(int)}, например
+   *               {@link java.io.BufferedReader}
+   * @return значения полей записи (NULL-значения представлены как {@code null}) или {@code null},
+   * если поток закончился
+   * @throws IOException при ошибке чтения или некорректной записи
+   */
+  public List<String> readRecord(Reader reader) throws IOException {
+    return this == CSV ? readCsvRecord(reader) : readTsvRecord(reader);
+  }
+
+  /**
+   * Кодирует запись в строку этого формата, завершённую символом перевода строки.
+   *
+   * @param fields значения полей (NULL-значения представлены как {@code null})
+   * @return закодированная запись
+   */
+  public String formatRecord(List<String> fields) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        sb.append(this == CSV ? ',' : '\t');
+      }
+      if (this == CSV) {
+        appendCsvField(sb, fields.get(i));
+      } else {
+        appendTsvField(sb, fields.get(i));
+      }
+    }
+    return sb.append('\n').toString();
+  }
+
+  private static List<String> readCsvRecord(Reader reader) throws IOException {
+    int c = reader.read();
+    if (c == -1) {
+      return null;
+    }
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean inQuotes = false;
+    while (true) {
+      if (inQuotes) {
+        if (c == -1) {
+          throw new IOException("Незакрытая кавычка в CSV-записи");
+        }
+        if (c == '"') {
+          reader.mark(1);
+          int next = reader.read();
+          if (next == '"') {
+            field.append('"');
+          } else {
+            inQuotes = false;
+            c = next;
+            continue;
+          }
+        } else {
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.isEmpty() && !quoted) {
+        quoted = true;
+        inQuotes = true;
+      } else if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+        fields.add(field.isEmpty() && !quoted ? null : field.toString());
+        if (c != ',') {
+          if (c == '\r') {
+            reader.mark(1);
+            if (reader.read() != '\n') {
+              reader.reset();
+            }
+          }
+          return fields;
+        }
+        field.setLength(0);
+        quoted = false;
+      } else {
+        field.append((char) c);
+      }
+      c = reader.read();
+    }
+  }
+
+  private static List<String> readTsvRecord(Reader reader) throws IOException {
+    int c = reader.read();
+    if (c == -1) {
+      return null;
+    }
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean isNull = false;
+    while (true) {
+      if (c == '\t' || c == '\n' || c == -1) {
+        fields.add(isNull ? null : field.toString());
+        if (c != '\t') {
+          return fields;
+        }
+        field.setLength(0);
+        isNull = false;
+      } else if (c == '\\') {
+        int next = reader.read();
+        switch (next) {
+          case 'N' -> isNull = true;
+          case 't' -> field.append('\t');
+          case 'n' -> field.append('\n');
+          case 'r' -> field.append('\r');
+          case '\\' -> field.append('\\');
+          case -1 -> throw new IOException("Незавершённая escape-последовательность в TSV-записи");
+          default -> field.append((char) next);
+        }
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+      c = reader.read();
+    }
+  }
+
+  private static void appendCsvField(StringBuilder sb, String value) {
+    if (value == null) {
+      return;
+    }
+    if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+        || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+      sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    } else {
+      sb.append(value);
+    }
+  }
+
+  private static void appendTsvField(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("\\N");
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case '\\' -> sb.append("\\\\");
+        case '\t' -> sb.append("\\t");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        default -> sb.append(ch);
+      }
+    }
+  }
+}
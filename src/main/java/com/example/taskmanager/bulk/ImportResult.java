@@ -0,0 +1,21 @@
+package com.example.taskmanager.bulk;
+
+/**
+ * Итог массового импорта задач.
+ *
+ * @param imported     количество строк, загруженных в таблицу
+ * @param rejected     количество строк, отклонённых валидацией и записанных в файл отклонённых
+ * @param elapsedNanos продолжительность импорта в наносекундах
+ * @author Shebeta N.I.
+ */
+public record ImportResult(long imported, long rejected, long elapsedNanos) {
+
+  /**
+   * Возвращает среднюю скорость обработки строк (загруженных и отклонённых) в секунду.
+   *
+   * @return количество строк в секунду
+   */
+  public double rowsPerSecond() {
+    return elapsedNanos == 0 ? 0 : (imported + rejected) * 1_000_000_000.0 / elapsedNanos;
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.taskmanager.bulk;
+
+/**
+ * Получатель сведений о ходе массового импорта или экспорта.
+ *
+ * @author Shebeta N.I.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+  /**
+   * Не выполняет никаких действий.
+   */
+  ProgressListener NONE = (rows, elapsedNanos) -> {
+  };
+
+  /**
+   * Вызывается периодически во время обработки и один раз по её завершении.
+   *
+   * @param rows         количество обработанных к этому моменту строк
+   * @param elapsedNanos время с начала обработки в наносекундах
+   */
+  void onProgress(long rows, long elapsedNanos);
+}
@@ -0,0 +1,264 @@
+package com.example.taskmanager.bulk;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeListener;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.exception.ValidationException;
+import com.example.taskmanager.util.TaskValidator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.List;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+
+/**
+ * Массовый импорт и экспорт таблицы "tasks" через протокол PostgreSQL {@code COPY}.
+ * <p>
+ * Экспорт читает строки {@code COPY ... TO STDOUT} по одной и сразу пишет их в выходной поток.
+ * Импорт читает файл по одной записи, проверяет её через {@link TaskValidator} и передаёт прошедшие
+ * проверку строки в {@code COPY tasks FROM STDIN} буфером фиксированного размера; отклонённые строки
+ * вместе с причиной записываются в отдельный файл. Поэтому ни одна из операций не держит набор
+ * данных в памяти целиком.
+ * </p>
+ * <p>
+ * Файлы обоих направлений имеют одинаковые столбцы: id, title, description, status, created_at,
+ * updated_at. При импорте значение id игнорируется — новым задачам присваиваются идентификаторы из
+ * последовательности таблицы.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskBulkTransfer {
+
+  private static final int COLUMN_COUNT = 6;
+  private static final int PROGRESS_INTERVAL = 10_000;
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+      .append(DateTimeFormatter.ISO_LOCAL_DATE)
+      .appendLiteral(' ')
+      .append(DateTimeFormatter.ofPattern("HH:mm:ss"))
+      .optionalStart()
+      .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+      .optionalEnd()
+      .toFormatter();
+
+  /**
+   * Выгружает все неудалённые задачи, отсортированные по идентификатору, в выходной поток в
+   * кодировке UTF-8. Выгрузка читает реплику, если она доступна.
+   *
+   * @param out      поток, в который записываются строки
+   * @param format   формат выгрузки
+   * @param listener получатель сведений о ходе выгрузки
+   * @return количество выгруженных строк
+   * @throws DaoException при ошибке SQL или записи в поток
+   */
+  public long exportTo(OutputStream out, CopyFormat format, ProgressListener listener) {
+    String sql = "COPY (SELECT id, title, description, status, created_at, updated_at FROM tasks "
+        + "WHERE deleted_at IS NULL ORDER BY id) TO STDOUT WITH " + format.copyOptions();
+    long start = System.nanoTime();
+    long rows = 0;
+    try (Connection conn = DatabaseConnection.getReadConnection()) {
+      CopyOut copyOut = copyManager(conn).copyOut(sql);
+      try {
+        byte[] row;
+        while ((row = copyOut.readFromCopy()) != null) {
+          out.write(row);
+          if (++rows % PROGRESS_INTERVAL == 0) {
+            listener.onProgress(rows, System.nanoTime() - start);
+          }
+        }
+      } finally {
+        if (copyOut.isActive()) {
+          copyOut.cancelCopy();
+        }
+      }
+      out.flush();
+      listener.onProgress(rows, System.nanoTime() - start);
+      return rows;
+    } catch (SQLException | IOException e) {
+      throw new DaoException("Ошибка экспорта задач после " + rows + " строк", e);
+    }
+  }
+
+  /**
+   * Загружает задачи из файла. Каждая запись преобразуется в {@link Task} и проверяется
+   * {@link TaskValidator}; корректные записи передаются в {@code COPY}, некорректные — записываются
+   * в {@code rejects} с причиной отклонения в дополнительном последнем поле. Все корректные строки
+   * загружаются одной командой COPY в одной транзакции, то есть атомарно. Построчные уведомления
+   * об изменениях на время загрузки отключаются, вместо них клиентам отправляется одно
+   * уведомление о необходимости перезагрузки.
+   *
+   * @param in       источник записей
+   * @param rejects  получатель отклонённых записей (в том же формате)
+   * @param format   формат файла
+   * @param listener получатель сведений о ходе загрузки
+   * @return итог импорта
+   * @throws DaoException при ошибке SQL или чтения файла
+   */
+  public ImportResult importFrom(BufferedReader in, Writer rejects, CopyFormat format,
+      ProgressListener listener) {
+    String sql = "COPY tasks (title, description, status, created_at, updated_at) FROM STDIN WITH "
+        + format.copyOptions();
+    long start = System.nanoTime();
+    long processed = 0;
+    long rejected = 0;
+    try (Connection conn = DatabaseConnection.getConnection()) {
+      conn.setAutoCommit(false);
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("SET LOCAL taskmanager.suppress_notify = 'on'");
+      }
+      CopyIn copyIn = copyManager(conn).copyIn(sql);
+      try {
+        CopyBuffer buffer = new CopyBuffer(copyIn);
+        List<String> record;
+        while ((record = format.readRecord(in)) != null) {
+          if (processed == 0 && isHeader(record)) {
+            continue;
+          }
+          processed++;
+          try {
+            Task task = toTask(record);
+            TaskValidator.validate(task);
+            buffer.write(format.formatRecord(toCopyFields(task)));
+          } catch (ValidationException e) {
+            rejected++;
+            List<String> rejectedRecord = new ArrayList<>(record);
+            rejectedRecord.add(e.getMessage());
+            rejects.write(format.formatRecord(rejectedRecord));
+          }
+          if (processed % PROGRESS_INTERVAL == 0) {
+            listener.onProgress(processed, System.nanoTime() - start);
+          }
+        }
+        buffer.flush();
+        long imported = copyIn.endCopy();
+        try (Statement stmt = conn.createStatement()) {
+          stmt.execute("NOTIFY " + TaskChangeListener.CHANNEL + ", 'RELOAD:0'");
+        }
+        conn.commit();
+        DatabaseConnection.markWrite();
+        rejects.flush();
+        long elapsed = System.nanoTime() - start;
+        listener.onProgress(processed, elapsed);
+        return new ImportResult(imported, rejected, elapsed);
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+        if (!conn.getAutoCommit()) {
+          conn.rollback();
+          conn.setAutoCommit(true);
+        }
+      }
+    } catch (SQLException | IOException e) {
+      throw new DaoException("Ошибка импорта задач после " + processed + " строк", e);
+    }
+  }
+
+  private static CopyManager copyManager(Connection conn) throws SQLException {
+    return conn.unwrap(PGConnection.class).getCopyAPI();
+  }
+
+  private static boolean isHeader(List<String> record) {
+    return !record.isEmpty() && "id".equalsIgnoreCase(record.get(0));
+  }
+
+  /**
+   * Преобразует запись файла в задачу.
+   *
+   * @param record значения полей записи
+   * @return задача (ещё не проверенная валидатором)
+   * @throws ValidationException если число полей, статус или даты некорректны
+   */
+  private static Task toTask(List<String> record) {
+    if (record.size() != COLUMN_COUNT) {
+      throw new ValidationException(
+          "Ожидалось " + COLUMN_COUNT + " полей, получено " + record.size());
+    }
+    Task task = new Task();
+    task.setTitle(record.get(1));
+    task.setDescription(record.get(2));
+    try {
+      task.setStatus(record.get(3) == null ? null : TaskStatus.valueOf(record.get(3).trim()));
+    } catch (IllegalArgumentException e) {
+      throw new ValidationException("Неизвестный статус: " + record.get(3));
+    }
+    LocalDateTime now = LocalDateTime.now();
+    task.setCreatedAt(parseTimestamp(record.get(4), now));
+    task.setUpdatedAt(parseTimestamp(record.get(5), task.getCreatedAt()));
+    return task;
+  }
+
+  private static LocalDateTime parseTimestamp(String value, LocalDateTime defaultValue) {
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return LocalDateTime.parse(value.trim().replace('T', ' '), TIMESTAMP_FORMATTER);
+    } catch (DateTimeParseException e) {
+      throw new ValidationException("Некорректная дата: " + value);
+    }
+  }
+
+  private static List<String> toCopyFields(Task task) {
+    List<String> fields = new ArrayList<>(COLUMN_COUNT - 1);
+    fields.add(task.getTitle());
+    fields.add(task.getDescription());
+    fields.add(task.getStatus().name());
+    fields.add(task.getCreatedAt().format(TIMESTAMP_FORMATTER));
+    fields.add(task.getUpdatedAt().format(TIMESTAMP_FORMATTER));
+    return fields;
+  }
+
+  /**
+   * Накапливает закодированные строки и отправляет их в COPY блоками фиксированного размера, чтобы
+   * не обращаться к сокету на каждую строку.
+   */
+  private static final class CopyBuffer {
+
+    private final CopyIn copyIn;
+    private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+    private int size;
+
+    CopyBuffer(CopyIn copyIn) {
+      this.copyIn = copyIn;
+    }
+
+    void write(String line) throws SQLException {
+      byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      if (size + bytes.length > buffer.length) {
+        flush();
+      }
+      if (bytes.length > buffer.length) {
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        return;
+      }
+      System.arraycopy(bytes, 0, buffer, size, bytes.length);
+      size += bytes.length;
+    }
+
+    void flush() throws SQLException {
+      if (size > 0) {
+        copyIn.writeToCopy(buffer, 0, size);
+        size = 0;
+      }
+    }
+  }
+}
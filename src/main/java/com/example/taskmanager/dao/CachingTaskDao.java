@@ -0,0 +1,535 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.exception.OptimisticLockException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Кэширующая обёртка над любым {@link TaskDao} со сквозным чтением.
+ * <p>
+ * Содержит два ограниченных по размеру кэша с вытеснением давно не использованных записей (LRU):
+ * задачи по идентификатору и результаты запросов списков ({@code findAll}, {@code findByStatus},
+ * {@code search} и их краткие и ранжированные варианты), где ключом служит вид запроса и его
+ * параметры.
+ * </p>
+ * <p>
+ * Результаты запросов не удаляются при записи, а проверяются по счётчикам версий: каждый
+ * результат хранит версию, действовавшую до обращения к БД, и считается устаревшим, если версия с
+ * тех пор изменилась. Запросы по статусу зависят только от счётчика своего статуса, поэтому
+ * изменение задачи в статусе DONE не сбрасывает закэшированный список TODO. Остальные запросы
+ * зависят от общего счётчика, который увеличивается при любой записи.
+ * </p>
+ * <p>
+ * Задачи хранятся и возвращаются в виде копий, поэтому изменение полученной задачи вызывающим
+ * кодом не портит кэш. Потоковые методы не кэшируются. Класс потокобезопасен.
+ * </p>
+ * <p>
+ * Изменения, сделанные другими клиентами, учитываются через {@link #applyChanges(List)}, который
+ * подписывается на уведомления {@link com.example.taskmanager.db.TaskChangeListener}. Изменённые
+ * задачи перечитываются с основного сервера ({@link TaskDao#findByIdOnPrimary(int)}), поэтому
+ * реплика, ещё не получившая изменение, не вернёт в кэш прежнюю версию задачи.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class CachingTaskDao implements TaskDao {
+
+  private final TaskDao delegate;
+  private final LruCache<Integer, Task> tasks;
+  private final LruCache<QueryKey, CachedResult> queries;
+
+  private long globalVersion;
+  private final long[] statusVersions = new long[TaskStatus.values().length];
+
+  private long hits;
+  private long misses;
+
+  /**
+   * Создаёт кэш с размерами из параметров {@code cache.maxTasks} (по умолчанию 10000) и
+   * {@code cache.maxQueries} (по умолчанию 64).
+   *
+   * @param delegate DAO, к которому выполняются обращения при промахе кэша
+   */
+  public CachingTaskDao(TaskDao delegate) {
+    this(delegate, DatabaseConnection.getIntProperty("cache.maxTasks", 10_000),
+        DatabaseConnection.getIntProperty("cache.maxQueries", 64));
+  }
+
+  /**
+   * Создаёт кэш с указанными размерами.
+   *
+   * @param delegate   DAO, к которому выполняются обращения при промахе кэша
+   * @param maxTasks   максимальное количество задач в кэше по идентификатору (больше 0)
+   * @param maxQueries максимальное количество закэшированных результатов запросов (больше 0)
+   */
+  public CachingTaskDao(TaskDao delegate, int maxTasks, int maxQueries) {
+    if (maxTasks <= 0 || maxQueries <= 0) {
+      throw new IllegalArgumentException(
+          "Размеры кэша должны быть положительными: " + maxTasks + ", " + maxQueries);
+    }
+    this.delegate = delegate;
+    this.tasks = new LruCache<>(maxTasks);
+    this.queries = new LruCache<>(maxQueries);
+  }
+
+  /**
+   * Сохраняет задачу через исходный DAO, помещает её копию в кэш и делает устаревшими результаты
+   * запросов, которые могли измениться: общие запросы и запросы по старому и новому статусу.
+   *
+   * @param task задача для сохранения
+   * @return сохранённая задача
+   * @throws OptimisticLockException если задача изменена другим пользователем (закэшированная
+   *                                 копия при этом удаляется как устаревшая)
+   * @throws DaoException            при ошибке исходного DAO
+   */
+  @Override
+  public Task save(Task task) {
+    boolean existing = task.getId() != 0;
+    TaskStatus oldStatus = existing ? cachedStatus(task.getId()) : null;
+    Task saved;
+    try {
+      saved = delegate.save(task);
+    } catch (OptimisticLockException e) {
+      evictConflicts(e);
+      throw e;
+    }
+    synchronized (this) {
+      invalidate(oldStatus, existing);
+      invalidate(saved.getStatus(), false);
+      tasks.put(saved.getId(), new Task(saved));
+    }
+    return saved;
+  }
+
+  /**
+   * Сохраняет задачи через исходный DAO и обновляет кэш так же, как {@link #save(Task)}.
+   *
+   * @param tasksToSave задачи для сохранения
+   * @return сохранённые задачи
+   * @throws OptimisticLockException если какая-либо задача изменена другим пользователем
+   * @throws DaoException            при ошибке исходного DAO
+   */
+  @Override
+  public List<Task> saveAll(Collection<Task> tasksToSave) {
+    List<Boolean> existing = new ArrayList<>(tasksToSave.size());
+    List<TaskStatus> oldStatuses = new ArrayList<>(tasksToSave.size());
+    for (Task task : tasksToSave) {
+      existing.add(task.getId() != 0);
+      oldStatuses.add(task.getId() == 0 ? null : cachedStatus(task.getId()));
+    }
+    List<Task> saved;
+    try {
+      saved = delegate.saveAll(tasksToSave);
+    } catch (OptimisticLockException e) {
+      evictConflicts(e);
+      throw e;
+    }
+    synchronized (this) {
+      int i = 0;
+      for (Task task : saved) {
+        invalidate(oldStatuses.get(i), existing.get(i));
+        invalidate(task.getStatus(), false);
+        tasks.put(task.getId(), new Task(task));
+        i++;
+      }
+    }
+    return saved;
+  }
+
+  /**
+   * Возвращает задачу из кэша или загружает её через исходный DAO.
+   *
+   * @param id идентификатор задачи
+   * @return копия найденной задачи или пустой Optional
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public Optional<Task> findById(int id) {
+    long version;
+    synchronized (this) {
+      Task cached = tasks.get(id);
+      if (cached != null) {
+        hits++;
+        return Optional.of(new Task(cached));
+      }
+      misses++;
+      version = globalVersion;
+    }
+    Optional<Task> loaded = delegate.findById(id);
+    loaded.ifPresent(task -> {
+      synchronized (this) {
+        // Если во время чтения была запись, загруженная задача могла устареть
+        if (version == globalVersion) {
+          tasks.put(id, new Task(task));
+        }
+      }
+    });
+    return loaded;
+  }
+
+  @Override
+  public Optional<Task> findByIdOnPrimary(int id) {
+    return delegate.findByIdOnPrimary(id);
+  }
+
+  @Override
+  public List<Task> findAll() {
+    return copies(cachedQuery(new QueryKey("findAll", null), delegate::findAll));
+  }
+
+  @Override
+  public List<Task> findByStatus(TaskStatus status) {
+    return copies(cachedQuery(new QueryKey("findByStatus", status),
+        () -> delegate.findByStatus(status)));
+  }
+
+  @Override
+  public List<Task> search(String query) {
+    return copies(cachedQuery(new QueryKey("search", query), () -> delegate.search(query)));
+  }
+
+  @Override
+  public List<Task> searchRanked(String query, int limit, int offset) {
+    return copies(cachedQuery(new QueryKey("searchRanked", List.of(query, limit, offset)),
+        () -> delegate.searchRanked(query, limit, offset)));
+  }
+
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    return cachedQuery(new QueryKey("findAllSummaries", null), delegate::findAllSummaries);
+  }
+
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    return cachedQuery(new QueryKey("findSummariesByStatus", status),
+        () -> delegate.findSummariesByStatus(status));
+  }
+
+  @Override
+  public List<TaskSummary> searchSummariesRanked(String query, int limit, int offset) {
+    return cachedQuery(new QueryKey("searchSummariesRanked", List.of(query, limit, offset)),
+        () -> delegate.searchSummariesRanked(query, limit, offset));
+  }
+
+  @Override
+  public List<Task> find(TaskQuery query) {
+    return copies(cachedQuery(new QueryKey("find", query), () -> delegate.find(query)));
+  }
+
+  @Override
+  public List<TaskSummary> findSummaries(TaskQuery query) {
+    return cachedQuery(new QueryKey("findSummaries", query), () -> delegate.findSummaries(query));
+  }
+
+  @Override
+  public long count(TaskQuery query) {
+    return cachedQuery(new QueryKey("count", query), () -> List.of(delegate.count(query))).get(0);
+  }
+
+  @Override
+  public Stream<Task> streamAll() {
+    return delegate.streamAll();
+  }
+
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    return delegate.streamByStatus(status);
+  }
+
+  @Override
+  public Stream<Task> streamSearch(String query) {
+    return delegate.streamSearch(query);
+  }
+
+  /**
+   * Возвращает количество задач по статусам через исходный DAO без кэширования: реализации для БД
+   * читают готовые счётчики.
+   *
+   * @return количество задач по статусам
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    return delegate.countByStatus();
+  }
+
+  /**
+   * Возвращает изменения задач через исходный DAO без кэширования: результат зависит от момента
+   * вызова.
+   *
+   * @param watermark отметка времени, начиная с которой нужны изменения
+   * @return изменения и отметка для следующего вызова
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    return delegate.findModifiedSince(watermark);
+  }
+
+  @Override
+  public LocalDateTime currentWatermark() {
+    return delegate.currentWatermark();
+  }
+
+  /**
+   * Удаляет задачу через исходный DAO, убирает её из кэша и делает устаревшими результаты общих
+   * запросов и запросов по её статусу.
+   *
+   * @param id идентификатор удаляемой задачи
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public void delete(int id) {
+    TaskStatus oldStatus = cachedStatus(id);
+    delegate.delete(id);
+    synchronized (this) {
+      tasks.remove(id);
+      invalidate(oldStatus, true);
+    }
+  }
+
+  /**
+   * Удаляет задачи через исходный DAO и обновляет кэш так же, как {@link #delete(int)}.
+   *
+   * @param ids идентификаторы удаляемых задач
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    delegate.deleteAll(ids);
+    synchronized (this) {
+      for (int id : ids) {
+        Task removed = tasks.remove(id);
+        invalidate(removed == null ? null : removed.getStatus(), true);
+      }
+    }
+  }
+
+  /**
+   * Восстанавливает задачу через исходный DAO и делает устаревшими результаты общих запросов и
+   * запросов по всем статусам (статус восстановленной задачи в кэше неизвестен).
+   *
+   * @param id идентификатор задачи
+   * @return {@code true}, если задача восстановлена
+   * @throws DaoException при ошибке исходного DAO
+   */
+  @Override
+  public boolean restore(int id) {
+    boolean restored = delegate.restore(id);
+    if (restored) {
+      synchronized (this) {
+        tasks.remove(id);
+        invalidate(null, true);
+      }
+    }
+    return restored;
+  }
+
+  /**
+   * Учитывает изменения задач, сделанные в обход этого экземпляра (например, другими клиентами):
+   * изменённые задачи удаляются из кэша и перечитываются с основного сервера, а результаты
+   * запросов, которые могли измениться, становятся устаревшими. Событие
+   * {@link TaskChangeEvent.Operation#RELOAD} сбрасывает кэш целиком.
+   *
+   * @param events события об изменении задач
+   * @throws DaoException если не удалось перечитать изменённую задачу
+   */
+  public void applyChanges(List<TaskChangeEvent> events) {
+    Set<Integer> changedIds = new LinkedHashSet<>();
+    long version;
+    synchronized (this) {
+      for (TaskChangeEvent event : events) {
+        if (event.operation() == TaskChangeEvent.Operation.RELOAD) {
+          tasks.clear();
+          invalidate(null, true);
+          changedIds.clear();
+          continue;
+        }
+        Task removed = tasks.remove(event.taskId());
+        // Новый статус изменённой задачи неизвестен, поэтому устаревают списки всех статусов
+        invalidate(removed == null || event.operation() != TaskChangeEvent.Operation.DELETE
+            ? null : removed.getStatus(), true);
+        if (event.operation() == TaskChangeEvent.Operation.DELETE) {
+          changedIds.remove(event.taskId());
+        } else {
+          changedIds.add(event.taskId());
+        }
+      }
+      version = globalVersion;
+    }
+    for (int id : changedIds) {
+      Optional<Task> loaded = delegate.findByIdOnPrimary(id);
+      loaded.ifPresent(task -> {
+        synchronized (this) {
+          // Если во время чтения была запись, загруженная задача могла устареть
+          if (version == globalVersion) {
+            tasks.put(id, new Task(task));
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Возвращает статистику обращений к кэшу.
+   *
+   * @return количество попаданий, промахов и вытеснений, а также текущие размеры кэшей
+   */
+  public synchronized CacheStats stats() {
+    return new CacheStats(hits, misses, tasks.evictions + queries.evictions, tasks.size(),
+        queries.size());
+  }
+
+  /**
+   * Статистика кэша.
+   *
+   * @param hits          количество обращений, обслуженных из кэша
+   * @param misses        количество обращений, переданных исходному DAO
+   * @param evictions     количество записей, вытесненных из-за ограничения размера
+   * @param cachedTasks   текущее количество задач в кэше по идентификатору
+   * @param cachedQueries текущее количество закэшированных результатов запросов
+   */
+  public record CacheStats(long hits, long misses, long evictions, int cachedTasks,
+                           int cachedQueries) {
+
+    /**
+     * Возвращает долю попаданий среди всех обращений.
+     *
+     * @return доля попаданий от 0 до 1
+     */
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  /**
+   * Возвращает результат запроса из кэша, если он не устарел, иначе выполняет запрос через
+   * исходный DAO и кэширует результат с версией, действовавшей до обращения к БД.
+   */
+  private <T> List<T> cachedQuery(QueryKey key, Supplier<List<T>> loader) {
+    long version;
+    synchronized (this) {
+      CachedResult cached = queries.get(key);
+      version = currentVersion(key);
+      if (cached != null && cached.version() == version) {
+        hits++;
+        @SuppressWarnings("unchecked")
+        List<T> rows = (List<T>) cached.rows();
+        return rows;
+      }
+      misses++;
+    }
+    List<T> rows = List.copyOf(loader.get());
+    synchronized (this) {
+      queries.put(key, new CachedResult(version, rows));
+    }
+    return rows;
+  }
+
+  /**
+   * Возвращает текущую версию, от которой зависит результат запроса: счётчик статуса для запросов
+   * по статусу, иначе общий счётчик.
+   */
+  private long currentVersion(QueryKey key) {
+    return key.argument() instanceof TaskStatus status
+        ? statusVersions[status.ordinal()]
+        : globalVersion;
+  }
+
+  /**
+   * Делает устаревшими результаты общих запросов и запросов по статусу.
+   *
+   * @param status        статус, списки которого изменились, или {@code null}, если он неизвестен
+   * @param unknownIfNull если {@code true} и статус неизвестен, устаревают списки всех статусов
+   */
+  private void invalidate(TaskStatus status, boolean unknownIfNull) {
+    globalVersion++;
+    if (status != null) {
+      statusVersions[status.ordinal()]++;
+    } else if (unknownIfNull) {
+      for (int i = 0; i < statusVersions.length; i++) {
+        statusVersions[i]++;
+      }
+    }
+  }
+
+  /**
+   * Удаляет из кэша задачи, сохранение которых не удалось из-за конфликта версий: их закэшированные
+   * копии устарели.
+   */
+  private synchronized void evictConflicts(OptimisticLockException conflict) {
+    for (int id : conflict.getTaskIds()) {
+      Task removed = tasks.remove(id);
+      invalidate(removed == null ? null : removed.getStatus(), true);
+    }
+  }
+
+  private synchronized TaskStatus cachedStatus(int id) {
+    Task cached = tasks.get(id);
+    return cached == null ? null : cached.getStatus();
+  }
+
+  private static List<Task> copies(List<Task> cached) {
+    List<Task> result = new ArrayList<>(cached.size());
+    for (Task task : cached) {
+      result.add(new Task(task));
+    }
+    return result;
+  }
+
+  /**
+   * Ключ результата запроса: имя метода DAO и его аргументы.
+   */
+  private record QueryKey(String method, Object argument) {
+
+  }
+
+  /**
+   * Закэшированный результат запроса с версией, по которой проверяется его актуальность.
+   */
+  private record CachedResult(long version, List<?> rows) {
+
+  }
+
+  /**
+   * Ограниченный по размеру кэш, вытесняющий давно не использованные записи.
+   */
+  private static final class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+    private final int maxEntries;
+    private long evictions;
+
+    LruCache(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      if (size() > maxEntries) {
+        evictions++;
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,1054 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskQuery.Direction;
+import com.example.taskmanager.entity.TaskQuery.SortKey;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.OptimisticLockException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Реализация {@link TaskDao}, хранящая задачи в памяти процесса по столбцам. Предназначена для
+ * аналитики и мгновенной фильтрации миллионов задач, для которых объекты {@link Task} слишком
+ * тяжелы: каждое поле хранится в отдельном массиве примитивов — id и версии в {@code int[]},
+ * статус в {@code byte[]}, даты в {@code long[]} (микросекунды, как в PostgreSQL), а заголовки и
+ * описания — номерами строк в {@link StringPool}, где одинаковые строки хранятся один раз.
+ * Объекты {@link Task} создаются только при выдаче результата.
+ * <p>
+ * Строка задачи по id находится через {@link IntIntHashMap}. Строки массивов упорядочены по id,
+ * поэтому выборки не требуют сортировки; удалённая задача только помечается, а массивы уплотняются,
+ * когда помеченных строк становится больше четверти. Поиск по подстроке проверяет каждую различную
+ * строку один раз, а затем отбирает задачи по номерам строк. Количество задач по статусам хранится
+ * готовыми счётчиками.
+ * </p>
+ * <p>
+ * Составные запросы ({@link #find(TaskQuery)}, {@link #count(TaskQuery)}) выполняются по индексам в
+ * памяти: для каждого статуса хранится {@link BitSet} его строк, наборы статусов объединяются
+ * (ИЛИ), а отбор по тексту и датам пересекается с ними (И). Подстроки от трёх символов ищутся по
+ * триграммному индексу строк ({@link TrigramIndex}), который строится при первом таком поиске и
+ * затем дополняется при записи, поэтому проверяются только строки-кандидаты, а не все различные
+ * строки.
+ * </p>
+ * <p>
+ * Новые задачи получают id, следующий за наибольшим; {@link #put(Task)} загружает задачи с уже
+ * присвоенными id (например, из PostgreSQL через {@link #loadFrom(TaskDao)}). Чтения выполняются
+ * параллельно, записи — под исключительной блокировкой. Удалённые id хранятся для
+ * {@link #findModifiedSince} в течение срока хранения (по умолчанию
+ * {@link #DEFAULT_TOMBSTONE_RETENTION}, как {@code purge.retentionDays} для
+ * {@code task_tombstones} в PostgreSQL): более старые записи отбрасываются, когда заполняется
+ * массив записей об удалении, поэтому отметка синхронизации не должна быть старше этого срока.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class ColumnarTaskDao implements TaskDao {
+
+  /**
+   * Снимок столбцов хранилища: все массивы имеют длину, равную количеству задач, строки
+   * упорядочены по id, а заголовки и описания — номера в {@code strings} ({@link StringPool#NULL}
+   * для {@code null}).
+   *
+   * @param maxId        наибольший выданный id (в том числе удалённых задач)
+   * @param strings      различные строки в кодировке UTF-8
+   * @param ids          идентификаторы
+   * @param statuses     порядковые номера статусов
+   * @param titles       номера строк заголовков
+   * @param descriptions номера строк описаний
+   * @param createdAt    даты создания в микросекундах
+   * @param updatedAt    даты изменения в микросекундах
+   * @param versions     версии
+   */
+  record Snapshot(int maxId, byte[][] strings, int[] ids, byte[] statuses, int[] titles,
+                  int[] descriptions, long[] createdAt, long[] updatedAt, int[] versions) {
+  }
+
+  private static final byte DELETED = -1;
+  private static final TaskStatus[] STATUSES = TaskStatus.values();
+  private static final int STREAM_CHUNK = 1_000;
+  private static final int MIN_COMPACT_ROWS = 1_024;
+
+  /**
+   * Срок хранения записей об удалении по умолчанию.
+   */
+  public static final Duration DEFAULT_TOMBSTONE_RETENTION = Duration.ofDays(7);
+
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final StringPool strings = new StringPool();
+  private final long[] statusCounts = new long[STATUSES.length];
+  private final BitSet[] statusRows = new BitSet[STATUSES.length];
+  private final IntIntHashMap rowById;
+  private final long tombstoneRetentionMicros;
+
+  private int[] ids;
+  private byte[] statuses;
+  private int[] titles;
+  private int[] descriptions;
+  private long[] createdAt;
+  private long[] updatedAt;
+  private long[] changedAt;
+  private int[] versions;
+  private int rows;
+  private int deletedRows;
+  private volatile boolean sortedById = true;
+  private int maxId;
+  private long lastChange;
+  private TrigramIndex trigrams;
+  private int indexedStrings;
+
+  private int[] tombstoneIds = new int[16];
+  private long[] tombstoneTimes = new long[16];
+  private int tombstoneCount;
+
+  /**
+   * Создаёт пустое хранилище.
+   */
+  public ColumnarTaskDao() {
+    this(1_024);
+  }
+
+  /**
+   * Создаёт пустое хранилище, вмещающее указанное количество задач без перераспределения массивов.
+   *
+   * @param expectedSize ожидаемое количество задач
+   */
+  public ColumnarTaskDao(int expectedSize) {
+    this(expectedSize, DEFAULT_TOMBSTONE_RETENTION);
+  }
+
+  /**
+   * Создаёт пустое хранилище с заданным сроком хранения записей об удалении.
+   *
+   * @param expectedSize       ожидаемое количество задач
+   * @param tombstoneRetention срок, в течение которого удалённые id возвращаются
+   *                           {@link #findModifiedSince}
+   */
+  public ColumnarTaskDao(int expectedSize, Duration tombstoneRetention) {
+    this.tombstoneRetentionMicros = tombstoneRetention.toMillis() * 1_000;
+    int capacity = Math.max(16, expectedSize);
+    ids = new int[capacity];
+    statuses = new byte[capacity];
+    titles = new int[capacity];
+    descriptions = new int[capacity];
+    createdAt = new long[capacity];
+    updatedAt = new long[capacity];
+    changedAt = new long[capacity];
+    versions = new int[capacity];
+    rowById = new IntIntHashMap(capacity);
+    for (int i = 0; i < statusRows.length; i++) {
+      statusRows[i] = new BitSet(capacity);
+    }
+  }
+
+  /**
+   * Загружает в новое хранилище все задачи другого DAO потоком, не держа их объекты в памяти.
+   *
+   * @param source источник задач (например, {@link TaskDaoImpl})
+   * @return хранилище с задачами источника
+   * @throws com.example.taskmanager.exception.DaoException при ошибке чтения источника
+   */
+  public static ColumnarTaskDao loadFrom(TaskDao source) {
+    long expected = source.countByStatus().values().stream().mapToLong(Long::longValue).sum();
+    ColumnarTaskDao dao = new ColumnarTaskDao((int) Math.min(expected, Integer.MAX_VALUE / 2));
+    try (Stream<Task> tasks = source.streamAll()) {
+      tasks.forEach(dao::put);
+    }
+    return dao;
+  }
+
+  /**
+   * Добавляет задачу с уже присвоенными id и версией или заменяет хранимую задачу с тем же id без
+   * проверки версии. Используется при загрузке задач из другого хранилища.
+   *
+   * @param task задача с id, отличным от 0
+   * @throws IllegalArgumentException если id задачи равен 0
+   */
+  public void put(Task task) {
+    if (task.getId() == 0) {
+      throw new IllegalArgumentException("Задача без идентификатора");
+    }
+    lock.writeLock().lock();
+    try {
+      int row = rowById.get(task.getId());
+      if (row == IntIntHashMap.MISSING) {
+        row = appendRow(task.getId());
+      } else {
+        clearRow(row);
+      }
+      writeRow(row, task, task.getVersion());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Создаёт хранилище из снимка столбцов (см. {@link #snapshot()}). Массивы снимка используются
+   * без копирования.
+   *
+   * @param snapshot снимок, строки которого упорядочены по id
+   * @return хранилище с задачами снимка
+   */
+  static ColumnarTaskDao fromSnapshot(Snapshot snapshot) {
+    ColumnarTaskDao dao = new ColumnarTaskDao(0);
+    int size = snapshot.ids().length;
+    dao.ids = snapshot.ids();
+    dao.statuses = snapshot.statuses();
+    dao.titles = snapshot.titles();
+    dao.descriptions = snapshot.descriptions();
+    dao.createdAt = snapshot.createdAt();
+    dao.updatedAt = snapshot.updatedAt();
+    dao.versions = snapshot.versions();
+    // Задачи из снимка не считаются изменёнными для findModifiedSince
+    dao.changedAt = new long[size];
+    dao.rows = size;
+    dao.maxId = snapshot.maxId();
+    dao.rowById.clear(size);
+    int[] refCounts = new int[snapshot.strings().length];
+    for (int row = 0; row < size; row++) {
+      dao.rowById.put(dao.ids[row], row);
+      dao.statusCounts[dao.statuses[row]]++;
+      dao.statusRows[dao.statuses[row]].set(row);
+      refCounts[dao.titles[row]]++;
+      if (dao.descriptions[row] != StringPool.NULL) {
+        refCounts[dao.descriptions[row]]++;
+      }
+      dao.maxId = Math.max(dao.maxId, dao.ids[row]);
+    }
+    dao.strings.load(snapshot.strings(), refCounts);
+    return dao;
+  }
+
+  /**
+   * Копирует столбцы живых задач в порядке id и различные строки, на которые они ссылаются.
+   * Блокирует запись только на время копирования массивов; байты строк не копируются, так как
+   * они неизменяемы.
+   *
+   * @return согласованный снимок хранилища
+   */
+  Snapshot snapshot() {
+    lockOrdered();
+    try {
+      int live = rows - deletedRows;
+      int[] snapshotIds = new int[live];
+      byte[] snapshotStatuses = new byte[live];
+      int[] snapshotTitles = new int[live];
+      int[] snapshotDescriptions = new int[live];
+      long[] snapshotCreatedAt = new long[live];
+      long[] snapshotUpdatedAt = new long[live];
+      int[] snapshotVersions = new int[live];
+      StringRenumbering renumbering = new StringRenumbering(strings);
+      int next = 0;
+      for (int row = 0; row < rows; row++) {
+        if (statuses[row] == DELETED) {
+          continue;
+        }
+        snapshotIds[next] = ids[row];
+        snapshotStatuses[next] = statuses[row];
+        snapshotTitles[next] = renumbering.map(titles[row]);
+        snapshotDescriptions[next] = renumbering.map(descriptions[row]);
+        snapshotCreatedAt[next] = createdAt[row];
+        snapshotUpdatedAt[next] = updatedAt[row];
+        snapshotVersions[next] = versions[row];
+        next++;
+      }
+      return new Snapshot(maxId, renumbering.strings(), snapshotIds, snapshotStatuses,
+          snapshotTitles, snapshotDescriptions, snapshotCreatedAt, snapshotUpdatedAt,
+          snapshotVersions);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Возвращает количество хранимых задач.
+   *
+   * @return количество задач
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return rowById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Task save(Task task) {
+    return saveAll(List.of(task)).get(0);
+  }
+
+  /**
+   * Сохраняет задачи атомарно: если версия хотя бы одной изменяемой задачи не совпадает с
+   * хранимой, не сохраняется ни одна.
+   *
+   * @param tasks задачи для сохранения (новые — с id == 0)
+   * @return те же задачи с присвоенными id и новыми версиями
+   * @throws OptimisticLockException если задачи изменены или удалены после чтения
+   */
+  @Override
+  public List<Task> saveAll(Collection<Task> tasks) {
+    lock.writeLock().lock();
+    try {
+      List<Integer> conflicts = new ArrayList<>();
+      for (Task task : tasks) {
+        if (task.getId() != 0) {
+          int row = rowById.get(task.getId());
+          if (row == IntIntHashMap.MISSING || versions[row] != task.getVersion()) {
+            conflicts.add(task.getId());
+          }
+        }
+      }
+      if (!conflicts.isEmpty()) {
+        throw new OptimisticLockException(conflicts);
+      }
+      for (Task task : tasks) {
+        if (task.getId() == 0) {
+          task.setId(maxId + 1);
+          writeRow(appendRow(task.getId()), task, 0);
+          task.setVersion(0);
+        } else {
+          int row = rowById.get(task.getId());
+          clearRow(row);
+          writeRow(row, task, task.getVersion() + 1);
+          task.setVersion(task.getVersion() + 1);
+        }
+      }
+      return new ArrayList<>(tasks);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Optional<Task> findById(int id) {
+    lock.readLock().lock();
+    try {
+      int row = rowById.get(id);
+      return row == IntIntHashMap.MISSING ? Optional.empty() : Optional.of(toTask(row));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Task> findAll() {
+    return scan(row -> true, this::toTask);
+  }
+
+  @Override
+  public List<Task> findByStatus(TaskStatus status) {
+    byte ordinal = (byte) status.ordinal();
+    return scan(row -> statuses[row] == ordinal, this::toTask);
+  }
+
+  /**
+   * Ищет задачи, у которых заголовок или описание содержат подстроку без учёта регистра. Каждая
+   * различная строка проверяется один раз.
+   *
+   * @param query строка поиска
+   * @return найденные задачи, отсортированные по id
+   */
+  @Override
+  public List<Task> search(String query) {
+    lockForSearch(query);
+    try {
+      BitSet matching = matchingStrings(query);
+      return scan(row -> matching.get(titles[row])
+          || descriptions[row] != StringPool.NULL && matching.get(descriptions[row]), this::toTask);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Возвращает краткие представления всех задач, декодируя только начало описаний.
+   *
+   * @return краткие представления задач, отсортированные по id
+   */
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    return scan(row -> true, this::toSummary);
+  }
+
+  /**
+   * Возвращает краткие представления задач с указанным статусом.
+   *
+   * @param status статус задачи
+   * @return краткие представления задач, отсортированные по id
+   */
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    byte ordinal = (byte) status.ordinal();
+    return scan(row -> statuses[row] == ordinal, this::toSummary);
+  }
+
+  /**
+   * Возвращает количество задач по статусам из счётчиков, не просматривая задачи.
+   *
+   * @return количество задач по статусам
+   */
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    lock.readLock().lock();
+    try {
+      EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+      for (TaskStatus status : STATUSES) {
+        counts.put(status, statusCounts[status.ordinal()]);
+      }
+      return counts;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Выполняет составной запрос по индексам статусов и строк. Запросы в порядке id (и по
+   * релевантности, которая в памяти совпадает с порядком id) читают строки подряд от курсора и
+   * создают объекты только для выдаваемых задач; остальные сортировки упорядочивают все отобранные
+   * задачи.
+   *
+   * @param query запрос
+   * @return задачи, удовлетворяющие запросу, в порядке его сортировки
+   */
+  @Override
+  public List<Task> find(TaskQuery query) {
+    return inIdOrder(query) ? select(query, this::toTask) : sortSelected(query);
+  }
+
+  /**
+   * Выполняет составной запрос (см. {@link #find(TaskQuery)}) и возвращает краткие представления
+   * задач.
+   *
+   * @param query запрос
+   * @return краткие представления задач в порядке сортировки запроса
+   */
+  @Override
+  public List<TaskSummary> findSummaries(TaskQuery query) {
+    return inIdOrder(query)
+        ? select(query, this::toSummary)
+        : sortSelected(query).stream().map(TaskSummary::of).toList();
+  }
+
+  /**
+   * Возвращает количество задач, удовлетворяющих запросу. Отбор только по статусам считается по
+   * счётчикам статусов без просмотра задач.
+   *
+   * @param query запрос
+   * @return количество задач
+   */
+  @Override
+  public long count(TaskQuery query) {
+    if (query.text() == null && query.createdFrom() == null && query.createdTo() == null
+        && query.updatedFrom() == null && query.updatedTo() == null) {
+      lock.readLock().lock();
+      try {
+        long count = 0;
+        for (TaskStatus status : STATUSES) {
+          if (query.statuses().isEmpty() || query.statuses().contains(status)) {
+            count += statusCounts[status.ordinal()];
+          }
+        }
+        return count;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+    lockForSearch(query.text());
+    try {
+      return selectRows(query).cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Возвращает поток всех задач, отсортированных по id. Задачи создаются частями по мере
+   * потребления; между частями хранилище не блокируется, и изменения, сделанные во время чтения,
+   * могут попасть в ещё не прочитанную часть.
+   *
+   * @return поток всех задач
+   */
+  @Override
+  public Stream<Task> streamAll() {
+    return stream(row -> true);
+  }
+
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    byte ordinal = (byte) status.ordinal();
+    return stream(row -> statuses[row] == ordinal);
+  }
+
+  /**
+   * Возвращает задачи, изменённые в хранилище начиная с отметки, и id удалённых задач. Время
+   * изменения отсчитывается по часам процесса и не зависит от {@code updated_at}.
+   *
+   * @param watermark отметка предыдущей синхронизации
+   * @return изменения и отметка следующей синхронизации
+   */
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    lockOrdered();
+    try {
+      long since = toMicros(watermark);
+      List<Task> changed = scan(row -> changedAt[row] >= since, this::toTask);
+      List<Integer> deletedIds = new ArrayList<>();
+      for (int i = 0; i < tombstoneCount; i++) {
+        if (tombstoneTimes[i] >= since) {
+          deletedIds.add(tombstoneIds[i]);
+        }
+      }
+      long next = Math.max(toMicros(LocalDateTime.now()), lastChange + 1);
+      return new TaskDelta(changed, deletedIds, toDateTime(next));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void delete(int id) {
+    deleteAll(List.of(id));
+  }
+
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    lock.writeLock().lock();
+    try {
+      for (int id : ids) {
+        int row = rowById.remove(id);
+        if (row == IntIntHashMap.MISSING) {
+          continue;
+        }
+        clearRow(row);
+        statuses[row] = DELETED;
+        deletedRows++;
+        addTombstone(id, nextChange());
+      }
+      if (deletedRows > MIN_COMPACT_ROWS && deletedRows > rows / 4) {
+        compact();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Захватывает блокировку чтения, предварительно упорядочив строки по id, если после вставок не
+   * по порядку это требуется.
+   */
+  private void lockOrdered() {
+    while (true) {
+      lock.readLock().lock();
+      if (sortedById) {
+        return;
+      }
+      lock.readLock().unlock();
+      lock.writeLock().lock();
+      try {
+        if (!sortedById) {
+          compact();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Захватывает блокировку чтения так же, как {@link #lockOrdered()}, предварительно построив
+   * триграммный индекс, если он нужен для поиска подстроки.
+   *
+   * @param text строка поиска или {@code null}
+   */
+  private void lockForSearch(String text) {
+    boolean indexed = text != null && text.length() >= TrigramIndex.GRAM;
+    while (true) {
+      lockOrdered();
+      if (!indexed || trigrams != null) {
+        return;
+      }
+      lock.readLock().unlock();
+      lock.writeLock().lock();
+      try {
+        if (trigrams == null) {
+          buildTrigrams();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private boolean inIdOrder(TaskQuery query) {
+    return query.sortKey() == SortKey.ID || query.sortKey() == SortKey.RELEVANCE;
+  }
+
+  /**
+   * Выдаёт отобранные строки подряд в порядке id начиная с курсора, пропуская смещение.
+   */
+  private <T> List<T> select(TaskQuery query, IntFunction<T> mapper) {
+    lockForSearch(query.text());
+    try {
+      BitSet selected = selectRows(query);
+      boolean ascending =
+          query.sortKey() == SortKey.RELEVANCE || query.direction() == Direction.ASC;
+      int limit = query.limit() > 0 ? query.limit() : Integer.MAX_VALUE;
+      int skip = query.offset();
+      int row;
+      if (query.cursor() == null) {
+        row = ascending ? selected.nextSetBit(0) : selected.previousSetBit(rows - 1);
+      } else {
+        row = ascending
+            ? selected.nextSetBit(firstRowAfter(query.cursor().id()))
+            : selected.previousSetBit(firstRowAfter(query.cursor().id() - 1) - 1);
+      }
+      List<T> result = new ArrayList<>(Math.min(limit, STREAM_CHUNK));
+      while (row >= 0 && result.size() < limit) {
+        if (skip > 0) {
+          skip--;
+        } else {
+          result.add(mapper.apply(row));
+        }
+        row = ascending ? selected.nextSetBit(row + 1) : selected.previousSetBit(row - 1);
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private List<Task> sortSelected(TaskQuery query) {
+    List<Task> selected;
+    lockForSearch(query.text());
+    try {
+      BitSet rowsSelected = selectRows(query);
+      selected = new ArrayList<>(rowsSelected.cardinality());
+      for (int row = rowsSelected.nextSetBit(0); row >= 0; row = rowsSelected.nextSetBit(row + 1)) {
+        selected.add(toTask(row));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    Stream<Task> sorted = selected.stream()
+        .filter(query::isAfterCursor)
+        .sorted(query.taskOrder())
+        .skip(query.offset());
+    return (query.limit() > 0 ? sorted.limit(query.limit()) : sorted).toList();
+  }
+
+  /**
+   * Отбирает строки запроса: объединение строк его статусов, из которого исключаются строки, не
+   * прошедшие отбор по тексту и датам. Вызывается под блокировкой чтения.
+   */
+  private BitSet selectRows(TaskQuery query) {
+    BitSet selected = new BitSet(rows);
+    for (TaskStatus status : STATUSES) {
+      if (query.statuses().isEmpty() || query.statuses().contains(status)) {
+        selected.or(statusRows[status.ordinal()]);
+      }
+    }
+    IntPredicate filter = rowFilter(query);
+    if (filter != null) {
+      for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+        if (!filter.test(row)) {
+          selected.clear(row);
+        }
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Возвращает проверку строки по тексту и датам запроса или {@code null}, если запрос отбирает
+   * только по статусам. Строки, содержащие текст, отмечаются при создании проверки, поэтому её
+   * нужно создавать под блокировкой чтения.
+   */
+  private IntPredicate rowFilter(TaskQuery query) {
+    IntPredicate filter = null;
+    if (query.text() != null) {
+      BitSet matching = matchingStrings(query.text());
+      filter = row -> matching.get(titles[row])
+          || descriptions[row] != StringPool.NULL && matching.get(descriptions[row]);
+    }
+    filter = and(filter, createdAt, query.createdFrom(), query.createdTo());
+    return and(filter, updatedAt, query.updatedFrom(), query.updatedTo());
+  }
+
+  private static IntPredicate and(IntPredicate filter, long[] column, LocalDateTime from,
+      LocalDateTime to) {
+    if (from == null && to == null) {
+      return filter;
+    }
+    long low = from == null ? Long.MIN_VALUE : toMicros(from);
+    long high = to == null ? Long.MAX_VALUE : toMicros(to);
+    IntPredicate inRange = row -> column[row] >= low && column[row] < high;
+    return filter == null ? inRange : filter.and(inRange);
+  }
+
+  private <T> List<T> scan(IntPredicate filter, IntFunction<T> mapper) {
+    lockOrdered();
+    try {
+      List<T> result = new ArrayList<>();
+      for (int row = 0; row < rows; row++) {
+        if (statuses[row] != DELETED && filter.test(row)) {
+          result.add(mapper.apply(row));
+        }
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Создаёт поток задач, читающий строки частями по id, чтобы уплотнение массивов между частями
+   * не приводило к пропускам и повторам.
+   */
+  private Stream<Task> stream(IntPredicate filter) {
+    Spliterator<Task> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      private Iterator<Task> chunk = Collections.emptyIterator();
+      private int lastId = Integer.MIN_VALUE;
+      private boolean exhausted;
+
+      @Override
+      public boolean tryAdvance(Consumer<? super Task> action) {
+        if (!chunk.hasNext()) {
+          if (exhausted) {
+            return false;
+          }
+          List<Task> tasks = nextChunk(lastId, filter);
+          exhausted = tasks.size() < STREAM_CHUNK;
+          if (tasks.isEmpty()) {
+            return false;
+          }
+          lastId = tasks.get(tasks.size() - 1).getId();
+          chunk = tasks.iterator();
+        }
+        action.accept(chunk.next());
+        return true;
+      }
+    };
+    return StreamSupport.stream(spliterator, false);
+  }
+
+  private List<Task> nextChunk(int afterId, IntPredicate filter) {
+    lockOrdered();
+    try {
+      List<Task> tasks = new ArrayList<>(STREAM_CHUNK);
+      int row = afterId == Integer.MIN_VALUE ? 0 : firstRowAfter(afterId);
+      for (; row < rows && tasks.size() < STREAM_CHUNK; row++) {
+        if (statuses[row] != DELETED && filter.test(row)) {
+          tasks.add(toTask(row));
+        }
+      }
+      return tasks;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Находит двоичным поиском первую строку с id больше заданного (строки упорядочены по id).
+   */
+  private int firstRowAfter(int id) {
+    int low = 0;
+    int high = rows;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (ids[middle] <= id) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Отмечает номера строк, содержащих подстроку без учёта регистра. Если построен триграммный
+   * индекс и подстрока не короче триграммы, проверяются только строки-кандидаты из индекса, иначе
+   * все строки. Подстрока из символов ASCII ищется прямо в байтах UTF-8, остальные — в
+   * декодированных строках.
+   */
+  private BitSet matchingStrings(String query) {
+    String needle = query.toLowerCase(Locale.ROOT);
+    BitSet matching = new BitSet(strings.capacity());
+    boolean ascii = needle.chars().allMatch(c -> c < 0x80);
+    byte[] needleBytes = needle.getBytes(StandardCharsets.US_ASCII);
+    IntConsumer check = ref -> {
+      if (!matching.get(ref) && strings.isLive(ref) && (ascii
+          ? strings.containsAsciiIgnoreCase(ref, needleBytes)
+          : strings.get(ref).toLowerCase(Locale.ROOT).contains(needle))) {
+        matching.set(ref);
+      }
+    };
+    if (trigrams == null || !trigrams.forEachCandidate(needle, check)) {
+      for (int ref = 0; ref < strings.capacity(); ref++) {
+        check.accept(ref);
+      }
+    }
+    return matching;
+  }
+
+  /**
+   * Строит триграммный индекс по всем хранимым строкам. Вызывается под блокировкой записи.
+   */
+  private void buildTrigrams() {
+    trigrams = new TrigramIndex();
+    indexedStrings = 0;
+    for (int ref = 0; ref < strings.capacity(); ref++) {
+      if (strings.isLive(ref)) {
+        trigrams.add(ref, strings.get(ref));
+        indexedStrings++;
+      }
+    }
+  }
+
+  /**
+   * Добавляет в триграммный индекс строку, впервые появившуюся в хранилище. Когда устаревших
+   * номеров освобождённых строк в индексе становится больше, чем хранимых строк, индекс
+   * сбрасывается и строится заново при следующем поиске.
+   */
+  private void indexString(int ref, String value) {
+    if (trigrams == null || ref == StringPool.NULL || strings.references(ref) > 1) {
+      return;
+    }
+    if (++indexedStrings > 2 * strings.size() + MIN_COMPACT_ROWS) {
+      trigrams = null;
+      return;
+    }
+    trigrams.add(ref, value);
+  }
+
+  private int appendRow(int id) {
+    if (rows == ids.length) {
+      grow(Math.max(16, rows + (rows >> 1)));
+    }
+    if (rows > 0 && id < ids[rows - 1]) {
+      sortedById = false;
+    }
+    int row = rows++;
+    ids[row] = id;
+    rowById.put(id, row);
+    maxId = Math.max(maxId, id);
+    return row;
+  }
+
+  private void writeRow(int row, Task task, int version) {
+    byte status = (byte) task.getStatus().ordinal();
+    statuses[row] = status;
+    statusCounts[status]++;
+    statusRows[status].set(row);
+    titles[row] = strings.add(task.getTitle());
+    descriptions[row] = strings.add(task.getDescription());
+    indexString(titles[row], task.getTitle());
+    indexString(descriptions[row], task.getDescription());
+    createdAt[row] = toMicros(task.getCreatedAt());
+    updatedAt[row] = toMicros(task.getUpdatedAt());
+    versions[row] = version;
+    changedAt[row] = nextChange();
+  }
+
+  /**
+   * Освобождает строки и счётчик статуса, занятые строкой массива перед её перезаписью или
+   * удалением.
+   */
+  private void clearRow(int row) {
+    statusCounts[statuses[row]]--;
+    statusRows[statuses[row]].clear(row);
+    strings.release(titles[row]);
+    strings.release(descriptions[row]);
+    titles[row] = StringPool.NULL;
+    descriptions[row] = StringPool.NULL;
+  }
+
+  /**
+   * Удаляет помеченные строки и упорядочивает оставшиеся по id.
+   */
+  private void compact() {
+    int live = rows - deletedRows;
+    long[] order = new long[live];
+    int next = 0;
+    for (int row = 0; row < rows; row++) {
+      if (statuses[row] != DELETED) {
+        order[next++] = (long) ids[row] << 32 | row;
+      }
+    }
+    Arrays.parallelSort(order);
+
+    int capacity = Math.max(16, live + (live >> 2));
+    int[] newIds = new int[capacity];
+    byte[] newStatuses = new byte[capacity];
+    int[] newTitles = new int[capacity];
+    int[] newDescriptions = new int[capacity];
+    long[] newCreatedAt = new long[capacity];
+    long[] newUpdatedAt = new long[capacity];
+    long[] newChangedAt = new long[capacity];
+    int[] newVersions = new int[capacity];
+    rowById.clear(capacity);
+    for (BitSet bits : statusRows) {
+      bits.clear();
+    }
+    for (int i = 0; i < live; i++) {
+      int row = (int) order[i];
+      newIds[i] = ids[row];
+      newStatuses[i] = statuses[row];
+      newTitles[i] = titles[row];
+      newDescriptions[i] = descriptions[row];
+      newCreatedAt[i] = createdAt[row];
+      newUpdatedAt[i] = updatedAt[row];
+      newChangedAt[i] = changedAt[row];
+      newVersions[i] = versions[row];
+      rowById.put(newIds[i], i);
+      statusRows[newStatuses[i]].set(i);
+    }
+    ids = newIds;
+    statuses = newStatuses;
+    titles = newTitles;
+    descriptions = newDescriptions;
+    createdAt = newCreatedAt;
+    updatedAt = newUpdatedAt;
+    changedAt = newChangedAt;
+    versions = newVersions;
+    rows = live;
+    deletedRows = 0;
+    sortedById = true;
+  }
+
+  private void grow(int capacity) {
+    ids = Arrays.copyOf(ids, capacity);
+    statuses = Arrays.copyOf(statuses, capacity);
+    titles = Arrays.copyOf(titles, capacity);
+    descriptions = Arrays.copyOf(descriptions, capacity);
+    createdAt = Arrays.copyOf(createdAt, capacity);
+    updatedAt = Arrays.copyOf(updatedAt, capacity);
+    changedAt = Arrays.copyOf(changedAt, capacity);
+    versions = Arrays.copyOf(versions, capacity);
+  }
+
+  private void addTombstone(int id, long time) {
+    if (tombstoneCount == tombstoneIds.length) {
+      pruneTombstones(time - tombstoneRetentionMicros);
+      // Массивы растут, если после отбрасывания занято больше половины, иначе почти каждая
+      // следующая запись снова приводила бы к просмотру массивов
+      if (tombstoneCount > tombstoneIds.length / 2) {
+        tombstoneIds = Arrays.copyOf(tombstoneIds, tombstoneIds.length * 2);
+        tombstoneTimes = Arrays.copyOf(tombstoneTimes, tombstoneTimes.length * 2);
+      }
+    }
+    tombstoneIds[tombstoneCount] = id;
+    tombstoneTimes[tombstoneCount++] = time;
+  }
+
+  /**
+   * Отбрасывает записи об удалении старше горизонта. Время записей возрастает (см.
+   * {@link #nextChange()}), поэтому устаревшие записи находятся в начале массивов.
+   *
+   * @param horizon время в микросекундах, записи до которого отбрасываются
+   */
+  private void pruneTombstones(long horizon) {
+    int expired = 0;
+    while (expired < tombstoneCount && tombstoneTimes[expired] < horizon) {
+      expired++;
+    }
+    if (expired == 0) {
+      return;
+    }
+    tombstoneCount -= expired;
+    System.arraycopy(tombstoneIds, expired, tombstoneIds, 0, tombstoneCount);
+    System.arraycopy(tombstoneTimes, expired, tombstoneTimes, 0, tombstoneCount);
+  }
+
+  /**
+   * Возвращает время очередного изменения: текущее время, но строго больше предыдущего, чтобы
+   * изменения не терялись при переводе часов назад.
+   */
+  private long nextChange() {
+    lastChange = Math.max(toMicros(LocalDateTime.now()), lastChange + 1);
+    return lastChange;
+  }
+
+  private Task toTask(int row) {
+    Task task = new Task(ids[row], strings.get(titles[row]), strings.get(descriptions[row]),
+        STATUSES[statuses[row]], toDateTime(createdAt[row]), toDateTime(updatedAt[row]));
+    task.setVersion(versions[row]);
+    return task;
+  }
+
+  private TaskSummary toSummary(int row) {
+    // Фрагмент декодируется на символ длиннее, чтобы определить, обрезано ли описание
+    String snippet = strings.prefix(descriptions[row], TaskSummary.SNIPPET_LENGTH + 1);
+    boolean truncated = snippet != null && snippet.length() > TaskSummary.SNIPPET_LENGTH;
+    return new TaskSummary(ids[row], strings.get(titles[row]),
+        truncated ? snippet.substring(0, TaskSummary.SNIPPET_LENGTH) : snippet, truncated,
+        STATUSES[statuses[row]], toDateTime(createdAt[row]), toDateTime(updatedAt[row]));
+  }
+
+  static long toMicros(LocalDateTime dateTime) {
+    return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+  }
+
+  static LocalDateTime toDateTime(long micros) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+        Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+  }
+
+  /**
+   * Перенумерация строк для снимка: строки получают номера подряд в порядке первого
+   * использования, освобождённые номера пула в снимок не попадают.
+   */
+  private static final class StringRenumbering {
+
+    private final StringPool pool;
+    private final int[] renumbered;
+    private final byte[][] strings;
+    private int count;
+
+    StringRenumbering(StringPool pool) {
+      this.pool = pool;
+      this.renumbered = new int[pool.capacity()];
+      this.strings = new byte[pool.size()][];
+    }
+
+    int map(int ref) {
+      if (ref == StringPool.NULL) {
+        return StringPool.NULL;
+      }
+      if (renumbered[ref] == 0) {
+        strings[count] = pool.bytes(ref);
+        renumbered[ref] = ++count;
+      }
+      return renumbered[ref] - 1;
+    }
+
+    byte[][] strings() {
+      return strings;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.example.taskmanager.dao;
+
+import java.util.Arrays;
+
+/**
+ * Отображение {@code int -> int} с открытой адресацией и линейным пробированием. В отличие от
+ * {@code HashMap<Integer, Integer>} не создаёт объектов на каждую запись: ключи и значения хранятся
+ * в двух массивах, поэтому запись занимает в среднем около 11 байт вместо примерно 60, а поиск
+ * обращается к одной-двум соседним ячейкам массива.
+ * <p>
+ * Ключ 0 зарезервирован как признак свободной ячейки. Удаление сдвигает следующие записи цепочки
+ * назад, поэтому удалённые ячейки не накапливаются и не замедляют поиск.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class IntIntHashMap {
+
+  /**
+   * Значение, возвращаемое {@link #get(int)} для отсутствующего ключа.
+   */
+  static final int MISSING = -1;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private int[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+  private int resizeThreshold;
+
+  /**
+   * Создаёт отображение, вмещающее указанное количество записей без перестроения.
+   *
+   * @param expectedSize ожидаемое количество записей
+   */
+  IntIntHashMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Возвращает значение по ключу.
+   *
+   * @param key ключ (не 0)
+   * @return значение или {@link #MISSING}, если ключа нет
+   */
+  int get(int key) {
+    int slot = slot(key);
+    int current;
+    while ((current = keys[slot]) != 0) {
+      if (current == key) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return MISSING;
+  }
+
+  /**
+   * Добавляет запись или заменяет значение существующей.
+   *
+   * @param key   ключ (не 0)
+   * @param value значение
+   * @throws IllegalArgumentException если ключ равен 0
+   */
+  void put(int key, int value) {
+    if (key == 0) {
+      throw new IllegalArgumentException("Ключ 0 зарезервирован");
+    }
+    int slot = slot(key);
+    int current;
+    while ((current = keys[slot]) != 0) {
+      if (current == key) {
+        values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size > resizeThreshold) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   * Удаляет запись по ключу.
+   *
+   * @param key ключ
+   * @return удалённое значение или {@link #MISSING}, если ключа не было
+   */
+  int remove(int key) {
+    int slot = slot(key);
+    int current;
+    while ((current = keys[slot]) != 0) {
+      if (current == key) {
+        int value = values[slot];
+        shiftBack(slot);
+        size--;
+        return value;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return MISSING;
+  }
+
+  /**
+   * Возвращает количество записей.
+   *
+   * @return количество записей
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Удаляет все записи и при необходимости уменьшает массивы под ожидаемый размер.
+   *
+   * @param expectedSize ожидаемое количество записей после очистки
+   */
+  void clear(int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    if (capacity == keys.length) {
+      Arrays.fill(keys, 0);
+      size = 0;
+    } else {
+      allocate(capacity);
+    }
+  }
+
+  /**
+   * Сдвигает назад записи цепочки, следующие за освобождаемой ячейкой, чтобы поиск не прерывался
+   * на образовавшейся пустой ячейке.
+   */
+  private void shiftBack(int free) {
+    int slot = free;
+    while (true) {
+      slot = (slot + 1) & mask;
+      int key = keys[slot];
+      if (key == 0) {
+        break;
+      }
+      int home = slot(key);
+      // Запись можно перенести в свободную ячейку, если та лежит между её исходной ячейкой и
+      // текущей (с учётом перехода через конец массива)
+      if (((slot - home) & mask) >= ((slot - free) & mask)) {
+        keys[free] = key;
+        values[free] = values[slot];
+        free = slot;
+      }
+    }
+    keys[free] = 0;
+  }
+
+  private int slot(int key) {
+    // Мультипликативное хеширование: последовательные id равномерно распределяются по таблице
+    return (key * 0x9E3779B9 >>> 16 ^ key * 0x9E3779B9) & mask;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    size = 0;
+    resizeThreshold = capacity / 4 * 3;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    long required = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+    if (required > 1 << 30) {
+      throw new IllegalArgumentException("Слишком много записей: " + expectedSize);
+    }
+    return Integer.highestOneBit((int) required - 1) << 1;
+  }
+}
@@ -0,0 +1,293 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.dao.ColumnarTaskDao.Snapshot;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.DaoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище задач в памяти ({@link ColumnarTaskDao}), переживающее перезапуск процесса. Каждое
+ * изменение перед возвратом из метода записывается в журнал предзаписи
+ * ({@link TaskWriteAheadLog}) с групповой фиксацией, а периодически всё хранилище сохраняется
+ * компактным снимком ({@link TaskSnapshotFile}), после чего журнал начинается заново.
+ * <p>
+ * При открытии снимок загружается через отображение файла в память, а затем воспроизводится
+ * журнал, накопленный после снимка. Поэтому запуск занимает время чтения файла, а не полной
+ * выборки задач из PostgreSQL. Снимок снимается, не останавливая запись: журнал переключается на
+ * новое поколение, столбцы хранилища копируются под блокировкой, а запись файла и удаление
+ * старых поколений журнала выполняются уже без неё.
+ * </p>
+ * <p>
+ * Изменение становится видно читателям сразу после применения в памяти, а вызвавший его метод
+ * возвращает управление только после сброса журнала на диск.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class JournaledTaskDao implements TaskDao, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JournaledTaskDao.class);
+
+  private static final String SNAPSHOT_FILE = "snapshot.bin";
+  private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+
+  private final Path directory;
+  private final ColumnarTaskDao memory;
+  private final TaskWriteAheadLog wal;
+  private final long snapshotWalBytes;
+  private final Object writeMutex = new Object();
+  private final ScheduledExecutorService snapshotExecutor;
+  private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+  private JournaledTaskDao(Path directory, ColumnarTaskDao memory, TaskWriteAheadLog wal,
+      Duration snapshotInterval, long snapshotWalBytes) {
+    this.directory = directory;
+    this.memory = memory;
+    this.wal = wal;
+    this.snapshotWalBytes = snapshotWalBytes;
+    this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "task-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long intervalMillis = snapshotInterval.toMillis();
+    snapshotExecutor.scheduleWithFixedDelay(this::snapshotIfChanged, intervalMillis,
+        intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Открывает хранилище с интервалом снимков из {@code store.snapshotIntervalSeconds} (по
+   * умолчанию 300) и размером журнала, после которого снимок снимается досрочно, из
+   * {@code store.snapshotWalMegabytes} (по умолчанию 64).
+   *
+   * @param directory каталог снимка и журнала (создаётся при необходимости)
+   * @return открытое хранилище
+   * @throws DaoException если снимок или журнал не читаются
+   */
+  public static JournaledTaskDao open(Path directory) {
+    return open(directory,
+        Duration.ofSeconds(DatabaseConnection.getIntProperty("store.snapshotIntervalSeconds", 300)),
+        DatabaseConnection.getIntProperty("store.snapshotWalMegabytes", 64) * 1024L * 1024L);
+  }
+
+  /**
+   * Открывает хранилище: загружает последний снимок и воспроизводит журнал после него.
+   *
+   * @param directory        каталог снимка и журнала (создаётся при необходимости)
+   * @param snapshotInterval интервал периодических снимков
+   * @param snapshotWalBytes размер журнала, после которого снимок снимается досрочно
+   * @return открытое хранилище
+   * @throws DaoException если снимок или журнал не читаются
+   */
+  public static JournaledTaskDao open(Path directory, Duration snapshotInterval,
+      long snapshotWalBytes) {
+    try {
+      Files.createDirectories(directory);
+      Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+      ColumnarTaskDao memory;
+      long generation = 0;
+      if (Files.exists(snapshotFile)) {
+        TaskSnapshotFile.Loaded loaded = TaskSnapshotFile.read(snapshotFile);
+        memory = ColumnarTaskDao.fromSnapshot(loaded.snapshot());
+        generation = loaded.generation();
+      } else {
+        memory = new ColumnarTaskDao();
+      }
+      // Поколения до снимка могли остаться, если процесс остановился сразу после его записи
+      TaskWriteAheadLog.deleteBefore(directory, generation);
+      long lastGeneration = TaskWriteAheadLog.replay(directory, generation, memory);
+      TaskWriteAheadLog wal = new TaskWriteAheadLog(directory, lastGeneration);
+      return new JournaledTaskDao(directory, memory, wal, snapshotInterval, snapshotWalBytes);
+    } catch (IOException e) {
+      throw new DaoException("Ошибка открытия хранилища задач " + directory, e);
+    }
+  }
+
+  @Override
+  public Task save(Task task) {
+    long seq;
+    synchronized (writeMutex) {
+      memory.save(task);
+      seq = wal.appendPut(task);
+    }
+    wal.awaitDurable(seq);
+    snapshotIfWalIsLarge();
+    return task;
+  }
+
+  /**
+   * Сохраняет задачи атомарно (см. {@link ColumnarTaskDao#saveAll}) и ждёт одной групповой
+   * фиксации для всего пакета.
+   *
+   * @param tasks задачи для сохранения (новые — с id == 0)
+   * @return сохранённые задачи в исходном порядке
+   * @throws com.example.taskmanager.exception.OptimisticLockException если задачи изменены или
+   *                                                                   удалены после чтения
+   * @throws DaoException                                              при ошибке записи журнала
+   */
+  @Override
+  public List<Task> saveAll(Collection<Task> tasks) {
+    long seq = 0;
+    List<Task> saved;
+    synchronized (writeMutex) {
+      saved = memory.saveAll(tasks);
+      for (Task task : saved) {
+        seq = wal.appendPut(task);
+      }
+    }
+    wal.awaitDurable(seq);
+    snapshotIfWalIsLarge();
+    return saved;
+  }
+
+  @Override
+  public void delete(int id) {
+    deleteAll(List.of(id));
+  }
+
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    long seq = 0;
+    synchronized (writeMutex) {
+      memory.deleteAll(ids);
+      for (int id : ids) {
+        seq = wal.appendDelete(id);
+      }
+    }
+    wal.awaitDurable(seq);
+    snapshotIfWalIsLarge();
+  }
+
+  @Override
+  public Optional<Task> findById(int id) {
+    return memory.findById(id);
+  }
+
+  @Override
+  public List<Task> findAll() {
+    return memory.findAll();
+  }
+
+  @Override
+  public List<Task> findByStatus(TaskStatus status) {
+    return memory.findByStatus(status);
+  }
+
+  @Override
+  public List<Task> search(String query) {
+    return memory.search(query);
+  }
+
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    return memory.findAllSummaries();
+  }
+
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    return memory.findSummariesByStatus(status);
+  }
+
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    return memory.countByStatus();
+  }
+
+  @Override
+  public Stream<Task> streamAll() {
+    return memory.streamAll();
+  }
+
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    return memory.streamByStatus(status);
+  }
+
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    return memory.findModifiedSince(watermark);
+  }
+
+  /**
+   * Снимает снимок хранилища и удаляет журнал, который им покрыт. Запись задач во время записи
+   * файла снимка не блокируется.
+   *
+   * @throws DaoException при ошибке записи снимка
+   */
+  public void snapshot() {
+    try {
+      long generation;
+      Snapshot snapshot;
+      synchronized (writeMutex) {
+        generation = wal.generation() + 1;
+        wal.rotate(generation);
+        snapshot = memory.snapshot();
+      }
+      Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+      TaskSnapshotFile.write(temp, generation, snapshot);
+      Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      // Новый снимок должен быть в каталоге на диске до удаления журнала, который он покрывает
+      TaskWriteAheadLog.syncDirectory(directory);
+      TaskWriteAheadLog.deleteBefore(directory, generation);
+    } catch (IOException e) {
+      throw new DaoException("Ошибка записи снимка хранилища задач " + directory, e);
+    }
+  }
+
+  /**
+   * Останавливает периодические снимки, снимает последний снимок (чтобы следующий запуск не
+   * воспроизводил журнал) и закрывает журнал.
+   */
+  @Override
+  public void close() {
+    snapshotExecutor.shutdown();
+    try {
+      snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+      snapshotIfChanged();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      wal.close();
+    }
+  }
+
+  private void snapshotIfWalIsLarge() {
+    if (wal.segmentBytes() >= snapshotWalBytes && snapshotScheduled.compareAndSet(false, true)
+        && !snapshotExecutor.isShutdown()) {
+      snapshotExecutor.execute(this::snapshotIfChanged);
+    }
+  }
+
+  private void snapshotIfChanged() {
+    snapshotScheduled.set(false);
+    if (wal.segmentBytes() == 0) {
+      return;
+    }
+    try {
+      snapshot();
+    } catch (DaoException e) {
+      LOG.error(e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,748 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Реализация {@link TaskDao} над встроенной базой данных H2 в локальном файле. Используется в
+ * офлайн-режиме: все чтения и записи выполняются локально и не зависят от доступности PostgreSQL.
+ * <p>
+ * Каждая запись в одной локальной транзакции изменяет задачу и добавляет операцию в очередь
+ * исходящих изменений (таблица {@code outbox}), которую {@link TaskSyncWorker} в фоне передаёт в
+ * PostgreSQL. Новые задачи до отправки получают временные отрицательные идентификаторы; после
+ * отправки временный id заменяется постоянным, а обращения по временному id продолжают работать.
+ * Версии задач увеличиваются так же, как в PostgreSQL, поэтому конфликты одновременного изменения
+ * обнаруживаются при отправке.
+ * </p>
+ * <p>
+ * Все методы синхронизированы и работают через одно соединение с H2: запросы к встроенной БД
+ * выполняются за доли миллисекунды, и пул соединений не нужен.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class LocalTaskDao implements TaskDao, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalTaskDao.class);
+
+  private static final String TASK_COLUMNS =
+      "id, title, description, status, created_at, updated_at, version";
+
+  private static final String SUMMARY_COLUMNS = "id, title, LEFT(description, "
+      + (TaskSummary.SNIPPET_LENGTH + 1) + "), status, created_at, updated_at";
+
+  private static final String[] SCHEMA = {
+      "CREATE TABLE IF NOT EXISTS tasks (id INT PRIMARY KEY, title VARCHAR(255) NOT NULL, "
+          + "description VARCHAR, status VARCHAR(20) NOT NULL, created_at TIMESTAMP NOT NULL, "
+          + "updated_at TIMESTAMP NOT NULL, version INT NOT NULL, "
+          + "deleted BOOLEAN DEFAULT FALSE NOT NULL, changed_at TIMESTAMP NOT NULL)",
+      "CREATE INDEX IF NOT EXISTS idx_tasks_changed_at ON tasks (changed_at)",
+      "CREATE INDEX IF NOT EXISTS idx_tasks_status ON tasks (status)",
+      "CREATE TABLE IF NOT EXISTS outbox (seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+          + "operation VARCHAR(10) NOT NULL, task_id INT NOT NULL, title VARCHAR(255), "
+          + "description VARCHAR, status VARCHAR(20), created_at TIMESTAMP, updated_at TIMESTAMP, "
+          + "base_version INT NOT NULL)",
+      "CREATE INDEX IF NOT EXISTS idx_outbox_task_id ON outbox (task_id)",
+      "CREATE TABLE IF NOT EXISTS tombstones (task_id INT PRIMARY KEY, "
+          + "deleted_at TIMESTAMP NOT NULL)",
+      "CREATE TABLE IF NOT EXISTS id_aliases (temp_id INT PRIMARY KEY, id INT NOT NULL)",
+      "CREATE TABLE IF NOT EXISTS sync_state (name VARCHAR(50) PRIMARY KEY, "
+          + "value_ts TIMESTAMP NOT NULL)",
+      "CREATE SEQUENCE IF NOT EXISTS local_id_seq"
+  };
+
+  /**
+   * Вид операции в очереди исходящих изменений.
+   */
+  enum OutboxOperation {
+    SAVE, DELETE, RESTORE
+  }
+
+  /**
+   * Операция из очереди исходящих изменений.
+   *
+   * @param seq       порядковый номер операции
+   * @param operation вид операции
+   * @param task      задача: для {@link OutboxOperation#SAVE} — сохраняемое состояние, для
+   *                  остальных операций заполнены только id и версия; версия равна версии задачи
+   *                  до изменения
+   */
+  record OutboxEntry(long seq, OutboxOperation operation, Task task) {
+  }
+
+  private final Connection conn;
+  private volatile Runnable writeListener = () -> {
+  };
+
+  /**
+   * Открывает (или создаёт) локальное хранилище в файле.
+   *
+   * @param path путь к файлу базы данных без расширения
+   * @return локальное хранилище
+   * @throws DaoException если не удалось открыть базу данных
+   */
+  public static LocalTaskDao open(Path path) {
+    // WRITE_DELAY=0: фиксация транзакции сразу записывается на диск, очередь изменений не теряется
+    return new LocalTaskDao("jdbc:h2:file:" + path.toAbsolutePath() + ";WRITE_DELAY=0");
+  }
+
+  /**
+   * Открывает локальное хранилище по адресу JDBC базы данных H2 и создаёт недостающие таблицы.
+   *
+   * @param jdbcUrl адрес базы данных H2 (например, {@code jdbc:h2:mem:tasks} в тестах)
+   * @throws DaoException если не удалось открыть базу данных
+   */
+  public LocalTaskDao(String jdbcUrl) {
+    try {
+      conn = DriverManager.getConnection(jdbcUrl, "sa", "");
+      try (Statement stmt = conn.createStatement()) {
+        for (String ddl : SCHEMA) {
+          stmt.execute(ddl);
+        }
+      }
+      conn.setAutoCommit(false);
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка открытия локального хранилища " + jdbcUrl, e);
+    }
+  }
+
+  /**
+   * Задаёт действие, вызываемое после каждой локальной записи (например, пробуждение
+   * {@link TaskSyncWorker}).
+   *
+   * @param writeListener действие после записи
+   */
+  public void setWriteListener(Runnable writeListener) {
+    this.writeListener = writeListener;
+  }
+
+  /**
+   * Сохраняет задачу локально и ставит её отправку в очередь. Новая задача получает временный
+   * отрицательный id.
+   *
+   * @param task задача для сохранения
+   * @return сохранённая задача с новой версией
+   * @throws OptimisticLockException если версия задачи не совпадает с локальной
+   * @throws DaoException            при ошибке локальной БД
+   */
+  @Override
+  public synchronized Task save(Task task) {
+    inTransaction("Ошибка локального сохранения задачи", () -> saveLocally(task));
+    writeListener.run();
+    return task;
+  }
+
+  /**
+   * Сохраняет задачи локально в одной транзакции: при конфликте версии хотя бы одной задачи не
+   * сохраняется ни одна.
+   *
+   * @param tasks задачи для сохранения
+   * @return сохранённые задачи в исходном порядке
+   * @throws OptimisticLockException если версия какой-либо задачи не совпадает с локальной
+   * @throws DaoException            при ошибке локальной БД
+   */
+  @Override
+  public synchronized List<Task> saveAll(Collection<Task> tasks) {
+    List<Task> saved = new ArrayList<>(tasks);
+    int[][] previous = new int[saved.size()][];
+    for (int i = 0; i < previous.length; i++) {
+      previous[i] = new int[]{saved.get(i).getId(), saved.get(i).getVersion()};
+    }
+    try {
+      inTransaction("Ошибка локального сохранения задач", () -> {
+        for (Task task : saved) {
+          saveLocally(task);
+        }
+      });
+    } catch (RuntimeException e) {
+      for (int i = 0; i < previous.length; i++) {
+        saved.get(i).setId(previous[i][0]);
+        saved.get(i).setVersion(previous[i][1]);
+      }
+      throw e;
+    }
+    writeListener.run();
+    return saved;
+  }
+
+  @Override
+  public synchronized Optional<Task> findById(int id) {
+    List<Task> found = queryTasks("WHERE id = ? AND NOT deleted", resolveId(id));
+    return found.stream().findFirst();
+  }
+
+  @Override
+  public synchronized List<Task> findAll() {
+    return queryTasks("WHERE NOT deleted ORDER BY id");
+  }
+
+  @Override
+  public synchronized List<Task> findByStatus(TaskStatus status) {
+    return queryTasks("WHERE status = ? AND NOT deleted ORDER BY id", status.name());
+  }
+
+  /**
+   * Ищет задачи по подстроке в заголовке или описании без учёта регистра.
+   *
+   * @param query строка поиска
+   * @return найденные задачи, отсортированные по id
+   */
+  @Override
+  public synchronized List<Task> search(String query) {
+    String pattern = "%" + query.toLowerCase().replace("\\", "\\\\").replace("%", "\\%")
+        .replace("_", "\\_") + "%";
+    return queryTasks("WHERE (LOWER(title) LIKE ? OR LOWER(description) LIKE ?) AND NOT deleted "
+        + "ORDER BY id", pattern, pattern);
+  }
+
+  /**
+   * Возвращает все задачи в сокращённом виде без чтения полных описаний.
+   *
+   * @return краткие представления задач, отсортированные по id
+   */
+  @Override
+  public synchronized List<TaskSummary> findAllSummaries() {
+    return querySummaries("WHERE NOT deleted ORDER BY id");
+  }
+
+  /**
+   * Возвращает задачи с заданным статусом в сокращённом виде.
+   *
+   * @param status статус для фильтрации
+   * @return краткие представления задач, отсортированные по id
+   */
+  @Override
+  public synchronized List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    return querySummaries("WHERE status = ? AND NOT deleted ORDER BY id", status.name());
+  }
+
+  @Override
+  public synchronized EnumMap<TaskStatus, Long> countByStatus() {
+    EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+    for (TaskStatus status : TaskStatus.values()) {
+      counts.put(status, 0L);
+    }
+    String sql = "SELECT status, COUNT(*) FROM tasks WHERE NOT deleted GROUP BY status";
+    try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+      while (rs.next()) {
+        counts.put(TaskStatus.valueOf(rs.getString(1)), rs.getLong(2));
+      }
+      conn.commit();
+      return counts;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка локального подсчёта задач", e);
+    }
+  }
+
+  /**
+   * Возвращает локальные изменения задач начиная с отметки: как сделанные пользователем, так и
+   * полученные из PostgreSQL. Временный id, заменённый постоянным, возвращается как удалённый.
+   *
+   * @param watermark отметка предыдущей синхронизации
+   * @return изменения и отметка следующей синхронизации по локальным часам
+   */
+  @Override
+  public synchronized TaskDelta findModifiedSince(LocalDateTime watermark) {
+    LocalDateTime next = LocalDateTime.now();
+    Timestamp since = Timestamp.valueOf(watermark);
+    List<Task> changed = queryTasks("WHERE changed_at >= ? AND NOT deleted ORDER BY changed_at, id",
+        since);
+    List<Integer> deletedIds = new ArrayList<>();
+    String sql = "SELECT task_id FROM tombstones WHERE deleted_at >= ? "
+        + "UNION SELECT id FROM tasks WHERE deleted AND changed_at >= ? ORDER BY 1";
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setTimestamp(1, since);
+      stmt.setTimestamp(2, since);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          deletedIds.add(rs.getInt(1));
+        }
+      }
+      conn.commit();
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения локальных изменений", e);
+    }
+    return new TaskDelta(changed, deletedIds, next);
+  }
+
+  /**
+   * Помечает задачу удалённой и ставит удаление в очередь. Ещё не отправленная новая задача
+   * удаляется вместе с её операциями в очереди.
+   *
+   * @param id идентификатор задачи
+   * @throws DaoException при ошибке локальной БД
+   */
+  @Override
+  public synchronized void delete(int id) {
+    inTransaction("Ошибка локального удаления задачи с id=" + id, () -> deleteLocally(id));
+    writeListener.run();
+  }
+
+  @Override
+  public synchronized void deleteAll(Collection<Integer> ids) {
+    inTransaction("Ошибка локального удаления " + ids.size() + " задач", () -> {
+      for (int id : ids) {
+        deleteLocally(id);
+      }
+    });
+    writeListener.run();
+  }
+
+  /**
+   * Восстанавливает локально помеченную удалённой задачу и ставит восстановление в очередь.
+   *
+   * @param id идентификатор задачи
+   * @return {@code true}, если задача была восстановлена
+   * @throws DaoException при ошибке локальной БД
+   */
+  @Override
+  public synchronized boolean restore(int id) {
+    int realId = resolveId(id);
+    boolean[] restored = new boolean[1];
+    inTransaction("Ошибка локального восстановления задачи с id=" + id, () -> {
+      int version = currentVersion(realId, true);
+      if (version < 0) {
+        return;
+      }
+      execute("UPDATE tasks SET deleted = FALSE, version = version + 1, changed_at = ? "
+          + "WHERE id = ?", now(), realId);
+      appendOutbox(OutboxOperation.RESTORE, task(realId, version));
+      restored[0] = true;
+    });
+    if (restored[0]) {
+      writeListener.run();
+    }
+    return restored[0];
+  }
+
+  /**
+   * Возвращает количество операций, ещё не отправленных в PostgreSQL.
+   *
+   * @return размер очереди исходящих изменений
+   */
+  public synchronized long pendingCount() {
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM outbox")) {
+      rs.next();
+      long count = rs.getLong(1);
+      conn.commit();
+      return count;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения очереди изменений", e);
+    }
+  }
+
+  /**
+   * Закрывает соединение с локальной базой данных.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      conn.close();
+    } catch (SQLException e) {
+      LOG.warn("Ошибка закрытия локального хранилища", e);
+    }
+  }
+
+  /**
+   * Возвращает первые операции очереди исходящих изменений в порядке их добавления.
+   *
+   * @param limit максимальное количество операций
+   * @return операции очереди
+   */
+  synchronized List<OutboxEntry> pendingEntries(int limit) {
+    String sql = "SELECT seq, operation, task_id, title, description, status, created_at, "
+        + "updated_at, base_version FROM outbox ORDER BY seq LIMIT ?";
+    List<OutboxEntry> entries = new ArrayList<>();
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setInt(1, limit);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          Task task = new Task();
+          task.setId(rs.getInt(3));
+          task.setTitle(rs.getString(4));
+          task.setDescription(rs.getString(5));
+          String status = rs.getString(6);
+          task.setStatus(status == null ? null : TaskStatus.valueOf(status));
+          Timestamp createdAt = rs.getTimestamp(7);
+          task.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+          Timestamp updatedAt = rs.getTimestamp(8);
+          task.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+          task.setVersion(rs.getInt(9));
+          entries.add(new OutboxEntry(rs.getLong(1), OutboxOperation.valueOf(rs.getString(2)), task));
+        }
+      }
+      conn.commit();
+      return entries;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения очереди изменений", e);
+    }
+  }
+
+  /**
+   * Удаляет отправленные операции из очереди и заменяет временные id новых задач постоянными,
+   * выданными PostgreSQL.
+   *
+   * @param entries     отправленные операции
+   * @param assignedIds постоянные id по временным
+   */
+  synchronized void markPushed(List<OutboxEntry> entries, Map<Integer, Integer> assignedIds) {
+    inTransaction("Ошибка обновления очереди изменений", () -> {
+      Timestamp now = now();
+      for (Map.Entry<Integer, Integer> assigned : assignedIds.entrySet()) {
+        int tempId = assigned.getKey();
+        int id = assigned.getValue();
+        execute("UPDATE tasks SET id = ?, changed_at = ? WHERE id = ?", id, now, tempId);
+        execute("UPDATE outbox SET task_id = ? WHERE task_id = ?", id, tempId);
+        execute("MERGE INTO id_aliases KEY (temp_id) VALUES (?, ?)", tempId, id);
+        execute("MERGE INTO tombstones KEY (task_id) VALUES (?, ?)", tempId, now);
+      }
+      for (OutboxEntry entry : entries) {
+        execute("DELETE FROM outbox WHERE seq = ?", entry.seq());
+      }
+    });
+  }
+
+  /**
+   * Сдвигает версии задачи и всех её операций в очереди так, чтобы первая операция опиралась на
+   * указанную версию PostgreSQL. Используется, когда при конфликте побеждает локальное изменение.
+   *
+   * @param id            идентификатор задачи
+   * @param remoteVersion текущая версия задачи в PostgreSQL
+   */
+  synchronized void rebase(int id, int remoteVersion) {
+    inTransaction("Ошибка обновления очереди изменений", () -> {
+      int shift;
+      try (PreparedStatement stmt = conn.prepareStatement(
+          "SELECT base_version FROM outbox WHERE task_id = ? ORDER BY seq LIMIT 1")) {
+        stmt.setInt(1, id);
+        try (ResultSet rs = stmt.executeQuery()) {
+          if (!rs.next()) {
+            return;
+          }
+          shift = remoteVersion - rs.getInt(1);
+        }
+      }
+      execute("UPDATE outbox SET base_version = base_version + ? WHERE task_id = ?", shift, id);
+      execute("UPDATE tasks SET version = version + ? WHERE id = ?", shift, id);
+    });
+  }
+
+  /**
+   * Отбрасывает неотправленные изменения задачи и принимает её состояние из PostgreSQL.
+   * Используется, когда при конфликте побеждает изменение другого клиента.
+   *
+   * @param id     идентификатор задачи
+   * @param remote состояние задачи в PostgreSQL или {@code null}, если задача там удалена
+   */
+  synchronized void discardLocalChanges(int id, Task remote) {
+    inTransaction("Ошибка обновления очереди изменений", () -> {
+      execute("DELETE FROM outbox WHERE task_id = ?", id);
+      if (remote == null) {
+        removeLocally(id);
+      } else {
+        upsertRemote(remote);
+      }
+    });
+  }
+
+  /**
+   * Применяет изменения, полученные из PostgreSQL. Задачи с неотправленными локальными
+   * изменениями пропускаются: их состояние определится при отправке.
+   *
+   * @param changed    изменённые задачи
+   * @param deletedIds идентификаторы удалённых задач
+   * @return события об изменившихся локальных задачах
+   */
+  synchronized List<TaskChangeEvent> applyRemoteChanges(List<Task> changed,
+      List<Integer> deletedIds) {
+    List<TaskChangeEvent> events = new ArrayList<>();
+    inTransaction("Ошибка применения изменений из PostgreSQL", () -> {
+      for (Task task : changed) {
+        int version = currentVersion(task.getId(), null);
+        if (version == task.getVersion() || hasPendingChanges(task.getId())) {
+          continue;
+        }
+        upsertRemote(task);
+        events.add(new TaskChangeEvent(version < 0 ? Operation.INSERT : Operation.UPDATE,
+            task.getId()));
+      }
+      for (int id : deletedIds) {
+        if (currentVersion(id, null) >= 0 && !hasPendingChanges(id)) {
+          removeLocally(id);
+          events.add(new TaskChangeEvent(Operation.DELETE, id));
+        }
+      }
+    });
+    return events;
+  }
+
+  /**
+   * Возвращает отметку последней синхронизации с PostgreSQL.
+   *
+   * @return отметка по часам PostgreSQL или пустой Optional, если начальная загрузка не выполнена
+   */
+  synchronized Optional<LocalDateTime> remoteWatermark() {
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(
+            "SELECT value_ts FROM sync_state WHERE name = 'remote_watermark'")) {
+      Optional<LocalDateTime> watermark = rs.next()
+          ? Optional.of(rs.getTimestamp(1).toLocalDateTime()) : Optional.empty();
+      conn.commit();
+      return watermark;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения состояния синхронизации", e);
+    }
+  }
+
+  /**
+   * Сохраняет отметку последней синхронизации с PostgreSQL.
+   *
+   * @param watermark отметка по часам PostgreSQL
+   */
+  synchronized void setRemoteWatermark(LocalDateTime watermark) {
+    inTransaction("Ошибка сохранения состояния синхронизации", () -> execute(
+        "MERGE INTO sync_state KEY (name) VALUES ('remote_watermark', ?)",
+        Timestamp.valueOf(watermark)));
+  }
+
+  private void saveLocally(Task task) throws SQLException {
+    if (task.getId() == 0) {
+      int id;
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("SELECT NEXT VALUE FOR local_id_seq")) {
+        rs.next();
+        id = -rs.getInt(1);
+      }
+      execute("INSERT INTO tasks (" + TASK_COLUMNS + ", changed_at) VALUES (?, ?, ?, ?, ?, ?, 0, ?)",
+          id, task.getTitle(), task.getDescription(), task.getStatus().name(),
+          Timestamp.valueOf(task.getCreatedAt()), Timestamp.valueOf(task.getUpdatedAt()), now());
+      task.setId(id);
+      task.setVersion(0);
+      appendOutbox(OutboxOperation.SAVE, task);
+      return;
+    }
+    task.setId(resolveId(task.getId()));
+    int updated = execute("UPDATE tasks SET title = ?, description = ?, status = ?, updated_at = ?, "
+            + "version = version + 1, changed_at = ? WHERE id = ? AND version = ? AND NOT deleted",
+        task.getTitle(), task.getDescription(), task.getStatus().name(),
+        Timestamp.valueOf(task.getUpdatedAt()), now(), task.getId(), task.getVersion());
+    if (updated == 0) {
+      throw new OptimisticLockException(List.of(task.getId()));
+    }
+    appendOutbox(OutboxOperation.SAVE, task);
+    task.setVersion(task.getVersion() + 1);
+  }
+
+  private void deleteLocally(int id) throws SQLException {
+    int realId = resolveId(id);
+    if (realId < 0) {
+      // Задача ещё не отправлена: в PostgreSQL удалять нечего
+      execute("DELETE FROM outbox WHERE task_id = ?", realId);
+      removeLocally(realId);
+      return;
+    }
+    int version = currentVersion(realId, false);
+    if (version >= 0) {
+      execute("UPDATE tasks SET deleted = TRUE, version = version + 1, changed_at = ? WHERE id = ?",
+          now(), realId);
+      appendOutbox(OutboxOperation.DELETE, task(realId, version));
+    }
+  }
+
+  private void removeLocally(int id) throws SQLException {
+    if (execute("DELETE FROM tasks WHERE id = ?", id) > 0) {
+      execute("MERGE INTO tombstones KEY (task_id) VALUES (?, ?)", id, now());
+    }
+  }
+
+  private void upsertRemote(Task task) throws SQLException {
+    execute("MERGE INTO tasks (" + TASK_COLUMNS + ", deleted, changed_at) KEY (id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE, ?)",
+        task.getId(), task.getTitle(), task.getDescription(), task.getStatus().name(),
+        Timestamp.valueOf(task.getCreatedAt()), Timestamp.valueOf(task.getUpdatedAt()),
+        task.getVersion(), now());
+    execute("DELETE FROM tombstones WHERE task_id = ?", task.getId());
+  }
+
+  private void appendOutbox(OutboxOperation operation, Task task) throws SQLException {
+    boolean save = operation == OutboxOperation.SAVE;
+    execute("INSERT INTO outbox (operation, task_id, title, description, status, created_at, "
+            + "updated_at, base_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+        operation.name(), task.getId(),
+        save ? task.getTitle() : null,
+        save ? task.getDescription() : null,
+        save ? task.getStatus().name() : null,
+        save ? Timestamp.valueOf(task.getCreatedAt()) : null,
+        save ? Timestamp.valueOf(task.getUpdatedAt()) : null,
+        task.getVersion());
+  }
+
+  /**
+   * Возвращает локальную версию задачи.
+   *
+   * @param id      идентификатор задачи
+   * @param deleted требуемое значение признака удаления или {@code null}, если он не важен
+   * @return версия задачи или -1, если подходящей задачи нет
+   */
+  private int currentVersion(int id, Boolean deleted) throws SQLException {
+    String sql = "SELECT version, deleted FROM tasks WHERE id = ?";
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (!rs.next() || (deleted != null && rs.getBoolean(2) != deleted)) {
+          return -1;
+        }
+        return rs.getInt(1);
+      }
+    }
+  }
+
+  private boolean hasPendingChanges(int id) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(
+        "SELECT 1 FROM outbox WHERE task_id = ? LIMIT 1")) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  /**
+   * Заменяет временный id уже отправленной задачи постоянным.
+   */
+  private int resolveId(int id) {
+    if (id >= 0) {
+      return id;
+    }
+    try (PreparedStatement stmt = conn.prepareStatement(
+        "SELECT id FROM id_aliases WHERE temp_id = ?")) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() ? rs.getInt(1) : id;
+      }
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения локального хранилища", e);
+    }
+  }
+
+  private List<Task> queryTasks(String condition, Object... params) {
+    String sql = "SELECT " + TASK_COLUMNS + " FROM tasks " + condition;
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      bind(stmt, params);
+      List<Task> tasks = new ArrayList<>();
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          Task task = new Task(rs.getInt(1), rs.getString(2), rs.getString(3),
+              TaskStatus.valueOf(rs.getString(4)), rs.getTimestamp(5).toLocalDateTime(),
+              rs.getTimestamp(6).toLocalDateTime());
+          task.setVersion(rs.getInt(7));
+          tasks.add(task);
+        }
+      }
+      conn.commit();
+      return tasks;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения локального хранилища", e);
+    }
+  }
+
+  private List<TaskSummary> querySummaries(String condition, Object... params) {
+    String sql = "SELECT " + SUMMARY_COLUMNS + " FROM tasks " + condition;
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      bind(stmt, params);
+      List<TaskSummary> summaries = new ArrayList<>();
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          // Фрагмент читается на символ длиннее, чтобы определить, обрезано ли описание
+          String snippet = rs.getString(3);
+          boolean truncated = snippet != null && snippet.length() > TaskSummary.SNIPPET_LENGTH;
+          summaries.add(new TaskSummary(rs.getInt(1), rs.getString(2),
+              truncated ? snippet.substring(0, TaskSummary.SNIPPET_LENGTH) : snippet, truncated,
+              TaskStatus.valueOf(rs.getString(4)), rs.getTimestamp(5).toLocalDateTime(),
+              rs.getTimestamp(6).toLocalDateTime()));
+        }
+      }
+      conn.commit();
+      return summaries;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка чтения локального хранилища", e);
+    }
+  }
+
+  private int execute(String sql, Object... params) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+      bind(stmt, params);
+      return stmt.executeUpdate();
+    }
+  }
+
+  private static void bind(PreparedStatement stmt, Object... params) throws SQLException {
+    for (int i = 0; i < params.length; i++) {
+      stmt.setObject(i + 1, params[i]);
+    }
+  }
+
+  private static Timestamp now() {
+    return Timestamp.valueOf(LocalDateTime.now());
+  }
+
+  private static Task task(int id, int version) {
+    Task task = new Task();
+    task.setId(id);
+    task.setVersion(version);
+    return task;
+  }
+
+  /**
+   * Выполняет действие в локальной транзакции и откатывает её при ошибке.
+   *
+   * @param errorMessage сообщение для {@link DaoException} при ошибке SQL
+   * @param action       действие
+   */
+  private void inTransaction(String errorMessage, LocalAction action) {
+    try {
+      try {
+        action.run();
+        conn.commit();
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DaoException(errorMessage, e);
+    }
+  }
+
+  /**
+   * Действие над локальной базой данных внутри транзакции.
+   */
+  @FunctionalInterface
+  private interface LocalAction {
+
+    void run() throws SQLException;
+  }
+}
@@ -0,0 +1,378 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.DaoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор DAO, отвечающий на чтения по полной копии задач в памяти клиента. Копия хранится в
+ * {@link ColumnarTaskDao}, где отбор по статусам выполняется по битовым наборам строк, а поиск
+ * подстроки — по триграммному индексу, поэтому смена фильтра статуса и поиск в интерфейсе не
+ * обращаются к БД.
+ * <p>
+ * Копия загружается из делегата в фоне ({@link #startLoading()}) и только если задач не больше
+ * {@code mirror.maxTasks}. Пока копия не загружена (или задач слишком много), а также для запросов,
+ * которые в БД выполняются иначе, чем в памяти (полнотекстовый поиск по словам, ранжирование по
+ * релевантности), чтения передаются делегату. Записи выполняются в делегате и затем применяются к
+ * копии; изменения других клиентов учитываются через {@link #applyChanges(List)}: изменённые
+ * задачи перечитываются из делегата по id с основного сервера
+ * ({@link TaskDao#findByIdOnPrimary(int)}), а при {@link Operation#RELOAD} копия загружается
+ * заново.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class MirroredTaskDao implements TaskDao {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MirroredTaskDao.class);
+
+  private final TaskDao delegate;
+  private final int maxTasks;
+
+  private volatile ColumnarTaskDao mirror;
+  private boolean loading;
+  private final List<TaskChangeEvent> pendingEvents = new ArrayList<>();
+
+  /**
+   * Создаёт декоратор с наибольшим размером копии из параметра {@code mirror.maxTasks} (по
+   * умолчанию 200000).
+   *
+   * @param delegate DAO с полным набором задач (PostgreSQL)
+   */
+  public MirroredTaskDao(TaskDao delegate) {
+    this(delegate, DatabaseConnection.getIntProperty("mirror.maxTasks", 200_000));
+  }
+
+  /**
+   * Создаёт декоратор с указанным наибольшим размером копии.
+   *
+   * @param delegate DAO с полным набором задач
+   * @param maxTasks наибольшее количество задач, которое загружается в память; 0 — копия не
+   *                 загружается
+   */
+  public MirroredTaskDao(TaskDao delegate, int maxTasks) {
+    this.delegate = delegate;
+    this.maxTasks = maxTasks;
+  }
+
+  /**
+   * Запускает загрузку копии в фоновом потоке.
+   */
+  public void startLoading() {
+    if (maxTasks <= 0) {
+      return;
+    }
+    Thread thread = new Thread(this::load, "task-mirror-loader");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Загружает копию задач из делегата. Уведомления об изменениях, полученные во время загрузки,
+   * применяются к загруженной копии, и только после этого она начинает отвечать на чтения.
+   */
+  public void load() {
+    synchronized (this) {
+      if (loading) {
+        return;
+      }
+      loading = true;
+      mirror = null;
+      pendingEvents.clear();
+    }
+    ColumnarTaskDao loaded = fetch();
+    while (true) {
+      List<TaskChangeEvent> events;
+      synchronized (this) {
+        if (pendingEvents.isEmpty()) {
+          mirror = loaded;
+          loading = false;
+          return;
+        }
+        events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+      }
+      if (loaded != null && !apply(loaded, events)) {
+        loaded = fetch();
+      }
+    }
+  }
+
+  /**
+   * Проверяет, загружена ли полная копия задач.
+   *
+   * @return {@code true}, если чтения выполняются по копии в памяти
+   */
+  public boolean isComplete() {
+    return mirror != null;
+  }
+
+  /**
+   * Применяет к копии изменения задач другими клиентами. Вызывается подписчиком
+   * {@link com.example.taskmanager.db.TaskChangeListener} раньше кэшей над этим DAO, чтобы они
+   * перечитывали задачи уже из обновлённой копии.
+   *
+   * @param events полученные события изменения задач
+   */
+  public void applyChanges(List<TaskChangeEvent> events) {
+    synchronized (this) {
+      if (loading) {
+        pendingEvents.addAll(events);
+        return;
+      }
+    }
+    ColumnarTaskDao current = mirror;
+    if (current != null && !apply(current, events)) {
+      startLoading();
+    }
+  }
+
+  @Override
+  public Task save(Task task) {
+    Task saved = delegate.save(task);
+    update(saved);
+    return saved;
+  }
+
+  @Override
+  public List<Task> saveAll(Collection<Task> tasks) {
+    List<Task> saved = delegate.saveAll(tasks);
+    saved.forEach(this::update);
+    return saved;
+  }
+
+  @Override
+  public Optional<Task> findById(int id) {
+    ColumnarTaskDao current = mirror;
+    return current != null ? current.findById(id) : delegate.findById(id);
+  }
+
+  @Override
+  public Optional<Task> findByIdOnPrimary(int id) {
+    return delegate.findByIdOnPrimary(id);
+  }
+
+  @Override
+  public List<Task> findAll() {
+    ColumnarTaskDao current = mirror;
+    return current != null ? current.findAll() : delegate.findAll();
+  }
+
+  @Override
+  public List<Task> findByStatus(TaskStatus status) {
+    ColumnarTaskDao current = mirror;
+    return current != null ? current.findByStatus(status) : delegate.findByStatus(status);
+  }
+
+  /**
+   * Ищет задачи по подстроке. Строка с символами шаблона {@code ILIKE} ищется в делегате, так как
+   * в БД они не экранируются.
+   *
+   * @param query строка поиска
+   * @return найденные задачи, отсортированные по id
+   */
+  @Override
+  public List<Task> search(String query) {
+    ColumnarTaskDao current = mirror;
+    return current != null && query.chars().noneMatch(c -> c == '%' || c == '_' || c == '\\')
+        ? current.search(query)
+        : delegate.search(query);
+  }
+
+  @Override
+  public List<Task> searchRanked(String query, int limit, int offset) {
+    return delegate.searchRanked(query, limit, offset);
+  }
+
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    ColumnarTaskDao current = mirror;
+    return current != null ? current.findAllSummaries() : delegate.findAllSummaries();
+  }
+
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    ColumnarTaskDao current = mirror;
+    return current != null
+        ? current.findSummariesByStatus(status)
+        : delegate.findSummariesByStatus(status);
+  }
+
+  @Override
+  public List<TaskSummary> searchSummariesRanked(String query, int limit, int offset) {
+    return delegate.searchSummariesRanked(query, limit, offset);
+  }
+
+  @Override
+  public List<Task> find(TaskQuery query) {
+    ColumnarTaskDao current = localFor(query);
+    return current != null ? current.find(query) : delegate.find(query);
+  }
+
+  @Override
+  public long count(TaskQuery query) {
+    ColumnarTaskDao current = localFor(query);
+    return current != null ? current.count(query) : delegate.count(query);
+  }
+
+  @Override
+  public List<TaskSummary> findSummaries(TaskQuery query) {
+    ColumnarTaskDao current = localFor(query);
+    return current != null ? current.findSummaries(query) : delegate.findSummaries(query);
+  }
+
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    ColumnarTaskDao current = mirror;
+    return current != null ? current.countByStatus() : delegate.countByStatus();
+  }
+
+  @Override
+  public Stream<Task> streamAll() {
+    return delegate.streamAll();
+  }
+
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    return delegate.streamByStatus(status);
+  }
+
+  @Override
+  public Stream<Task> streamSearch(String query) {
+    return delegate.streamSearch(query);
+  }
+
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    return delegate.findModifiedSince(watermark);
+  }
+
+  @Override
+  public LocalDateTime currentWatermark() {
+    return delegate.currentWatermark();
+  }
+
+  @Override
+  public void delete(int id) {
+    delegate.delete(id);
+    ColumnarTaskDao current = mirror;
+    if (current != null) {
+      current.delete(id);
+    }
+  }
+
+  @Override
+  public boolean restore(int id) {
+    boolean restored = delegate.restore(id);
+    if (restored && mirror != null) {
+      delegate.findById(id).ifPresent(this::update);
+    }
+    return restored;
+  }
+
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    delegate.deleteAll(ids);
+    ColumnarTaskDao current = mirror;
+    if (current != null) {
+      current.deleteAll(ids);
+    }
+  }
+
+  /**
+   * Возвращает копию, если она загружена и отвечает на запрос так же, как БД: без текста или с
+   * поиском подстроки (а не слов) и без сортировки по релевантности.
+   */
+  private ColumnarTaskDao localFor(TaskQuery query) {
+    ColumnarTaskDao current = mirror;
+    if (current == null || query.text() == null) {
+      return current;
+    }
+    boolean substring = TaskDaoImpl.chooseSearchStrategy(query.text())
+        == TaskDaoImpl.SearchStrategy.SUBSTRING;
+    return substring && query.sortKey() != TaskQuery.SortKey.RELEVANCE ? current : null;
+  }
+
+  /**
+   * Загружает задачи делегата в новую копию.
+   *
+   * @return копия или {@code null}, если задач больше {@code maxTasks} или чтение не удалось
+   */
+  private ColumnarTaskDao fetch() {
+    try {
+      long total = delegate.countByStatus().values().stream().mapToLong(Long::longValue).sum();
+      return total <= maxTasks ? ColumnarTaskDao.loadFrom(delegate) : null;
+    } catch (DaoException e) {
+      LOG.warn("Не удалось загрузить задачи в память", e);
+      return null;
+    }
+  }
+
+  /**
+   * Применяет события к копии, перечитывая изменённые задачи из делегата.
+   *
+   * @return {@code false}, если копию нужно загрузить заново (событие {@link Operation#RELOAD},
+   *         ошибка чтения или превышение {@code maxTasks}); в этом случае копия перестаёт
+   *         отвечать на чтения
+   */
+  private boolean apply(ColumnarTaskDao target, List<TaskChangeEvent> events) {
+    try {
+      for (TaskChangeEvent event : events) {
+        if (event.operation() == Operation.RELOAD) {
+          return invalidate(target);
+        }
+        if (event.operation() == Operation.DELETE) {
+          target.delete(event.taskId());
+        } else {
+          Optional<Task> task = delegate.findByIdOnPrimary(event.taskId());
+          if (task.isPresent()) {
+            target.put(task.get());
+          } else {
+            target.delete(event.taskId());
+          }
+        }
+      }
+    } catch (DaoException e) {
+      LOG.warn("Не удалось обновить задачи в памяти", e);
+      return invalidate(target);
+    }
+    return target.size() <= maxTasks || invalidate(target);
+  }
+
+  private synchronized boolean invalidate(ColumnarTaskDao target) {
+    if (mirror == target) {
+      mirror = null;
+    }
+    return false;
+  }
+
+  /**
+   * Записывает в копию задачу, сохранённую в делегате, если копия не содержит более новую версию,
+   * уже полученную из уведомления.
+   */
+  private void update(Task saved) {
+    ColumnarTaskDao current = mirror;
+    if (current == null) {
+      return;
+    }
+    Optional<Task> existing = current.findById(saved.getId());
+    if (existing.isEmpty() || existing.get().getVersion() <= saved.getVersion()) {
+      current.put(saved);
+    }
+  }
+}
@@ -0,0 +1,680 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.db.QueryCancellation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.DaoException;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Реализация {@link TaskDao}, распределяющая задачи по нескольким базам данных PostgreSQL
+ * (шардам). Каждый шард обслуживается собственным {@link TaskDao}, обычно {@link TaskDaoImpl} со
+ * своим пулом соединений.
+ * <p>
+ * Шард задачи определяется её идентификатором: остаток от деления id на {@link #SLOT_COUNT} задаёт
+ * слот, а слот {@code s} хранится в шарде {@code s % N}, где N — количество шардов. Последовательность
+ * id шарда {@code k} выдаёт только числа, дающие остаток {@code k} (см.
+ * {@link #alignIdSequence}), поэтому новая задача попадает в свой слот без дополнительного
+ * поиска. При изменении количества шардов переносятся только слоты, у которых меняется шард, а
+ * идентификаторы задач сохраняются (см. {@link com.example.taskmanager.job.TaskReshardJob}).
+ * </p>
+ * <p>
+ * {@link #findById}, {@link #save}, {@link #delete} и {@link #restore} обращаются только к шарду
+ * задачи; новые задачи распределяются по шардам по кругу, в {@link #saveAll} — частями по размеру
+ * пакета записи. Выборки по всем задачам выполняются во
+ * всех шардах параллельно, а отсортированные по id результаты шардов объединяются слиянием. Пакетные
+ * операции атомарны только в пределах одного шарда.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class ShardedTaskDao implements TaskDao, AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ShardedTaskDao.class);
+
+  /**
+   * Количество слотов и максимальное количество шардов.
+   */
+  public static final int SLOT_COUNT = 16;
+
+  private final List<TaskDao> shards;
+  private final List<AutoCloseable> resources = new ArrayList<>();
+  private final ExecutorService executor;
+  private final AtomicInteger nextInsertShard = new AtomicInteger();
+  private final int insertBatchSize;
+
+  /**
+   * Создаёт DAO над уже настроенными DAO шардов. Новые задачи {@link #saveAll} распределяются по
+   * шардам частями по {@code db.batchSize} (по умолчанию 1000).
+   *
+   * @param shards DAO шардов в порядке номеров шардов (от 1 до {@link #SLOT_COUNT})
+   */
+  public ShardedTaskDao(List<? extends TaskDao> shards) {
+    this(shards, DatabaseConnection.getIntProperty("db.batchSize", 1000));
+  }
+
+  /**
+   * Создаёт DAO над уже настроенными DAO шардов.
+   *
+   * @param shards          DAO шардов в порядке номеров шардов (от 1 до {@link #SLOT_COUNT})
+   * @param insertBatchSize количество новых задач {@link #saveAll}, отправляемых в один шард,
+   *                        прежде чем перейти к следующему (больше 0)
+   */
+  public ShardedTaskDao(List<? extends TaskDao> shards, int insertBatchSize) {
+    if (shards.isEmpty() || shards.size() > SLOT_COUNT) {
+      throw new IllegalArgumentException(
+          "Количество шардов должно быть от 1 до " + SLOT_COUNT + ": " + shards.size());
+    }
+    if (insertBatchSize <= 0) {
+      throw new IllegalArgumentException(
+          "Размер пакета должен быть положительным: " + insertBatchSize);
+    }
+    this.shards = List.copyOf(shards);
+    this.insertBatchSize = insertBatchSize;
+    this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+      Thread thread = new Thread(runnable, "sharded-task-dao");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Создаёт DAO по шардам из параметра {@code db.shard.urls} (см.
+   * {@link DatabaseConnection#createShardPools()}).
+   *
+   * @return DAO, закрывающий пулы шардов при {@link #close()}
+   * @throws IllegalStateException если шарды не заданы
+   */
+  public static ShardedTaskDao fromConfig() {
+    List<HikariDataSource> pools = DatabaseConnection.createShardPools();
+    if (pools.isEmpty()) {
+      throw new IllegalStateException("Не задан параметр db.shard.urls");
+    }
+    return open(pools);
+  }
+
+  /**
+   * Создаёт DAO над пулами шардов: применяет к каждому шарду миграции Liquibase и выравнивает
+   * последовательность идентификаторов по номеру шарда.
+   *
+   * @param pools пулы соединений шардов в порядке номеров шардов
+   * @return DAO, закрывающий пулы при {@link #close()}
+   */
+  public static ShardedTaskDao open(List<HikariDataSource> pools) {
+    int fetchSize = DatabaseConnection.getIntProperty("db.fetchSize", 500);
+    int batchSize = DatabaseConnection.getIntProperty("db.batchSize", 1000);
+    List<TaskDao> shards = new ArrayList<>(pools.size());
+    for (int i = 0; i < pools.size(); i++) {
+      ConnectionSource connections = pools.get(i)::getConnection;
+      LiquibaseRunner.runMigrations(connections);
+      alignIdSequence(connections, i);
+      shards.add(new TaskDaoImpl(connections, fetchSize, batchSize));
+    }
+    ShardedTaskDao dao = new ShardedTaskDao(shards, batchSize);
+    dao.resources.addAll(pools);
+    return dao;
+  }
+
+  /**
+   * Возвращает номер шарда, в котором хранится задача.
+   *
+   * @param id         идентификатор задачи
+   * @param shardCount количество шардов
+   * @return номер шарда, начиная с 0
+   */
+  public static int shardOf(int id, int shardCount) {
+    return Math.floorMod(id, SLOT_COUNT) % shardCount;
+  }
+
+  /**
+   * Настраивает последовательность {@code tasks_id_seq} шарда так, чтобы она выдавала только
+   * идентификаторы слота с номером шарда: шаг {@link #SLOT_COUNT}, следующее значение больше всех
+   * уже выданных и имеющихся в таблице. Если последовательность уже настроена, ничего не меняет.
+   *
+   * @param connections источник соединений шарда
+   * @param shard       номер шарда
+   * @throws DaoException при ошибке SQL
+   */
+  public static void alignIdSequence(ConnectionSource connections, int shard) {
+    String sql = "SELECT s.increment_by, s.last_value, (SELECT max(id) FROM tasks) "
+        + "FROM pg_sequences s "
+        + "WHERE s.schemaname = current_schema() AND s.sequencename = 'tasks_id_seq'";
+    try (Connection conn = connections.getConnection();
+        Statement stmt = conn.createStatement()) {
+      long incrementBy;
+      long lastValue;
+      long maxId;
+      try (ResultSet rs = stmt.executeQuery(sql)) {
+        if (!rs.next()) {
+          throw new DaoException("Последовательность tasks_id_seq не найдена в шарде " + shard);
+        }
+        incrementBy = rs.getLong(1);
+        lastValue = rs.getLong(2);
+        maxId = rs.getLong(3);
+      }
+      if (incrementBy == SLOT_COUNT && lastValue >= maxId
+          && Math.floorMod(lastValue, SLOT_COUNT) == shard) {
+        return;
+      }
+      long floor = Math.max(lastValue, maxId);
+      long next = floor - Math.floorMod(floor, SLOT_COUNT) + shard;
+      if (next <= floor) {
+        next += SLOT_COUNT;
+      }
+      stmt.execute("ALTER SEQUENCE tasks_id_seq INCREMENT BY " + SLOT_COUNT
+          + " MINVALUE 1 RESTART WITH " + next);
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка настройки последовательности id шарда " + shard, e);
+    }
+  }
+
+  /**
+   * Сохраняет задачу: новую — в очередной по кругу шард, существующую — в шард её id.
+   *
+   * @param task задача для сохранения
+   * @return сохранённая задача
+   */
+  @Override
+  public Task save(Task task) {
+    TaskDao shard = task.getId() == 0 ? nextInsertShard() : shardFor(task.getId());
+    return shard.save(task);
+  }
+
+  /**
+   * Сохраняет задачи пакетами: новые задачи — частями по размеру пакета записи в шарды по кругу,
+   * чтобы массовая вставка распределялась по всем шардам, существующие — в шарды их id. Шарды
+   * обрабатываются параллельно, каждый в своей транзакции.
+   *
+   * @param tasks задачи для сохранения
+   * @return сохранённые задачи в исходном порядке
+   */
+  @Override
+  public List<Task> saveAll(Collection<Task> tasks) {
+    Map<TaskDao, List<Task>> byShard = new LinkedHashMap<>();
+    TaskDao insertShard = null;
+    int inserted = 0;
+    for (Task task : tasks) {
+      TaskDao shard;
+      if (task.getId() == 0) {
+        if (inserted++ % insertBatchSize == 0) {
+          insertShard = nextInsertShard();
+        }
+        shard = insertShard;
+      } else {
+        shard = shardFor(task.getId());
+      }
+      byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(task);
+    }
+    fanOut(new ArrayList<>(byShard.keySet()), shard -> shard.saveAll(byShard.get(shard)));
+    return new ArrayList<>(tasks);
+  }
+
+  @Override
+  public Optional<Task> findById(int id) {
+    return shardFor(id).findById(id);
+  }
+
+  @Override
+  public Optional<Task> findByIdOnPrimary(int id) {
+    return shardFor(id).findByIdOnPrimary(id);
+  }
+
+  @Override
+  public List<Task> findAll() {
+    return mergeById(fanOut(TaskDao::findAll), Task::getId);
+  }
+
+  @Override
+  public List<Task> findByStatus(TaskStatus status) {
+    return mergeById(fanOut(shard -> shard.findByStatus(status)), Task::getId);
+  }
+
+  @Override
+  public List<Task> search(String query) {
+    return mergeById(fanOut(shard -> shard.search(query)), Task::getId);
+  }
+
+  /**
+   * Выполняет ранжированный поиск во всех шардах. Каждый шард возвращает первые
+   * {@code offset + limit} задач; общий порядок составляется по позиции задачи в выдаче своего
+   * шарда, при равной позиции — по номеру шарда. Значения релевантности разных шардов не
+   * сравниваются, поэтому порядок приблизителен, но одинаков для всех страниц.
+   *
+   * @param query  строка поиска
+   * @param limit  размер страницы
+   * @param offset количество пропускаемых задач
+   * @return задачи страницы
+   */
+  @Override
+  public List<Task> searchRanked(String query, int limit, int offset) {
+    return interleave(fanOut(shard -> shard.searchRanked(query, offset + limit, 0)), limit, offset);
+  }
+
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    return mergeById(fanOut(TaskDao::findAllSummaries), TaskSummary::id);
+  }
+
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    return mergeById(fanOut(shard -> shard.findSummariesByStatus(status)), TaskSummary::id);
+  }
+
+  /**
+   * Выполняет ранжированный поиск во всех шардах и возвращает задачи страницы в сокращённом виде
+   * (порядок — как в {@link #searchRanked}).
+   *
+   * @param query  строка поиска
+   * @param limit  размер страницы
+   * @param offset количество пропускаемых задач
+   * @return краткие представления задач страницы
+   */
+  @Override
+  public List<TaskSummary> searchSummariesRanked(String query, int limit, int offset) {
+    return interleave(fanOut(shard -> shard.searchSummariesRanked(query, offset + limit, 0)),
+        limit, offset);
+  }
+
+  /**
+   * Выполняет составной запрос во всех шардах и объединяет их выдачи в порядке сортировки запроса.
+   * Курсор задаёт позицию в общем порядке, поэтому применяется к каждому шарду без изменений, а
+   * каждый шард возвращает не больше {@link TaskQuery#limit()} задач. Смещение задано в общем
+   * порядке, поэтому шарды возвращают задачи без смещения (до смещения плюс ограничение), а
+   * пропуск выполняется после объединения. При сортировке по релевантности выдачи шардов
+   * чередуются, как в {@link #searchRanked}.
+   *
+   * @param query запрос
+   * @return задачи, удовлетворяющие запросу
+   */
+  @Override
+  public List<Task> find(TaskQuery query) {
+    TaskQuery shardQuery = shardQuery(query);
+    return mergeResults(fanOut(shard -> shard.find(shardQuery)), query, query.taskOrder());
+  }
+
+  /**
+   * Выполняет составной запрос во всех шардах (см. {@link #find(TaskQuery)}) и возвращает задачи в
+   * сокращённом виде.
+   *
+   * @param query запрос
+   * @return краткие представления задач, удовлетворяющих запросу
+   */
+  @Override
+  public List<TaskSummary> findSummaries(TaskQuery query) {
+    TaskQuery shardQuery = shardQuery(query);
+    return mergeResults(fanOut(shard -> shard.findSummaries(shardQuery)), query,
+        query.summaryOrder());
+  }
+
+  /**
+   * Суммирует количество задач, удовлетворяющих запросу, во всех шардах.
+   *
+   * @param query запрос
+   * @return количество задач
+   */
+  @Override
+  public long count(TaskQuery query) {
+    return fanOut(shard -> shard.count(query)).stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * Суммирует количество задач по статусам во всех шардах.
+   *
+   * @return количество задач по статусам
+   */
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+    for (EnumMap<TaskStatus, Long> shardCounts : fanOut(TaskDao::countByStatus)) {
+      shardCounts.forEach((status, count) -> counts.merge(status, count, Long::sum));
+    }
+    return counts;
+  }
+
+  @Override
+  public Stream<Task> streamAll() {
+    return mergeStreams(TaskDao::streamAll);
+  }
+
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    return mergeStreams(shard -> shard.streamByStatus(status));
+  }
+
+  @Override
+  public Stream<Task> streamSearch(String query) {
+    return mergeStreams(shard -> shard.streamSearch(query));
+  }
+
+  /**
+   * Возвращает изменения задач во всех шардах. Отметка следующей синхронизации — наименьшая из
+   * отметок шардов, поэтому расхождение часов серверов приводит лишь к повторной выдаче изменений,
+   * но не к их пропуску.
+   *
+   * @param watermark отметка предыдущей синхронизации
+   * @return изменения всех шардов
+   */
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    List<TaskDelta> deltas = fanOut(shard -> shard.findModifiedSince(watermark));
+    List<Task> changed = new ArrayList<>();
+    TreeSet<Integer> deletedIds = new TreeSet<>();
+    LocalDateTime nextWatermark = null;
+    for (TaskDelta delta : deltas) {
+      changed.addAll(delta.changed());
+      deletedIds.addAll(delta.deletedIds());
+      if (nextWatermark == null || delta.nextWatermark().isBefore(nextWatermark)) {
+        nextWatermark = delta.nextWatermark();
+      }
+    }
+    changed.sort(Comparator.comparing(Task::getUpdatedAt).thenComparingInt(Task::getId));
+    return new TaskDelta(changed, new ArrayList<>(deletedIds), nextWatermark);
+  }
+
+  /**
+   * Возвращает наименьшую из текущих отметок синхронизации шардов (см.
+   * {@link #findModifiedSince(LocalDateTime)}).
+   *
+   * @return отметка синхронизации
+   */
+  @Override
+  public LocalDateTime currentWatermark() {
+    return Collections.min(fanOut(TaskDao::currentWatermark));
+  }
+
+  @Override
+  public void delete(int id) {
+    shardFor(id).delete(id);
+  }
+
+  @Override
+  public boolean restore(int id) {
+    return shardFor(id).restore(id);
+  }
+
+  /**
+   * Помечает задачи удалёнными, обрабатывая шарды параллельно.
+   *
+   * @param ids идентификаторы задач
+   */
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    Map<TaskDao, List<Integer>> byShard = new LinkedHashMap<>();
+    for (int id : ids) {
+      byShard.computeIfAbsent(shardFor(id), key -> new ArrayList<>()).add(id);
+    }
+    fanOut(new ArrayList<>(byShard.keySet()), shard -> {
+      shard.deleteAll(byShard.get(shard));
+      return null;
+    });
+  }
+
+  /**
+   * Останавливает потоки параллельных запросов и закрывает пулы шардов, если DAO создан через
+   * {@link #open(List)}.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    for (AutoCloseable resource : resources) {
+      try {
+        resource.close();
+      } catch (Exception e) {
+        LOG.warn("Ошибка закрытия пула шарда", e);
+      }
+    }
+  }
+
+  /**
+   * Объединяет отсортированные по id списки в один отсортированный список (k-путевое слияние).
+   *
+   * @param sortedLists списки, каждый из которых отсортирован по возрастанию id
+   * @param idOf       получение id элемента
+   * @param <T>        тип элемента
+   * @return общий список, отсортированный по id
+   */
+  static <T> List<T> mergeById(List<List<T>> sortedLists, ToIntFunction<T> idOf) {
+    return merge(sortedLists, Comparator.comparingInt(idOf), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Объединяет отсортированные списки в один отсортированный список и оставляет первые
+   * {@code limit} элементов.
+   *
+   * @param sortedLists списки, каждый из которых отсортирован в порядке {@code order}
+   * @param order       порядок элементов
+   * @param limit       максимальное количество элементов результата
+   * @param <T>         тип элемента
+   * @return общий список в порядке {@code order}
+   */
+  static <T> List<T> merge(List<List<T>> sortedLists, Comparator<T> order, int limit) {
+    List<Iterator<T>> iterators = new ArrayList<>(sortedLists.size());
+    int total = 0;
+    for (List<T> list : sortedLists) {
+      iterators.add(list.iterator());
+      total += list.size();
+    }
+    List<T> merged = new ArrayList<>(Math.min(total, limit));
+    MergingIterator<T> iterator = new MergingIterator<>(iterators, order);
+    while (iterator.hasNext() && merged.size() < limit) {
+      merged.add(iterator.next());
+    }
+    return merged;
+  }
+
+  /**
+   * Объединяет выдачи шардов на составной запрос: слиянием в порядке сортировки или, при
+   * сортировке по релевантности, чередованием.
+   */
+  private static <T> List<T> mergeResults(List<List<T>> results, TaskQuery query,
+      Comparator<T> order) {
+    int limit = query.limit() > 0 ? query.limit() : Integer.MAX_VALUE;
+    if (query.sortKey() == TaskQuery.SortKey.RELEVANCE && query.text() != null) {
+      int total = results.stream().mapToInt(List::size).sum();
+      return interleave(results, Math.max(0, Math.min(total - query.offset(), limit)),
+          query.offset());
+    }
+    int offset = query.offset();
+    List<T> merged = merge(results, order, (int) Math.min(Integer.MAX_VALUE, (long) offset + limit));
+    return offset == 0 ? merged : merged.subList(Math.min(offset, merged.size()), merged.size());
+  }
+
+  /**
+   * Возвращает запрос к шарду: без смещения, с ограничением, покрывающим смещение.
+   */
+  private static TaskQuery shardQuery(TaskQuery query) {
+    if (query.offset() == 0) {
+      return query;
+    }
+    return query.toBuilder()
+        .offset(0)
+        .limit(query.limit() > 0 ? query.offset() + query.limit() : 0)
+        .build();
+  }
+
+  /**
+   * Составляет страницу ранжированной выдачи из выдач шардов: сначала первые элементы всех
+   * шардов, затем вторые и так далее.
+   *
+   * @param rankedLists выдачи шардов, от более релевантных к менее релевантным
+   * @param limit       размер страницы
+   * @param offset      количество пропускаемых элементов
+   * @param <T>         тип элемента
+   * @return элементы страницы
+   */
+  static <T> List<T> interleave(List<List<T>> rankedLists, int limit, int offset) {
+    List<T> page = new ArrayList<>(limit);
+    int skipped = 0;
+    for (int position = 0; page.size() < limit; position++) {
+      boolean found = false;
+      for (List<T> list : rankedLists) {
+        if (position < list.size()) {
+          found = true;
+          if (skipped < offset) {
+            skipped++;
+          } else if (page.size() < limit) {
+            page.add(list.get(position));
+          }
+        }
+      }
+      if (!found) {
+        break;
+      }
+    }
+    return page;
+  }
+
+  private TaskDao shardFor(int id) {
+    return shards.get(shardOf(id, shards.size()));
+  }
+
+  private TaskDao nextInsertShard() {
+    return shards.get(Math.floorMod(nextInsertShard.getAndIncrement(), shards.size()));
+  }
+
+  private <T> List<T> fanOut(Function<TaskDao, T> call) {
+    return fanOut(shards, call);
+  }
+
+  /**
+   * Выполняет вызов во всех указанных шардах параллельно и дожидается всех результатов.
+   *
+   * @param targets шарды
+   * @param call    вызов DAO шарда
+   * @param <T>     тип результата
+   * @return результаты в порядке шардов
+   * @throws DaoException если вызов завершился ошибкой хотя бы в одном шарде
+   */
+  private <T> List<T> fanOut(List<TaskDao> targets, Function<TaskDao, T> call) {
+    if (targets.size() == 1) {
+      return List.of(call.apply(targets.get(0)));
+    }
+    // Запросы к шардам отменяются вместе с вызывающим запросом
+    QueryCancellation cancellation = QueryCancellation.current();
+    List<Future<T>> futures = new ArrayList<>(targets.size());
+    for (TaskDao shard : targets) {
+      futures.add(executor.submit(() -> cancellation == null
+          ? call.apply(shard)
+          : cancellation.call(() -> call.apply(shard))));
+    }
+    List<T> results = new ArrayList<>(targets.size());
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new DaoException("Ошибка запроса к шарду", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DaoException("Запрос к шардам прерван", e);
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return results;
+  }
+
+  /**
+   * Объединяет потоки шардов в один поток, отсортированный по id. Курсоры всех шардов открыты
+   * одновременно и закрываются при закрытии общего потока.
+   */
+  private Stream<Task> mergeStreams(Function<TaskDao, Stream<Task>> open) {
+    List<Stream<Task>> streams = new ArrayList<>(shards.size());
+    try {
+      for (TaskDao shard : shards) {
+        streams.add(open.apply(shard));
+      }
+    } catch (RuntimeException e) {
+      streams.forEach(Stream::close);
+      throw e;
+    }
+    List<Iterator<Task>> iterators = new ArrayList<>(streams.size());
+    for (Stream<Task> stream : streams) {
+      iterators.add(stream.iterator());
+    }
+    Spliterator<Task> merged = Spliterators.spliteratorUnknownSize(
+        new MergingIterator<>(iterators, Comparator.comparingInt(Task::getId)),
+        Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(merged, false).onClose(() -> streams.forEach(Stream::close));
+  }
+
+  /**
+   * Итератор, объединяющий отсортированные итераторы с помощью очереди с приоритетом по текущему
+   * элементу каждого итератора.
+   *
+   * @param <T> тип элемента
+   */
+  private static final class MergingIterator<T> implements Iterator<T> {
+
+    private final PriorityQueue<Head<T>> heads;
+
+    MergingIterator(List<Iterator<T>> iterators, Comparator<T> order) {
+      heads = new PriorityQueue<>(Math.max(iterators.size(), 1),
+          (left, right) -> order.compare(left.value, right.value));
+      for (Iterator<T> iterator : iterators) {
+        if (iterator.hasNext()) {
+          heads.add(new Head<>(iterator.next(), iterator));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      Head<T> head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      if (head.rest.hasNext()) {
+        heads.add(new Head<>(head.rest.next(), head.rest));
+      }
+      return head.value;
+    }
+
+    private record Head<T>(T value, Iterator<T> rest) {
+    }
+  }
+}
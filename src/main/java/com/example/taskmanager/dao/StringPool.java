@@ -0,0 +1,270 @@
+package com.example.taskmanager.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Хранилище строк без повторов для {@link ColumnarTaskDao}. Каждая различная строка хранится один
+ * раз в кодировке UTF-8 и обозначается целым номером; задачи с одинаковыми заголовками или
+ * описаниями ссылаются на один номер. Строка освобождается, когда на неё не остаётся ссылок, а её
+ * номер переиспользуется.
+ * <p>
+ * Номера ищутся по содержимому через таблицу с открытой адресацией, в которой хранятся только
+ * номера строк, поэтому служебные затраты на строку — около 40 байт против примерно 100 у
+ * {@code HashMap<String, Integer>} со строками {@link String}.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class StringPool {
+
+  /**
+   * Номер, обозначающий {@code null}.
+   */
+  static final int NULL = -1;
+
+  private static final byte[][] NO_VALUES = new byte[0][];
+
+  private byte[][] values = NO_VALUES;
+  private int[] hashes = new int[0];
+  private int[] refCounts = new int[0];
+  private int count;
+
+  // Освобождённые номера образуют список через refCounts: -(следующий свободный + 2)
+  private int freeHead = NULL;
+  private int live;
+
+  // Таблица поиска: номер строки + 1, 0 — свободная ячейка
+  private int[] table = new int[16];
+  private int mask = 15;
+
+  /**
+   * Добавляет ссылку на строку и возвращает её номер. Повторное добавление той же строки
+   * возвращает тот же номер.
+   *
+   * @param value строка или {@code null}
+   * @return номер строки или {@link #NULL}
+   */
+  int add(String value) {
+    if (value == null) {
+      return NULL;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(bytes);
+    int slot = hash & mask;
+    int entry;
+    while ((entry = table[slot]) != 0) {
+      int ref = entry - 1;
+      if (hashes[ref] == hash && Arrays.equals(values[ref], bytes)) {
+        refCounts[ref]++;
+        return ref;
+      }
+      slot = (slot + 1) & mask;
+    }
+    int ref = allocate();
+    values[ref] = bytes;
+    hashes[ref] = hash;
+    refCounts[ref] = 1;
+    table[slot] = ref + 1;
+    if (++live > table.length / 2) {
+      rehash(table.length * 2);
+    }
+    return ref;
+  }
+
+  /**
+   * Заменяет содержимое хранилища строками, прочитанными из снимка.
+   *
+   * @param strings   различные строки в кодировке UTF-8; номер строки равен её индексу
+   * @param refCounts количество ссылок на каждую строку (больше 0)
+   */
+  void load(byte[][] strings, int[] refCounts) {
+    values = strings;
+    this.refCounts = refCounts;
+    count = strings.length;
+    live = count;
+    freeHead = NULL;
+    hashes = new int[count];
+    for (int ref = 0; ref < count; ref++) {
+      hashes[ref] = hash(strings[ref]);
+    }
+    rehash(Math.max(16, Integer.highestOneBit(Math.max(1, count)) << 2));
+  }
+
+  /**
+   * Снимает ссылку на строку; строка без ссылок удаляется.
+   *
+   * @param ref номер строки или {@link #NULL}
+   */
+  void release(int ref) {
+    if (ref == NULL || --refCounts[ref] > 0) {
+      return;
+    }
+    removeFromTable(ref);
+    values[ref] = null;
+    refCounts[ref] = -(freeHead + 2);
+    freeHead = ref;
+    live--;
+  }
+
+  /**
+   * Возвращает строку по номеру.
+   *
+   * @param ref номер строки или {@link #NULL}
+   * @return строка или {@code null}
+   */
+  String get(int ref) {
+    return ref == NULL ? null : new String(values[ref], StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Возвращает байты строки в кодировке UTF-8. Массив не изменяется и после освобождения строки,
+   * поэтому его можно сохранять в снимке без копирования.
+   *
+   * @param ref номер строки
+   * @return байты строки
+   */
+  byte[] bytes(int ref) {
+    return values[ref];
+  }
+
+  /**
+   * Возвращает начало строки длиной не менее {@code minChars} символов (или всю строку, если она
+   * короче), декодируя только нужную часть байтов.
+   *
+   * @param ref      номер строки или {@link #NULL}
+   * @param minChars требуемое количество символов
+   * @return начало строки или {@code null}
+   */
+  String prefix(int ref, int minChars) {
+    if (ref == NULL) {
+      return null;
+    }
+    byte[] bytes = values[ref];
+    // Символ занимает не больше 4 байт, поэтому 4 * minChars байт содержат не меньше minChars
+    // полных символов; последний символ может оказаться разрезанным, но он лежит за ними
+    int length = (int) Math.min(bytes.length, 4L * minChars);
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Проверяет, содержит ли строка подстроку из символов ASCII без учёта регистра, сравнивая байты
+   * UTF-8 без декодирования. Байты многобайтовых символов UTF-8 не совпадают с байтами ASCII,
+   * поэтому ложных совпадений не бывает.
+   *
+   * @param ref    номер строки
+   * @param needle подстрока в нижнем регистре, только символы ASCII
+   * @return {@code true}, если подстрока найдена
+   */
+  boolean containsAsciiIgnoreCase(int ref, byte[] needle) {
+    byte[] bytes = values[ref];
+    int last = bytes.length - needle.length;
+    outer:
+    for (int i = 0; i <= last; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        byte b = bytes[i + j];
+        if (b >= 'A' && b <= 'Z') {
+          b += 'a' - 'A';
+        }
+        if (b != needle[j]) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Возвращает верхнюю границу номеров строк (для перебора всех номеров).
+   *
+   * @return количество выданных номеров, включая освобождённые
+   */
+  int capacity() {
+    return count;
+  }
+
+  /**
+   * Проверяет, используется ли номер.
+   *
+   * @param ref номер строки
+   * @return {@code true}, если номер обозначает хранимую строку
+   */
+  boolean isLive(int ref) {
+    return values[ref] != null;
+  }
+
+  /**
+   * Возвращает количество ссылок на строку.
+   *
+   * @param ref номер хранимой строки
+   * @return количество ссылок (1 — строка только что добавлена впервые)
+   */
+  int references(int ref) {
+    return refCounts[ref];
+  }
+
+  /**
+   * Возвращает количество хранимых различных строк.
+   *
+   * @return количество строк
+   */
+  int size() {
+    return live;
+  }
+
+  private static int hash(byte[] bytes) {
+    int hash = Arrays.hashCode(bytes) * 0x9E3779B9;
+    return hash ^ hash >>> 16;
+  }
+
+  private int allocate() {
+    if (freeHead != NULL) {
+      int ref = freeHead;
+      freeHead = -refCounts[ref] - 2;
+      return ref;
+    }
+    if (count == values.length) {
+      int capacity = Math.max(16, values.length * 2);
+      values = Arrays.copyOf(values, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+      refCounts = Arrays.copyOf(refCounts, capacity);
+    }
+    return count++;
+  }
+
+  private void removeFromTable(int ref) {
+    int free = hashes[ref] & mask;
+    while (table[free] != ref + 1) {
+      free = (free + 1) & mask;
+    }
+    int slot = free;
+    while (true) {
+      slot = (slot + 1) & mask;
+      int entry = table[slot];
+      if (entry == 0) {
+        break;
+      }
+      int home = hashes[entry - 1] & mask;
+      if (((slot - home) & mask) >= ((slot - free) & mask)) {
+        table[free] = entry;
+        free = slot;
+      }
+    }
+    table[free] = 0;
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    mask = capacity - 1;
+    for (int ref = 0; ref < count; ref++) {
+      if (values[ref] != null) {
+        int slot = hashes[ref] & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = ref + 1;
+      }
+    }
+  }
+}
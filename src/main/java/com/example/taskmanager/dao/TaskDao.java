@@ -1,10 +1,18 @@
 package com.example.taskmanager.dao;
 
 import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
 import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
 import com.example.taskmanager.exception.DaoException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Интерфейс Data Access Object (DAO) для работы с задачами. Предоставляет методы для выполнения
@@ -16,14 +24,34 @@ public interface TaskDao {
 
   /**
    * Сохраняет задачу в базе данных. Если задача новая (id == 0), выполняется вставка, иначе —
-   * обновление существующей записи.
+   * обновление существующей записи. Обновление выполняется, только если версия записи в БД
+   * совпадает с {@link Task#getVersion()}; после успешной записи версия задачи увеличивается.
    *
    * @param task объект задачи, который необходимо сохранить
    * @return сохранённая задача с присвоенным идентификатором (для новой задачи)
-   * @throws DaoException если происходит ошибка доступа к БД
+   * @throws com.example.taskmanager.exception.OptimisticLockException если задача была изменена
+   *                                                                   или удалена после чтения
+   * @throws DaoException                                              если происходит ошибка
+   *                                                                   доступа к БД
    */
   Task save(Task task);
 
+  /**
+   * Сохраняет несколько задач. Реализация по умолчанию вызывает {@link #save(Task)} для каждой
+   * задачи; реализации для БД переопределяют метод пакетной записью.
+   *
+   * @param tasks задачи для сохранения (новые — с id == 0)
+   * @return сохранённые задачи в исходном порядке с присвоенными идентификаторами
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<Task> saveAll(Collection<Task> tasks) {
+    List<Task> saved = new ArrayList<>(tasks.size());
+    for (Task task : tasks) {
+      saved.add(save(task));
+    }
+    return saved;
+  }
+
   /**
    * Находит задачу по её идентификатору.
    *
@@ -34,6 +62,20 @@ public interface TaskDao {
    */
   Optional<Task> findById(int id);
 
+  /**
+   * Находит задачу по идентификатору в основном хранилище, минуя реплики для чтения. Используется
+   * для перечитывания задачи, изменённой другим клиентом: реплика могла ещё не получить это
+   * изменение. По умолчанию совпадает с {@link #findById(int)}.
+   *
+   * @param id уникальный идентификатор задачи
+   * @return {@code Optional}, содержащий найденную задачу, или пустой {@code Optional}, если задача
+   * не найдена
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default Optional<Task> findByIdOnPrimary(int id) {
+    return findById(id);
+  }
+
   /**
    * Возвращает список всех задач, отсортированных по идентификатору.
    *
@@ -62,10 +104,221 @@ public interface TaskDao {
   List<Task> search(String query);
 
   /**
-   * Удаляет задачу по её идентификатору.
+   * Выполняет поиск задач с ранжированием по релевантности и постраничной выдачей. Реализация по
+   * умолчанию возвращает страницу результатов {@link #search(String)} в порядке идентификаторов.
+   *
+   * @param query  строка поиска (слова или подстрока)
+   * @param limit  максимальное количество задач на странице (больше 0)
+   * @param offset количество пропускаемых наиболее релевантных задач
+   * @return задачи страницы, от более релевантных к менее релевантным
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<Task> searchRanked(String query, int limit, int offset) {
+    return search(query).stream().skip(offset).limit(limit).toList();
+  }
+
+  /**
+   * Возвращает краткие представления всех задач, отсортированных по идентификатору. Реализации для
+   * БД читают только фрагмент описания, поэтому метод предпочтителен для списков и таблиц.
+   *
+   * @return список кратких представлений задач
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<TaskSummary> findAllSummaries() {
+    return findAll().stream().map(TaskSummary::of).toList();
+  }
+
+  /**
+   * Возвращает краткие представления задач с указанным статусом, отсортированных по
+   * идентификатору.
+   *
+   * @param status статус задачи
+   * @return список кратких представлений задач
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    return findByStatus(status).stream().map(TaskSummary::of).toList();
+  }
+
+  /**
+   * Выполняет ранжированный поиск (см. {@link #searchRanked(String, int, int)}) и возвращает
+   * краткие представления задач страницы.
+   *
+   * @param query  строка поиска
+   * @param limit  максимальное количество задач на странице (больше 0)
+   * @param offset количество пропускаемых наиболее релевантных задач
+   * @return краткие представления задач, от более релевантных к менее релевантным
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<TaskSummary> searchSummariesRanked(String query, int limit, int offset) {
+    return searchRanked(query, limit, offset).stream().map(TaskSummary::of).toList();
+  }
+
+  /**
+   * Выполняет составной запрос (см. {@link TaskQuery}). Реализация по умолчанию отбирает и
+   * сортирует в памяти задачи из {@link #streamAll()}; реализации для БД выполняют запрос одним
+   * SQL-запросом.
+   *
+   * @param query запрос
+   * @return задачи, удовлетворяющие запросу, в порядке его сортировки
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<Task> find(TaskQuery query) {
+    try (Stream<Task> tasks = streamAll()) {
+      Stream<Task> sorted = tasks
+          .filter(task -> query.matches(task) && query.isAfterCursor(task))
+          .sorted(query.taskOrder())
+          .skip(query.offset());
+      return (query.limit() > 0 ? sorted.limit(query.limit()) : sorted).toList();
+    }
+  }
+
+  /**
+   * Возвращает количество задач, удовлетворяющих условиям отбора запроса; сортировка, курсор,
+   * ограничение и смещение не учитываются. Реализация по умолчанию просматривает все задачи.
+   *
+   * @param query запрос
+   * @return количество задач
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default long count(TaskQuery query) {
+    try (Stream<Task> tasks = streamAll()) {
+      return tasks.filter(query::matches).count();
+    }
+  }
+
+  /**
+   * Выполняет составной запрос (см. {@link #find(TaskQuery)}) и возвращает краткие представления
+   * задач.
+   *
+   * @param query запрос
+   * @return краткие представления задач в порядке сортировки запроса
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default List<TaskSummary> findSummaries(TaskQuery query) {
+    return find(query).stream().map(TaskSummary::of).toList();
+  }
+
+  /**
+   * Возвращает количество задач по каждому статусу; статусы без задач имеют значение 0. Реализация
+   * по умолчанию просматривает все задачи; реализации для БД читают готовые счётчики.
+   *
+   * @return количество задач по статусам
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default EnumMap<TaskStatus, Long> countByStatus() {
+    EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+    for (TaskStatus status : TaskStatus.values()) {
+      counts.put(status, 0L);
+    }
+    try (Stream<Task> tasks = streamAll()) {
+      tasks.forEach(task -> counts.merge(task.getStatus(), 1L, Long::sum));
+    }
+    return counts;
+  }
+
+  /**
+   * Возвращает поток всех задач, отсортированных по идентификатору. В отличие от {@link #findAll()}
+   * задачи читаются по мере потребления, поэтому потребление памяти не зависит от размера таблицы.
+   * Поток удерживает ресурсы БД до закрытия, поэтому его необходимо закрывать (например, в
+   * try-with-resources).
+   *
+   * @return поток всех задач
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default Stream<Task> streamAll() {
+    return findAll().stream();
+  }
+
+  /**
+   * Возвращает поток задач с указанным статусом, отсортированных по идентификатору. Поток
+   * необходимо закрывать после использования.
+   *
+   * @param status статус задачи
+   * @return поток задач с заданным статусом
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default Stream<Task> streamByStatus(TaskStatus status) {
+    return findByStatus(status).stream();
+  }
+
+  /**
+   * Возвращает поток задач, у которых заголовок или описание содержат заданную подстроку. Поток
+   * необходимо закрывать после использования.
+   *
+   * @param query строка поиска
+   * @return поток задач, удовлетворяющих условию поиска
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default Stream<Task> streamSearch(String query) {
+    return search(query).stream();
+  }
+
+  /**
+   * Возвращает задачи, добавленные или изменённые (по {@code updated_at}) не раньше указанной
+   * отметки, и идентификаторы задач, удалённых не раньше неё. Используется для инкрементальной
+   * синхронизации: стоимость вызова зависит от количества изменений, а не от размера таблицы.
+   * <p>
+   * Отметка {@link TaskDelta#nextWatermark()} выбирается так, что следующий вызов с ней получит
+   * все изменения, не вошедшие в этот вызов, в том числе изменения транзакций, завершившихся после
+   * выборки. Часть задач при этом может быть получена повторно; они применяются идемпотентно.
+   * </p>
+   * <p>
+   * Сведения об удалениях хранятся ограниченное время (для PostgreSQL — {@code purge.retentionDays},
+   * см. {@link com.example.taskmanager.job.TaskPurgeJob}), поэтому отметка не должна быть старше
+   * этого срока: с более старой отметкой часть удалений может быть не получена, и задачи нужно
+   * загрузить заново.
+   * </p>
+   *
+   * @param watermark отметка времени, начиная с которой нужны изменения
+   * @return изменения и отметка для следующего вызова
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  TaskDelta findModifiedSince(LocalDateTime watermark);
+
+  /**
+   * Возвращает отметку для первого вызова {@link #findModifiedSince(LocalDateTime)} после полной
+   * загрузки задач: её следует получить до начала загрузки, тогда изменения, сделанные во время
+   * загрузки, не будут пропущены.
+   *
+   * @return отметка синхронизации на текущий момент
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default LocalDateTime currentWatermark() {
+    return findModifiedSince(LocalDateTime.of(9999, 1, 1, 0, 0)).nextWatermark();
+  }
+
+  /**
+   * Удаляет задачу по её идентификатору. Реализации для БД могут лишь помечать задачу удалённой
+   * (см. {@link #restore(int)}); такая задача больше не возвращается методами поиска.
    *
    * @param id идентификатор задачи, которую необходимо удалить
    * @throws DaoException если происходит ошибка доступа к БД
    */
   void delete(int id);
+
+  /**
+   * Восстанавливает задачу, помеченную удалённой. Реализация по умолчанию не поддерживает
+   * восстановление: удалённые ею задачи удаляются сразу.
+   *
+   * @param id идентификатор задачи
+   * @return {@code true}, если задача восстановлена
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default boolean restore(int id) {
+    return false;
+  }
+
+  /**
+   * Удаляет несколько задач по их идентификаторам. Реализация по умолчанию вызывает
+   * {@link #delete(int)} для каждого идентификатора.
+   *
+   * @param ids идентификаторы задач, которые необходимо удалить
+   * @throws DaoException если происходит ошибка доступа к БД
+   */
+  default void deleteAll(Collection<Integer> ids) {
+    for (int id : ids) {
+      delete(id);
+    }
+  }
 }
\ No newline at end of file
@@ -1,22 +1,143 @@
 package com.example.taskmanager.dao;
 
+import com.example.taskmanager.db.ConnectionSource;
 import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.QueryCancellation;
+import com.example.taskmanager.db.TaskChangeListener;
 import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
 import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
 import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.exception.OptimisticLockException;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Реализация интерфейса {@link TaskDao} для работы с PostgreSQL через JDBC. Выполняет операции
  * вставки, обновления, удаления и выборки задач из таблицы "tasks".
+ * <p>
+ * Таблица "tasks" секционирована по признаку {@code archived}: рабочие задачи хранятся в
+ * {@code tasks_hot}, давно выполненные задачи переносятся в {@code tasks_cold} заданием
+ * {@link com.example.taskmanager.job.TaskArchiveJob}. Запросы по id, поиск и полные выборки
+ * обращаются к обеим секциям, запросы по статусам, отличным от DONE, — только к рабочей.
+ * </p>
+ * <p>
+ * Время изменения ({@code updated_at}) и удаления ({@code deleted_at}) задачи проставляет сервер
+ * БД — время начала записывающего запроса ({@code statement_timestamp()}); значение
+ * {@link Task#getUpdatedAt()} переданной задачи не сохраняется, а заменяется записанным. Поэтому
+ * отметки синхронизации ({@link #findModifiedSince(LocalDateTime)}) не зависят от часов клиентов.
+ * </p>
+ * <p>
+ * Пакетные {@link #saveAll(Collection)} и {@link #deleteAll(Collection)} больше
+ * {@link TaskChangeListener#MAX_BATCH_SIZE} задач отключают построчные уведомления триггера
+ * ({@code taskmanager.suppress_notify}) и отправляют одно уведомление RELOAD при фиксации, как
+ * массовый импорт и фоновые задания: слушатель всё равно заменил бы такой пакет на RELOAD.
+ * </p>
+ * <p>
+ * Запросы на чтение выполняются через {@link ConnectionSource#getReadConnection()} и могут
+ * обслуживаться репликами; после каждой записи вызывается {@link ConnectionSource#markWrite()},
+ * чтобы последующие чтения этого клиента видели записанное. Исключения —
+ * {@link #findModifiedSince(LocalDateTime)}: отметка синхронизации берётся из часов сервера, и
+ * изменения, ещё не дошедшие до реплики, были бы пропущены, поэтому синхронизация всегда
+ * читает основной сервер; и {@link #findByIdOnPrimary(int)}, которым перечитываются задачи,
+ * изменённые другими клиентами.
+ * </p>
+ * <p>
+ * Все запросы на чтение, включая потоки, регистрируются в признаке отмены текущего потока
+ * ({@link QueryCancellation}) и прерываются на сервере при его отмене.
+ * </p>
  *
  * @author Shebeta N.I.
  */
 public class TaskDaoImpl implements TaskDao {
 
+  private static final String TASK_COLUMNS =
+      "id, title, description, status, created_at, updated_at, version";
+  private static final String INSERT_SQL = "INSERT INTO tasks "
+      + "(title, description, status, created_at, updated_at) "
+      + "VALUES (?, ?, ?, ?, statement_timestamp())";
+  private static final String UPDATE_SQL = "UPDATE tasks SET title = ?, description = ?, "
+      + "status = ?, updated_at = statement_timestamp(), version = version + 1, archived = false "
+      + "WHERE id = ? AND version = ? AND deleted_at IS NULL";
+  private static final String[] INSERT_RETURNING = {"id", "updated_at"};
+  private static final String[] UPDATE_RETURNING = {"updated_at"};
+
+  /**
+   * Отметка следующей синхронизации: время начала самой ранней транзакции клиента этой БД, которая
+   * уже изменила данные или выполняет запрос, но не ниже текущего времени сервера. Всё, что такие
+   * транзакции запишут, получит {@code updated_at} не раньше отметки, даже если они завершатся
+   * позже выборки изменений. Сведения о транзакциях чужих ролей PostgreSQL показывает только
+   * пользователю с ролью {@code pg_read_all_stats}, поэтому все клиенты должны подключаться под
+   * одной ролью или иметь её.
+   */
+  private static final String WATERMARK_SQL = "SELECT least(localtimestamp, "
+      + "min(xact_start)::timestamp) FROM pg_stat_activity "
+      + "WHERE datname = current_database() AND backend_type = 'client backend' "
+      + "AND (backend_xid IS NOT NULL OR state = 'active')";
+  private static final String SUMMARY_COLUMNS =
+      "id, title, left(description, " + (TaskSummary.SNIPPET_LENGTH + 1) + "), status, " +
+          "created_at, updated_at";
+
+  private final ConnectionSource connections;
+  private final int fetchSize;
+  private final int batchSize;
+
+  /**
+   * Создаёт DAO с размером выборки курсора из параметра {@code db.fetchSize} (по умолчанию 500) и
+   * размером пакета записи из параметра {@code db.batchSize} (по умолчанию 1000).
+   */
+  public TaskDaoImpl() {
+    this(DatabaseConnection.getIntProperty("db.fetchSize", 500),
+        DatabaseConnection.getIntProperty("db.batchSize", 1000));
+  }
+
+  /**
+   * Создаёт DAO основной базы данных с указанными размерами выборки и пакета.
+   *
+   * @param fetchSize количество строк, получаемых из БД за одно обращение в потоковых методах
+   *                  (больше 0)
+   * @param batchSize количество строк, отправляемых в БД за один пакет в {@link #saveAll} и
+   *                  {@link #deleteAll} (больше 0)
+   */
+  public TaskDaoImpl(int fetchSize, int batchSize) {
+    this(DatabaseConnection.primary(), fetchSize, batchSize);
+  }
+
+  /**
+   * Создаёт DAO, работающий с базой данных указанного источника соединений.
+   *
+   * @param connections источник соединений (например, пул шарда)
+   * @param fetchSize   количество строк, получаемых из БД за одно обращение в потоковых методах
+   *                    (больше 0)
+   * @param batchSize   количество строк, отправляемых в БД за один пакет в {@link #saveAll} и
+   *                    {@link #deleteAll} (больше 0)
+   */
+  public TaskDaoImpl(ConnectionSource connections, int fetchSize, int batchSize) {
+    if (fetchSize <= 0) {
+      throw new IllegalArgumentException("Размер выборки должен быть положительным: " + fetchSize);
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+    }
+    this.connections = connections;
+    this.fetchSize = fetchSize;
+    this.batchSize = batchSize;
+  }
+
   /**
    * Сохраняет задачу. Если у задачи не задан id (равен 0), выполняется вставка новой записи, иначе
    * — обновление существующей.
@@ -38,25 +159,23 @@ public class TaskDaoImpl implements TaskDao {
    * Вставляет новую задачу в таблицу. Генерирует новый идентификатор через автоинкремент.
    *
    * @param task задача для вставки (id должен быть 0)
-   * @return та же задача с заполненным id и временными метками
+   * @return та же задача с заполненным id и временем изменения, проставленным БД
    * @throws DaoException если не удалось выполнить вставку
    */
   private Task insert(Task task) {
-    String sql = "INSERT INTO tasks (title, description, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-      stmt.setString(1, task.getTitle());
-      stmt.setString(2, task.getDescription());
-      stmt.setString(3, task.getStatus().name());
-      stmt.setTimestamp(4, Timestamp.valueOf(task.getCreatedAt()));
-      stmt.setTimestamp(5, Timestamp.valueOf(task.getUpdatedAt()));
+    try (Connection conn = connections.getConnection();
+        PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, INSERT_RETURNING)) {
+
+      bindInsert(stmt, task);
       stmt.executeUpdate();
+      connections.markWrite();
 
       ResultSet generatedKeys = stmt.getGeneratedKeys();
       if (generatedKeys.next()) {
         task.setId(generatedKeys.getInt(1));
+        task.setUpdatedAt(generatedKeys.getTimestamp(2).toLocalDateTime());
       }
+      task.setVersion(0);
       return task;
     } catch (SQLException e) {
       throw new DaoException("Ошибка вставки задачи", e);
@@ -64,29 +183,206 @@ public class TaskDaoImpl implements TaskDao {
   }
 
   /**
-   * Обновляет существующую задачу в таблице.
+   * Обновляет существующую задачу в таблице, если её версия в БД совпадает с версией задачи, и
+   * увеличивает версию. Строка не блокируется между чтением и записью. Изменённая архивная задача
+   * возвращается в рабочую секцию.
    *
    * @param task задача с уже существующим id
-   * @return обновлённая задача
-   * @throws DaoException если не удалось выполнить обновление
+   * @return обновлённая задача с новой версией и временем изменения, проставленным БД
+   * @throws OptimisticLockException если задача была изменена или удалена после чтения
+   * @throws DaoException            если не удалось выполнить обновление
    */
   private Task update(Task task) {
-    String sql = "UPDATE tasks SET title = ?, description = ?, status = ?, updated_at = ? WHERE id = ?";
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql)) {
+    try (Connection conn = connections.getConnection();
+        PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL, UPDATE_RETURNING)) {
 
-      stmt.setString(1, task.getTitle());
-      stmt.setString(2, task.getDescription());
-      stmt.setString(3, task.getStatus().name());
-      stmt.setTimestamp(4, Timestamp.valueOf(task.getUpdatedAt()));
-      stmt.setInt(5, task.getId());
-      stmt.executeUpdate();
+      bindUpdate(stmt, task);
+      if (stmt.executeUpdate() == 0) {
+        throw new OptimisticLockException(List.of(task.getId()));
+      }
+      connections.markWrite();
+      try (ResultSet updated = stmt.getGeneratedKeys()) {
+        updated.next();
+        task.setUpdatedAt(updated.getTimestamp(1).toLocalDateTime());
+      }
+      task.setVersion(task.getVersion() + 1);
       return task;
     } catch (SQLException e) {
       throw new DaoException("Ошибка обновления задачи с id=" + task.getId(), e);
     }
   }
 
+  /**
+   * Сохраняет задачи пакетами в одной транзакции и одном соединении. Новые задачи вставляются через
+   * {@code addBatch}/{@code executeBatch} (драйвер объединяет их в многострочные INSERT при
+   * {@code reWriteBatchedInserts}), сгенерированные идентификаторы присваиваются всем задачам
+   * пакета. При ошибке транзакция откатывается, а идентификаторы новых задач сбрасываются в 0.
+   * Обновления проверяют версии так же, как {@link #save(Task)}: при конфликте хотя бы одной
+   * задачи не сохраняется ни одна. Время изменения, проставленное БД, присваивается задачам после
+   * фиксации транзакции. Пакет больше {@link TaskChangeListener#MAX_BATCH_SIZE} задач отправляет
+   * слушателям одно уведомление RELOAD вместо построчных.
+   *
+   * @param tasks задачи для сохранения
+   * @return сохранённые задачи в исходном порядке
+   * @throws OptimisticLockException если какая-либо задача была изменена или удалена после чтения
+   * @throws DaoException            при ошибке SQL
+   */
+  @Override
+  public List<Task> saveAll(Collection<Task> tasks) {
+    List<Task> inserts = new ArrayList<>();
+    List<Task> updates = new ArrayList<>();
+    for (Task task : tasks) {
+      (task.getId() == 0 ? inserts : updates).add(task);
+    }
+    boolean bulk = tasks.size() > TaskChangeListener.MAX_BATCH_SIZE;
+    try (Connection conn = connections.getConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        if (bulk) {
+          suppressRowNotifications(conn);
+        }
+        List<Timestamp> insertedAt = insertBatch(conn, inserts);
+        List<Timestamp> updatedAt = updateBatch(conn, updates);
+        if (bulk) {
+          notifyReload(conn);
+        }
+        conn.commit();
+        connections.markWrite();
+        for (int i = 0; i < inserts.size(); i++) {
+          inserts.get(i).setVersion(0);
+          inserts.get(i).setUpdatedAt(insertedAt.get(i).toLocalDateTime());
+        }
+        for (int i = 0; i < updates.size(); i++) {
+          updates.get(i).setVersion(updates.get(i).getVersion() + 1);
+          updates.get(i).setUpdatedAt(updatedAt.get(i).toLocalDateTime());
+        }
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        inserts.forEach(task -> task.setId(0));
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+      }
+      return new ArrayList<>(tasks);
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка пакетного сохранения " + tasks.size() + " задач", e);
+    }
+  }
+
+  /**
+   * Вставляет задачи пакетами по {@code batchSize} строк и присваивает им сгенерированные
+   * идентификаторы.
+   *
+   * @param conn  соединение с открытой транзакцией
+   * @param tasks новые задачи (id равен 0)
+   * @return время изменения, проставленное БД, для каждой задачи в порядке списка
+   * @throws SQLException при ошибке SQL
+   */
+  private List<Timestamp> insertBatch(Connection conn, List<Task> tasks) throws SQLException {
+    List<Timestamp> updatedAt = new ArrayList<>(tasks.size());
+    if (tasks.isEmpty()) {
+      return updatedAt;
+    }
+    try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, INSERT_RETURNING)) {
+      for (int from = 0; from < tasks.size(); from += batchSize) {
+        List<Task> chunk = tasks.subList(from, Math.min(from + batchSize, tasks.size()));
+        for (Task task : chunk) {
+          bindInsert(stmt, task);
+          stmt.addBatch();
+        }
+        stmt.executeBatch();
+        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+          for (Task task : chunk) {
+            if (!generatedKeys.next()) {
+              throw new SQLException("Драйвер вернул меньше ключей, чем вставлено строк");
+            }
+            task.setId(generatedKeys.getInt(1));
+            updatedAt.add(generatedKeys.getTimestamp(2));
+          }
+        }
+      }
+    }
+    return updatedAt;
+  }
+
+  /**
+   * Обновляет задачи пакетами по {@code batchSize} строк с проверкой версий. Версии задач в памяти
+   * не меняются: их увеличивает вызывающий код после фиксации транзакции.
+   *
+   * @param conn  соединение с открытой транзакцией
+   * @param tasks задачи с уже существующими id
+   * @return время изменения, проставленное БД, для каждой задачи в порядке списка
+   * @throws OptimisticLockException если хотя бы одна задача была изменена или удалена после
+   *                                 чтения
+   * @throws SQLException            при ошибке SQL
+   */
+  private List<Timestamp> updateBatch(Connection conn, List<Task> tasks) throws SQLException {
+    List<Timestamp> updatedAt = new ArrayList<>(tasks.size());
+    if (tasks.isEmpty()) {
+      return updatedAt;
+    }
+    List<Integer> conflicts = new ArrayList<>();
+    try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL, UPDATE_RETURNING)) {
+      for (int from = 0; from < tasks.size(); from += batchSize) {
+        List<Task> chunk = tasks.subList(from, Math.min(from + batchSize, tasks.size()));
+        for (Task task : chunk) {
+          bindUpdate(stmt, task);
+          stmt.addBatch();
+        }
+        int[] counts = stmt.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] == 0) {
+            conflicts.add(chunk.get(i).getId());
+          }
+        }
+        // Строки возвращаются только для обновлённых задач, поэтому нужны лишь без конфликтов
+        if (conflicts.isEmpty()) {
+          try (ResultSet updated = stmt.getGeneratedKeys()) {
+            while (updated.next()) {
+              updatedAt.add(updated.getTimestamp(1));
+            }
+          }
+        }
+      }
+    }
+    if (!conflicts.isEmpty()) {
+      throw new OptimisticLockException(conflicts);
+    }
+    return updatedAt;
+  }
+
+  /**
+   * Возвращает условие отбора по статусу с одним параметром. В архивную секцию {@code tasks_cold}
+   * попадают только задачи DONE, поэтому для остальных статусов условие дополняется
+   * {@code archived = false} и PostgreSQL исключает архивную секцию из плана запроса.
+   */
+  private static String statusCondition(TaskStatus status) {
+    return status == TaskStatus.DONE
+        ? "status = ? AND deleted_at IS NULL"
+        : "status = ? AND archived = false AND deleted_at IS NULL";
+  }
+
+  /**
+   * Устанавливает параметры запроса {@link #INSERT_SQL}.
+   */
+  private static void bindInsert(PreparedStatement stmt, Task task) throws SQLException {
+    stmt.setString(1, task.getTitle());
+    stmt.setString(2, task.getDescription());
+    stmt.setString(3, task.getStatus().name());
+    stmt.setTimestamp(4, Timestamp.valueOf(task.getCreatedAt()));
+  }
+
+  /**
+   * Устанавливает параметры запроса {@link #UPDATE_SQL}.
+   */
+  private static void bindUpdate(PreparedStatement stmt, Task task) throws SQLException {
+    stmt.setString(1, task.getTitle());
+    stmt.setString(2, task.getDescription());
+    stmt.setString(3, task.getStatus().name());
+    stmt.setInt(4, task.getId());
+    stmt.setInt(5, task.getVersion());
+  }
+
   /**
    * Ищет задачу по идентификатору.
    *
@@ -96,19 +392,27 @@ public class TaskDaoImpl implements TaskDao {
    */
   @Override
   public Optional<Task> findById(int id) {
-    String sql = "SELECT id, title, description, status, created_at, updated_at FROM tasks WHERE id = ?";
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql)) {
+    return findById(id, false);
+  }
 
-      stmt.setInt(1, id);
-      ResultSet rs = stmt.executeQuery();
-      if (rs.next()) {
-        return Optional.of(mapRowToTask(rs));
-      }
-      return Optional.empty();
-    } catch (SQLException e) {
-      throw new DaoException("Ошибка поиска задачи по id=" + id, e);
-    }
+  /**
+   * Ищет задачу по идентификатору через соединение с основным сервером
+   * ({@link ConnectionSource#getConnection()}), а не с репликой.
+   *
+   * @param id идентификатор задачи
+   * @return Optional с задачей, если найдена, иначе пустой Optional
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public Optional<Task> findByIdOnPrimary(int id) {
+    return findById(id, true);
+  }
+
+  private Optional<Task> findById(int id, boolean primary) {
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE id = ? AND deleted_at IS NULL";
+    return queryList(primary, sql, stmt -> stmt.setInt(1, id), TaskDaoImpl::mapRowToTask,
+        "Ошибка поиска задачи по id=" + id).stream().findFirst();
   }
 
   /**
@@ -119,19 +423,10 @@ public class TaskDaoImpl implements TaskDao {
    */
   @Override
   public List<Task> findAll() {
-    String sql = "SELECT id, title, description, status, created_at, updated_at FROM tasks ORDER BY id";
-    List<Task> tasks = new ArrayList<>();
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql);
-        ResultSet rs = stmt.executeQuery()) {
-
-      while (rs.next()) {
-        tasks.add(mapRowToTask(rs));
-      }
-      return tasks;
-    } catch (SQLException e) {
-      throw new DaoException("Ошибка получения всех задач", e);
-    }
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE deleted_at IS NULL ORDER BY id";
+    return queryList(sql, stmt -> {
+    }, TaskDaoImpl::mapRowToTask, "Ошибка получения всех задач");
   }
 
   /**
@@ -143,20 +438,10 @@ public class TaskDaoImpl implements TaskDao {
    */
   @Override
   public List<Task> findByStatus(TaskStatus status) {
-    String sql = "SELECT id, title, description, status, created_at, updated_at FROM tasks WHERE status = ? ORDER BY id";
-    List<Task> tasks = new ArrayList<>();
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-      stmt.setString(1, status.name());
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        tasks.add(mapRowToTask(rs));
-      }
-      return tasks;
-    } catch (SQLException e) {
-      throw new DaoException("Ошибка поиска задач по статусу " + status, e);
-    }
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE " + statusCondition(status) + " ORDER BY id";
+    return queryList(sql, stmt -> stmt.setString(1, status.name()), TaskDaoImpl::mapRowToTask,
+        "Ошибка поиска задач по статусу " + status);
   }
 
   /**
@@ -169,59 +454,737 @@ public class TaskDaoImpl implements TaskDao {
    */
   @Override
   public List<Task> search(String query) {
-    String sql = "SELECT id, title, description, status, created_at, updated_at FROM tasks " +
-        "WHERE title ILIKE ? OR description ILIKE ? ORDER BY id";
-    List<Task> tasks = new ArrayList<>();
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE (title ILIKE ? OR description ILIKE ?) AND deleted_at IS NULL ORDER BY id";
     String searchPattern = "%" + query + "%";
-    try (Connection conn = DatabaseConnection.getConnection();
-        PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+    return queryList(sql, stmt -> {
       stmt.setString(1, searchPattern);
       stmt.setString(2, searchPattern);
-      ResultSet rs = stmt.executeQuery();
-      while (rs.next()) {
-        tasks.add(mapRowToTask(rs));
+    }, TaskDaoImpl::mapRowToTask, "Ошибка поиска задач по запросу: " + query);
+  }
+
+  /**
+   * Помечает задачи удалёнными в одной транзакции (см. {@link #delete(int)}). Каждый пакет из
+   * {@code batchSize} идентификаторов обрабатывается одним запросом {@code UPDATE ... WHERE id =
+   * ANY(?)}. Пакет больше {@link TaskChangeListener#MAX_BATCH_SIZE} задач отправляет слушателям
+   * одно уведомление RELOAD вместо построчных.
+   *
+   * @param ids идентификаторы удаляемых задач
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public void deleteAll(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    String sql = "UPDATE tasks SET deleted_at = statement_timestamp(), version = version + 1 "
+        + "WHERE id = ANY (?) AND deleted_at IS NULL";
+    Integer[] allIds = ids.toArray(new Integer[0]);
+    boolean bulk = allIds.length > TaskChangeListener.MAX_BATCH_SIZE;
+    try (Connection conn = connections.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        if (bulk) {
+          suppressRowNotifications(conn);
+        }
+        for (int from = 0; from < allIds.length; from += batchSize) {
+          Integer[] chunk = Arrays.copyOfRange(allIds, from, Math.min(from + batchSize, allIds.length));
+          stmt.setArray(1, conn.createArrayOf("integer", chunk));
+          stmt.executeUpdate();
+        }
+        if (bulk) {
+          notifyReload(conn);
+        }
+        conn.commit();
+        connections.markWrite();
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
       }
-      return tasks;
     } catch (SQLException e) {
-      throw new DaoException("Ошибка поиска задач по запросу: " + query, e);
+      throw new DaoException("Ошибка пакетного удаления " + ids.size() + " задач", e);
     }
   }
 
   /**
-   * Удаляет задачу по идентификатору.
+   * Отключает до конца текущей транзакции построчные уведомления триггера об изменении задач.
+   *
+   * @param conn соединение с открытой транзакцией
+   * @throws SQLException при ошибке SQL
+   */
+  private static void suppressRowNotifications(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("SET LOCAL taskmanager.suppress_notify = 'on'");
+    }
+  }
+
+  /**
+   * Отправляет слушателям одно уведомление RELOAD; оно доставляется при фиксации транзакции.
+   *
+   * @param conn соединение с открытой транзакцией
+   * @throws SQLException при ошибке SQL
+   */
+  private static void notifyReload(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("NOTIFY " + TaskChangeListener.CHANNEL + ", 'RELOAD:0'");
+    }
+  }
+
+  /**
+   * Возвращает поток всех задач, читаемых через серверный курсор PostgreSQL.
+   *
+   * @return поток задач, который необходимо закрыть после использования
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public Stream<Task> streamAll() {
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE deleted_at IS NULL ORDER BY id";
+    return stream(sql, stmt -> {
+    }, "Ошибка потокового чтения всех задач");
+  }
+
+  /**
+   * Возвращает поток задач с заданным статусом, читаемых через серверный курсор PostgreSQL.
+   *
+   * @param status статус для фильтрации
+   * @return поток задач, который необходимо закрыть после использования
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public Stream<Task> streamByStatus(TaskStatus status) {
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE " + statusCondition(status) + " ORDER BY id";
+    return stream(sql, stmt -> stmt.setString(1, status.name()),
+        "Ошибка потокового чтения задач по статусу " + status);
+  }
+
+  /**
+   * Возвращает поток задач, найденных по подстроке в заголовке или описании, читаемых через
+   * серверный курсор PostgreSQL.
+   *
+   * @param query строка для поиска
+   * @return поток задач, который необходимо закрыть после использования
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public Stream<Task> streamSearch(String query) {
+    String sql = "SELECT id, title, description, status, created_at, updated_at, version FROM tasks " +
+        "WHERE (title ILIKE ? OR description ILIKE ?) AND deleted_at IS NULL ORDER BY id";
+    String searchPattern = "%" + query + "%";
+    return stream(sql, stmt -> {
+      stmt.setString(1, searchPattern);
+      stmt.setString(2, searchPattern);
+    }, "Ошибка потокового поиска задач по запросу: " + query);
+  }
+
+  /**
+   * Выполняет поиск с ранжированием по релевантности. Способ поиска выбирается по виду запроса так,
+   * чтобы использовался подходящий индекс (см. {@link SearchStrategy}).
+   *
+   * @param query  строка поиска
+   * @param limit  размер страницы
+   * @param offset количество пропускаемых задач
+   * @return задачи страницы, от более релевантных к менее релевантным
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<Task> searchRanked(String query, int limit, int offset) {
+    return rankedSearch(TASK_COLUMNS, query, limit, offset, TaskDaoImpl::mapRowToTask);
+  }
+
+  /**
+   * Возвращает все задачи в сокращённом виде, отсортированные по id. Из описания читается только
+   * начальный фрагмент, поэтому объём передаваемых данных не зависит от длины описаний.
+   *
+   * @return список кратких представлений задач
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<TaskSummary> findAllSummaries() {
+    String sql = "SELECT " + SUMMARY_COLUMNS + " FROM tasks WHERE deleted_at IS NULL ORDER BY id";
+    return queryList(sql, stmt -> {
+    }, TaskDaoImpl::mapRowToSummary, "Ошибка получения списка задач");
+  }
+
+  /**
+   * Возвращает задачи с заданным статусом в сокращённом виде, отсортированные по id.
+   *
+   * @param status статус для фильтрации
+   * @return список кратких представлений задач
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<TaskSummary> findSummariesByStatus(TaskStatus status) {
+    String sql = "SELECT " + SUMMARY_COLUMNS + " FROM tasks WHERE " + statusCondition(status) + " ORDER BY id";
+    return queryList(sql, stmt -> stmt.setString(1, status.name()), TaskDaoImpl::mapRowToSummary,
+        "Ошибка получения списка задач по статусу " + status);
+  }
+
+  /**
+   * Выполняет ранжированный поиск и возвращает задачи страницы в сокращённом виде.
+   *
+   * @param query  строка поиска
+   * @param limit  размер страницы
+   * @param offset количество пропускаемых задач
+   * @return краткие представления задач, от более релевантных к менее релевантным
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<TaskSummary> searchSummariesRanked(String query, int limit, int offset) {
+    return rankedSearch(SUMMARY_COLUMNS, query, limit, offset, TaskDaoImpl::mapRowToSummary);
+  }
+
+  /**
+   * Выполняет составной запрос одним SQL-запросом (см. {@link TaskQuerySql}): отбор, сортировка,
+   * курсор и ограничение выполняются в БД.
+   *
+   * @param query запрос
+   * @return задачи, удовлетворяющие запросу, в порядке его сортировки
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<Task> find(TaskQuery query) {
+    TaskQuerySql.Compiled compiled = TaskQuerySql.compile(TASK_COLUMNS, query);
+    return queryList(compiled.sql(), compiled::bind, TaskDaoImpl::mapRowToTask,
+        "Ошибка выполнения запроса задач " + query);
+  }
+
+  /**
+   * Выполняет составной запрос одним SQL-запросом и возвращает задачи в сокращённом виде.
+   *
+   * @param query запрос
+   * @return краткие представления задач в порядке сортировки запроса
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public List<TaskSummary> findSummaries(TaskQuery query) {
+    TaskQuerySql.Compiled compiled = TaskQuerySql.compile(SUMMARY_COLUMNS, query);
+    return queryList(compiled.sql(), compiled::bind, TaskDaoImpl::mapRowToSummary,
+        "Ошибка выполнения запроса задач " + query);
+  }
+
+  /**
+   * Возвращает количество задач, удовлетворяющих условиям отбора запроса. Если отбор только по
+   * статусам, количество складывается из счётчиков {@link #countByStatus()} без просмотра задач;
+   * иначе выполняется {@code SELECT count(*)} с условиями {@link #find(TaskQuery)}.
+   *
+   * @param query запрос
+   * @return количество задач
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public long count(TaskQuery query) {
+    if (query.text() == null && query.createdFrom() == null && query.createdTo() == null
+        && query.updatedFrom() == null && query.updatedTo() == null) {
+      return countByStatus().entrySet().stream()
+          .filter(entry -> query.statuses().isEmpty() || query.statuses().contains(entry.getKey()))
+          .mapToLong(Map.Entry::getValue)
+          .sum();
+    }
+    TaskQuerySql.Compiled compiled = TaskQuerySql.compileCount(query);
+    return queryList(compiled.sql(), compiled::bind, rs -> rs.getLong(1),
+        "Ошибка подсчёта задач по запросу " + query).get(0);
+  }
+
+  /**
+   * Выполняет ранжированный поиск, выбирая способ поиска по виду запроса так, чтобы использовался
+   * подходящий индекс (см. {@link SearchStrategy}).
+   *
+   * @param columns список выбираемых столбцов
+   * @param query   строка поиска
+   * @param limit   размер страницы
+   * @param offset  количество пропускаемых строк
+   * @param mapper  преобразование строки результата
+   * @param <T>     тип элемента результата
+   * @return строки страницы, от более релевантных к менее релевантным
+   * @throws DaoException при ошибке SQL
+   */
+  private <T> List<T> rankedSearch(String columns, String query, int limit, int offset,
+      RowMapper<T> mapper) {
+    String trimmed = query.trim();
+    String sql;
+    StatementBinder binder;
+    switch (chooseSearchStrategy(trimmed)) {
+      case FULL_TEXT -> {
+        sql = "SELECT " + columns + " " +
+            "FROM tasks, websearch_to_tsquery('russian', ?) query " +
+            "WHERE search_vector @@ query AND deleted_at IS NULL " +
+            "ORDER BY ts_rank_cd(search_vector, query) DESC, id LIMIT ? OFFSET ?";
+        binder = stmt -> {
+          stmt.setString(1, trimmed);
+          stmt.setInt(2, limit);
+          stmt.setInt(3, offset);
+        };
+      }
+      case PREFIX -> {
+        sql = "SELECT " + columns + " " +
+            "FROM tasks, to_tsquery('simple', ?) query " +
+            "WHERE search_vector @@ query AND deleted_at IS NULL " +
+            "ORDER BY ts_rank_cd(search_vector, query) DESC, id LIMIT ? OFFSET ?";
+        binder = stmt -> {
+          stmt.setString(1, trimmed + ":*");
+          stmt.setInt(2, limit);
+          stmt.setInt(3, offset);
+        };
+      }
+      default -> {
+        sql = "SELECT " + columns + " FROM tasks " +
+            "WHERE (title ILIKE ? OR description ILIKE ?) AND deleted_at IS NULL " +
+            "ORDER BY title ILIKE ? DESC, word_similarity(?, title) DESC, id LIMIT ? OFFSET ?";
+        String pattern = "%" + escapeLikePattern(trimmed) + "%";
+        binder = stmt -> {
+          stmt.setString(1, pattern);
+          stmt.setString(2, pattern);
+          stmt.setString(3, pattern);
+          stmt.setString(4, trimmed);
+          stmt.setInt(5, limit);
+          stmt.setInt(6, offset);
+        };
+      }
+    }
+    return queryList(sql, binder, mapper, "Ошибка ранжированного поиска задач по запросу: " + query);
+  }
+
+  /**
+   * Способ ранжированного поиска, определяющий используемый индекс.
+   */
+  enum SearchStrategy {
+
+    /**
+     * Несколько слов: полнотекстовый поиск по {@code search_vector} (индекс GIN) с учётом
+     * морфологии, ранжирование по {@code ts_rank_cd}.
+     */
+    FULL_TEXT,
+
+    /**
+     * Одно слово короче трёх символов: поиск по префиксу лексемы в {@code search_vector} (индекс
+     * GIN). Триграммный индекс для таких строк неприменим.
+     */
+    PREFIX,
+
+    /**
+     * Одно слово от трёх символов или строка со спецсимволами: поиск подстроки через
+     * {@code ILIKE} (триграммные индексы GIN), совпадения в заголовке ранжируются выше.
+     */
+    SUBSTRING
+  }
+
+  /**
+   * Выбирает способ поиска для строки запроса.
+   *
+   * @param query строка поиска без начальных и конечных пробелов
+   * @return способ поиска
+   */
+  static SearchStrategy chooseSearchStrategy(String query) {
+    boolean wordsOnly = !query.isEmpty() && query.codePoints()
+        .allMatch(cp -> Character.isLetterOrDigit(cp) || Character.isWhitespace(cp));
+    if (wordsOnly && query.codePoints().anyMatch(Character::isWhitespace)) {
+      return SearchStrategy.FULL_TEXT;
+    }
+    if (wordsOnly && query.length() < 3) {
+      return SearchStrategy.PREFIX;
+    }
+    return SearchStrategy.SUBSTRING;
+  }
+
+  /**
+   * Экранирует символы шаблона {@code LIKE}, чтобы строка искалась буквально.
+   *
+   * @param value исходная строка
+   * @return строка с экранированными {@code \}, {@code %} и {@code _}
+   */
+  static String escapeLikePattern(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  /**
+   * Удаляет задачу по идентификатору без физического удаления строки: задача помечается временем
+   * удаления и перестаёт возвращаться методами поиска. Время выполнения не зависит от количества
+   * удаляемых задач и размера таблицы; строки физически удаляет задание
+   * {@link com.example.taskmanager.job.TaskPurgeJob}.
    *
    * @param id идентификатор удаляемой задачи
    * @throws DaoException при ошибке SQL
    */
   @Override
   public void delete(int id) {
-    String sql = "DELETE FROM tasks WHERE id = ?";
-    try (Connection conn = DatabaseConnection.getConnection();
+    String sql = "UPDATE tasks SET deleted_at = statement_timestamp(), version = version + 1 "
+        + "WHERE id = ? AND deleted_at IS NULL";
+    try (Connection conn = connections.getConnection();
         PreparedStatement stmt = conn.prepareStatement(sql)) {
 
       stmt.setInt(1, id);
       stmt.executeUpdate();
+      connections.markWrite();
     } catch (SQLException e) {
       throw new DaoException("Ошибка удаления задачи с id=" + id, e);
     }
   }
 
   /**
-   * Преобразует текущую строку {@link ResultSet} в объект {@link Task}.
+   * Возвращает количество задач по статусам из таблицы {@code task_status_counters}, которую
+   * поддерживают триггеры таблицы "tasks". Суммируется не более 16 строк на статус, поэтому время
+   * выполнения не зависит от количества задач.
+   *
+   * @return количество задач по статусам
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public EnumMap<TaskStatus, Long> countByStatus() {
+    String sql = "SELECT status, sum(cnt) FROM task_status_counters GROUP BY status";
+    EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+    for (TaskStatus status : TaskStatus.values()) {
+      counts.put(status, 0L);
+    }
+    queryList(sql, stmt -> {
+    }, rs -> Map.entry(TaskStatus.valueOf(rs.getString(1)), rs.getLong(2)),
+        "Ошибка подсчёта задач по статусам")
+        .forEach(entry -> counts.put(entry.getKey(), entry.getValue()));
+    return counts;
+  }
+
+  /**
+   * Возвращает изменения задач начиная с отметки. Изменённые задачи выбираются по индексу
+   * {@code idx_tasks_updated_at}, удалённые — из таблицы {@code task_tombstones}, которую заполняет
+   * триггер удаления. Оба запроса выполняются в одной транзакции REPEATABLE READ, поэтому видят
+   * один и тот же снимок данных.
+   * <p>
+   * Отметка следующей синхронизации ({@link #currentWatermark()}) берётся до снимка и не позже
+   * начала транзакций, которые ещё могут записать изменения: изменения транзакции, завершившейся
+   * после выборки, получат следующий вызов, поэтому запрашивать изменения с запасом не нужно.
+   * </p>
+   * <p>
+   * Задание {@link com.example.taskmanager.job.TaskPurgeJob} удаляет записи
+   * {@code task_tombstones} старше {@code purge.retentionDays}, поэтому отметка старше этого срока
+   * может пропустить физически удалённые задачи.
+   * </p>
+   *
+   * @param watermark отметка времени, начиная с которой нужны изменения
+   * @return изменения и отметка для следующего вызова
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public TaskDelta findModifiedSince(LocalDateTime watermark) {
+    String changedSql = "SELECT " + TASK_COLUMNS + " FROM tasks "
+        + "WHERE updated_at >= ? AND deleted_at IS NULL "
+        + "ORDER BY updated_at, id";
+    String deletedSql = "SELECT id FROM tasks WHERE deleted_at >= ? "
+        + "UNION SELECT task_id FROM task_tombstones WHERE deleted_at >= ? ORDER BY 1";
+    Timestamp since = Timestamp.valueOf(watermark);
+    try (Connection conn = connections.getConnection()) {
+      LocalDateTime nextWatermark = currentWatermark(conn);
+      conn.setAutoCommit(false);
+      conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+      try {
+        List<Task> changed;
+        try (PreparedStatement stmt = conn.prepareStatement(changedSql)) {
+          stmt.setTimestamp(1, since);
+          changed = readRows(stmt, TaskDaoImpl::mapRowToTask);
+        }
+        List<Integer> deletedIds;
+        try (PreparedStatement stmt = conn.prepareStatement(deletedSql)) {
+          stmt.setTimestamp(1, since);
+          stmt.setTimestamp(2, since);
+          deletedIds = readRows(stmt, rs -> rs.getInt(1));
+        }
+        conn.commit();
+        return new TaskDelta(changed, deletedIds, nextWatermark);
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        conn.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка получения изменений задач с " + watermark, e);
+    }
+  }
+
+  /**
+   * Возвращает отметку синхронизации по часам сервера БД, не позже начала транзакций, которые
+   * изменили задачи или выполняют запрос и ещё не завершены. Читается с основного сервера, как и
+   * {@link #findModifiedSince(LocalDateTime)}.
+   *
+   * @return отметка для первого вызова {@link #findModifiedSince(LocalDateTime)}
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public LocalDateTime currentWatermark() {
+    try (Connection conn = connections.getConnection()) {
+      return currentWatermark(conn);
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка получения отметки синхронизации", e);
+    }
+  }
+
+  private static LocalDateTime currentWatermark(Connection conn) throws SQLException {
+    try (Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(WATERMARK_SQL)) {
+      rs.next();
+      return rs.getTimestamp(1).toLocalDateTime();
+    }
+  }
+
+  /**
+   * Восстанавливает задачу, помеченную удалённой и ещё не удалённую физически. Время обновления
+   * задачи устанавливается в текущее время БД, чтобы восстановленная задача попала в
+   * {@link #findModifiedSince(LocalDateTime)}.
+   *
+   * @param id идентификатор задачи
+   * @return {@code true}, если задача восстановлена; {@code false}, если она не была удалена или
+   * уже удалена физически
+   * @throws DaoException при ошибке SQL
+   */
+  @Override
+  public boolean restore(int id) {
+    String sql = "UPDATE tasks SET deleted_at = NULL, updated_at = statement_timestamp(), "
+        + "version = version + 1 WHERE id = ? AND deleted_at IS NOT NULL";
+    try (Connection conn = connections.getConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+      stmt.setInt(1, id);
+      boolean restored = stmt.executeUpdate() > 0;
+      connections.markWrite();
+      return restored;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка восстановления задачи с id=" + id, e);
+    }
+  }
+
+  /**
+   * Открывает серверный курсор для запроса и оборачивает его в поток задач. PostgreSQL использует
+   * курсор вместо полной выборки только при выключенном autocommit и заданном размере выборки,
+   * поэтому соединение удерживается в транзакции до закрытия потока. Запрос остаётся
+   * зарегистрированным в признаке отмены текущего потока ({@link QueryCancellation}) до закрытия
+   * потока.
+   *
+   * @param sql          текст запроса
+   * @param binder       установка параметров запроса
+   * @param errorMessage сообщение для {@link DaoException} при ошибке
+   * @return поток задач, освобождающий соединение при закрытии
+   * @throws DaoException если не удалось выполнить запрос
+   */
+  private Stream<Task> stream(String sql, StatementBinder binder, String errorMessage) {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    QueryCancellation.Registration registration = null;
+    try {
+      conn = connections.getReadConnection();
+      conn.setAutoCommit(false);
+      stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      stmt.setFetchSize(fetchSize);
+      binder.bind(stmt);
+      registration = QueryCancellation.register(stmt);
+      ResultSet rs = stmt.executeQuery();
+      TaskCursor cursor = new TaskCursor(conn, stmt, registration, rs, errorMessage);
+      return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    } catch (SQLException e) {
+      DaoException exception = new DaoException(errorMessage, e);
+      if (registration != null) {
+        registration.close();
+      }
+      try {
+        if (stmt != null) {
+          stmt.close();
+        }
+        if (conn != null) {
+          conn.rollback();
+          conn.close();
+        }
+      } catch (SQLException closeException) {
+        exception.addSuppressed(closeException);
+      }
+      throw exception;
+    }
+  }
+
+  /**
+   * Выполняет запрос и читает все строки результата в список. Запрос регистрируется в признаке
+   * отмены текущего потока ({@link QueryCancellation}), поэтому его можно прервать на сервере.
+   *
+   * @param sql          текст запроса
+   * @param binder       установка параметров запроса
+   * @param mapper       преобразование строки результата
+   * @param errorMessage сообщение для {@link DaoException} при ошибке
+   * @param <T>          тип элемента результата
+   * @return список строк результата
+   * @throws DaoException если не удалось выполнить запрос
+   */
+  private <T> List<T> queryList(String sql, StatementBinder binder, RowMapper<T> mapper,
+      String errorMessage) {
+    return queryList(false, sql, binder, mapper, errorMessage);
+  }
+
+  /**
+   * Выполняет запрос на основном сервере или на реплике и читает все строки результата в список
+   * (см. {@link #queryList(String, StatementBinder, RowMapper, String)}).
+   *
+   * @param primary      {@code true}, чтобы выполнить запрос на основном сервере
+   * @param sql          текст запроса
+   * @param binder       установка параметров запроса
+   * @param mapper       преобразование строки результата
+   * @param errorMessage сообщение для {@link DaoException} при ошибке
+   * @param <T>          тип элемента результата
+   * @return список строк результата
+   * @throws DaoException если не удалось выполнить запрос
+   */
+  private <T> List<T> queryList(boolean primary, String sql, StatementBinder binder,
+      RowMapper<T> mapper, String errorMessage) {
+    try (Connection conn = primary ? connections.getConnection() : connections.getReadConnection();
+        PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+      binder.bind(stmt);
+      return readRows(stmt, mapper);
+    } catch (SQLException e) {
+      throw new DaoException(errorMessage, e);
+    }
+  }
+
+  /**
+   * Выполняет подготовленный запрос и читает все строки результата в список. На время выполнения
+   * запрос регистрируется в признаке отмены текущего потока ({@link QueryCancellation}).
+   *
+   * @param stmt   запрос с установленными параметрами
+   * @param mapper преобразование строки результата
+   * @param <T>    тип элемента результата
+   * @return список строк результата
+   * @throws SQLException при ошибке SQL или если запросы текущего потока отменены
+   */
+  private static <T> List<T> readRows(PreparedStatement stmt, RowMapper<T> mapper)
+      throws SQLException {
+    QueryCancellation.Registration registration = QueryCancellation.register(stmt);
+    try (ResultSet rs = stmt.executeQuery()) {
+      List<T> rows = new ArrayList<>();
+      while (rs.next()) {
+        rows.add(mapper.map(rs));
+      }
+      return rows;
+    } finally {
+      registration.close();
+    }
+  }
+
+  /**
+   * Устанавливает параметры подготовленного запроса.
+   */
+  @FunctionalInterface
+  private interface StatementBinder {
+
+    void bind(PreparedStatement stmt) throws SQLException;
+  }
+
+  /**
+   * Преобразует текущую строку результата запроса в объект.
+   *
+   * @param <T> тип объекта
+   */
+  @FunctionalInterface
+  private interface RowMapper<T> {
+
+    T map(ResultSet rs) throws SQLException;
+  }
+
+  /**
+   * Итератор по строкам открытого курсора. Закрывает курсор и возвращает соединение в пул при
+   * закрытии потока или после чтения последней строки.
+   */
+  private final class TaskCursor extends Spliterators.AbstractSpliterator<Task> {
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final QueryCancellation.Registration registration;
+    private final ResultSet rs;
+    private final String errorMessage;
+    private boolean closed;
+
+    TaskCursor(Connection conn, PreparedStatement stmt,
+        QueryCancellation.Registration registration, ResultSet rs, String errorMessage) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+      this.conn = conn;
+      this.stmt = stmt;
+      this.registration = registration;
+      this.rs = rs;
+      this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Task> action) {
+      if (closed) {
+        return false;
+      }
+      try {
+        if (!rs.next()) {
+          close();
+          return false;
+        }
+        action.accept(mapRowToTask(rs));
+        return true;
+      } catch (SQLException e) {
+        throw new DaoException(errorMessage, e);
+      }
+    }
+
+    void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      registration.close();
+      try (Connection connection = conn) {
+        rs.close();
+        stmt.close();
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (SQLException e) {
+        throw new DaoException("Ошибка закрытия курсора", e);
+      }
+    }
+  }
+
+  /**
+   * Преобразует текущую строку {@link ResultSet} в объект {@link Task}. Столбцы читаются по
+   * позиции в порядке id, title, description, status, created_at, updated_at, что избавляет от
+   * поиска столбца по имени для каждой строки.
    *
    * @param rs результат запроса, уже перемещённый на нужную строку
    * @return объект задачи, заполненный данными из текущей строки
    * @throws SQLException если возникает ошибка доступа к столбцам ResultSet
    */
-  private Task mapRowToTask(ResultSet rs) throws SQLException {
+  static Task mapRowToTask(ResultSet rs) throws SQLException {
     Task task = new Task();
-    task.setId(rs.getInt("id"));
-    task.setTitle(rs.getString("title"));
-    task.setDescription(rs.getString("description"));
-    task.setStatus(TaskStatus.valueOf(rs.getString("status")));
-    task.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
-    task.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+    task.setId(rs.getInt(1));
+    task.setTitle(rs.getString(2));
+    task.setDescription(rs.getString(3));
+    task.setStatus(TaskStatus.valueOf(rs.getString(4)));
+    task.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
+    task.setUpdatedAt(rs.getTimestamp(6).toLocalDateTime());
+    task.setVersion(rs.getInt(7));
     return task;
   }
-}
\ No newline at end of file
+
+  /**
+   * Преобразует текущую строку результата запроса со столбцами {@link #SUMMARY_COLUMNS} в
+   * {@link TaskSummary}. Фрагмент описания читается на один символ длиннее
+   * {@link TaskSummary#SNIPPET_LENGTH}, чтобы определить, было ли описание обрезано.
+   *
+   * @param rs результат запроса, уже перемещённый на нужную строку
+   * @return краткое представление задачи
+   * @throws SQLException если возникает ошибка доступа к столбцам ResultSet
+   */
+  private static TaskSummary mapRowToSummary(ResultSet rs) throws SQLException {
+    String snippet = rs.getString(3);
+    boolean truncated = snippet != null && snippet.length() > TaskSummary.SNIPPET_LENGTH;
+    return new TaskSummary(
+        rs.getInt(1),
+        rs.getString(2),
+        truncated ? snippet.substring(0, TaskSummary.SNIPPET_LENGTH) : snippet,
+        truncated,
+        TaskStatus.valueOf(rs.getString(4)),
+        rs.getTimestamp(5).toLocalDateTime(),
+        rs.getTimestamp(6).toLocalDateTime());
+  }
+}
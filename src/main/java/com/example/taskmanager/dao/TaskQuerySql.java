@@ -0,0 +1,264 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.dao.TaskDaoImpl.SearchStrategy;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskQuery.Direction;
+import com.example.taskmanager.entity.TaskQuery.SortKey;
+import com.example.taskmanager.entity.TaskStatus;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Преобразование {@link TaskQuery} в один параметризованный SQL-запрос к таблице "tasks".
+ * <p>
+ * Текст запроса зависит только от вида запроса ({@link Shape}: какие условия заданы, способ
+ * поиска, сортировка), но не от значений: статусы передаются одним параметром-массивом
+ * ({@code status = ANY (?)}), даты, текст, курсор, ограничение и смещение — параметрами. Поэтому текст
+ * запроса каждого вида строится один раз и кэшируется, а одинаковый текст позволяет драйверу
+ * PostgreSQL повторно использовать подготовленный на сервере запрос и его план.
+ * </p>
+ * <p>
+ * Запрос рассчитан на индексы: сортировка по id, статусу, заголовку и датам идёт по составным
+ * индексам {@code (поле, id)}, курсор сравнивается как строка {@code (поле, id) > (?, ?)} и
+ * сводится к поиску по тем же индексам, отбор по тексту использует те же индексы GIN, что и
+ * {@link TaskDaoImpl#searchRanked}.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class TaskQuerySql {
+
+  private static final ConcurrentMap<Shape, String> SHAPES = new ConcurrentHashMap<>();
+
+  /**
+   * Запрос, готовый к выполнению.
+   *
+   * @param sql        текст запроса
+   * @param parameters значения параметров по порядку ({@link String}, {@link Integer},
+   *                   {@link LocalDateTime} или массив строк)
+   */
+  record Compiled(String sql, List<Object> parameters) {
+
+    /**
+     * Устанавливает параметры запроса.
+     *
+     * @param stmt подготовленный запрос с текстом {@link #sql()}
+     * @throws SQLException при ошибке установки параметров
+     */
+    void bind(PreparedStatement stmt) throws SQLException {
+      for (int i = 0; i < parameters.size(); i++) {
+        Object value = parameters.get(i);
+        if (value instanceof Integer number) {
+          stmt.setInt(i + 1, number);
+        } else if (value instanceof LocalDateTime dateTime) {
+          stmt.setTimestamp(i + 1, Timestamp.valueOf(dateTime));
+        } else if (value instanceof String[] values) {
+          stmt.setArray(i + 1, stmt.getConnection().createArrayOf("varchar", values));
+        } else {
+          stmt.setString(i + 1, (String) value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Вид запроса: всё, от чего зависит текст SQL.
+   */
+  private record Shape(String columns, boolean statuses, boolean excludesDone,
+                       SearchStrategy search, boolean createdFrom, boolean createdTo,
+                       boolean updatedFrom, boolean updatedTo, SortKey sortKey,
+                       Direction direction, boolean cursor, boolean limit, boolean offset,
+                       boolean count) {
+
+  }
+
+  private TaskQuerySql() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Строит запрос: текст берётся из кэша видов запросов, значения параметров — из запроса.
+   *
+   * @param columns список выбираемых столбцов
+   * @param query   составной запрос
+   * @return текст запроса и значения параметров
+   */
+  static Compiled compile(String columns, TaskQuery query) {
+    return compile(columns, query, false);
+  }
+
+  /**
+   * Строит запрос количества задач, удовлетворяющих условиям отбора; сортировка, курсор,
+   * ограничение и смещение не учитываются.
+   *
+   * @param query составной запрос
+   * @return текст запроса {@code SELECT count(*)} и значения параметров
+   */
+  static Compiled compileCount(TaskQuery query) {
+    return compile("count(*)", query, true);
+  }
+
+  private static Compiled compile(String columns, TaskQuery query, boolean count) {
+    SearchStrategy search =
+        query.text() == null ? null : TaskDaoImpl.chooseSearchStrategy(query.text());
+    Shape shape = count
+        ? new Shape(columns, !query.statuses().isEmpty(), query.excludesDone(), search,
+        query.createdFrom() != null, query.createdTo() != null, query.updatedFrom() != null,
+        query.updatedTo() != null, SortKey.ID, Direction.ASC, false, false, false, true)
+        : new Shape(columns, !query.statuses().isEmpty(), query.excludesDone(), search,
+        query.createdFrom() != null, query.createdTo() != null, query.updatedFrom() != null,
+        query.updatedTo() != null, sortKey(query, search),
+        query.sortKey() == SortKey.RELEVANCE ? Direction.ASC : query.direction(),
+        query.cursor() != null, query.limit() > 0, query.offset() > 0, false);
+    return new Compiled(SHAPES.computeIfAbsent(shape, TaskQuerySql::render),
+        parameters(query, shape));
+  }
+
+  /**
+   * Возвращает количество закэшированных видов запросов.
+   *
+   * @return количество видов запросов
+   */
+  static int cachedShapes() {
+    return SHAPES.size();
+  }
+
+  /**
+   * Строит текст запроса. Параметры располагаются в порядке, в котором их перечисляет
+   * {@link #parameters(TaskQuery, Shape)}.
+   */
+  private static String render(Shape shape) {
+    StringBuilder sql = new StringBuilder("SELECT ").append(shape.columns()).append(" FROM tasks");
+    if (shape.search() == SearchStrategy.FULL_TEXT) {
+      sql.append(", websearch_to_tsquery('russian', ?) query");
+    } else if (shape.search() == SearchStrategy.PREFIX) {
+      sql.append(", to_tsquery('simple', ?) query");
+    }
+    sql.append(" WHERE deleted_at IS NULL");
+    if (shape.statuses()) {
+      sql.append(" AND status = ANY (?)");
+    }
+    if (shape.excludesDone()) {
+      // В архивной секции только задачи DONE: условие исключает её из плана
+      sql.append(" AND archived = false");
+    }
+    if (shape.search() == SearchStrategy.SUBSTRING) {
+      sql.append(" AND (title ILIKE ? OR description ILIKE ?)");
+    } else if (shape.search() != null) {
+      sql.append(" AND search_vector @@ query");
+    }
+    if (shape.createdFrom()) {
+      sql.append(" AND created_at >= ?");
+    }
+    if (shape.createdTo()) {
+      sql.append(" AND created_at < ?");
+    }
+    if (shape.updatedFrom()) {
+      sql.append(" AND updated_at >= ?");
+    }
+    if (shape.updatedTo()) {
+      sql.append(" AND updated_at < ?");
+    }
+    if (shape.count()) {
+      return sql.toString();
+    }
+    String comparison = shape.direction() == Direction.DESC ? " < " : " > ";
+    String order = shape.direction() == Direction.DESC ? " DESC" : "";
+    if (shape.sortKey() == SortKey.RELEVANCE) {
+      sql.append(shape.search() == SearchStrategy.SUBSTRING
+          ? " ORDER BY title ILIKE ? DESC, word_similarity(?, title) DESC, id"
+          : " ORDER BY ts_rank_cd(search_vector, query) DESC, id");
+    } else if (shape.sortKey() == SortKey.ID) {
+      if (shape.cursor()) {
+        sql.append(" AND id").append(comparison).append("?");
+      }
+      sql.append(" ORDER BY id").append(order);
+    } else {
+      String column = sortColumn(shape.sortKey());
+      if (shape.cursor()) {
+        sql.append(" AND (").append(column).append(", id)").append(comparison).append("(?, ?)");
+      }
+      sql.append(" ORDER BY ").append(column).append(order).append(", id").append(order);
+    }
+    if (shape.limit()) {
+      sql.append(" LIMIT ?");
+    }
+    if (shape.offset()) {
+      sql.append(" OFFSET ?");
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Перечисляет значения параметров в порядке их появления в тексте запроса.
+   */
+  private static List<Object> parameters(TaskQuery query, Shape shape) {
+    List<Object> parameters = new ArrayList<>();
+    String text = query.text();
+    String pattern = text == null ? null : "%" + TaskDaoImpl.escapeLikePattern(text) + "%";
+    if (shape.search() == SearchStrategy.FULL_TEXT) {
+      parameters.add(text);
+    } else if (shape.search() == SearchStrategy.PREFIX) {
+      parameters.add(text + ":*");
+    }
+    if (shape.statuses()) {
+      parameters.add(query.statuses().stream().map(TaskStatus::name).toArray(String[]::new));
+    }
+    if (shape.search() == SearchStrategy.SUBSTRING) {
+      parameters.add(pattern);
+      parameters.add(pattern);
+    }
+    addIfPresent(parameters, query.createdFrom());
+    addIfPresent(parameters, query.createdTo());
+    addIfPresent(parameters, query.updatedFrom());
+    addIfPresent(parameters, query.updatedTo());
+    if (shape.cursor()) {
+      if (shape.sortKey() != SortKey.ID) {
+        Object value = query.cursor().value();
+        parameters.add(value instanceof TaskStatus status ? status.name() : value);
+      }
+      parameters.add(query.cursor().id());
+    }
+    if (shape.sortKey() == SortKey.RELEVANCE && shape.search() == SearchStrategy.SUBSTRING) {
+      parameters.add(pattern);
+      parameters.add(text);
+    }
+    if (shape.limit()) {
+      parameters.add(query.limit());
+    }
+    if (shape.offset()) {
+      parameters.add(query.offset());
+    }
+    return parameters;
+  }
+
+  /**
+   * Сортировка по релевантности без отбора по тексту равносильна сортировке по id.
+   */
+  private static SortKey sortKey(TaskQuery query, SearchStrategy search) {
+    return query.sortKey() == SortKey.RELEVANCE && search == null ? SortKey.ID : query.sortKey();
+  }
+
+  private static String sortColumn(SortKey sortKey) {
+    return switch (sortKey) {
+      // Правило "C" совпадает с String.compareTo, по которому объединяются выдачи шардов
+      case TITLE -> "title COLLATE \"C\"";
+      case STATUS -> "status";
+      case CREATED_AT -> "created_at";
+      case UPDATED_AT -> "updated_at";
+      default -> "id";
+    };
+  }
+
+  private static void addIfPresent(List<Object> parameters, LocalDateTime value) {
+    if (value != null) {
+      parameters.add(value);
+    }
+  }
+}
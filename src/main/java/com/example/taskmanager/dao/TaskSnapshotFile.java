@@ -0,0 +1,251 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.dao.ColumnarTaskDao.Snapshot;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат снимка {@link ColumnarTaskDao}. Файл хранит данные по столбцам, как и сам
+ * {@link ColumnarTaskDao}, поэтому при загрузке каждый столбец целиком копируется из отображённого
+ * в память файла ({@link MappedByteBuffer}) в массив одной операцией, без разбора по задачам.
+ * <p>
+ * Структура файла (порядок байтов little-endian):
+ * </p>
+ * <ul>
+ *   <li>заголовок: сигнатура, версия формата, поколение журнала, наибольший id, количество строк
+ *   и количество задач;</li>
+ *   <li>длины строк и байты строк в кодировке UTF-8;</li>
+ *   <li>столбцы: id, статусы, номера заголовков, номера описаний, даты создания, даты изменения,
+ *   версии;</li>
+ *   <li>контрольная сумма CRC32C всего предшествующего содержимого.</li>
+ * </ul>
+ *
+ * @author Shebeta N.I.
+ */
+final class TaskSnapshotFile {
+
+  private static final int MAGIC = 0x4E534D54; // "TMSN"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 28;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  // Размер отображаемого окна для байтов строк: MappedByteBuffer ограничен 2 ГБ
+  private static final long MAX_WINDOW = 1L << 30;
+
+  /**
+   * Снимок, прочитанный из файла.
+   *
+   * @param generation поколение журнала, с которого нужно продолжить воспроизведение
+   * @param snapshot   столбцы хранилища
+   */
+  record Loaded(long generation, Snapshot snapshot) {
+  }
+
+  private TaskSnapshotFile() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Записывает снимок в файл и принудительно сбрасывает его на диск.
+   *
+   * @param file       путь к файлу (перезаписывается)
+   * @param generation поколение журнала, начатое вместе со снимком
+   * @param snapshot   столбцы хранилища
+   * @throws IOException при ошибке записи
+   */
+  static void write(Path file, long generation, Snapshot snapshot) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      Writer writer = new Writer(channel);
+      int size = snapshot.ids().length;
+      writer.putInt(MAGIC);
+      writer.putInt(FORMAT_VERSION);
+      writer.putLong(generation);
+      writer.putInt(snapshot.maxId());
+      writer.putInt(snapshot.strings().length);
+      writer.putInt(size);
+      for (byte[] string : snapshot.strings()) {
+        writer.putInt(string.length);
+      }
+      for (byte[] string : snapshot.strings()) {
+        writer.putBytes(string);
+      }
+      for (int id : snapshot.ids()) {
+        writer.putInt(id);
+      }
+      writer.putBytes(snapshot.statuses());
+      for (int title : snapshot.titles()) {
+        writer.putInt(title);
+      }
+      for (int description : snapshot.descriptions()) {
+        writer.putInt(description);
+      }
+      for (long createdAt : snapshot.createdAt()) {
+        writer.putLong(createdAt);
+      }
+      for (long updatedAt : snapshot.updatedAt()) {
+        writer.putLong(updatedAt);
+      }
+      for (int version : snapshot.versions()) {
+        writer.putInt(version);
+      }
+      writer.finish();
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Читает снимок из файла через отображение в память и проверяет контрольную сумму.
+   *
+   * @param file путь к файлу
+   * @return поколение журнала и столбцы хранилища
+   * @throws IOException если файл не читается, повреждён или имеет неизвестный формат
+   */
+  static Loaded read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Reader reader = new Reader(channel);
+      ByteBuffer header = reader.map(HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+        throw new IOException("Неизвестный формат снимка: " + file);
+      }
+      long generation = header.getLong();
+      int maxId = header.getInt();
+      int stringCount = header.getInt();
+      int size = header.getInt();
+
+      int[] lengths = new int[stringCount];
+      reader.map(4L * stringCount).asIntBuffer().get(lengths);
+      byte[][] strings = new byte[stringCount][];
+      int next = 0;
+      while (next < stringCount) {
+        // Окно байтов строк, не превышающее MAX_WINDOW и не разрезающее строки
+        int first = next;
+        long windowSize = 0;
+        while (next < stringCount && (next == first || windowSize + lengths[next] <= MAX_WINDOW)) {
+          windowSize += lengths[next++];
+        }
+        ByteBuffer window = reader.map(windowSize);
+        for (int i = first; i < next; i++) {
+          strings[i] = new byte[lengths[i]];
+          window.get(strings[i]);
+        }
+      }
+
+      int[] ids = new int[size];
+      reader.map(4L * size).asIntBuffer().get(ids);
+      byte[] statuses = new byte[size];
+      reader.map(size).get(statuses);
+      int[] titles = new int[size];
+      reader.map(4L * size).asIntBuffer().get(titles);
+      int[] descriptions = new int[size];
+      reader.map(4L * size).asIntBuffer().get(descriptions);
+      long[] createdAt = new long[size];
+      reader.map(8L * size).asLongBuffer().get(createdAt);
+      long[] updatedAt = new long[size];
+      reader.map(8L * size).asLongBuffer().get(updatedAt);
+      int[] versions = new int[size];
+      reader.map(4L * size).asIntBuffer().get(versions);
+      reader.verifyChecksum(file);
+      return new Loaded(generation, new Snapshot(maxId, strings, ids, statuses, titles,
+          descriptions, createdAt, updatedAt, versions));
+    }
+  }
+
+  /**
+   * Запись в файл через буфер с подсчётом контрольной суммы.
+   */
+  private static final class Writer {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer =
+        ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C checksum = new CRC32C();
+
+    Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      buffer.putLong(value);
+    }
+
+    void putBytes(byte[] bytes) throws IOException {
+      int offset = 0;
+      while (offset < bytes.length) {
+        ensure(1);
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    void finish() throws IOException {
+      flush();
+      buffer.putLong(checksum.getValue());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      checksum.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Последовательное чтение файла отображаемыми в память участками с подсчётом контрольной
+   * суммы.
+   */
+  private static final class Reader {
+
+    private final FileChannel channel;
+    private final CRC32C checksum = new CRC32C();
+    private long position;
+
+    Reader(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    ByteBuffer map(long length) throws IOException {
+      if (position + length + Long.BYTES > channel.size()) {
+        throw new IOException("Файл снимка обрезан");
+      }
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      position += length;
+      checksum.update(mapped.duplicate());
+      return mapped.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void verifyChecksum(Path file) throws IOException {
+      ByteBuffer stored = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(stored, position);
+      if (position + Long.BYTES != channel.size() || stored.getLong(0) != checksum.getValue()) {
+        throw new IOException("Контрольная сумма снимка не совпадает: " + file);
+      }
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.dao.LocalTaskDao.OutboxEntry;
+import com.example.taskmanager.dao.LocalTaskDao.OutboxOperation;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Фоновая синхронизация {@link LocalTaskDao} с PostgreSQL.
+ * <p>
+ * Каждый цикл сначала отправляет очередь исходящих изменений пакетами: подряд идущие сохранения
+ * разных задач — одним {@link TaskDao#saveAll}, подряд идущие удаления — одним
+ * {@link TaskDao#deleteAll}. Затем получает изменения других клиентов через
+ * {@link TaskDao#findModifiedSince} и применяет их к локальному хранилищу. Первый цикл загружает
+ * все задачи потоком, не держа их в памяти.
+ * </p>
+ * <p>
+ * Конфликт версий при отправке разрешается по времени изменения: если локальное изменение новее
+ * изменения в PostgreSQL, оно перезаписывает его, иначе локальное изменение отбрасывается и
+ * принимается состояние из PostgreSQL. Изменение задачи, удалённой в PostgreSQL, отбрасывается.
+ * </p>
+ * <p>
+ * Цикл повторяется с заданным интервалом, а также сразу после локальной записи или уведомления об
+ * изменении ({@link #requestSync()}). Если PostgreSQL недоступен, интервал повторов удваивается до
+ * 30 секунд; очередь при этом сохраняется в локальном файле. Об изменениях локальных задач
+ * подписчики узнают теми же событиями {@link TaskChangeEvent}, что и от
+ * {@link com.example.taskmanager.db.TaskChangeListener}.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskSyncWorker implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TaskSyncWorker.class);
+
+  private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+  private static final int MAX_EVENTS = 200;
+  private static final int INITIAL_LOAD_CHUNK = 1_000;
+
+  private final LocalTaskDao local;
+  private final Supplier<? extends TaskDao> remoteFactory;
+  private final long intervalMillis;
+  private final int batchSize;
+  private final List<Consumer<List<TaskChangeEvent>>> subscribers = new CopyOnWriteArrayList<>();
+  private final Semaphore wakeup = new Semaphore(0);
+  private final Thread thread;
+  private volatile boolean running;
+  private TaskDao remote;
+
+  /**
+   * Создаёт синхронизацию с интервалом из {@code offline.syncIntervalMillis} (по умолчанию 2000 мс)
+   * и размером пакета из {@code offline.syncBatchSize} (по умолчанию 200).
+   *
+   * @param local         локальное хранилище
+   * @param remoteFactory создание DAO PostgreSQL; вызывается в потоке синхронизации, поэтому
+   *                      может подолгу ждать соединения
+   */
+  public TaskSyncWorker(LocalTaskDao local, Supplier<? extends TaskDao> remoteFactory) {
+    this(local, remoteFactory,
+        Duration.ofMillis(DatabaseConnection.getIntProperty("offline.syncIntervalMillis", 2000)),
+        DatabaseConnection.getIntProperty("offline.syncBatchSize", 200));
+  }
+
+  /**
+   * Создаёт синхронизацию с указанными параметрами.
+   *
+   * @param local         локальное хранилище
+   * @param remoteFactory создание DAO PostgreSQL
+   * @param interval      интервал между циклами синхронизации
+   * @param batchSize     количество операций очереди, отправляемых за один пакет (больше 0)
+   */
+  public TaskSyncWorker(LocalTaskDao local, Supplier<? extends TaskDao> remoteFactory,
+      Duration interval, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+    }
+    this.local = local;
+    this.remoteFactory = remoteFactory;
+    this.intervalMillis = interval.toMillis();
+    this.batchSize = batchSize;
+    this.thread = new Thread(this::run, "task-sync-worker");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Регистрирует подписчика на события об изменении локальных задач при синхронизации.
+   * Подписчик вызывается в потоке синхронизации.
+   *
+   * @param subscriber получатель пакетов событий
+   */
+  public void addSubscriber(Consumer<List<TaskChangeEvent>> subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  /**
+   * Запускает фоновый поток синхронизации.
+   */
+  public void start() {
+    running = true;
+    thread.start();
+  }
+
+  /**
+   * Просит выполнить цикл синхронизации, не дожидаясь окончания интервала.
+   */
+  public void requestSync() {
+    wakeup.release();
+  }
+
+  /**
+   * Останавливает синхронизацию и закрывает DAO PostgreSQL, если он закрываемый. Неотправленные
+   * изменения остаются в очереди до следующего запуска.
+   */
+  @Override
+  public void close() {
+    running = false;
+    thread.interrupt();
+    try {
+      thread.join(5_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (remote instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        LOG.warn("Ошибка закрытия соединения с PostgreSQL", e);
+      }
+    }
+  }
+
+  /**
+   * Выполняет один цикл синхронизации: отправку очереди и получение изменений.
+   *
+   * @return {@code true}, если цикл завершён без ошибок
+   */
+  boolean syncOnce() {
+    try {
+      if (remote == null) {
+        remote = remoteFactory.get();
+      }
+      push();
+      pull();
+      return true;
+    } catch (RuntimeException e) {
+      LOG.warn("Синхронизация с PostgreSQL не выполнена: {}", e.getMessage());
+      LOG.debug("Ошибка синхронизации с PostgreSQL", e);
+      return false;
+    }
+  }
+
+  private void run() {
+    long delay = intervalMillis;
+    while (running) {
+      delay = syncOnce() ? intervalMillis : Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+      try {
+        wakeup.tryAcquire(delay, TimeUnit.MILLISECONDS);
+        wakeup.drainPermits();
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Отправляет очередь исходящих изменений, пока она не опустеет.
+   */
+  private void push() {
+    while (true) {
+      List<OutboxEntry> entries = local.pendingEntries(batchSize);
+      if (entries.isEmpty()) {
+        return;
+      }
+      int start = 0;
+      while (start < entries.size()) {
+        int end = runEnd(entries, start);
+        if (!pushRun(entries.subList(start, end))) {
+          // После разрешения конфликта или замены временных id очередь перечитывается
+          break;
+        }
+        start = end;
+      }
+    }
+  }
+
+  /**
+   * Находит конец серии подряд идущих операций одного вида, которую можно отправить одним пакетом:
+   * сохранения и удаления разных задач; восстановление отправляется по одному.
+   */
+  private static int runEnd(List<OutboxEntry> entries, int start) {
+    OutboxOperation operation = entries.get(start).operation();
+    Set<Integer> ids = new HashSet<>();
+    int end = start;
+    while (end < entries.size()) {
+      OutboxEntry entry = entries.get(end);
+      if (entry.operation() != operation || !ids.add(entry.task().getId())
+          || (operation == OutboxOperation.RESTORE && end > start)) {
+        break;
+      }
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * Отправляет серию операций.
+   *
+   * @return {@code false}, если был разрешён конфликт или заменены временные id и очередь нужно
+   *     перечитать
+   */
+  private boolean pushRun(List<OutboxEntry> run) {
+    switch (run.get(0).operation()) {
+      case SAVE -> {
+        return pushSaves(run);
+      }
+      case DELETE -> {
+        remote.deleteAll(run.stream().map(entry -> entry.task().getId()).toList());
+        local.markPushed(run, Map.of());
+      }
+      case RESTORE -> {
+        int id = run.get(0).task().getId();
+        if (remote.restore(id)) {
+          local.markPushed(run, Map.of());
+        } else {
+          // Задача уже окончательно удалена в PostgreSQL
+          local.discardLocalChanges(id, null);
+          publish(List.of(new TaskChangeEvent(Operation.DELETE, id)));
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean pushSaves(List<OutboxEntry> run) {
+    List<Task> tasks = new ArrayList<>(run.size());
+    for (OutboxEntry entry : run) {
+      Task task = new Task(entry.task());
+      if (task.getId() < 0) {
+        task.setId(0);
+      }
+      tasks.add(task);
+    }
+    try {
+      remote.saveAll(tasks);
+    } catch (OptimisticLockException e) {
+      e.getTaskIds().forEach(this::resolveConflict);
+      return false;
+    }
+    Map<Integer, Integer> assignedIds = new HashMap<>();
+    List<TaskChangeEvent> events = new ArrayList<>();
+    for (int i = 0; i < run.size(); i++) {
+      int localId = run.get(i).task().getId();
+      if (localId < 0) {
+        int id = tasks.get(i).getId();
+        assignedIds.put(localId, id);
+        events.add(new TaskChangeEvent(Operation.DELETE, localId));
+        events.add(new TaskChangeEvent(Operation.INSERT, id));
+      }
+    }
+    local.markPushed(run, assignedIds);
+    publish(events);
+    return assignedIds.isEmpty();
+  }
+
+  /**
+   * Разрешает конфликт версий задачи по времени изменения.
+   *
+   * @param id идентификатор задачи
+   */
+  private void resolveConflict(int id) {
+    Optional<Task> current = remote.findByIdOnPrimary(id);
+    Optional<OutboxEntry> pending = local.pendingEntries(Integer.MAX_VALUE).stream()
+        .filter(entry -> entry.task().getId() == id
+            && entry.operation() == OutboxOperation.SAVE)
+        .reduce((first, second) -> second);
+    if (current.isPresent() && pending.isPresent()
+        && pending.get().task().getUpdatedAt().isAfter(current.get().getUpdatedAt())) {
+      LOG.info("Конфликт изменения задачи {}: сохраняется локальное изменение", id);
+      local.rebase(id, current.get().getVersion());
+      return;
+    }
+    LOG.info("Конфликт изменения задачи {}: принято изменение другого клиента", id);
+    local.discardLocalChanges(id, current.orElse(null));
+    publish(List.of(new TaskChangeEvent(
+        current.isPresent() ? Operation.UPDATE : Operation.DELETE, id)));
+  }
+
+  /**
+   * Получает изменения из PostgreSQL, а при первом запуске загружает все задачи.
+   */
+  private void pull() {
+    Optional<LocalDateTime> watermark = local.remoteWatermark();
+    if (watermark.isEmpty()) {
+      initialLoad();
+      return;
+    }
+    TaskDelta delta = remote.findModifiedSince(watermark.get());
+    List<TaskChangeEvent> events = local.applyRemoteChanges(delta.changed(), delta.deletedIds());
+    local.setRemoteWatermark(delta.nextWatermark());
+    publish(events);
+  }
+
+  /**
+   * Загружает все задачи из PostgreSQL частями. Отметка синхронизации берётся до начала загрузки
+   * ({@link TaskDao#currentWatermark()}), поэтому изменения, сделанные во время загрузки, будут
+   * получены следующим циклом.
+   */
+  private void initialLoad() {
+    LocalDateTime watermark = remote.currentWatermark();
+    try (Stream<Task> tasks = remote.streamAll()) {
+      Iterator<Task> iterator = tasks.iterator();
+      List<Task> chunk = new ArrayList<>(INITIAL_LOAD_CHUNK);
+      while (iterator.hasNext()) {
+        chunk.add(iterator.next());
+        if (chunk.size() == INITIAL_LOAD_CHUNK || !iterator.hasNext()) {
+          local.applyRemoteChanges(chunk, List.of());
+          chunk.clear();
+        }
+      }
+    }
+    local.setRemoteWatermark(watermark);
+    publish(List.of(new TaskChangeEvent(Operation.RELOAD, 0)));
+  }
+
+  private void publish(List<TaskChangeEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    List<TaskChangeEvent> batch = events.size() > MAX_EVENTS
+        ? List.of(new TaskChangeEvent(Operation.RELOAD, 0)) : events;
+    for (Consumer<List<TaskChangeEvent>> subscriber : subscribers) {
+      try {
+        subscriber.accept(batch);
+      } catch (RuntimeException e) {
+        LOG.error("Ошибка обработки события синхронизации", e);
+      }
+    }
+  }
+}
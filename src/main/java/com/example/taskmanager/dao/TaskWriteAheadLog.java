@@ -0,0 +1,430 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.DaoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал предзаписи (WAL) изменений {@link ColumnarTaskDao}. Каждая запись содержит полное
+ * состояние сохранённой задачи или id удалённой, поэтому повторное воспроизведение записи не
+ * меняет результат, и снимок может сниматься одновременно с записью в журнал.
+ * <p>
+ * Записи накапливаются в памяти, а фоновый поток записывает в файл всё накопленное одной операцией
+ * и один раз вызывает {@code fsync} на всю группу (групповая фиксация): пока идёт {@code fsync},
+ * следующие записи собираются в новую группу. Вызывающий поток ждёт, пока его запись окажется на
+ * диске ({@link #awaitDurable(long)}).
+ * </p>
+ * <p>
+ * Журнал состоит из файлов-поколений {@code wal-<поколение>.log}; новое поколение начинается
+ * вместе со снимком ({@link #rotate(long)}), и файлы предыдущих поколений после записи снимка
+ * можно удалить. Запись в файле: длина, контрольная сумма CRC32C и содержимое. Запись, оборванная
+ * сбоем, при воспроизведении отбрасывается вместе с остатком файла.
+ * </p>
+ * <p>
+ * {@code fsync} файла не сохраняет запись о нём в каталоге, поэтому после создания, переименования
+ * и удаления файлов журнала и снимка сбрасывается и сам каталог ({@link #syncDirectory(Path)}):
+ * иначе после сбоя новый файл поколения может пропасть вместе с подтверждёнными записями, а
+ * удалённые файлы — остаться при старом снимке.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class TaskWriteAheadLog implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TaskWriteAheadLog.class);
+
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  private static final int RECORD_HEADER = 8;
+  private static final TaskStatus[] STATUSES = TaskStatus.values();
+  private static final boolean WINDOWS =
+      System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+  private final Path directory;
+  private final Object monitor = new Object();
+  private final Object channelLock = new Object();
+  private final Thread flusher;
+
+  private FileChannel channel;
+  private long generation;
+  private long segmentBytes;
+
+  // Состояние под monitor: накопленная группа, номера последней добавленной и сохранённой записей
+  private ByteBuffer pending = newBuffer(64 * 1024);
+  private long appendedSeq;
+  private long durableSeq;
+  private IOException failure;
+  private boolean closed;
+
+  /**
+   * Открывает файл поколения для дозаписи и запускает поток групповой фиксации.
+   *
+   * @param directory  каталог журнала
+   * @param generation поколение, в которое добавляются записи
+   * @throws IOException если файл не открывается
+   */
+  TaskWriteAheadLog(Path directory, long generation) throws IOException {
+    this.directory = directory;
+    this.generation = generation;
+    this.channel = openSegment(directory, generation);
+    try {
+      syncDirectory(directory);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.segmentBytes = channel.size();
+    this.flusher = new Thread(this::flushLoop, "task-wal-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  /**
+   * Добавляет в журнал запись о сохранении задачи с её итоговыми id и версией.
+   *
+   * @param task сохранённая задача
+   * @return номер записи для {@link #awaitDurable(long)}
+   */
+  long appendPut(Task task) {
+    byte[] title = task.getTitle().getBytes(StandardCharsets.UTF_8);
+    byte[] description = task.getDescription() == null
+        ? null : task.getDescription().getBytes(StandardCharsets.UTF_8);
+    int length = 1 + 4 + 4 + 1 + 8 + 8 + 4 + title.length + 4
+        + (description == null ? 0 : description.length);
+    ByteBuffer record = newBuffer(length);
+    record.put(PUT);
+    record.putInt(task.getId());
+    record.putInt(task.getVersion());
+    record.put((byte) task.getStatus().ordinal());
+    record.putLong(ColumnarTaskDao.toMicros(task.getCreatedAt()));
+    record.putLong(ColumnarTaskDao.toMicros(task.getUpdatedAt()));
+    record.putInt(title.length);
+    record.put(title);
+    record.putInt(description == null ? -1 : description.length);
+    if (description != null) {
+      record.put(description);
+    }
+    return append(record.flip());
+  }
+
+  /**
+   * Добавляет в журнал запись об удалении задачи.
+   *
+   * @param id идентификатор удалённой задачи
+   * @return номер записи для {@link #awaitDurable(long)}
+   */
+  long appendDelete(int id) {
+    return append(newBuffer(5).put(DELETE).putInt(id).flip());
+  }
+
+  /**
+   * Ждёт, пока запись с указанным номером и все предыдущие будут сброшены на диск.
+   *
+   * @param seq номер записи
+   * @throws DaoException если запись в журнал завершилась ошибкой или журнал закрыт
+   */
+  void awaitDurable(long seq) {
+    synchronized (monitor) {
+      while (durableSeq < seq && failure == null && !closed) {
+        try {
+          monitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new DaoException("Ожидание записи журнала прервано", e);
+        }
+      }
+      if (durableSeq < seq) {
+        throw new DaoException("Ошибка записи журнала изменений", failure);
+      }
+    }
+  }
+
+  /**
+   * Сбрасывает накопленные записи и начинает новое поколение журнала. Вызывающий код должен не
+   * добавлять записи во время переключения.
+   *
+   * @param newGeneration номер нового поколения
+   * @throws IOException если новый файл не открывается или каталог не сбрасывается на диск
+   */
+  void rotate(long newGeneration) throws IOException {
+    synchronized (monitor) {
+      awaitDurable(appendedSeq);
+    }
+    synchronized (channelLock) {
+      FileChannel next = openSegment(directory, newGeneration);
+      try {
+        syncDirectory(directory);
+      } catch (IOException e) {
+        next.close();
+        throw e;
+      }
+      channel.close();
+      channel = next;
+      generation = newGeneration;
+      segmentBytes = 0;
+    }
+  }
+
+  /**
+   * Возвращает номер текущего поколения.
+   *
+   * @return поколение, в которое добавляются записи
+   */
+  long generation() {
+    synchronized (channelLock) {
+      return generation;
+    }
+  }
+
+  /**
+   * Возвращает размер файла текущего поколения.
+   *
+   * @return количество записанных байт с начала поколения
+   */
+  long segmentBytes() {
+    synchronized (channelLock) {
+      return segmentBytes;
+    }
+  }
+
+  /**
+   * Сбрасывает накопленные записи на диск и закрывает журнал.
+   */
+  @Override
+  public void close() {
+    synchronized (monitor) {
+      closed = true;
+      monitor.notifyAll();
+    }
+    try {
+      flusher.join();
+      synchronized (channelLock) {
+        channel.close();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOG.warn("Ошибка закрытия журнала изменений", e);
+    }
+  }
+
+  /**
+   * Воспроизводит записи всех поколений начиная с указанного. Оборванная запись в конце файла
+   * отбрасывается, а файл обрезается до последней целой записи.
+   *
+   * @param directory      каталог журнала
+   * @param fromGeneration первое воспроизводимое поколение (поколение снимка)
+   * @param target         хранилище, к которому применяются записи
+   * @return последнее найденное поколение или {@code fromGeneration}, если файлов нет
+   * @throws IOException при ошибке чтения
+   */
+  static long replay(Path directory, long fromGeneration, ColumnarTaskDao target)
+      throws IOException {
+    long last = fromGeneration;
+    for (long segmentGeneration : generations(directory)) {
+      if (segmentGeneration < fromGeneration) {
+        continue;
+      }
+      last = segmentGeneration;
+      try (FileChannel segment = FileChannel.open(segmentPath(directory, segmentGeneration),
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        long valid = replaySegment(segment, target);
+        if (valid < segment.size()) {
+          LOG.warn("Журнал {} обрезан до {} байт", segmentGeneration, valid);
+          segment.truncate(valid);
+        }
+      }
+    }
+    return last;
+  }
+
+  /**
+   * Удаляет файлы поколений, предшествующих указанному, и сбрасывает каталог на диск. Вызывается
+   * только после того, как снимок, покрывающий эти поколения, сохранён вместе с записью каталога.
+   *
+   * @param directory  каталог журнала
+   * @param generation первое сохраняемое поколение
+   * @throws IOException при ошибке удаления
+   */
+  static void deleteBefore(Path directory, long generation) throws IOException {
+    for (long segmentGeneration : generations(directory)) {
+      if (segmentGeneration < generation) {
+        Files.deleteIfExists(segmentPath(directory, segmentGeneration));
+      }
+    }
+    syncDirectory(directory);
+  }
+
+  /**
+   * Сбрасывает на диск записи каталога о созданных, переименованных и удалённых файлах. В Windows
+   * каталог нельзя открыть как файл, а NTFS сохраняет изменения каталогов в своём журнале, поэтому
+   * там сброс пропускается.
+   *
+   * @param directory каталог
+   * @throws IOException если каталог не открывается или не сбрасывается
+   */
+  static void syncDirectory(Path directory) throws IOException {
+    if (WINDOWS) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  private long append(ByteBuffer record) {
+    CRC32C checksum = new CRC32C();
+    checksum.update(record.duplicate());
+    synchronized (monitor) {
+      if (closed) {
+        throw new DaoException("Журнал изменений закрыт", null);
+      }
+      int required = RECORD_HEADER + record.remaining();
+      if (pending.remaining() < required) {
+        ByteBuffer larger = newBuffer(Math.max(pending.capacity() * 2,
+            pending.position() + required));
+        pending = larger.put(pending.flip());
+      }
+      pending.putInt(record.remaining());
+      pending.putInt((int) checksum.getValue());
+      pending.put(record);
+      monitor.notifyAll();
+      return ++appendedSeq;
+    }
+  }
+
+  private void flushLoop() {
+    ByteBuffer spare = newBuffer(pending.capacity());
+    while (true) {
+      ByteBuffer group;
+      long groupSeq;
+      synchronized (monitor) {
+        while (pending.position() == 0 && !closed) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (pending.position() == 0) {
+          return;
+        }
+        // Группа забирается целиком, новые записи копятся во втором буфере
+        group = pending;
+        pending = spare.capacity() >= group.capacity() ? spare.clear() : newBuffer(group.capacity());
+        groupSeq = appendedSeq;
+      }
+      try {
+        synchronized (channelLock) {
+          group.flip();
+          while (group.hasRemaining()) {
+            segmentBytes += channel.write(group);
+          }
+          channel.force(false);
+        }
+        synchronized (monitor) {
+          durableSeq = groupSeq;
+          monitor.notifyAll();
+        }
+      } catch (IOException e) {
+        synchronized (monitor) {
+          failure = e;
+          monitor.notifyAll();
+        }
+        return;
+      }
+      spare = group;
+    }
+  }
+
+  private static long replaySegment(FileChannel segment, ColumnarTaskDao target)
+      throws IOException {
+    MappedByteBuffer buffer = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    CRC32C checksum = new CRC32C();
+    while (buffer.remaining() >= RECORD_HEADER) {
+      int start = buffer.position();
+      int length = buffer.getInt();
+      int expected = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        return start;
+      }
+      ByteBuffer record = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+      checksum.reset();
+      checksum.update(record.duplicate());
+      if ((int) checksum.getValue() != expected) {
+        return start;
+      }
+      apply(record, target);
+      buffer.position(buffer.position() + length);
+    }
+    return buffer.position();
+  }
+
+  private static void apply(ByteBuffer record, ColumnarTaskDao target) {
+    byte type = record.get();
+    int id = record.getInt();
+    if (type == DELETE) {
+      target.delete(id);
+      return;
+    }
+    Task task = new Task();
+    task.setId(id);
+    task.setVersion(record.getInt());
+    task.setStatus(STATUSES[record.get()]);
+    task.setCreatedAt(ColumnarTaskDao.toDateTime(record.getLong()));
+    task.setUpdatedAt(ColumnarTaskDao.toDateTime(record.getLong()));
+    task.setTitle(readString(record));
+    task.setDescription(readString(record));
+    target.put(task);
+  }
+
+  private static String readString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static List<Long> generations(Path directory) throws IOException {
+    List<Long> generations = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.map(file -> file.getFileName().toString())
+          .filter(name -> name.matches("wal-\\d+\\.log"))
+          .forEach(name -> generations.add(Long.parseLong(name.substring(4, name.length() - 4))));
+    }
+    generations.sort(null);
+    return generations;
+  }
+
+  private static Path segmentPath(Path directory, long generation) {
+    return directory.resolve(String.format("wal-%016d.log", generation));
+  }
+
+  private static FileChannel openSegment(Path directory, long generation) throws IOException {
+    return FileChannel.open(segmentPath(directory, generation), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private static ByteBuffer newBuffer(int capacity) {
+    return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,123 @@
+package com.example.taskmanager.dao;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Инвертированный индекс триграмм строк {@link StringPool} для поиска подстроки без учёта
+ * регистра. Для каждой триграммы строки в нижнем регистре хранится список номеров строк, которые
+ * её содержат; строка, содержащая подстроку, содержит и все её триграммы, поэтому кандидатами
+ * достаточно считать строки самого короткого из списков триграмм подстроки.
+ * <p>
+ * Индекс может давать ложных кандидатов — триграммы хэшируются в {@code int} с возможными
+ * совпадениями, а номера освобождённых строк из списков не удаляются и могут быть выданы другой
+ * строке, — поэтому каждый кандидат проверяется по самой строке. Накопившиеся устаревшие номера
+ * удаляются перестроением индекса (см. {@link #entries()}).
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class TrigramIndex {
+
+  /**
+   * Длина n-граммы.
+   */
+  static final int GRAM = 3;
+
+  private final IntIntHashMap listByKey = new IntIntHashMap(1_024);
+  private int[][] lists = new int[64][];
+  private int[] sizes = new int[64];
+  private int listCount;
+  private long entries;
+
+  /**
+   * Добавляет строку в индекс.
+   *
+   * @param ref   номер строки в {@link StringPool}
+   * @param value строка
+   */
+  void add(int ref, String value) {
+    String lower = value.toLowerCase(Locale.ROOT);
+    int grams = lower.length() - GRAM + 1;
+    if (grams <= 0) {
+      return;
+    }
+    int[] keys = new int[grams];
+    for (int i = 0; i < grams; i++) {
+      keys[i] = key(lower, i);
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < grams; i++) {
+      if (i == 0 || keys[i] != keys[i - 1]) {
+        append(keys[i], ref);
+      }
+    }
+  }
+
+  /**
+   * Передаёт номера строк, которые могут содержать подстроку: строки самого короткого из списков
+   * её триграмм.
+   *
+   * @param needle   подстрока в нижнем регистре
+   * @param consumer получатель номеров строк (номер может повторяться)
+   * @return {@code false}, если подстрока короче {@link #GRAM} символов и индекс к ней неприменим
+   */
+  boolean forEachCandidate(String needle, IntConsumer consumer) {
+    int grams = needle.length() - GRAM + 1;
+    if (grams <= 0) {
+      return false;
+    }
+    int shortest = IntIntHashMap.MISSING;
+    for (int i = 0; i < grams; i++) {
+      int list = listByKey.get(key(needle, i));
+      if (list == IntIntHashMap.MISSING) {
+        return true;
+      }
+      if (shortest == IntIntHashMap.MISSING || sizes[list] < sizes[shortest]) {
+        shortest = list;
+      }
+    }
+    int[] refs = lists[shortest];
+    for (int i = 0, size = sizes[shortest]; i < size; i++) {
+      consumer.accept(refs[i]);
+    }
+    return true;
+  }
+
+  /**
+   * Возвращает общее количество номеров во всех списках, включая устаревшие.
+   *
+   * @return количество записей индекса
+   */
+  long entries() {
+    return entries;
+  }
+
+  private void append(int key, int ref) {
+    int list = listByKey.get(key);
+    if (list == IntIntHashMap.MISSING) {
+      if (listCount == lists.length) {
+        lists = Arrays.copyOf(lists, listCount * 2);
+        sizes = Arrays.copyOf(sizes, listCount * 2);
+      }
+      list = listCount++;
+      lists[list] = new int[4];
+      listByKey.put(key, list);
+    }
+    if (sizes[list] == lists[list].length) {
+      lists[list] = Arrays.copyOf(lists[list], sizes[list] * 2);
+    }
+    lists[list][sizes[list]++] = ref;
+    entries++;
+  }
+
+  /**
+   * Хэширует триграмму, начинающуюся с символа {@code i}. Ключ 0 зарезервирован
+   * {@link IntIntHashMap} и заменяется на 1.
+   */
+  private static int key(String value, int i) {
+    int key = (value.charAt(i) * 65_599 + value.charAt(i + 1)) * 65_599 + value.charAt(i + 2);
+    return key == 0 ? 1 : key;
+  }
+}
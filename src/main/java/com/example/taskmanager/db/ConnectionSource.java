@@ -0,0 +1,40 @@
+package com.example.taskmanager.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений с одной базой данных. Позволяет использовать
+ * {@link com.example.taskmanager.dao.TaskDaoImpl} не только с основным пулом
+ * {@link DatabaseConnection}, но и с любым другим пулом, например с пулом отдельного шарда.
+ *
+ * @author Shebeta N.I.
+ */
+@FunctionalInterface
+public interface ConnectionSource {
+
+  /**
+   * Получает соединение для чтения и записи.
+   *
+   * @return соединение с базой данных
+   * @throws SQLException если не удалось получить соединение
+   */
+  Connection getConnection() throws SQLException;
+
+  /**
+   * Получает соединение для запросов только на чтение. По умолчанию совпадает с
+   * {@link #getConnection()}.
+   *
+   * @return соединение с базой данных
+   * @throws SQLException если не удалось получить соединение
+   */
+  default Connection getReadConnection() throws SQLException {
+    return getConnection();
+  }
+
+  /**
+   * Сообщает источнику, что через него были изменены данные. По умолчанию ничего не делает.
+   */
+  default void markWrite() {
+  }
+}
@@ -5,22 +5,60 @@ import com.zaxxer.hikari.HikariDataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Утилитный класс для управления подключением к базе данных через HikariCP.
  * <p>
- * При загрузке класса инициализируется пул соединений на основе параметров из файла
- * {@code application.properties}, расположенного в classpath. Предоставляет методы для получения
- * соединения и закрытия пула.
+ * При загрузке класса читаются параметры из файла {@code application.properties}, расположенного
+ * в classpath. Параметры с префиксом {@code db.} можно переопределить системными свойствами JVM.
+ * Пул соединений создаётся при первом обращении к нему (или заранее в фоне через
+ * {@link #warmUp()}), поэтому загрузка класса ради параметров конфигурации не ждёт подключения к
+ * серверу. Предоставляет методы для получения соединения и закрытия пула.
+ * </p>
+ * <p>
+ * Если в {@code db.replica.urls} перечислены через запятую адреса реплик, для каждой создаётся
+ * отдельный пул только для чтения, и {@link #getReadConnection()} распределяет чтения между
+ * исправными репликами по кругу. После записи ({@link #markWrite()}) чтения в течение
+ * {@code db.replica.stickyMillis} миллисекунд выполняются на основном сервере, чтобы клиент видел
+ * свои изменения, даже если реплики ещё не успели их получить. Изменения других клиентов на это
+ * окно не влияют: задачи из уведомлений об изменениях перечитываются с основного сервера по id
+ * ({@link com.example.taskmanager.dao.TaskDao#findByIdOnPrimary(int)}).
  * </p>
  *
  * @author Shebeta N.I.
  */
 public final class DatabaseConnection {
 
-  private static final HikariDataSource dataSource;
+  private static final Properties properties = new Properties();
+  private static final long stickyNanos;
+  private static volatile HikariDataSource dataSource;
+  private static volatile ReplicaSet replicas;
+  private static boolean closed;
+  private static volatile long primaryReadsUntilNanos = System.nanoTime();
+
+  private static final ConnectionSource PRIMARY = new ConnectionSource() {
+    @Override
+    public Connection getConnection() throws SQLException {
+      return DatabaseConnection.getConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+      return DatabaseConnection.getReadConnection();
+    }
+
+    @Override
+    public void markWrite() {
+      DatabaseConnection.markWrite();
+    }
+  };
 
   static {
     // Загрузка конфигурации из application.properties и настройка пула соединений
@@ -30,19 +68,15 @@ public final class DatabaseConnection {
         throw new RuntimeException("Файл application.properties не найден в classpath");
       }
 
-      Properties props = new Properties();
-      props.load(input);
-
-      HikariConfig config = new HikariConfig();
-      config.setJdbcUrl(props.getProperty("db.url"));
-      config.setUsername(props.getProperty("db.username"));
-      config.setPassword(props.getProperty("db.password"));
-      config.setMaximumPoolSize(Integer.parseInt(props.getProperty("db.poolSize", "10")));
-      config.setConnectionTimeout(30000);
-      config.setIdleTimeout(600000);
-      config.setMaxLifetime(1800000);
+      properties.load(input);
+      // Системные свойства (-Ddb.url=...) переопределяют значения из файла
+      for (String name : System.getProperties().stringPropertyNames()) {
+        if (name.startsWith("db.")) {
+          properties.setProperty(name, System.getProperty(name));
+        }
+      }
 
-      dataSource = new HikariDataSource(config);
+      stickyNanos = TimeUnit.MILLISECONDS.toNanos(getIntProperty("db.replica.stickyMillis", 5000));
     } catch (IOException e) {
       throw new RuntimeException("Не удалось загрузить конфигурацию БД", e);
     }
@@ -59,16 +93,242 @@ public final class DatabaseConnection {
    * @throws SQLException если не удалось получить соединение
    */
   public static Connection getConnection() throws SQLException {
-    return dataSource.getConnection();
+    return dataSource().getConnection();
+  }
+
+  /**
+   * Создаёт пул соединений, если он ещё не создан, и устанавливает первое соединение с сервером.
+   * Вызывается в фоне при запуске, чтобы первый запрос интерфейса не ждал подключения.
+   *
+   * @throws SQLException если не удалось подключиться к серверу
+   */
+  public static void warmUp() throws SQLException {
+    getConnection().close();
+  }
+
+  /**
+   * Получает соединение для запросов только на чтение: с одной из исправных реплик или с
+   * основного сервера, если реплики не заданы, недоступны или после последней записи ещё не
+   * истекло окно {@code db.replica.stickyMillis}.
+   *
+   * @return соединение с базой данных, через которое нельзя изменять данные
+   * @throws SQLException если не удалось получить соединение
+   */
+  public static Connection getReadConnection() throws SQLException {
+    HikariDataSource primaryPool = dataSource();
+    if (!replicas.isEmpty() && System.nanoTime() - primaryReadsUntilNanos >= 0) {
+      Connection conn = replicas.tryGetConnection();
+      if (conn != null) {
+        return conn;
+      }
+    }
+    return primaryPool.getConnection();
   }
 
   /**
-   * Закрывает пул соединений. После вызова этого метода все последующие вызовы
-   * {@link #getConnection()} будут выбрасывать исключение.
+   * Отмечает, что клиент изменил данные: в течение
+   * {@code db.replica.stickyMillis} миллисекунд {@link #getReadConnection()} будет возвращать
+   * соединения с основным сервером.
+   */
+  public static void markWrite() {
+    primaryReadsUntilNanos = System.nanoTime() + stickyNanos;
+  }
+
+  /**
+   * Возвращает источник соединений основной базы данных, делегирующий статическим методам этого
+   * класса (в том числе маршрутизацию чтений на реплики).
+   *
+   * @return источник соединений основной базы данных
    */
-  public static void close() {
+  public static ConnectionSource primary() {
+    return PRIMARY;
+  }
+
+  /**
+   * Создаёт отдельные пулы соединений с базами данных шардов, перечисленными через запятую в
+   * {@code db.shard.urls}, в порядке номеров шардов. Имя пользователя, пароль и размер пула
+   * берутся из параметров основной базы данных.
+   *
+   * @return пулы шардов (пустой список, если шарды не заданы)
+   */
+  public static List<HikariDataSource> createShardPools() {
+    List<HikariDataSource> pools = new ArrayList<>();
+    for (String url : shardUrls()) {
+      HikariConfig config = new HikariConfig();
+      config.setJdbcUrl(url);
+      config.setUsername(properties.getProperty("db.username"));
+      config.setPassword(properties.getProperty("db.password"));
+      config.setMaximumPoolSize(getIntProperty("db.poolSize", 10));
+      config.setConnectionTimeout(30000);
+      config.setIdleTimeout(600000);
+      config.setMaxLifetime(1800000);
+      config.addDataSourceProperty("reWriteBatchedInserts",
+          properties.getProperty("db.reWriteBatchedInserts", "true"));
+      pools.add(new HikariDataSource(config));
+    }
+    return pools;
+  }
+
+  /**
+   * Возвращает адреса шардов из {@code db.shard.urls} в порядке номеров шардов.
+   *
+   * @return адреса шардов (пустой список, если шарды не заданы)
+   */
+  public static List<String> shardUrls() {
+    List<String> urls = new ArrayList<>();
+    for (String url : properties.getProperty("db.shard.urls", "").split(",")) {
+      if (!url.isBlank()) {
+        urls.add(url.trim());
+      }
+    }
+    return urls;
+  }
+
+  /**
+   * Открывает отдельное соединение с БД в обход пула. Используется для долгоживущих соединений
+   * (например, для LISTEN), которые иначе постоянно занимали бы соединение пула.
+   *
+   * @return новое соединение, которое вызывающий код должен закрыть сам
+   * @throws SQLException если не удалось установить соединение
+   */
+  public static Connection openDedicatedConnection() throws SQLException {
+    return openDedicatedConnection(properties.getProperty("db.url"));
+  }
+
+  /**
+   * Открывает отдельное соединение в обход пула с базой данных по указанному адресу (например, с
+   * шардом). Имя пользователя и пароль берутся из параметров основной базы данных.
+   *
+   * @param url JDBC-адрес базы данных
+   * @return новое соединение, которое вызывающий код должен закрыть сам
+   * @throws SQLException если не удалось установить соединение
+   */
+  public static Connection openDedicatedConnection(String url) throws SQLException {
+    return DriverManager.getConnection(url,
+        properties.getProperty("db.username"), properties.getProperty("db.password"));
+  }
+
+  /**
+   * Возвращает строковый параметр конфигурации из {@code application.properties}.
+   *
+   * @param key          имя параметра (например, {@code offline.path})
+   * @param defaultValue значение по умолчанию, если параметр не задан или пуст
+   * @return значение параметра
+   */
+  public static String getProperty(String key, String defaultValue) {
+    String value = properties.getProperty(key);
+    return value == null || value.isBlank() ? defaultValue : value.trim();
+  }
+
+  /**
+   * Возвращает целочисленный параметр конфигурации из {@code application.properties}.
+   *
+   * @param key          имя параметра (например, {@code db.fetchSize})
+   * @param defaultValue значение по умолчанию, если параметр не задан
+   * @return значение параметра
+   * @throws NumberFormatException если значение параметра не является числом
+   */
+  public static int getIntProperty(String key, int defaultValue) {
+    String value = properties.getProperty(key);
+    return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+  }
+
+  /**
+   * Закрывает пулы соединений с основным сервером и репликами. После вызова этого метода все
+   * последующие вызовы {@link #getConnection()} будут выбрасывать исключение.
+   */
+  public static synchronized void close() {
+    closed = true;
+    if (replicas != null) {
+      replicas.close();
+    }
     if (dataSource != null) {
       dataSource.close();
     }
   }
+
+  /**
+   * Возвращает пул основного сервера, при первом обращении создавая его и пулы реплик.
+   *
+   * @return пул соединений основного сервера
+   * @throws SQLException если пулы закрыты или пул не удалось создать (сервер недоступен)
+   */
+  private static HikariDataSource dataSource() throws SQLException {
+    HikariDataSource current = dataSource;
+    if (current != null) {
+      return current;
+    }
+    synchronized (DatabaseConnection.class) {
+      if (closed) {
+        throw new SQLException("Пул соединений закрыт");
+      }
+      if (dataSource == null) {
+        try {
+          HikariDataSource created = createDataSource();
+          replicas = createReplicas();
+          dataSource = created;
+        } catch (RuntimeException e) {
+          throw new SQLException("Не удалось создать пул соединений", e);
+        }
+      }
+      return dataSource;
+    }
+  }
+
+  /**
+   * Создаёт пул соединений основного сервера. Если сервер недоступен, в обычном режиме создание
+   * завершается ошибкой, а в офлайн-режиме пул создаётся без проверки соединения.
+   *
+   * @return пул соединений
+   */
+  private static HikariDataSource createDataSource() {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl(properties.getProperty("db.url"));
+    config.setUsername(properties.getProperty("db.username"));
+    config.setPassword(properties.getProperty("db.password"));
+    config.setMaximumPoolSize(Integer.parseInt(properties.getProperty("db.poolSize", "10")));
+    config.setConnectionTimeout(30000);
+    config.setIdleTimeout(600000);
+    config.setMaxLifetime(1800000);
+    // Объединение пакетных INSERT в многострочные запросы на стороне драйвера
+    config.addDataSourceProperty("reWriteBatchedInserts",
+        properties.getProperty("db.reWriteBatchedInserts", "true"));
+    if (Boolean.parseBoolean(properties.getProperty("offline.enabled", "false"))) {
+      // В офлайн-режиме недоступный сервер не должен мешать запуску приложения
+      config.setInitializationFailTimeout(-1);
+    }
+    return new HikariDataSource(config);
+  }
+
+  /**
+   * Создаёт пулы реплик по адресам из {@code db.replica.urls}. Пулы создаются без проверки
+   * соединения при запуске, поэтому недоступная реплика не мешает старту приложения, а лишь
+   * помечается неисправной.
+   *
+   * @return набор реплик (пустой, если адреса не заданы)
+   */
+  private static ReplicaSet createReplicas() {
+    List<HikariDataSource> pools = new ArrayList<>();
+    String urls = properties.getProperty("db.replica.urls", "");
+    for (String url : urls.split(",")) {
+      if (url.isBlank()) {
+        continue;
+      }
+      HikariConfig config = new HikariConfig();
+      config.setJdbcUrl(url.trim());
+      config.setUsername(properties.getProperty("db.username"));
+      config.setPassword(properties.getProperty("db.password"));
+      config.setMaximumPoolSize(getIntProperty("db.replica.poolSize",
+          getIntProperty("db.poolSize", 10)));
+      config.setReadOnly(true);
+      config.setInitializationFailTimeout(-1);
+      // Недоступная реплика должна быстро уступать место следующей, а не ждать 30 секунд
+      config.setConnectionTimeout(getIntProperty("db.replica.connectionTimeoutMillis", 2000));
+      config.setIdleTimeout(600000);
+      config.setMaxLifetime(1800000);
+      pools.add(new HikariDataSource(config));
+    }
+    return new ReplicaSet(pools,
+        Duration.ofMillis(getIntProperty("db.replica.healthCheckMillis", 5000)));
+  }
 }
\ No newline at end of file
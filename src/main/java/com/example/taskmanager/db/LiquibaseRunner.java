@@ -7,42 +7,133 @@ import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.LiquibaseException;
 import liquibase.resource.ClassLoaderResourceAccessor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
 
 /**
  * Запускает миграции базы данных с помощью Liquibase.
  * <p>
- * Класс содержит статический метод {@link #runMigrations()}, который инициирует обновление схемы БД
+ * Класс содержит статические методы {@link #runMigrations()}, который инициирует обновление схемы БД
  * до актуальной версии, используя changelog-файлы, расположенные в {@code db/changelog/}.
  * </p>
+ * <p>
+ * Запуск Liquibase занимает секунды даже без новых изменений, поэтому при запуске приложения
+ * используется {@link #runMigrationsIfChanged(ConnectionSource)}: после успешного обновления
+ * контрольная сумма SHA-256 changelog сохраняется в таблице {@code changelog_checksum} (её
+ * создаёт changeset 10), и пока она совпадает с суммой changelog в classpath, Liquibase не
+ * запускается.
+ * </p>
  *
  * @author Shebeta N.I.
  */
 public final class LiquibaseRunner {
 
+  private static final String CHANGELOG = "db/changelog/db.changelog-master.xml";
+
   private LiquibaseRunner() {
     // Предотвращение создания экземпляров утилитного класса
   }
 
   /**
-   * Выполняет миграции Liquibase. Получает соединение через
-   * {@link DatabaseConnection#getConnection()}, создает объект {@link Liquibase} с указанием
-   * master-файла changelog и вызывает {@code update()}.
+   * Выполняет миграции Liquibase в основной базе данных (соединение получается через
+   * {@link DatabaseConnection#getConnection()}).
    *
    * @throws RuntimeException если возникает ошибка при работе с базой данных или Liquibase
    */
   public static void runMigrations() {
-    try (Connection connection = DatabaseConnection.getConnection()) {
+    runMigrations(DatabaseConnection.primary());
+  }
+
+  /**
+   * Выполняет миграции Liquibase в базе данных источника соединений: создает объект
+   * {@link Liquibase} с указанием master-файла changelog и вызывает {@code update()}.
+   *
+   * @param connections источник соединений с базой данных (например, пул шарда)
+   * @throws RuntimeException если возникает ошибка при работе с базой данных или Liquibase
+   */
+  public static void runMigrations(ConnectionSource connections) {
+    try (Connection connection = connections.getConnection()) {
       Database database = DatabaseFactory.getInstance()
           .findCorrectDatabaseImplementation(new JdbcConnection(connection));
-      Liquibase liquibase = new Liquibase(
-          "db/changelog/db.changelog-master.xml",
-          new ClassLoaderResourceAccessor(),
-          database);
+      Liquibase liquibase = new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
       liquibase.update();
     } catch (SQLException | LiquibaseException e) {
       throw new RuntimeException("Ошибка применения миграций Liquibase", e);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Выполняет миграции, только если changelog изменился после последнего успешного обновления этой
+   * базы данных, и затем сохраняет его контрольную сумму.
+   *
+   * @param connections источник соединений с базой данных
+   * @return {@code true}, если миграции выполнялись
+   * @throws RuntimeException если возникает ошибка при работе с базой данных или Liquibase
+   */
+  public static boolean runMigrationsIfChanged(ConnectionSource connections) {
+    String checksum = changelogChecksum();
+    try (Connection connection = connections.getConnection()) {
+      if (checksum.equals(appliedChecksum(connection))) {
+        return false;
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Ошибка чтения контрольной суммы миграций", e);
+    }
+    runMigrations(connections);
+    try (Connection connection = connections.getConnection();
+        PreparedStatement save = connection.prepareStatement(
+            "INSERT INTO changelog_checksum (id, checksum) VALUES (1, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET checksum = EXCLUDED.checksum")) {
+      save.setString(1, checksum);
+      save.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Ошибка сохранения контрольной суммы миграций", e);
+    }
+    return true;
+  }
+
+  /**
+   * Вычисляет контрольную сумму SHA-256 master-файла changelog из classpath.
+   *
+   * @return контрольная сумма в шестнадцатеричном виде
+   * @throws RuntimeException если файл не найден или не читается
+   */
+  public static String changelogChecksum() {
+    try (InputStream input = LiquibaseRunner.class.getClassLoader()
+        .getResourceAsStream(CHANGELOG)) {
+      if (input == null) {
+        throw new RuntimeException("Файл " + CHANGELOG + " не найден в classpath");
+      }
+      return HexFormat.of().formatHex(
+          MessageDigest.getInstance("SHA-256").digest(input.readAllBytes()));
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new RuntimeException("Не удалось вычислить контрольную сумму " + CHANGELOG, e);
+    }
+  }
+
+  /**
+   * Читает сохранённую контрольную сумму changelog.
+   *
+   * @return контрольная сумма или {@code null}, если миграции ещё не выполнялись этим способом
+   */
+  private static String appliedChecksum(Connection connection) throws SQLException {
+    try (Statement stmt = connection.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT checksum FROM changelog_checksum WHERE id = 1")) {
+      return rs.next() ? rs.getString(1) : null;
+    } catch (SQLException e) {
+      if ("42P01".equals(e.getSQLState())) {
+        // Миграции ещё не создали таблицу
+        return null;
+      }
+      throw e;
+    }
+  }
+}
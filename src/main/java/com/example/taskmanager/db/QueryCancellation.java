@@ -0,0 +1,116 @@
+package com.example.taskmanager.db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Признак отмены запросов к БД. Вызов, выполняемый через {@link #call(Callable)}, связывает признак
+ * с текущим потоком, а DAO регистрируют в нём выполняемые запросы ({@link #register(Statement)}).
+ * Вызов {@link #cancel()} из любого потока отменяет их через {@link Statement#cancel()}: сервер
+ * прекращает выполнение запроса, а не только клиент перестаёт ждать результат, как при прерывании
+ * потока. Запросы, начинаемые после отмены, сразу завершаются ошибкой.
+ * <p>
+ * Используется для отмены запросов, результат которых больше не нужен, например загрузки таблицы
+ * по устаревшей строке поиска.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public final class QueryCancellation {
+
+  private static final ThreadLocal<QueryCancellation> CURRENT = new ThreadLocal<>();
+
+  private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+  private volatile boolean cancelled;
+
+  /**
+   * Выполняет вызов, связав с текущим потоком этот признак отмены.
+   *
+   * @param call вызов, выполняющий запросы к БД
+   * @param <T>  тип результата
+   * @return результат вызова
+   * @throws Exception исключение вызова
+   */
+  public <T> T call(Callable<T> call) throws Exception {
+    QueryCancellation previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return call.call();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Отменяет выполняемые запросы и запрещает новые.
+   */
+  public void cancel() {
+    cancelled = true;
+    for (Statement statement : statements) {
+      try {
+        statement.cancel();
+      } catch (SQLException e) {
+        // Запрос уже завершён или соединение закрыто — отменять нечего
+      }
+    }
+  }
+
+  /**
+   * Проверяет, была ли вызвана отмена.
+   *
+   * @return {@code true}, если запросы отменены
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Возвращает признак отмены, связанный с текущим потоком.
+   *
+   * @return признак отмены или {@code null}, если поток выполняет вызов без него
+   */
+  public static QueryCancellation current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Регистрирует запрос в признаке отмены текущего потока на время его выполнения.
+   *
+   * @param statement выполняемый запрос
+   * @return регистрация, закрываемая после выполнения запроса
+   * @throws SQLException если запросы текущего потока уже отменены
+   */
+  public static Registration register(Statement statement) throws SQLException {
+    QueryCancellation cancellation = CURRENT.get();
+    if (cancellation == null) {
+      return () -> {
+      };
+    }
+    cancellation.statements.add(statement);
+    if (cancellation.cancelled) {
+      cancellation.statements.remove(statement);
+      throw new SQLException("Запрос отменён", "57014");
+    }
+    return () -> cancellation.statements.remove(statement);
+  }
+
+  /**
+   * Регистрация запроса в признаке отмены.
+   */
+  @FunctionalInterface
+  public interface Registration extends AutoCloseable {
+
+    /**
+     * Снимает регистрацию запроса.
+     */
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.taskmanager.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * Набор пулов соединений с репликами БД только для чтения.
+ * <p>
+ * Соединения выдаются по кругу (round-robin) из исправных реплик. Реплика считается неисправной,
+ * если не удалось получить из неё соединение или не прошла периодическая проверка
+ * {@code SELECT 1}; неисправная реплика пропускается до следующей успешной проверки. Если
+ * исправных реплик нет, {@link #tryGetConnection()} возвращает {@code null}, и вызывающий код
+ * читает с основного сервера.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+final class ReplicaSet implements AutoCloseable {
+
+  private final List<Replica> replicas = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService healthChecker;
+
+  /**
+   * Создаёт набор реплик.
+   *
+   * @param dataSources         пулы соединений с репликами
+   * @param healthCheckInterval период проверки исправности; при нулевом периоде проверка не
+   *                            запускается
+   */
+  ReplicaSet(List<? extends DataSource> dataSources, Duration healthCheckInterval) {
+    for (DataSource dataSource : dataSources) {
+      replicas.add(new Replica(dataSource));
+    }
+    if (replicas.isEmpty() || healthCheckInterval.isZero()) {
+      healthChecker = null;
+    } else {
+      healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-health-check");
+        thread.setDaemon(true);
+        return thread;
+      });
+      long millis = healthCheckInterval.toMillis();
+      healthChecker.scheduleWithFixedDelay(this::checkHealth, millis, millis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Проверяет, заданы ли реплики.
+   *
+   * @return {@code true}, если реплик нет
+   */
+  boolean isEmpty() {
+    return replicas.isEmpty();
+  }
+
+  /**
+   * Возвращает соединение со следующей по кругу исправной репликой.
+   *
+   * @return соединение с репликой или {@code null}, если ни одна реплика не доступна
+   */
+  Connection tryGetConnection() {
+    int size = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (!replica.healthy) {
+        continue;
+      }
+      try {
+        return replica.dataSource.getConnection();
+      } catch (SQLException e) {
+        replica.healthy = false;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Проверяет все реплики запросом {@code SELECT 1} и обновляет их признак исправности.
+   */
+  void checkHealth() {
+    for (Replica replica : replicas) {
+      try (Connection conn = replica.dataSource.getConnection();
+          Statement stmt = conn.createStatement()) {
+        stmt.execute("SELECT 1");
+        replica.healthy = true;
+      } catch (SQLException e) {
+        replica.healthy = false;
+      }
+    }
+  }
+
+  /**
+   * Останавливает проверку исправности и закрывает пулы реплик.
+   */
+  @Override
+  public void close() {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+    }
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          // Пул закрывается при завершении приложения, ошибка закрытия ни на что не влияет
+        }
+      }
+    }
+  }
+
+  /**
+   * Реплика и её текущий признак исправности.
+   */
+  private static final class Replica {
+
+    private final DataSource dataSource;
+    private volatile boolean healthy = true;
+
+    Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.taskmanager.db;
+
+/**
+ * Уведомление об изменении задачи другим клиентом (или этим же клиентом), полученное из канала
+ * PostgreSQL {@value TaskChangeListener#CHANNEL}.
+ *
+ * @param operation вид изменения
+ * @param taskId    идентификатор изменённой задачи (0 для {@link Operation#RELOAD})
+ * @author Shebeta N.I.
+ */
+public record TaskChangeEvent(Operation operation, int taskId) {
+
+  /**
+   * Вид изменения.
+   */
+  public enum Operation {
+
+    /**
+     * Задача добавлена.
+     */
+    INSERT,
+
+    /**
+     * Задача изменена.
+     */
+    UPDATE,
+
+    /**
+     * Задача удалена.
+     */
+    DELETE,
+
+    /**
+     * Изменено неизвестное множество задач (массовая операция или пропущенные уведомления), все
+     * локальные данные следует считать устаревшими.
+     */
+    RELOAD
+  }
+
+  /**
+   * Разбирает содержимое уведомления вида {@code ОПЕРАЦИЯ:id}.
+   *
+   * @param payload содержимое уведомления
+   * @return событие; для нераспознанного содержимого — {@link Operation#RELOAD}
+   */
+  public static TaskChangeEvent parse(String payload) {
+    int separator = payload.indexOf(':');
+    try {
+      return new TaskChangeEvent(Operation.valueOf(payload.substring(0, separator)),
+          Integer.parseInt(payload.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      return new TaskChangeEvent(Operation.RELOAD, 0);
+    }
+  }
+}
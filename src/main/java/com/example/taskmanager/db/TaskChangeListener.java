@@ -0,0 +1,195 @@
+package com.example.taskmanager.db;
+
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Получает уведомления об изменении задач, которые триггер таблицы "tasks" отправляет в канал
+ * {@value #CHANNEL}, и передаёт их подписчикам.
+ * <p>
+ * Для {@code LISTEN} открывается отдельное соединение в обход пула HikariCP
+ * ({@link DatabaseConnection#openDedicatedConnection()}), которое опрашивается в фоновом
+ * потоке-демоне. Уведомления, пришедшие за один опрос, передаются подписчикам одним пакетом в порядке
+ * регистрации подписчиков, поэтому кэш, зарегистрированный первым, сбрасывается раньше, чем
+ * интерфейс перечитывает изменённые задачи.
+ * </p>
+ * <p>
+ * Если задачи распределены по шардам, слушатель создаётся с источниками соединений всех шардов
+ * ({@link #TaskChangeListener(List)}) и прослушивает каждый в отдельном потоке: иначе изменения,
+ * записанные другими клиентами в шарды, оставались бы незамеченными. Пакеты разных шардов передаются
+ * подписчикам по одному, поэтому подписчики не вызываются одновременно.
+ * </p>
+ * <p>
+ * Если пакет слишком велик (массовое изменение) или соединение было потеряно и часть уведомлений
+ * могла быть пропущена, подписчики получают одно событие {@link Operation#RELOAD} вместо
+ * построчных.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskChangeListener implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TaskChangeListener.class);
+
+  /**
+   * Канал PostgreSQL, в который триггер отправляет уведомления.
+   */
+  public static final String CHANNEL = "task_changes";
+
+  /**
+   * Максимальное количество построчных событий в пакете; пакет большего размера заменяется
+   * событием {@link Operation#RELOAD}. Массовые записи большего размера отключают построчные
+   * уведомления и сразу отправляют одно {@link Operation#RELOAD}.
+   */
+  public static final int MAX_BATCH_SIZE = 200;
+
+  private static final int POLL_TIMEOUT_MILLIS = 1_000;
+  private static final long MAX_RECONNECT_DELAY_MILLIS = 30_000;
+
+  private final List<Consumer<List<TaskChangeEvent>>> subscribers = new CopyOnWriteArrayList<>();
+  private final Object publishLock = new Object();
+  private final List<Thread> threads = new ArrayList<>();
+  private volatile boolean running;
+
+  /**
+   * Создаёт слушателя основной базы данных ({@code db.url}). Прослушивание начинается после вызова
+   * {@link #start()}.
+   */
+  public TaskChangeListener() {
+    this(List.of(DatabaseConnection::openDedicatedConnection));
+  }
+
+  /**
+   * Создаёт слушателя нескольких баз данных, например всех шардов. Каждый источник должен
+   * открывать новое соединение вне пула, так как соединение занято на всё время прослушивания.
+   * Прослушивание начинается после вызова {@link #start()}.
+   *
+   * @param sources источники соединений с прослушиваемыми базами данных
+   * @throws IllegalArgumentException если список источников пуст
+   */
+  public TaskChangeListener(List<ConnectionSource> sources) {
+    if (sources.isEmpty()) {
+      throw new IllegalArgumentException("Не задано ни одной базы данных для прослушивания");
+    }
+    for (int i = 0; i < sources.size(); i++) {
+      ConnectionSource source = sources.get(i);
+      String name = sources.size() == 1 ? "task-change-listener" : "task-change-listener-" + i;
+      Thread thread = new Thread(() -> run(source), name);
+      thread.setDaemon(true);
+      threads.add(thread);
+    }
+  }
+
+  /**
+   * Регистрирует подписчика. Подписчик вызывается в потоке слушателя и не должен надолго его
+   * блокировать.
+   *
+   * @param subscriber получатель пакетов событий
+   */
+  public void addSubscriber(Consumer<List<TaskChangeEvent>> subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  /**
+   * Запускает фоновые потоки прослушивания.
+   */
+  public void start() {
+    running = true;
+    threads.forEach(Thread::start);
+  }
+
+  /**
+   * Останавливает прослушивание и закрывает соединения.
+   */
+  @Override
+  public void close() {
+    running = false;
+    threads.forEach(Thread::interrupt);
+  }
+
+  /**
+   * Преобразует содержимое уведомлений в пакет событий для подписчиков.
+   *
+   * @param payloads содержимое уведомлений в порядке получения
+   * @return события без повторов одной и той же задачи либо одно событие {@link Operation#RELOAD}
+   */
+  static List<TaskChangeEvent> toEvents(List<String> payloads) {
+    List<TaskChangeEvent> events = new ArrayList<>(payloads.size());
+    for (String payload : payloads) {
+      TaskChangeEvent event = TaskChangeEvent.parse(payload);
+      if (event.operation() == Operation.RELOAD || events.size() >= MAX_BATCH_SIZE) {
+        return reload();
+      }
+      // Подписчикам важно только последнее состояние задачи, поэтому повторы отбрасываются
+      events.removeIf(previous -> previous.taskId() == event.taskId());
+      events.add(event);
+    }
+    return events;
+  }
+
+  private void run(ConnectionSource source) {
+    long reconnectDelay = 1_000;
+    boolean reconnected = false;
+    while (running) {
+      try (Connection conn = source.getConnection()) {
+        try (Statement stmt = conn.createStatement()) {
+          stmt.execute("LISTEN " + CHANNEL);
+        }
+        reconnectDelay = 1_000;
+        if (reconnected) {
+          // Пока соединения не было, уведомления не доставлялись
+          publish(reload());
+        }
+        PGConnection pgConnection = conn.unwrap(PGConnection.class);
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null && notifications.length > 0) {
+            List<String> payloads = new ArrayList<>(notifications.length);
+            for (PGNotification notification : notifications) {
+              payloads.add(notification.getParameter());
+            }
+            publish(toEvents(payloads));
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          return;
+        }
+        LOG.warn("Соединение для уведомлений об изменениях потеряно: {}", e.getMessage());
+        reconnected = true;
+        try {
+          Thread.sleep(reconnectDelay);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY_MILLIS);
+      }
+    }
+  }
+
+  private void publish(List<TaskChangeEvent> events) {
+    synchronized (publishLock) {
+      for (Consumer<List<TaskChangeEvent>> subscriber : subscribers) {
+        try {
+          subscriber.accept(events);
+        } catch (RuntimeException e) {
+          LOG.error("Ошибка обработки уведомления об изменении", e);
+        }
+      }
+    }
+  }
+
+  private static List<TaskChangeEvent> reload() {
+    return List.of(new TaskChangeEvent(Operation.RELOAD, 0));
+  }
+}
@@ -5,7 +5,8 @@ import java.util.Objects;
 
 /**
  * Представляет задачу в системе управления задачами. Содержит поля: идентификатор, заголовок,
- * описание, статус, дату создания и дату обновления.
+ * описание, статус, дату создания, дату обновления и версию записи, по которой обнаруживаются
+ * одновременные изменения.
  *
  * @author Shebeta N.I.
  */
@@ -17,6 +18,7 @@ public class Task {
   private TaskStatus status;
   private LocalDateTime createdAt;
   private LocalDateTime updatedAt;
+  private int version;
 
   /**
    * Конструктор по умолчанию.
@@ -44,6 +46,17 @@ public class Task {
     this.updatedAt = updatedAt;
   }
 
+  /**
+   * Конструктор копирования.
+   *
+   * @param other задача, поля которой копируются
+   */
+  public Task(Task other) {
+    this(other.id, other.title, other.description, other.status, other.createdAt,
+        other.updatedAt);
+    this.version = other.version;
+  }
+
   /**
    * Возвращает идентификатор задачи.
    *
@@ -152,6 +165,25 @@ public class Task {
     this.updatedAt = updatedAt;
   }
 
+  /**
+   * Возвращает версию записи задачи, прочитанную из БД. Версия увеличивается при каждом
+   * обновлении; сохранение задачи с устаревшей версией отклоняется.
+   *
+   * @return версия записи
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Устанавливает версию записи задачи.
+   *
+   * @param version версия записи
+   */
+  public void setVersion(int version) {
+    this.version = version;
+  }
+
   /**
    * Сравнивает задачу с другим объектом. Две задачи считаются равными, если они имеют одинаковый
    * идентификатор.
@@ -0,0 +1,27 @@
+package com.example.taskmanager.entity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Изменения задач с момента предыдущей синхронизации: добавленные или изменённые задачи и
+ * идентификаторы удалённых задач.
+ *
+ * @param changed       задачи, добавленные или изменённые начиная с указанной отметки
+ * @param deletedIds    идентификаторы задач, удалённых начиная с указанной отметки
+ * @param nextWatermark отметка времени БД на момент выборки, которую следует передать при
+ *                      следующей синхронизации
+ * @author Shebeta N.I.
+ */
+public record TaskDelta(List<Task> changed, List<Integer> deletedIds,
+                        LocalDateTime nextWatermark) {
+
+  /**
+   * Проверяет, есть ли в наборе изменения.
+   *
+   * @return {@code true}, если нет ни изменённых, ни удалённых задач
+   */
+  public boolean isEmpty() {
+    return changed.isEmpty() && deletedIds.isEmpty();
+  }
+}
@@ -0,0 +1,468 @@
+package com.example.taskmanager.entity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Составной запрос задач: отбор по набору статусов, тексту и диапазонам дат создания и изменения,
+ * сортировка, ограничение количества и курсор постраничной выдачи. Все условия применяются
+ * совместно. Реализации DAO для БД выполняют запрос одним SQL-запросом, остальные — отбором и
+ * сортировкой в памяти.
+ * <p>
+ * Постраничная выдача построена на курсоре (keyset): следующая страница запрашивается через
+ * {@link #after(TaskSummary)} с последней задачей предыдущей страницы, поэтому её стоимость не
+ * зависит от номера страницы, а вставленные и удалённые между запросами задачи не сдвигают
+ * границы страниц.
+ * </p>
+ * <p>
+ * Экземпляры неизменяемы и создаются через {@link #builder()}.
+ * </p>
+ *
+ * @param statuses    статусы отбираемых задач; пустой набор — задачи с любым статусом
+ * @param text        слова или подстрока заголовка или описания; {@code null} — без отбора по
+ *                    тексту
+ * @param createdFrom нижняя граница даты создания включительно или {@code null}
+ * @param createdTo   верхняя граница даты создания не включительно или {@code null}
+ * @param updatedFrom нижняя граница даты изменения включительно или {@code null}
+ * @param updatedTo   верхняя граница даты изменения не включительно или {@code null}
+ * @param sortKey     поле сортировки (при равенстве задачи упорядочиваются по id в том же
+ *                    направлении)
+ * @param direction   направление сортировки
+ * @param limit       максимальное количество задач; 0 — без ограничения
+ * @param offset      количество пропускаемых задач (после курсора, если он задан); для перехода к
+ *                    произвольной странице, когда курсор предыдущей страницы неизвестен
+ * @param cursor      позиция, после которой начинается выдача, или {@code null}
+ * @author Shebeta N.I.
+ */
+public record TaskQuery(Set<TaskStatus> statuses, String text, LocalDateTime createdFrom,
+                        LocalDateTime createdTo, LocalDateTime updatedFrom,
+                        LocalDateTime updatedTo, SortKey sortKey, Direction direction, int limit,
+                        int offset, Cursor cursor) {
+
+  /**
+   * Поле сортировки.
+   */
+  public enum SortKey {
+
+    /**
+     * Идентификатор задачи.
+     */
+    ID,
+
+    /**
+     * Заголовок; строки сравниваются посимвольно по кодам символов (в БД — с правилом
+     * сравнения {@code "C"}), без учёта языка.
+     */
+    TITLE,
+
+    /**
+     * Статус; статусы сравниваются по имени.
+     */
+    STATUS,
+
+    /**
+     * Дата создания.
+     */
+    CREATED_AT,
+
+    /**
+     * Дата последнего изменения.
+     */
+    UPDATED_AT,
+
+    /**
+     * Релевантность отбору по тексту, от более релевантных задач к менее релевантным
+     * (см. {@link com.example.taskmanager.dao.TaskDao#searchRanked}); направление не учитывается.
+     * Без отбора по тексту и в реализациях без ранжирования задачи упорядочиваются по id.
+     * Курсор с этой сортировкой не поддерживается.
+     */
+    RELEVANCE
+  }
+
+  /**
+   * Направление сортировки.
+   */
+  public enum Direction {
+
+    /**
+     * По возрастанию.
+     */
+    ASC,
+
+    /**
+     * По убыванию.
+     */
+    DESC
+  }
+
+  /**
+   * Позиция в выдаче: значение поля сортировки и id последней задачи предыдущей страницы.
+   *
+   * @param value значение поля сортировки ({@link Integer}, {@link String}, {@link TaskStatus}
+   *              или {@link LocalDateTime} в зависимости от {@link SortKey})
+   * @param id    идентификатор задачи
+   */
+  public record Cursor(Object value, int id) {
+
+  }
+
+  /**
+   * Проверяет согласованность параметров и делает набор статусов неизменяемым.
+   *
+   * @throws IllegalArgumentException если ограничение или смещение отрицательно, курсор задан для
+   *                                  сортировки по релевантности или не соответствует полю
+   *                                  сортировки
+   */
+  public TaskQuery {
+    statuses = statuses.isEmpty()
+        ? Set.of()
+        : Collections.unmodifiableSet(EnumSet.copyOf(statuses));
+    text = text == null || text.isBlank() ? null : text.trim();
+    Objects.requireNonNull(sortKey, "sortKey");
+    Objects.requireNonNull(direction, "direction");
+    if (limit < 0 || offset < 0) {
+      throw new IllegalArgumentException(
+          "Ограничение и смещение не могут быть отрицательными: " + limit + ", " + offset);
+    }
+    if (cursor != null) {
+      if (sortKey == SortKey.RELEVANCE) {
+        throw new IllegalArgumentException("Курсор не поддерживается сортировкой по релевантности");
+      }
+      Class<?> expected = switch (sortKey) {
+        case TITLE -> String.class;
+        case STATUS -> TaskStatus.class;
+        case CREATED_AT, UPDATED_AT -> LocalDateTime.class;
+        default -> Integer.class;
+      };
+      if (!expected.isInstance(cursor.value())) {
+        throw new IllegalArgumentException(
+            "Значение курсора не соответствует сортировке " + sortKey + ": " + cursor.value());
+      }
+    }
+  }
+
+  /**
+   * Создаёт построитель запроса всех задач, отсортированных по возрастанию id.
+   *
+   * @return построитель запроса
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Создаёт построитель с параметрами этого запроса.
+   *
+   * @return построитель запроса
+   */
+  public Builder toBuilder() {
+    Builder builder = new Builder();
+    builder.statuses.addAll(statuses);
+    builder.text = text;
+    builder.createdFrom = createdFrom;
+    builder.createdTo = createdTo;
+    builder.updatedFrom = updatedFrom;
+    builder.updatedTo = updatedTo;
+    builder.sortKey = sortKey;
+    builder.direction = direction;
+    builder.limit = limit;
+    builder.offset = offset;
+    builder.cursor = cursor;
+    return builder;
+  }
+
+  /**
+   * Возвращает запрос следующей страницы: тот же запрос с курсором после указанной задачи и без
+   * смещения.
+   *
+   * @param last последняя задача текущей страницы
+   * @return запрос следующей страницы
+   * @throws IllegalArgumentException если запрос отсортирован по релевантности
+   */
+  public TaskQuery after(TaskSummary last) {
+    return toBuilder().offset(0).after(last).build();
+  }
+
+  /**
+   * Проверяет, задан ли отбор по статусу, исключающий выполненные задачи (в БД такие запросы не
+   * обращаются к архивной секции).
+   *
+   * @return {@code true}, если отбираются только статусы, отличные от DONE
+   */
+  public boolean excludesDone() {
+    return !statuses.isEmpty() && !statuses.contains(TaskStatus.DONE);
+  }
+
+  /**
+   * Проверяет, удовлетворяет ли задача условиям отбора. Текст ищется как подстрока заголовка или
+   * описания без учёта регистра, как в {@link com.example.taskmanager.dao.TaskDao#search}.
+   * Курсор не учитывается.
+   *
+   * @param task задача
+   * @return {@code true}, если задача удовлетворяет всем условиям отбора
+   */
+  public boolean matches(Task task) {
+    return matchesExceptText(task.getStatus(), task.getCreatedAt(), task.getUpdatedAt())
+        && (text == null || containsText(task.getTitle()) || containsText(task.getDescription()));
+  }
+
+  /**
+   * Проверяет, удовлетворяет ли задача условиям отбора по статусу и датам. Отбор по тексту не
+   * проверяется: краткое представление не содержит полного описания.
+   *
+   * @param summary краткое представление задачи
+   * @return {@code true}, если задача удовлетворяет условиям отбора по статусу и датам
+   */
+  public boolean matchesExceptText(TaskSummary summary) {
+    return matchesExceptText(summary.status(), summary.createdAt(), summary.updatedAt());
+  }
+
+  /**
+   * Проверяет, находится ли задача после курсора в порядке сортировки запроса.
+   *
+   * @param task задача
+   * @return {@code true}, если курсор не задан или задача следует за ним
+   */
+  public boolean isAfterCursor(Task task) {
+    return cursor == null || taskOrder().compare(cursorTask(), task) < 0;
+  }
+
+  /**
+   * Возвращает порядок задач, заданный сортировкой запроса (по релевантности — по id).
+   *
+   * @return порядок задач
+   */
+  public Comparator<Task> taskOrder() {
+    return order(task -> sortValue(task.getId(), task.getTitle(), task.getStatus(),
+        task.getCreatedAt(), task.getUpdatedAt()), Task::getId);
+  }
+
+  /**
+   * Возвращает порядок кратких представлений задач, заданный сортировкой запроса (по
+   * релевантности — по id).
+   *
+   * @return порядок кратких представлений задач
+   */
+  public Comparator<TaskSummary> summaryOrder() {
+    return order(summary -> sortValue(summary.id(), summary.title(), summary.status(),
+        summary.createdAt(), summary.updatedAt()), TaskSummary::id);
+  }
+
+  private boolean matchesExceptText(TaskStatus status, LocalDateTime createdAt,
+      LocalDateTime updatedAt) {
+    return (statuses.isEmpty() || statuses.contains(status))
+        && inRange(createdAt, createdFrom, createdTo)
+        && inRange(updatedAt, updatedFrom, updatedTo);
+  }
+
+  private boolean containsText(String value) {
+    return value != null
+        && value.toLowerCase(Locale.ROOT).contains(text.toLowerCase(Locale.ROOT));
+  }
+
+  private static boolean inRange(LocalDateTime value, LocalDateTime from, LocalDateTime to) {
+    return (from == null || !value.isBefore(from)) && (to == null || value.isBefore(to));
+  }
+
+  private Task cursorTask() {
+    Task task = new Task();
+    task.setId(cursor.id());
+    switch (sortKey) {
+      case TITLE -> task.setTitle((String) cursor.value());
+      case STATUS -> task.setStatus((TaskStatus) cursor.value());
+      case CREATED_AT -> task.setCreatedAt((LocalDateTime) cursor.value());
+      case UPDATED_AT -> task.setUpdatedAt((LocalDateTime) cursor.value());
+      default -> {
+      }
+    }
+    return task;
+  }
+
+  private Comparable<?> sortValue(int id, String title, TaskStatus status,
+      LocalDateTime createdAt, LocalDateTime updatedAt) {
+    return switch (sortKey) {
+      case TITLE -> title;
+      case STATUS -> status.name();
+      case CREATED_AT -> createdAt;
+      case UPDATED_AT -> updatedAt;
+      default -> id;
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private <T> Comparator<T> order(Function<T, Comparable<?>> key, ToIntFunction<T> id) {
+    Comparator<T> order = Comparator.comparing(item -> (Comparable) key.apply(item));
+    order = order.thenComparingInt(id);
+    return direction == Direction.DESC && sortKey != SortKey.RELEVANCE ? order.reversed() : order;
+  }
+
+  /**
+   * Построитель {@link TaskQuery}.
+   */
+  public static final class Builder {
+
+    private final EnumSet<TaskStatus> statuses = EnumSet.noneOf(TaskStatus.class);
+    private String text;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+    private LocalDateTime updatedFrom;
+    private LocalDateTime updatedTo;
+    private SortKey sortKey = SortKey.ID;
+    private Direction direction = Direction.ASC;
+    private int limit;
+    private int offset;
+    private Cursor cursor;
+
+    private Builder() {
+    }
+
+    /**
+     * Задаёт статусы отбираемых задач, заменяя ранее заданные.
+     *
+     * @param statuses статусы; пустой набор — задачи с любым статусом
+     * @return этот построитель
+     */
+    public Builder statuses(Collection<TaskStatus> statuses) {
+      this.statuses.clear();
+      this.statuses.addAll(statuses);
+      return this;
+    }
+
+    /**
+     * Задаёт статусы отбираемых задач, заменяя ранее заданные.
+     *
+     * @param statuses статусы; без аргументов — задачи с любым статусом
+     * @return этот построитель
+     */
+    public Builder statuses(TaskStatus... statuses) {
+      return statuses(Set.of(statuses));
+    }
+
+    /**
+     * Задаёт отбор по словам или подстроке заголовка или описания.
+     *
+     * @param text строка поиска; {@code null} или пустая строка — без отбора по тексту
+     * @return этот построитель
+     */
+    public Builder text(String text) {
+      this.text = text;
+      return this;
+    }
+
+    /**
+     * Задаёт диапазон даты создания.
+     *
+     * @param from нижняя граница включительно или {@code null}
+     * @param to   верхняя граница не включительно или {@code null}
+     * @return этот построитель
+     */
+    public Builder createdBetween(LocalDateTime from, LocalDateTime to) {
+      this.createdFrom = from;
+      this.createdTo = to;
+      return this;
+    }
+
+    /**
+     * Задаёт диапазон даты последнего изменения.
+     *
+     * @param from нижняя граница включительно или {@code null}
+     * @param to   верхняя граница не включительно или {@code null}
+     * @return этот построитель
+     */
+    public Builder updatedBetween(LocalDateTime from, LocalDateTime to) {
+      this.updatedFrom = from;
+      this.updatedTo = to;
+      return this;
+    }
+
+    /**
+     * Задаёт сортировку и сбрасывает курсор, заданный для прежней сортировки.
+     *
+     * @param sortKey   поле сортировки
+     * @param direction направление сортировки
+     * @return этот построитель
+     */
+    public Builder sortBy(SortKey sortKey, Direction direction) {
+      this.sortKey = sortKey;
+      this.direction = direction;
+      this.cursor = null;
+      return this;
+    }
+
+    /**
+     * Задаёт максимальное количество задач.
+     *
+     * @param limit максимальное количество задач; 0 — без ограничения
+     * @return этот построитель
+     */
+    public Builder limit(int limit) {
+      this.limit = limit;
+      return this;
+    }
+
+    /**
+     * Задаёт количество пропускаемых задач. Стоимость пропуска растёт с его размером, поэтому для
+     * последовательных страниц следует использовать курсор.
+     *
+     * @param offset количество пропускаемых задач
+     * @return этот построитель
+     */
+    public Builder offset(int offset) {
+      this.offset = offset;
+      return this;
+    }
+
+    /**
+     * Задаёт курсор, полученный из {@link TaskQuery#cursor()} запроса с той же сортировкой.
+     *
+     * @param cursor позиция, после которой начинается выдача; {@code null} — выдача с начала
+     * @return этот построитель
+     */
+    public Builder after(Cursor cursor) {
+      this.cursor = cursor;
+      return this;
+    }
+
+    /**
+     * Задаёт курсор после указанной задачи для текущей сортировки, поэтому вызывается после
+     * {@link #sortBy(SortKey, Direction)}.
+     *
+     * @param last последняя задача предыдущей страницы; {@code null} — выдача с начала
+     * @return этот построитель
+     */
+    public Builder after(TaskSummary last) {
+      if (last == null) {
+        this.cursor = null;
+        return this;
+      }
+      Object value = switch (sortKey) {
+        case TITLE -> last.title();
+        case STATUS -> last.status();
+        case CREATED_AT -> last.createdAt();
+        case UPDATED_AT -> last.updatedAt();
+        default -> last.id();
+      };
+      this.cursor = new Cursor(value, last.id());
+      return this;
+    }
+
+    /**
+     * Создаёт запрос.
+     *
+     * @return неизменяемый запрос
+     * @throws IllegalArgumentException если параметры несогласованны (см. {@link TaskQuery})
+     */
+    public TaskQuery build() {
+      return new TaskQuery(statuses, text, createdFrom, createdTo, updatedFrom, updatedTo,
+          sortKey, direction, limit, offset, cursor);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package com.example.taskmanager.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Краткое представление задачи для списков и таблиц. Вместо полного описания содержит только его
+ * начальный фрагмент длиной не более {@link #SNIPPET_LENGTH} символов; полная задача загружается
+ * отдельно по идентификатору, когда она действительно нужна (например, при редактировании).
+ *
+ * @param id                   идентификатор задачи
+ * @param title                заголовок
+ * @param descriptionSnippet   начальный фрагмент описания (может быть null)
+ * @param descriptionTruncated {@code true}, если описание длиннее фрагмента
+ * @param status               статус
+ * @param createdAt            дата и время создания
+ * @param updatedAt            дата и время последнего обновления
+ * @author Shebeta N.I.
+ */
+public record TaskSummary(int id, String title, String descriptionSnippet,
+                          boolean descriptionTruncated, TaskStatus status,
+                          LocalDateTime createdAt, LocalDateTime updatedAt) {
+
+  /**
+   * Максимальная длина фрагмента описания в символах.
+   */
+  public static final int SNIPPET_LENGTH = 100;
+
+  /**
+   * Создаёт краткое представление полной задачи.
+   *
+   * @param task задача
+   * @return краткое представление с обрезанным до {@link #SNIPPET_LENGTH} символов описанием
+   */
+  public static TaskSummary of(Task task) {
+    String description = task.getDescription();
+    boolean truncated = description != null && description.length() > SNIPPET_LENGTH;
+    return new TaskSummary(task.getId(), task.getTitle(),
+        truncated ? description.substring(0, SNIPPET_LENGTH) : description, truncated,
+        task.getStatus(), task.getCreatedAt(), task.getUpdatedAt());
+  }
+}
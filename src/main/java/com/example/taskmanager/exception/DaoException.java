@@ -8,6 +8,15 @@ package com.example.taskmanager.exception;
  */
 public class DaoException extends RuntimeException {
 
+  /**
+   * Создаёт исключение с сообщением без исходной причины.
+   *
+   * @param message детальное сообщение об ошибке
+   */
+  public DaoException(String message) {
+    super(message);
+  }
+
   /**
    * Создаёт исключение с сообщением и причиной.
    *
@@ -0,0 +1,33 @@
+package com.example.taskmanager.exception;
+
+import java.util.List;
+
+/**
+ * Исключение, выбрасываемое при сохранении задачи, которая с момента чтения была изменена или
+ * удалена другим пользователем (версия записи в БД не совпадает с версией задачи).
+ *
+ * @author Shebeta N.I.
+ */
+public class OptimisticLockException extends DaoException {
+
+  private final List<Integer> taskIds;
+
+  /**
+   * Создаёт исключение для задач, сохранение которых не удалось из-за конфликта версий.
+   *
+   * @param taskIds идентификаторы конфликтующих задач
+   */
+  public OptimisticLockException(List<Integer> taskIds) {
+    super("Задача изменена или удалена другим пользователем: id=" + taskIds);
+    this.taskIds = List.copyOf(taskIds);
+  }
+
+  /**
+   * Возвращает идентификаторы задач, сохранение которых не удалось.
+   *
+   * @return идентификаторы конфликтующих задач
+   */
+  public List<Integer> getTaskIds() {
+    return taskIds;
+  }
+}
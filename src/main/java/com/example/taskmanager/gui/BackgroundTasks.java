@@ -0,0 +1,53 @@
+package com.example.taskmanager.gui;
+
+import javax.swing.SwingWorker;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Выполнение обращений к сервису задач вне потока обработки событий Swing. Обращение выполняется
+ * в потоке {@link SwingWorker}, а результат или ошибка обрабатываются в потоке обработки событий,
+ * поэтому интерфейс не замирает на время обращения к БД.
+ *
+ * @author Shebeta N.I.
+ */
+final class BackgroundTasks {
+
+  private BackgroundTasks() {
+    // Предотвращение создания экземпляров утилитного класса
+  }
+
+  /**
+   * Выполняет вызов в фоновом потоке.
+   *
+   * @param call      вызов сервиса
+   * @param onSuccess обработка результата в потоке обработки событий
+   * @param onFailure обработка исключения вызова в потоке обработки событий
+   * @param <T>       тип результата
+   */
+  static <T> void execute(Callable<T> call, Consumer<T> onSuccess,
+      Consumer<Throwable> onFailure) {
+    new SwingWorker<T, Void>() {
+      @Override
+      protected T doInBackground() throws Exception {
+        return call.call();
+      }
+
+      @Override
+      protected void done() {
+        T result;
+        try {
+          result = get();
+        } catch (ExecutionException e) {
+          onFailure.accept(e.getCause());
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        onSuccess.accept(result);
+      }
+    }.execute();
+  }
+}
@@ -0,0 +1,125 @@
+package com.example.taskmanager.gui;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+import java.util.List;
+
+/**
+ * Сортировщик строк таблицы, который сам ничего не сортирует: щелчок по заголовку столбца только
+ * меняет ключ сортировки (по возрастанию, по убыванию, без сортировки) и уведомляет слушателей,
+ * а строки в нужном порядке загружает из БД владелец таблицы. Порядок строк модели совпадает с
+ * порядком строк таблицы, заголовок показывает направление сортировки как обычно.
+ *
+ * @param <M> тип модели таблицы
+ * @author Shebeta N.I.
+ */
+class DatabaseRowSorter<M extends TableModel> extends RowSorter<M> {
+
+  private final M model;
+  private final boolean[] sortable;
+  private List<SortKey> sortKeys = List.of();
+
+  /**
+   * Создаёт сортировщик.
+   *
+   * @param model    модель таблицы
+   * @param sortable признаки столбцов, по которым возможна сортировка (по индексу столбца модели)
+   */
+  DatabaseRowSorter(M model, boolean[] sortable) {
+    this.model = model;
+    this.sortable = sortable.clone();
+  }
+
+  /**
+   * Возвращает текущий ключ сортировки.
+   *
+   * @return ключ сортировки или {@code null}, если сортировка не выбрана
+   */
+  SortKey getSortKey() {
+    return sortKeys.isEmpty() ? null : sortKeys.get(0);
+  }
+
+  @Override
+  public M getModel() {
+    return model;
+  }
+
+  /**
+   * Переключает сортировку по столбцу: по возрастанию, затем по убыванию, затем без сортировки.
+   *
+   * @param column индекс столбца модели
+   */
+  @Override
+  public void toggleSortOrder(int column) {
+    if (column < 0 || column >= sortable.length || !sortable[column]) {
+      return;
+    }
+    SortKey current = getSortKey();
+    if (current == null || current.getColumn() != column) {
+      setSortKeys(List.of(new SortKey(column, SortOrder.ASCENDING)));
+    } else if (current.getSortOrder() == SortOrder.ASCENDING) {
+      setSortKeys(List.of(new SortKey(column, SortOrder.DESCENDING)));
+    } else {
+      setSortKeys(List.of());
+    }
+  }
+
+  @Override
+  public int convertRowIndexToModel(int index) {
+    return index;
+  }
+
+  @Override
+  public int convertRowIndexToView(int index) {
+    return index;
+  }
+
+  @Override
+  public void setSortKeys(List<? extends SortKey> keys) {
+    List<SortKey> newKeys = keys == null ? List.of() : List.copyOf(keys);
+    if (!newKeys.equals(sortKeys)) {
+      sortKeys = newKeys;
+      fireSortOrderChanged();
+    }
+  }
+
+  @Override
+  public List<? extends SortKey> getSortKeys() {
+    return sortKeys;
+  }
+
+  @Override
+  public int getViewRowCount() {
+    return model.getRowCount();
+  }
+
+  @Override
+  public int getModelRowCount() {
+    return model.getRowCount();
+  }
+
+  @Override
+  public void modelStructureChanged() {
+  }
+
+  @Override
+  public void allRowsChanged() {
+  }
+
+  @Override
+  public void rowsInserted(int firstRow, int endRow) {
+  }
+
+  @Override
+  public void rowsDeleted(int firstRow, int endRow) {
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow) {
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow, int column) {
+  }
+}
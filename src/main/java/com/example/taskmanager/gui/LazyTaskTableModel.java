@@ -0,0 +1,559 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.QueryCancellation;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.service.TaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Модель таблицы задач, загружающая строки страницами по мере прокрутки {@link JTable}. Модель
+ * знает только количество строк запроса ({@link TaskService#countTasks(TaskQuery)}), а строки
+ * запрашивает, когда таблица отрисовывает их: недостающая страница загружается в фоновом потоке,
+ * пока вместо её строк показываются пустые ячейки, а следом по одной загружаются соседние страницы
+ * в направлении прокрутки.
+ * <p>
+ * Страницы загружаются по курсору: если известна последняя строка предыдущей страницы, запрос
+ * продолжается после неё ({@link TaskQuery#after(TaskSummary)}) и выполняется по индексу за
+ * время, не зависящее от номера страницы. При переходе к далёкой странице (перетаскивание
+ * ползунка) предыдущая страница неизвестна, и она загружается со смещением; страницы после неё
+ * снова загружаются по курсору. При сортировке по релевантности курсор не поддерживается, поэтому
+ * используется смещение.
+ * </p>
+ * <p>
+ * В памяти хранится не больше заданного количества страниц: при загрузке новой страницы
+ * вытесняется та, к которой дольше всего не обращались. Поэтому потребление памяти не зависит от
+ * количества задач. Методы модели вызываются только в потоке обработки событий.
+ * </p>
+ * <p>
+ * Новый запрос ({@link #setQuery(TaskQuery)}, {@link #refresh()}) отменяет выполняемые запросы к
+ * БД предыдущего через {@link QueryCancellation}, поэтому при быстром вводе строки поиска в БД
+ * выполняется не больше одного запроса таблицы, а результат устаревшего запроса не заменяет
+ * результат более нового.
+ * </p>
+ * <p>
+ * Изменения задач, сделанные после загрузки запроса, применяются к таблице через
+ * {@link #refreshChanges()} по отметке синхронизации сервера, полученной при последней загрузке
+ * запроса.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class LazyTaskTableModel extends AbstractTableModel {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LazyTaskTableModel.class);
+
+  private final TaskService taskService;
+  private final int pageSize;
+  private final int maxPages;
+  private final int prefetchPages;
+  private final Executor loader;
+
+  private final Map<Integer, List<TaskSummary>> pages;
+  private final Set<Integer> stalePages = new HashSet<>();
+  private final Map<Integer, TaskQuery.Cursor> pageEnds = new HashMap<>();
+  private final Map<Integer, Integer> rowsById = new HashMap<>();
+  private final Set<Integer> requestedPages = new HashSet<>();
+  private Consumer<Boolean> loadingListener = loading -> {
+  };
+  private QueryCancellation cancellation;
+  private int pendingLoads;
+  private TaskQuery query;
+  private int rowCount;
+  private int generation;
+  private int latestReload;
+  private int lastViewedPage;
+  private int scrollStep = 1;
+  private volatile int wantedPage;
+  private LocalDateTime syncWatermark;
+
+  /**
+   * Создаёт модель с размером страницы {@code gui.pageSize}, окном из {@code gui.pageWindow}
+   * страниц и упреждающей загрузкой {@code gui.prefetchPages} страниц из настроек приложения.
+   * Строки появляются после вызова {@link #setQuery(TaskQuery)}.
+   *
+   * @param taskService сервис для работы с задачами
+   */
+  public LazyTaskTableModel(TaskService taskService) {
+    this(taskService,
+        DatabaseConnection.getIntProperty("gui.pageSize", 200),
+        DatabaseConnection.getIntProperty("gui.pageWindow", 32),
+        DatabaseConnection.getIntProperty("gui.prefetchPages", 2),
+        Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "task-table-loader");
+          thread.setDaemon(true);
+          return thread;
+        }));
+  }
+
+  /**
+   * Создаёт модель.
+   *
+   * @param taskService   сервис для работы с задачами
+   * @param pageSize      количество строк в странице
+   * @param maxPages      максимальное количество страниц в памяти
+   * @param prefetchPages количество страниц, загружаемых заранее в направлении прокрутки
+   * @param loader        исполнитель запросов к БД
+   * @throws IllegalArgumentException если окно не вмещает видимую страницу с соседними
+   */
+  LazyTaskTableModel(TaskService taskService, int pageSize, int maxPages, int prefetchPages,
+      Executor loader) {
+    if (pageSize <= 0 || prefetchPages < 0 || maxPages < 2 * prefetchPages + 2) {
+      throw new IllegalArgumentException("Некорректные параметры страниц: размер " + pageSize
+          + ", окно " + maxPages + ", упреждение " + prefetchPages);
+    }
+    this.taskService = taskService;
+    this.pageSize = pageSize;
+    this.maxPages = maxPages;
+    this.prefetchPages = prefetchPages;
+    this.loader = loader;
+    this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, List<TaskSummary>> eldest) {
+        if (size() > LazyTaskTableModel.this.maxPages) {
+          stalePages.remove(eldest.getKey());
+          unindex(eldest.getKey(), eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Заменяет запрос таблицы. Количество строк и первая страница нового запроса загружаются в
+   * фоне, а до их получения таблица показывает прежние строки. Ограничение запроса ограничивает
+   * количество строк таблицы; курсор и смещение запроса не должны быть заданы. Если запрос не
+   * изменился, таблица перечитывается, как в {@link #refresh()}.
+   *
+   * @param query новый запрос
+   */
+  public void setQuery(TaskQuery query) {
+    reload(query, query.equals(this.query));
+  }
+
+  /**
+   * Показывает строки, сохранённые в прошлом сеансе, до загрузки запроса из БД. Таблица содержит
+   * только эти строки и не обращается к БД при отрисовке; следующий {@link #setQuery(TaskQuery)}
+   * с тем же запросом заменяет их только изменившимися строками.
+   *
+   * @param query запрос, результат которого был сохранён
+   * @param rows  первые строки результата
+   */
+  public void showSnapshot(TaskQuery query, List<TaskSummary> rows) {
+    List<TaskSummary> firstPage = rows.subList(0, Math.min(pageSize, rows.size()));
+    this.query = query;
+    rowCount = firstPage.size();
+    pages.clear();
+    stalePages.clear();
+    rowsById.clear();
+    storePage(0, firstPage);
+    fireTableDataChanged();
+  }
+
+  /**
+   * Возвращает загруженные строки первой страницы (например, для сохранения снимка сеанса).
+   *
+   * @return строки первой страницы или пустой список, если она не загружена
+   */
+  public List<TaskSummary> getFirstPage() {
+    List<TaskSummary> rows = pages.get(0);
+    return rows == null ? List.of() : List.copyOf(rows);
+  }
+
+  /**
+   * Перечитывает текущий запрос после изменения задач: количество строк, первая и видимые
+   * страницы загружаются заново, остальные загруженные страницы показываются до повторной
+   * загрузки при отрисовке. Таблица уведомляется только об изменившихся строках, поэтому
+   * выделение сохраняется, а перерисовываются только изменённые строки.
+   */
+  public void refresh() {
+    if (query != null) {
+      reload(query, true);
+    }
+  }
+
+  /**
+   * Загружает в фоне изменения задач с последней загрузки запроса или синхронизации и применяет их
+   * к таблице (см. {@link #applyChanges(Collection, Collection)}). Пока запрос ни разу не загружен
+   * из БД (таблица показывает снимок прошлого сеанса или ещё пуста), ничего не делает: изменения
+   * войдут в первую загрузку запроса. Изменения не применяются, если за время их загрузки был
+   * загружен новый запрос.
+   */
+  public void refreshChanges() {
+    if (syncWatermark == null) {
+      return;
+    }
+    LocalDateTime since = syncWatermark;
+    int ticket = latestReload;
+    load(cancellation, () -> taskService.getTaskChangesSince(since), delta -> {
+      if (delta == null || ticket != latestReload) {
+        return;
+      }
+      syncWatermark = delta.nextWatermark();
+      applyChanges(delta.changed().stream().map(TaskSummary::of).toList(), delta.deletedIds());
+    });
+  }
+
+  /**
+   * Применяет изменения задач к таблице: загруженные строки, положение которых в порядке
+   * сортировки не изменилось, заменяются на месте; если изменение добавляет, удаляет или
+   * перемещает строки, таблица перечитывается один раз на все изменения ({@link #refresh()}).
+   *
+   * @param changed    краткие представления добавленных или изменённых задач
+   * @param deletedIds идентификаторы удалённых задач
+   */
+  public void applyChanges(Collection<TaskSummary> changed, Collection<Integer> deletedIds) {
+    boolean structural = !deletedIds.isEmpty();
+    for (TaskSummary task : changed) {
+      if (!updateTask(task)) {
+        structural = true;
+      }
+    }
+    if (structural) {
+      refresh();
+    }
+  }
+
+  /**
+   * Задаёт слушателя, которому сообщается о начале фоновой загрузки ({@code true}) и о завершении
+   * всех загрузок ({@code false}), например для индикатора загрузки.
+   *
+   * @param loadingListener слушатель, вызываемый в потоке обработки событий
+   */
+  public void setLoadingListener(Consumer<Boolean> loadingListener) {
+    this.loadingListener = loadingListener;
+  }
+
+  /**
+   * Возвращает текущий запрос таблицы.
+   *
+   * @return запрос или {@code null}, если он ещё не задан
+   */
+  public TaskQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * Заменяет загруженную строку задачи, если её положение в порядке сортировки не изменилось.
+   * Строка находится по индексу идентификаторов загруженных строк за постоянное время.
+   *
+   * @param task новое краткое представление задачи
+   * @return {@code true}, если строка была заменена; иначе таблицу следует перечитать
+   * ({@link #refresh()})
+   */
+  public boolean updateTask(TaskSummary task) {
+    Integer row = rowsById.get(task.id());
+    if (query == null || row == null || !query.matchesExceptText(task)) {
+      return false;
+    }
+    List<TaskSummary> rows = pages.get(row / pageSize);
+    int index = row % pageSize;
+    if (query.summaryOrder().compare(rows.get(index), task) != 0) {
+      return false;
+    }
+    rows.set(index, task);
+    fireTableRowsUpdated(row, row);
+    return true;
+  }
+
+  /**
+   * Возвращает краткое представление задачи по индексу строки. Если страница строки не загружена,
+   * запрашивает её загрузку.
+   *
+   * @param rowIndex индекс строки в модели
+   * @return краткое представление задачи или {@code null}, если страница ещё загружается
+   */
+  public TaskSummary getTaskAt(int rowIndex) {
+    int page = rowIndex / pageSize;
+    List<TaskSummary> rows = pages.get(page);
+    if (rows == null || stalePages.contains(page)) {
+      wantedPage = page;
+      requestPage(page);
+    }
+    if (page != lastViewedPage) {
+      scrollStep = page > lastViewedPage ? 1 : -1;
+      lastViewedPage = page;
+      prefetch(page);
+    }
+    int index = rowIndex - page * pageSize;
+    return rows != null && index < rows.size() ? rows.get(index) : null;
+  }
+
+  /**
+   * Возвращает количество загруженных страниц.
+   *
+   * @return количество страниц в памяти
+   */
+  int loadedPages() {
+    return pages.size();
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return TaskTableModel.COLUMNS.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return TaskTableModel.COLUMNS[column];
+  }
+
+  /**
+   * Возвращает значение ячейки; для строк незагруженной страницы — {@code null}.
+   *
+   * @param rowIndex    индекс строки
+   * @param columnIndex индекс столбца
+   * @return значение ячейки
+   */
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    TaskSummary task = getTaskAt(rowIndex);
+    return task == null ? null : TaskTableModel.cellValue(task, columnIndex);
+  }
+
+  /**
+   * Загружает в фоне количество строк и первую страницу запроса и применяет их в потоке обработки
+   * событий, если за это время не был запрошен другой запрос. Отметка для синхронизации изменений
+   * берётся до чтения строк, поэтому изменения, сделанные во время загрузки, не пропускаются.
+   * Запросы предыдущей загрузки и её страниц больше не нужны и отменяются.
+   */
+  private void reload(TaskQuery newQuery, boolean keepRows) {
+    int ticket = ++latestReload;
+    if (cancellation != null) {
+      cancellation.cancel();
+    }
+    cancellation = new QueryCancellation();
+    load(cancellation, () -> {
+      LocalDateTime watermark = taskService.getSyncWatermark();
+      long count = taskService.countTasks(newQuery);
+      int rows = (int) Math.min(newQuery.limit() > 0 ? newQuery.limit() : Integer.MAX_VALUE,
+          count);
+      List<TaskSummary> firstPage = rows == 0 ? List.of()
+          : taskService.findTaskSummaries(newQuery.toBuilder()
+              .limit(Math.min(pageSize, rows))
+              .build());
+      return new FirstPage(rows, firstPage, watermark);
+    }, loaded -> {
+      if (loaded != null && ticket == latestReload) {
+        syncWatermark = loaded.watermark();
+        applyReload(newQuery, loaded.rowCount(), loaded.rows(), keepRows);
+      }
+    });
+  }
+
+  private void applyReload(TaskQuery newQuery, int rows, List<TaskSummary> firstPage,
+      boolean keepRows) {
+    int oldRowCount = rowCount;
+    query = newQuery;
+    rowCount = rows;
+    generation++;
+    pageEnds.clear();
+    requestedPages.clear();
+    if (!keepRows) {
+      pages.clear();
+      stalePages.clear();
+      rowsById.clear();
+      lastViewedPage = 0;
+      storePage(0, firstPage);
+      fireTableDataChanged();
+      return;
+    }
+    stalePages.addAll(pages.keySet());
+    // Страницы за новой последней строкой больше не существуют
+    pages.entrySet().removeIf(page -> {
+      if (page.getKey() * pageSize < rowCount) {
+        return false;
+      }
+      stalePages.remove(page.getKey());
+      unindex(page.getKey(), page.getValue());
+      return true;
+    });
+    if (rowCount > oldRowCount) {
+      fireTableRowsInserted(oldRowCount, rowCount - 1);
+    } else if (rowCount < oldRowCount) {
+      fireTableRowsDeleted(rowCount, oldRowCount - 1);
+    }
+    fireChangedRows(0, storePage(0, firstPage), firstPage);
+    // Видимые страницы перечитываются сразу, остальные — при отрисовке
+    for (int page = lastViewedPage - 1; page <= lastViewedPage + 1; page++) {
+      if (stalePages.contains(page)) {
+        requestPage(page);
+      }
+    }
+  }
+
+  /**
+   * Запрашивает фоновую загрузку страницы, если она существует, не загружена и ещё не
+   * запрошена. Загрузка пропускается, если к моменту её начала таблица прокручена далеко от
+   * страницы.
+   */
+  private void requestPage(int page) {
+    int start = page * pageSize;
+    if (query == null || page < 0 || start >= rowCount
+        || (pages.containsKey(page) && !stalePages.contains(page))
+        || !requestedPages.add(page)) {
+      return;
+    }
+    TaskQuery.Builder pageQuery = query.toBuilder().limit(Math.min(pageSize, rowCount - start));
+    TaskQuery.Cursor cursor = page == 0 ? null : pageEnds.get(page - 1);
+    if (cursor != null) {
+      pageQuery.after(cursor);
+    } else {
+      pageQuery.offset(start);
+    }
+    TaskQuery request = pageQuery.build();
+    int requestGeneration = generation;
+    load(cancellation, () -> Math.abs(page - wantedPage) <= maxPages / 2
+        ? taskService.findTaskSummaries(request)
+        : null, loaded -> {
+      if (requestGeneration != generation) {
+        return;
+      }
+      requestedPages.remove(page);
+      if (loaded != null) {
+        fireChangedRows(start, storePage(page, loaded), loaded);
+        prefetch(page);
+      }
+    });
+  }
+
+  /**
+   * Выполняет загрузку в фоновом потоке с признаком отмены и передаёт результат в поток обработки
+   * событий. Отменённая или завершившаяся ошибкой загрузка передаёт {@code null}.
+   *
+   * @param loadCancellation признак отмены загрузки
+   * @param load             загрузка
+   * @param onLoaded         обработка результата в потоке обработки событий
+   * @param <T>              тип результата
+   */
+  private <T> void load(QueryCancellation loadCancellation, Callable<T> load,
+      Consumer<T> onLoaded) {
+    if (pendingLoads++ == 0) {
+      loadingListener.accept(true);
+    }
+    loader.execute(() -> {
+      T result = null;
+      if (!loadCancellation.isCancelled()) {
+        try {
+          result = loadCancellation.call(load);
+        } catch (Exception e) {
+          if (!loadCancellation.isCancelled()) {
+            LOG.error("Ошибка загрузки задач", e);
+          }
+        }
+      }
+      T loaded = result;
+      SwingUtilities.invokeLater(() -> {
+        if (--pendingLoads == 0) {
+          loadingListener.accept(false);
+        }
+        onLoaded.accept(loaded);
+      });
+    });
+  }
+
+  /**
+   * Запрашивает страницу, следующую за указанной в направлении прокрутки, если она в пределах
+   * упреждения от видимой. Следующие страницы запрашиваются после загрузки предыдущих, поэтому
+   * загружаются по курсору, а не со смещением.
+   */
+  private void prefetch(int page) {
+    int next = page + scrollStep;
+    if (Math.abs(next - lastViewedPage) <= prefetchPages) {
+      requestPage(next);
+    }
+  }
+
+  /**
+   * Сохраняет страницу в окне, обновляет индекс идентификаторов и запоминает курсор её последней
+   * строки для загрузки следующей страницы.
+   *
+   * @return строки, которые страница содержала до загрузки, или {@code null}
+   */
+  private List<TaskSummary> storePage(int page, List<TaskSummary> rows) {
+    stalePages.remove(page);
+    List<TaskSummary> previous = pages.put(page, new ArrayList<>(rows));
+    if (previous != null) {
+      unindex(page, previous);
+    }
+    for (int i = 0; i < rows.size(); i++) {
+      rowsById.put(rows.get(i).id(), page * pageSize + i);
+    }
+    if (!rows.isEmpty() && query.sortKey() != TaskQuery.SortKey.RELEVANCE) {
+      pageEnds.put(page, query.after(rows.get(rows.size() - 1)).cursor());
+    }
+    return previous;
+  }
+
+  /**
+   * Удаляет из индекса идентификаторов строки страницы, если они ещё указывают на неё (после
+   * перечитывания задача могла переместиться на другую страницу).
+   */
+  private void unindex(int page, List<TaskSummary> rows) {
+    for (int i = 0; i < rows.size(); i++) {
+      rowsById.remove(rows.get(i).id(), page * pageSize + i);
+    }
+  }
+
+  /**
+   * Уведомляет таблицу о строках страницы, которые отличаются от показанных ранее. Строки ранее
+   * не загруженной страницы показывались пустыми и обновляются все.
+   */
+  private void fireChangedRows(int start, List<TaskSummary> previous, List<TaskSummary> rows) {
+    int end = Math.min(rowCount, start + pageSize);
+    if (previous == null) {
+      if (end > start) {
+        fireTableRowsUpdated(start, end - 1);
+      }
+      return;
+    }
+    for (int row = start; row < end; row++) {
+      if (!Objects.equals(rowAt(previous, row - start), rowAt(rows, row - start))) {
+        int last = row;
+        while (last + 1 < end
+            && !Objects.equals(rowAt(previous, last + 1 - start), rowAt(rows, last + 1 - start))) {
+          last++;
+        }
+        fireTableRowsUpdated(row, last);
+        row = last;
+      }
+    }
+  }
+
+  private static TaskSummary rowAt(List<TaskSummary> rows, int index) {
+    return index < rows.size() ? rows.get(index) : null;
+  }
+
+  /**
+   * Количество строк запроса, его первая страница и отметка синхронизации перед их чтением.
+   */
+  private record FirstPage(int rowCount, List<TaskSummary> rows, LocalDateTime watermark) {
+
+  }
+}
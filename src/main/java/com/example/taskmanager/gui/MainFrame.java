@@ -1,40 +1,148 @@
 package com.example.taskmanager.gui;
 
-import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.entity.TaskQuery;
 import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
 import com.example.taskmanager.service.TaskService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
-import javax.swing.table.TableRowSorter;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.RowSorterEvent;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Главное окно приложения для управления задачами. Содержит таблицу задач, панель фильтрации/поиска
  * и кнопки для добавления, редактирования и удаления задач.
+ * <p>
+ * Фильтр по статусу, строка поиска и сортировка по столбцу применяются совместно: таблица
+ * загружается одним составным запросом ({@link TaskQuery}), который отбирает и сортирует задачи в
+ * БД. Строки загружаются страницами по мере прокрутки ({@link LazyTaskTableModel}), поэтому окно
+ * открывается и прокручивается одинаково быстро при любом количестве задач.
+ * </p>
+ * <p>
+ * Все обращения к БД выполняются вне потока обработки событий; пока они выполняются, показывается
+ * индикатор загрузки. Строка поиска применяется по мере ввода с задержкой: запрос отправляется,
+ * когда ввод приостановлен, а запрос по предыдущему вводу отменяется.
+ * </p>
+ * <p>
+ * Окно можно показать до готовности подключения к БД: при закрытии окна фильтры и первая страница
+ * таблицы сохраняются в снимок сеанса ({@link SessionSnapshot}), при следующем запуске окно сразу
+ * показывает их, а задачи загружаются из БД после вызова {@link #startLoading()}.
+ * </p>
  *
  * @author Shebeta N.I.
  */
 public class MainFrame extends JFrame {
 
+  private static final Logger LOG = LoggerFactory.getLogger(MainFrame.class);
+
+  /**
+   * Максимальное количество наиболее релевантных задач, показываемых по результатам поиска.
+   */
+  private static final int SEARCH_RESULT_LIMIT = 500;
+
+  /**
+   * Задержка поиска после последнего изменения строки поиска, мс.
+   */
+  private static final int SEARCH_DEBOUNCE_MILLIS =
+      DatabaseConnection.getIntProperty("gui.searchDebounceMillis", 300);
+
+  /**
+   * Поле сортировки для каждого столбца таблицы (столбец описания не сортируется).
+   */
+  private static final TaskQuery.SortKey[] SORT_KEYS = {TaskQuery.SortKey.ID,
+      TaskQuery.SortKey.TITLE, null, TaskQuery.SortKey.STATUS, TaskQuery.SortKey.CREATED_AT,
+      TaskQuery.SortKey.UPDATED_AT};
+
   private final TaskService taskService;
   private JTable taskTable;
-  private TaskTableModel tableModel;
+  private LazyTaskTableModel tableModel;
+  private DatabaseRowSorter<LazyTaskTableModel> sorter;
   private JComboBox<String> statusFilterCombo;
   private JTextField searchField;
+  private JProgressBar progressBar;
+  private Timer searchDebounce;
+  private int runningTasks;
+  private TaskQuery requestedQuery;
+  private boolean started;
+  private Runnable firstPaintAction;
 
   /**
-   * Создаёт главное окно и инициализирует компоненты.
+   * Создаёт главное окно, инициализирует компоненты и начинает загрузку задач.
    *
    * @param taskService сервис для работы с задачами (не может быть null)
    */
   public MainFrame(TaskService taskService) {
+    this(taskService, null);
+    startLoading();
+  }
+
+  /**
+   * Создаёт главное окно, которое до вызова {@link #startLoading()} не обращается к БД и
+   * показывает снимок прошлого сеанса, если он есть.
+   *
+   * @param taskService сервис для работы с задачами (не может быть null)
+   * @param sessionFile файл снимка сеанса, сохраняемого при закрытии окна, или {@code null}
+   */
+  public MainFrame(TaskService taskService, Path sessionFile) {
     this.taskService = taskService;
     initComponents();
-    loadAllTasks();
+    if (sessionFile != null) {
+      restoreSession(sessionFile);
+      addWindowListener(new WindowAdapter() {
+        @Override
+        public void windowClosing(WindowEvent e) {
+          saveSession(sessionFile);
+        }
+      });
+    }
     setLocationRelativeTo(null);
   }
 
+  /**
+   * Начинает загрузку задач из БД: таблица загружает выбранный запрос, заменяя снимок прошлого
+   * сеанса.
+   */
+  public void startLoading() {
+    started = true;
+    reloadTasks();
+  }
+
+  /**
+   * Задаёт действие, выполняемое один раз после первой отрисовки окна (например, для измерения
+   * времени запуска).
+   *
+   * @param action действие, вызываемое в потоке обработки событий
+   */
+  public void whenFirstPainted(Runnable action) {
+    firstPaintAction = action;
+  }
+
+  @Override
+  public void paint(Graphics g) {
+    super.paint(g);
+    if (firstPaintAction != null) {
+      Runnable action = firstPaintAction;
+      firstPaintAction = null;
+      action.run();
+    }
+  }
+
   /**
    * Инициализирует графические компоненты: таблицу, панели фильтрации и кнопок.
    */
@@ -45,14 +153,21 @@ public class MainFrame extends JFrame {
     setLayout(new BorderLayout());
 
     // Создание таблицы
-    tableModel = new TaskTableModel(List.of());
+    tableModel = new LazyTaskTableModel(taskService);
+    tableModel.setLoadingListener(this::setBusy);
     taskTable = new JTable(tableModel);
     taskTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
     taskTable.setRowHeight(28);
     taskTable.getTableHeader().setReorderingAllowed(false);
 
-    // Сортировка по столбцам
-    TableRowSorter<TaskTableModel> sorter = new TableRowSorter<>(tableModel);
+    // Сортировка по столбцам выполняется в БД; по описанию (в таблице только его начало) — нет
+    sorter = new DatabaseRowSorter<>(tableModel,
+        new boolean[]{true, true, false, true, true, true});
+    sorter.addRowSorterListener(e -> {
+      if (e.getType() == RowSorterEvent.Type.SORT_ORDER_CHANGED) {
+        reloadTasks();
+      }
+    });
     taskTable.setRowSorter(sorter);
 
     JScrollPane scrollPane = new JScrollPane(taskTable);
@@ -63,17 +178,47 @@ public class MainFrame extends JFrame {
     topPanel.add(new JLabel("Статус:"));
 
     statusFilterCombo = new JComboBox<>(new String[]{"Все", "TODO", "IN_PROGRESS", "DONE"});
-    statusFilterCombo.addActionListener(e -> applyFilter());
+    statusFilterCombo.addActionListener(e -> reloadTasks());
     topPanel.add(statusFilterCombo);
 
     topPanel.add(new JLabel("Поиск:"));
     searchField = new JTextField(15);
+    searchField.addActionListener(e -> reloadTasks());
     topPanel.add(searchField);
 
+    // Поиск по мере ввода: запрос отправляется после паузы во вводе
+    searchDebounce = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> {
+      if (!buildQuery().equals(requestedQuery)) {
+        reloadTasks();
+      }
+    });
+    searchDebounce.setRepeats(false);
+    searchField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        searchDebounce.restart();
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        searchDebounce.restart();
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        searchDebounce.restart();
+      }
+    });
+
     JButton searchButton = new JButton("Найти");
-    searchButton.addActionListener(e -> searchTasks());
+    searchButton.addActionListener(e -> reloadTasks());
     topPanel.add(searchButton);
 
+    progressBar = new JProgressBar();
+    progressBar.setIndeterminate(true);
+    progressBar.setVisible(false);
+    topPanel.add(progressBar);
+
     add(topPanel, BorderLayout.NORTH);
 
     add(createButtonPanel(), BorderLayout.SOUTH);
@@ -101,41 +246,131 @@ public class MainFrame extends JFrame {
   }
 
   /**
-   * Загружает все задачи из сервиса и обновляет таблицу. Сбрасывает фильтр на "Все".
+   * Показывает задачи, удовлетворяющие выбранному статусу и строке поиска, в выбранном порядке
+   * сортировки. Без строки поиска показываются все подходящие задачи, со строкой поиска — не более
+   * {@link #SEARCH_RESULT_LIMIT} задач, по умолчанию наиболее релевантные.
+   */
+  private void reloadTasks() {
+    searchDebounce.stop();
+    requestedQuery = buildQuery();
+    if (!started) {
+      return;
+    }
+    tableModel.setQuery(requestedQuery);
+  }
+
+  /**
+   * Восстанавливает фильтры и показывает строки из снимка прошлого сеанса. Повреждённый снимок
+   * пропускается.
    */
-  private void loadAllTasks() {
-    List<Task> tasks = taskService.getAllTasks();
-    tableModel.setTasks(tasks);
-    statusFilterCombo.setSelectedIndex(0);
+  private void restoreSession(Path sessionFile) {
+    try {
+      SessionSnapshot.read(sessionFile).ifPresent(session -> {
+        statusFilterCombo.setSelectedItem(session.statusFilter());
+        searchField.setText(session.searchText());
+        reloadTasks();
+        tableModel.showSnapshot(requestedQuery, session.rows());
+      });
+    } catch (IOException e) {
+      LOG.warn("Не удалось прочитать снимок сеанса", e);
+    }
+  }
+
+  private void saveSession(Path sessionFile) {
+    try {
+      new SessionSnapshot((String) statusFilterCombo.getSelectedItem(), searchField.getText(),
+          tableModel.getFirstPage()).write(sessionFile);
+    } catch (IOException e) {
+      LOG.warn("Не удалось сохранить снимок сеанса", e);
+    }
   }
 
   /**
-   * Применяет выбранный фильтр по статусу. Если выбран пункт "Все", загружаются все задачи, иначе —
-   * задачи с указанным статусом.
+   * Составляет запрос из выбранного статуса, строки поиска и ключа сортировки таблицы.
+   *
+   * @return запрос для загрузки таблицы
    */
-  private void applyFilter() {
+  private TaskQuery buildQuery() {
+    TaskQuery.Builder query = TaskQuery.builder();
     String selected = (String) statusFilterCombo.getSelectedItem();
-    if ("Все".equals(selected)) {
-      loadAllTasks();
-    } else {
-      TaskStatus status = TaskStatus.valueOf(selected);
-      List<Task> tasks = taskService.getTasksByStatus(status);
-      tableModel.setTasks(tasks);
+    if (!"Все".equals(selected)) {
+      query.statuses(TaskStatus.valueOf(selected));
     }
+    String text = searchField.getText().trim();
+    query.text(text);
+    if (!text.isEmpty()) {
+      query.limit(SEARCH_RESULT_LIMIT);
+    }
+    RowSorter.SortKey sortKey = sorter.getSortKey();
+    if (sortKey != null) {
+      query.sortBy(SORT_KEYS[sortKey.getColumn()], sortKey.getSortOrder() == SortOrder.DESCENDING
+          ? TaskQuery.Direction.DESC
+          : TaskQuery.Direction.ASC);
+    } else if (!text.isEmpty()) {
+      query.sortBy(TaskQuery.SortKey.RELEVANCE, TaskQuery.Direction.ASC);
+    }
+    return query.build();
   }
 
   /**
-   * Выполняет поиск задач по подстроке в заголовке или описании. Если строка поиска пуста,
-   * загружает все задачи.
+   * Выполняет обращение к сервису в фоновом потоке, показывая индикатор загрузки, и передаёт
+   * результат в поток обработки событий; ошибка показывается сообщением.
+   *
+   * @param call      обращение к сервису
+   * @param onSuccess обработка результата
+   * @param <T>       тип результата
    */
-  private void searchTasks() {
-    String query = searchField.getText().trim();
-    if (query.isEmpty()) {
-      loadAllTasks();
-    } else {
-      List<Task> tasks = taskService.searchTasks(query);
-      tableModel.setTasks(tasks);
+  private <T> void runInBackground(Callable<T> call, Consumer<T> onSuccess) {
+    setBusy(true);
+    BackgroundTasks.execute(call, result -> {
+      setBusy(false);
+      onSuccess.accept(result);
+    }, error -> {
+      setBusy(false);
+      JOptionPane.showMessageDialog(this,
+          "Ошибка обращения к базе данных:\n" + error.getMessage(),
+          "Ошибка",
+          JOptionPane.ERROR_MESSAGE);
+    });
+  }
+
+  /**
+   * Учитывает начало или завершение фонового обращения к БД и показывает индикатор загрузки,
+   * пока выполняется хотя бы одно.
+   *
+   * @param busy {@code true} при начале обращения, {@code false} при завершении
+   */
+  private void setBusy(boolean busy) {
+    runningTasks += busy ? 1 : -1;
+    progressBar.setVisible(runningTasks > 0);
+  }
+
+  /**
+   * Применяет к таблице изменения задач, сделанные другими клиентами. Вызывается в потоке
+   * {@link com.example.taskmanager.db.TaskChangeListener}: изменённые задачи загружаются в нём же,
+   * а в потоке обработки событий обновляются только затронутые строки. Событие
+   * {@link TaskChangeEvent.Operation#RELOAD} перезагружает текущее представление целиком.
+   *
+   * @param events события об изменении задач
+   */
+  public void applyRemoteChanges(List<TaskChangeEvent> events) {
+    List<TaskSummary> changed = new ArrayList<>(events.size());
+    List<Integer> deletedIds = new ArrayList<>();
+    for (TaskChangeEvent event : events) {
+      if (event.operation() == TaskChangeEvent.Operation.RELOAD) {
+        SwingUtilities.invokeLater(this::reloadTasks);
+        return;
+      }
+      Optional<TaskSummary> summary = event.operation() == TaskChangeEvent.Operation.DELETE
+          ? Optional.empty()
+          : taskService.getTask(event.taskId()).map(TaskSummary::of);
+      if (summary.isPresent()) {
+        changed.add(summary.get());
+      } else {
+        deletedIds.add(event.taskId());
+      }
     }
+    SwingUtilities.invokeLater(() -> tableModel.applyChanges(changed, deletedIds));
   }
 
   /**
@@ -144,12 +379,13 @@ public class MainFrame extends JFrame {
   private void openAddDialog() {
     TaskDialog dialog = new TaskDialog(this, "Добавление задачи", taskService);
     dialog.setVisible(true);
-    loadAllTasks(); // обновляем таблицу после закрытия диалога
+    tableModel.refreshChanges(); // обновляем таблицу после закрытия диалога
   }
 
   /**
-   * Открывает диалог для редактирования выбранной задачи. Если задача не выбрана, показывает
-   * предупреждение.
+   * Открывает диалог для редактирования выбранной задачи. Таблица содержит только краткие
+   * представления, поэтому полная задача (с полным описанием) загружается по идентификатору. Если
+   * задача не выбрана или уже удалена, показывает предупреждение.
    */
   private void openEditDialog() {
     int selectedRow = taskTable.getSelectedRow();
@@ -161,10 +397,23 @@ public class MainFrame extends JFrame {
       return;
     }
     int modelRow = taskTable.convertRowIndexToModel(selectedRow);
-    Task task = tableModel.getTaskAt(modelRow);
-    TaskDialog dialog = new TaskDialog(this, "Редактирование задачи", taskService, task);
-    dialog.setVisible(true);
-    loadAllTasks();
+    TaskSummary summary = tableModel.getTaskAt(modelRow);
+    if (summary == null) {
+      return; // строка ещё загружается
+    }
+    runInBackground(() -> taskService.getTask(summary.id()), task -> {
+      if (task.isEmpty()) {
+        JOptionPane.showMessageDialog(this,
+            "Задача не найдена: возможно, она была удалена",
+            "Ошибка",
+            JOptionPane.WARNING_MESSAGE);
+        tableModel.refreshChanges();
+        return;
+      }
+      TaskDialog dialog = new TaskDialog(this, "Редактирование задачи", taskService, task.get());
+      dialog.setVisible(true);
+      tableModel.refreshChanges();
+    });
   }
 
   /**
@@ -181,15 +430,20 @@ public class MainFrame extends JFrame {
       return;
     }
     int modelRow = taskTable.convertRowIndexToModel(selectedRow);
-    Task task = tableModel.getTaskAt(modelRow);
+    TaskSummary task = tableModel.getTaskAt(modelRow);
+    if (task == null) {
+      return; // строка ещё загружается
+    }
 
     int confirm = JOptionPane.showConfirmDialog(this,
-        "Удалить задачу \"" + task.getTitle() + "\"?",
+        "Удалить задачу \"" + task.title() + "\"?",
         "Подтверждение удаления",
         JOptionPane.YES_NO_OPTION);
     if (confirm == JOptionPane.YES_OPTION) {
-      taskService.deleteTask(task.getId());
-      loadAllTasks();
+      runInBackground(() -> {
+        taskService.deleteTask(task.id());
+        return null;
+      }, ignored -> tableModel.refreshChanges());
     }
   }
-}
\ No newline at end of file
+}
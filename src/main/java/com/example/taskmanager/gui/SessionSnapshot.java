@@ -0,0 +1,109 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Снимок главного окна, сохраняемый при его закрытии: выбранный статус, строка поиска и первая
+ * страница таблицы. При следующем запуске окно сразу показывает эти строки, а задачи из БД
+ * загружаются, когда подключение к ней готово, и заменяют снимок только изменившимися строками.
+ *
+ * @param statusFilter выбранный элемент фильтра по статусу
+ * @param searchText   строка поиска
+ * @param rows         первая страница таблицы
+ * @author Shebeta N.I.
+ */
+record SessionSnapshot(String statusFilter, String searchText, List<TaskSummary> rows) {
+
+  private static final int MAGIC = 0x53534D54; // "TMSS"
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Читает снимок из файла.
+   *
+   * @param file путь к файлу
+   * @return снимок или пустое значение, если файла нет
+   * @throws IOException если файл не читается или имеет неизвестный формат
+   */
+  static Optional<SessionSnapshot> read(Path file) throws IOException {
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+        throw new IOException("Неизвестный формат снимка сеанса: " + file);
+      }
+      String statusFilter = input.readUTF();
+      String searchText = input.readUTF();
+      int count = input.readInt();
+      List<TaskSummary> rows = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int id = input.readInt();
+        String title = input.readUTF();
+        String snippet = input.readBoolean() ? input.readUTF() : null;
+        boolean truncated = input.readBoolean();
+        TaskStatus status = TaskStatus.valueOf(input.readUTF());
+        LocalDateTime createdAt = LocalDateTime.parse(input.readUTF());
+        LocalDateTime updatedAt = LocalDateTime.parse(input.readUTF());
+        rows.add(new TaskSummary(id, title, snippet, truncated, status, createdAt, updatedAt));
+      }
+      return Optional.of(new SessionSnapshot(statusFilter, searchText, rows));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IOException("Повреждённый снимок сеанса: " + file, e);
+    }
+  }
+
+  /**
+   * Записывает снимок во временный файл и заменяет им прежний, поэтому прерванная запись не
+   * портит снимок предыдущего сеанса.
+   *
+   * @param file путь к файлу (каталоги создаются при необходимости)
+   * @throws IOException при ошибке записи
+   */
+  void write(Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(statusFilter);
+        output.writeUTF(searchText);
+        output.writeInt(rows.size());
+        for (TaskSummary row : rows) {
+          output.writeInt(row.id());
+          output.writeUTF(row.title());
+          output.writeBoolean(row.descriptionSnippet() != null);
+          if (row.descriptionSnippet() != null) {
+            output.writeUTF(row.descriptionSnippet());
+          }
+          output.writeBoolean(row.descriptionTruncated());
+          output.writeUTF(row.status().name());
+          output.writeUTF(row.createdAt().toString());
+          output.writeUTF(row.updatedAt().toString());
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
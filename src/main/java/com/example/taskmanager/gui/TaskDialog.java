@@ -2,11 +2,13 @@ package com.example.taskmanager.gui;
 
 import com.example.taskmanager.entity.Task;
 import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.OptimisticLockException;
 import com.example.taskmanager.exception.ValidationException;
 import com.example.taskmanager.service.TaskService;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.Optional;
 
 /**
  * Диалоговое окно для создания или редактирования задачи. Содержит поля для ввода заголовка,
@@ -21,6 +23,8 @@ public class TaskDialog extends JDialog {
   private JTextField titleField;
   private JTextArea descriptionArea;
   private JComboBox<TaskStatus> statusCombo;
+  private JButton saveButton;
+  private JButton cancelButton;
 
   /**
    * Конструктор для создания новой задачи.
@@ -101,8 +105,8 @@ public class TaskDialog extends JDialog {
 
     // Панель кнопок
     JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
-    JButton saveButton = new JButton("Сохранить");
-    JButton cancelButton = new JButton("Отмена");
+    saveButton = new JButton("Сохранить");
+    cancelButton = new JButton("Отмена");
 
     saveButton.addActionListener(e -> saveTask());
     cancelButton.addActionListener(e -> dispose());
@@ -122,34 +126,110 @@ public class TaskDialog extends JDialog {
   }
 
   /**
-   * Сохраняет задачу (новую или обновлённую). Валидирует данные через сервис и обрабатывает
-   * возможные исключения.
+   * Сохраняет задачу (новую или обновлённую) в фоновом потоке; на время сохранения кнопки диалога
+   * недоступны. Валидирует данные через сервис и обрабатывает возможные исключения, в том числе
+   * конфликт с изменениями другого пользователя.
    */
   private void saveTask() {
     String title = titleField.getText().trim();
     String description = descriptionArea.getText().trim();
     TaskStatus status = (TaskStatus) statusCombo.getSelectedItem();
+    if (taskToEdit != null) {
+      taskToEdit.setTitle(title);
+      taskToEdit.setDescription(description);
+      taskToEdit.setStatus(status);
+    }
 
-    try {
-      if (taskToEdit == null) {
-        taskService.createTask(title, description, status);
+    setSaving(true);
+    BackgroundTasks.execute(() -> taskToEdit == null
+        ? taskService.createTask(title, description, status)
+        : taskService.updateTask(taskToEdit), saved -> {
+      setSaving(false);
+      dispose(); // закрыть диалог при успехе
+    }, error -> {
+      setSaving(false);
+      if (error instanceof OptimisticLockException) {
+        resolveConflict();
+      } else if (error instanceof ValidationException) {
+        JOptionPane.showMessageDialog(this,
+            "Ошибка валидации:\n" + error.getMessage(),
+            "Некорректные данные",
+            JOptionPane.ERROR_MESSAGE);
       } else {
-        taskToEdit.setTitle(title);
-        taskToEdit.setDescription(description);
-        taskToEdit.setStatus(status);
-        taskService.updateTask(taskToEdit);
+        JOptionPane.showMessageDialog(this,
+            "Ошибка при сохранении:\n" + error.getMessage(),
+            "Ошибка",
+            JOptionPane.ERROR_MESSAGE);
       }
-      dispose(); // закрыть диалог при успехе
-    } catch (ValidationException ex) {
-      JOptionPane.showMessageDialog(this,
-          "Ошибка валидации:\n" + ex.getMessage(),
-          "Некорректные данные",
-          JOptionPane.ERROR_MESSAGE);
-    } catch (Exception ex) {
+    });
+  }
+
+  /**
+   * Делает кнопки диалога недоступными и показывает курсор ожидания на время сохранения.
+   *
+   * @param saving {@code true} на время сохранения
+   */
+  private void setSaving(boolean saving) {
+    saveButton.setEnabled(!saving);
+    cancelButton.setEnabled(!saving);
+    setCursor(saving ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+  }
+
+  /**
+   * Обрабатывает конфликт версий: задача была изменена или удалена другим пользователем после
+   * открытия диалога. Актуальная версия загружается в фоновом потоке, затем пользователь может
+   * загрузить её в диалог (его изменения теряются) или сохранить свои изменения поверх неё.
+   */
+  private void resolveConflict() {
+    setSaving(true);
+    BackgroundTasks.execute(() -> taskService.getTask(taskToEdit.getId()), current -> {
+      setSaving(false);
+      resolveConflict(current);
+    }, error -> {
+      setSaving(false);
       JOptionPane.showMessageDialog(this,
-          "Ошибка при сохранении:\n" + ex.getMessage(),
+          "Ошибка при загрузке задачи:\n" + error.getMessage(),
           "Ошибка",
           JOptionPane.ERROR_MESSAGE);
+    });
+  }
+
+  /**
+   * Предлагает пользователю способ разрешения конфликта версий.
+   *
+   * @param current актуальная версия задачи или пустой {@code Optional}, если задача удалена
+   */
+  private void resolveConflict(Optional<Task> current) {
+    if (current.isEmpty()) {
+      JOptionPane.showMessageDialog(this,
+          "Задача была удалена другим пользователем",
+          "Конфликт изменений",
+          JOptionPane.WARNING_MESSAGE);
+      dispose();
+      return;
+    }
+    Object[] options = {"Загрузить актуальную", "Перезаписать", "Отмена"};
+    int choice = JOptionPane.showOptionDialog(this,
+        "Задача была изменена другим пользователем после открытия диалога.\n"
+            + "Загрузить актуальную версию (ваши изменения будут потеряны)\n"
+            + "или перезаписать её вашими изменениями?",
+        "Конфликт изменений",
+        JOptionPane.YES_NO_CANCEL_OPTION,
+        JOptionPane.WARNING_MESSAGE,
+        null,
+        options,
+        options[0]);
+    Task latest = current.get();
+    if (choice == JOptionPane.YES_OPTION) {
+      taskToEdit.setTitle(latest.getTitle());
+      taskToEdit.setDescription(latest.getDescription());
+      taskToEdit.setStatus(latest.getStatus());
+      taskToEdit.setUpdatedAt(latest.getUpdatedAt());
+      taskToEdit.setVersion(latest.getVersion());
+      fillFields();
+    } else if (choice == JOptionPane.NO_OPTION) {
+      taskToEdit.setVersion(latest.getVersion());
+      saveTask();
     }
   }
 }
\ No newline at end of file
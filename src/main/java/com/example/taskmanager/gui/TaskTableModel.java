@@ -1,24 +1,44 @@
 package com.example.taskmanager.gui;
 
-import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskSummary;
 
 import javax.swing.JTable;
 import javax.swing.table.AbstractTableModel;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Модель таблицы для отображения списка задач в {@link JTable}. Содержит шесть столбцов: ID,
- * заголовок, описание, статус, дата создания, дата обновления. Даты форматируются по шаблону
- * "yyyy-MM-dd HH:mm".
+ * заголовок, описание, статус, дата создания, дата обновления. Строки хранятся в виде
+ * {@link TaskSummary}, поэтому в столбце описания показывается только его начало (обрезанное
+ * описание завершается многоточием). Даты форматируются по шаблону "yyyy-MM-dd HH:mm".
+ * <p>
+ * Модель хранит индекс строк по идентификаторам задач, поэтому изменение одной задачи находит её
+ * строку за постоянное время и перерисовывает только её.
+ * </p>
  *
  * @author Shebeta N.I.
  */
 public class TaskTableModel extends AbstractTableModel {
 
-  private final String[] columns = {"ID", "Заголовок", "Описание", "Статус", "Создано",
+  /**
+   * Названия столбцов таблицы задач.
+   */
+  static final String[] COLUMNS = {"ID", "Заголовок", "Описание", "Статус", "Создано",
       "Обновлено"};
-  private List<Task> tasks;
+
+  /**
+   * Доля изменённых строк, начиная с которой {@link #setTasks(List)} заменяет данные целиком:
+   * каждая вставка или удаление диапазона сдвигает строки после него, и при множестве диапазонов
+   * одно событие {@code fireTableDataChanged()} дешевле.
+   */
+  private static final int FULL_RELOAD_DIVISOR = 4;
+
+  private final List<TaskSummary> tasks;
+  private final Map<Integer, Integer> rowsById = new HashMap<>();
 
   private static final DateTimeFormatter DATE_TIME_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
@@ -28,27 +48,180 @@ public class TaskTableModel extends AbstractTableModel {
    *
    * @param tasks список задач для отображения
    */
-  public TaskTableModel(List<Task> tasks) {
-    this.tasks = tasks;
+  public TaskTableModel(List<TaskSummary> tasks) {
+    this.tasks = new ArrayList<>(tasks);
+    reindexFrom(0);
+  }
+
+  /**
+   * Заменяет данные модели новым результатом запроса, уведомляя таблицу только об изменившихся
+   * строках: удалённые строки удаляются, новые вставляются, изменённые обновляются, поэтому
+   * выделение и неизменённые строки сохраняются. Если порядок оставшихся задач изменился (другая
+   * сортировка) или изменилась значительная часть строк, данные заменяются целиком.
+   *
+   * @param fresh новый список задач
+   */
+  public void setTasks(List<TaskSummary> fresh) {
+    Map<Integer, Integer> freshRows = new HashMap<>(fresh.size() * 2);
+    for (int row = 0; row < fresh.size(); row++) {
+      freshRows.put(fresh.get(row).id(), row);
+    }
+    int structuralChanges = fresh.size();
+    int previousRow = -1;
+    for (TaskSummary task : tasks) {
+      Integer freshRow = freshRows.get(task.id());
+      if (freshRow == null) {
+        structuralChanges++;
+      } else if (freshRow < previousRow) {
+        structuralChanges = Integer.MAX_VALUE;
+        break;
+      } else {
+        previousRow = freshRow;
+        structuralChanges--;
+      }
+    }
+    if (structuralChanges > Math.max(tasks.size(), fresh.size()) / FULL_RELOAD_DIVISOR) {
+      tasks.clear();
+      tasks.addAll(fresh);
+      rowsById.clear();
+      reindexFrom(0);
+      fireTableDataChanged();
+      return;
+    }
+    int firstMoved = tasks.size();
+    // Удаления — снизу вверх, чтобы индексы строк выше оставались верными
+    for (int end = tasks.size() - 1; end >= 0; end--) {
+      if (!freshRows.containsKey(tasks.get(end).id())) {
+        int start = end;
+        while (start > 0 && !freshRows.containsKey(tasks.get(start - 1).id())) {
+          start--;
+        }
+        for (TaskSummary removed : tasks.subList(start, end + 1)) {
+          rowsById.remove(removed.id());
+        }
+        tasks.subList(start, end + 1).clear();
+        fireTableRowsDeleted(start, end);
+        firstMoved = start;
+        end = start;
+      }
+    }
+    // Вставки — сверху вниз: строки выше уже совпадают с новым результатом
+    for (int start = 0; start < fresh.size(); start++) {
+      if (!rowsById.containsKey(fresh.get(start).id())) {
+        int end = start;
+        while (end + 1 < fresh.size() && !rowsById.containsKey(fresh.get(end + 1).id())) {
+          end++;
+        }
+        tasks.addAll(start, fresh.subList(start, end + 1));
+        fireTableRowsInserted(start, end);
+        firstMoved = Math.min(firstMoved, start);
+        start = end;
+      }
+    }
+    reindexFrom(firstMoved);
+    for (int start = 0; start < fresh.size(); start++) {
+      if (!tasks.get(start).equals(fresh.get(start))) {
+        int end = start;
+        while (end + 1 < fresh.size() && !tasks.get(end + 1).equals(fresh.get(end + 1))) {
+          end++;
+        }
+        for (int row = start; row <= end; row++) {
+          tasks.set(row, fresh.get(row));
+        }
+        fireTableRowsUpdated(start, end);
+        start = end;
+      }
+    }
+  }
+
+  /**
+   * Заменяет строку задачи с тем же идентификатором или добавляет задачу в конец, если такой строки
+   * нет, и уведомляет таблицу только об изменённой строке.
+   *
+   * @param task новое краткое представление задачи
+   */
+  public void upsertTask(TaskSummary task) {
+    if (!updateTask(task)) {
+      insertTask(tasks.size(), task);
+    }
+  }
+
+  /**
+   * Вставляет строку задачи в указанную позицию и уведомляет таблицу только о вставленной строке.
+   *
+   * @param row  индекс новой строки (от 0 до количества строк)
+   * @param task краткое представление задачи, которой ещё нет в модели
+   * @throws IllegalArgumentException если задача уже есть в модели
+   */
+  public void insertTask(int row, TaskSummary task) {
+    if (rowsById.containsKey(task.id())) {
+      throw new IllegalArgumentException("Задача уже есть в таблице: " + task.id());
+    }
+    tasks.add(row, task);
+    reindexFrom(row);
+    fireTableRowsInserted(row, row);
   }
 
   /**
-   * Обновляет данные модели и уведомляет таблицу об изменениях.
+   * Заменяет строку задачи с тем же идентификатором, если она есть в модели. Строка находится по
+   * индексу идентификаторов за постоянное время.
    *
-   * @param tasks новый список задач
+   * @param task новое краткое представление задачи
+   * @return {@code true}, если строка была заменена
    */
-  public void setTasks(List<Task> tasks) {
-    this.tasks = tasks;
-    fireTableDataChanged();
+  public boolean updateTask(TaskSummary task) {
+    int row = indexOf(task.id());
+    if (row < 0) {
+      return false;
+    }
+    tasks.set(row, task);
+    fireTableRowsUpdated(row, row);
+    return true;
   }
 
   /**
-   * Возвращает задачу по индексу строки (в модели, с учётом сортировки/фильтрации).
+   * Удаляет строку задачи, если она есть в модели, и уведомляет таблицу только об удалённой
+   * строке.
+   *
+   * @param id идентификатор задачи
+   */
+  public void removeTask(int id) {
+    Integer row = rowsById.remove(id);
+    if (row != null) {
+      tasks.remove((int) row);
+      reindexFrom(row);
+      fireTableRowsDeleted(row, row);
+    }
+  }
+
+  /**
+   * Возвращает индекс строки задачи в модели.
+   *
+   * @param id идентификатор задачи
+   * @return индекс строки или -1, если задачи нет в модели
+   */
+  public int indexOf(int id) {
+    return rowsById.getOrDefault(id, -1);
+  }
+
+  /**
+   * Обновляет индекс идентификаторов для строк начиная с указанной (после вставки или удаления
+   * строки сдвигаются только строки ниже неё).
+   */
+  private void reindexFrom(int firstRow) {
+    for (int row = firstRow; row < tasks.size(); row++) {
+      rowsById.put(tasks.get(row).id(), row);
+    }
+  }
+
+  /**
+   * Возвращает краткое представление задачи по индексу строки (в модели, с учётом
+   * сортировки/фильтрации).
    *
    * @param rowIndex индекс строки в модели
-   * @return задача, соответствующая указанной строке
+   * @return краткое представление задачи, соответствующей указанной строке
    */
-  public Task getTaskAt(int rowIndex) {
+  public TaskSummary getTaskAt(int rowIndex) {
     return tasks.get(rowIndex);
   }
 
@@ -69,7 +242,7 @@ public class TaskTableModel extends AbstractTableModel {
    */
   @Override
   public int getColumnCount() {
-    return columns.length;
+    return COLUMNS.length;
   }
 
   /**
@@ -80,7 +253,7 @@ public class TaskTableModel extends AbstractTableModel {
    */
   @Override
   public String getColumnName(int column) {
-    return columns[column];
+    return COLUMNS[column];
   }
 
   /**
@@ -92,17 +265,29 @@ public class TaskTableModel extends AbstractTableModel {
    */
   @Override
   public Object getValueAt(int rowIndex, int columnIndex) {
-    Task task = tasks.get(rowIndex);
+    return cellValue(tasks.get(rowIndex), columnIndex);
+  }
+
+  /**
+   * Возвращает значение ячейки столбца для задачи.
+   *
+   * @param task        краткое представление задачи
+   * @param columnIndex индекс столбца
+   * @return значение ячейки (тип зависит от столбца: Integer, String, TaskStatus, String)
+   */
+  static Object cellValue(TaskSummary task, int columnIndex) {
     return switch (columnIndex) {
-      case 0 -> task.getId();
-      case 1 -> task.getTitle();
-      case 2 -> task.getDescription();
-      case 3 -> task.getStatus();
-      case 4 -> task.getCreatedAt() != null
-          ? task.getCreatedAt().format(DATE_TIME_FORMATTER)
+      case 0 -> task.id();
+      case 1 -> task.title();
+      case 2 -> task.descriptionTruncated()
+          ? task.descriptionSnippet() + "…"
+          : task.descriptionSnippet();
+      case 3 -> task.status();
+      case 4 -> task.createdAt() != null
+          ? task.createdAt().format(DATE_TIME_FORMATTER)
           : "";
-      case 5 -> task.getUpdatedAt() != null
-          ? task.getUpdatedAt().format(DATE_TIME_FORMATTER)
+      case 5 -> task.updatedAt() != null
+          ? task.updatedAt().format(DATE_TIME_FORMATTER)
           : "";
       default -> null;
     };
@@ -0,0 +1,140 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.exception.DaoException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Основа фоновых заданий, обрабатывающих таблицу задач пакетами.
+ * <p>
+ * Каждый пакет обрабатывается и фиксируется отдельной транзакцией, поэтому блокировки строк
+ * удерживаются недолго, а между пакетами можно делать паузу, чтобы распределить нагрузку на БД во
+ * времени. Построчные уведомления клиентам на время пакета отключаются. Одновременно задание
+ * выполняется не более чем одним процессом: остальные запуски сразу завершаются (рекомендательная
+ * блокировка PostgreSQL с ключом задания).
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public abstract class BatchJob {
+
+  private final ConnectionSource connections;
+  private final long lockKey;
+  private final int batchSize;
+  private final Duration pause;
+
+  /**
+   * Создаёт задание для основной базы данных.
+   *
+   * @param lockKey   ключ рекомендательной блокировки, уникальный для вида задания
+   * @param batchSize максимальное количество строк в пакете (больше 0)
+   * @param pause     пауза после каждого полного пакета
+   */
+  protected BatchJob(long lockKey, int batchSize, Duration pause) {
+    this(DatabaseConnection.primary(), lockKey, batchSize, pause);
+  }
+
+  /**
+   * Создаёт задание для базы данных указанного источника соединений.
+   *
+   * @param connections источник соединений
+   * @param lockKey     ключ рекомендательной блокировки, уникальный для вида задания
+   * @param batchSize   максимальное количество строк в пакете (больше 0)
+   * @param pause       пауза после каждого полного пакета
+   */
+  protected BatchJob(ConnectionSource connections, long lockKey, int batchSize, Duration pause) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+    }
+    this.connections = connections;
+    this.lockKey = lockKey;
+    this.batchSize = batchSize;
+    this.pause = pause;
+  }
+
+  /**
+   * Обрабатывает пакеты, пока очередной пакет не окажется неполным или поток не будет прерван.
+   *
+   * @return количество обработанных строк; 0, если задание уже выполняется другим процессом
+   * @throws DaoException при ошибке SQL (пакеты, зафиксированные до ошибки, сохраняются)
+   */
+  public long run() {
+    long processed = 0;
+    try (Connection conn = connections.getConnection()) {
+      if (!tryLock(conn)) {
+        return 0;
+      }
+      conn.setAutoCommit(false);
+      try (Statement setup = conn.createStatement()) {
+        int count;
+        do {
+          setup.execute("SET LOCAL taskmanager.suppress_notify = 'on'");
+          count = processBatch(conn, batchSize);
+          conn.commit();
+          processed += count;
+        } while (count >= batchSize && pauseBetweenBatches());
+        return processed;
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      } finally {
+        conn.setAutoCommit(true);
+        unlock(conn);
+      }
+    } catch (SQLException e) {
+      throw new DaoException(
+          "Ошибка задания " + getClass().getSimpleName() + " после " + processed + " строк", e);
+    }
+  }
+
+  /**
+   * Обрабатывает один пакет в открытой транзакции. Задание продолжается, пока пакет обрабатывает
+   * не меньше {@code batchSize} строк.
+   *
+   * @param conn      соединение с открытой транзакцией
+   * @param batchSize максимальное количество строк в пакете
+   * @return количество обработанных строк
+   * @throws SQLException при ошибке SQL
+   */
+  protected abstract int processBatch(Connection conn, int batchSize) throws SQLException;
+
+  /**
+   * Делает паузу между пакетами.
+   *
+   * @return {@code false}, если поток был прерван и задание следует завершить
+   */
+  private boolean pauseBetweenBatches() {
+    if (pause.isZero()) {
+      return true;
+    }
+    try {
+      Thread.sleep(pause.toMillis());
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private boolean tryLock(Connection conn) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+      stmt.setLong(1, lockKey);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() && rs.getBoolean(1);
+      }
+    }
+  }
+
+  private void unlock(Connection conn) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+      stmt.setLong(1, lockKey);
+      stmt.execute();
+    }
+  }
+}
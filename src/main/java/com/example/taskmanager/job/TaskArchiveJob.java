@@ -0,0 +1,83 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Задание переноса давно выполненных задач из рабочей секции {@code tasks_hot} в архивную
+ * {@code tasks_cold}.
+ * <p>
+ * Переносятся неудалённые задачи DONE, не изменявшиеся дольше заданного срока; строки,
+ * заблокированные пользователями, пропускаются до следующего запуска. Перенос не меняет ни
+ * содержимое, ни версию, ни {@code updated_at} задачи, поэтому клиенты его не замечают.
+ * </p>
+ * <p>
+ * Первичный ключ секционированной таблицы — {@code (id, archived)}, поэтому уникальность id между
+ * секциями обеспечивает только последовательность {@code tasks_id_seq}: строки с явно заданным id
+ * вставляются лишь при переносе уже существующих задач (миграция, перераспределение по шардам).
+ * Перенос проверяет это условие и пропускает задачу, id которой уже занят в архивной секции,
+ * вместо того чтобы создать в таблице две задачи с одним id.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskArchiveJob extends BatchJob {
+
+  private static final long LOCK_KEY = 0x7461736B_61726368L;
+
+  private static final String ARCHIVE_SQL = "UPDATE tasks SET archived = true "
+      + "WHERE archived = false AND id IN (SELECT id FROM tasks t "
+      + "WHERE archived = false AND status = 'DONE' AND deleted_at IS NULL AND updated_at < ? "
+      + "AND NOT EXISTS (SELECT 1 FROM tasks c WHERE c.archived AND c.id = t.id) "
+      + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)";
+
+  private final Duration age;
+
+  /**
+   * Создаёт задание со сроком из параметра {@code archive.doneAfterDays} (по умолчанию 30 дней) и
+   * размером пакета из {@code archive.batchSize} (по умолчанию 1000).
+   */
+  public TaskArchiveJob() {
+    this(Duration.ofDays(DatabaseConnection.getIntProperty("archive.doneAfterDays", 30)),
+        DatabaseConnection.getIntProperty("archive.batchSize", 1000));
+  }
+
+  /**
+   * Создаёт задание с указанными параметрами.
+   *
+   * @param age       время с последнего изменения, после которого задача DONE переносится в архив
+   * @param batchSize количество задач, переносимых одной транзакцией (больше 0)
+   */
+  public TaskArchiveJob(Duration age, int batchSize) {
+    super(LOCK_KEY, batchSize, Duration.ZERO);
+    this.age = age;
+  }
+
+  /**
+   * Создаёт задание для базы данных указанного источника соединений.
+   *
+   * @param connections источник соединений
+   * @param age         время с последнего изменения, после которого задача DONE переносится в
+   *                    архив
+   * @param batchSize   количество задач, переносимых одной транзакцией (больше 0)
+   */
+  public TaskArchiveJob(ConnectionSource connections, Duration age, int batchSize) {
+    super(connections, LOCK_KEY, batchSize, Duration.ZERO);
+    this.age = age;
+  }
+
+  @Override
+  protected int processBatch(Connection conn, int batchSize) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(ARCHIVE_SQL)) {
+      stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minus(age)));
+      stmt.setInt(2, batchSize);
+      return stmt.executeUpdate();
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Задание физического удаления задач, помеченных удалёнными дольше заданного срока.
+ * <p>
+ * Строки удаляются небольшими пакетами с паузой между ними, поэтому массовая очистка не удерживает
+ * блокировки надолго и распределяет нагрузку на БД (в том числе работу autovacuum) во времени. До
+ * истечения срока хранения удалённую задачу можно восстановить
+ * ({@link com.example.taskmanager.dao.TaskDao#restore(int)}).
+ * </p>
+ * <p>
+ * Тем же запросом удаляются записи {@code task_tombstones} старше срока хранения, которые триггер
+ * создаёт при физическом удалении. Поэтому клиент, синхронизирующийся через
+ * {@link com.example.taskmanager.dao.TaskDao#findModifiedSince}, узнаёт обо всех удалениях, только
+ * если его отметка синхронизации не старше срока хранения; с более старой отметкой задачи нужно
+ * загрузить заново.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskPurgeJob extends BatchJob {
+
+  private static final long LOCK_KEY = 0x7461736B_70757267L;
+
+  private static final String PURGE_SQL = "WITH purged AS (DELETE FROM tasks "
+      + "WHERE deleted_at IS NOT NULL AND id IN (SELECT id FROM tasks "
+      + "WHERE deleted_at < ? ORDER BY deleted_at LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING id), "
+      + "pruned AS (DELETE FROM task_tombstones WHERE task_id IN (SELECT task_id "
+      + "FROM task_tombstones WHERE deleted_at < ? ORDER BY deleted_at LIMIT ? "
+      + "FOR UPDATE SKIP LOCKED) RETURNING task_id) "
+      + "SELECT (SELECT count(*) FROM purged) + (SELECT count(*) FROM pruned)";
+
+  private final Duration retention;
+
+  /**
+   * Создаёт задание со сроком хранения удалённых задач из параметра {@code purge.retentionDays} (по
+   * умолчанию 7 дней), размером пакета из {@code purge.batchSize} (по умолчанию 500) и паузой между
+   * пакетами из {@code purge.batchPauseMillis} (по умолчанию 200 мс).
+   */
+  public TaskPurgeJob() {
+    this(Duration.ofDays(DatabaseConnection.getIntProperty("purge.retentionDays", 7)),
+        DatabaseConnection.getIntProperty("purge.batchSize", 500),
+        Duration.ofMillis(DatabaseConnection.getIntProperty("purge.batchPauseMillis", 200)));
+  }
+
+  /**
+   * Создаёт задание с указанными параметрами.
+   *
+   * @param retention время хранения задачи после пометки удалённой и записи об удалении после
+   *                  физического удаления
+   * @param batchSize количество задач (и отдельно записей об удалении), удаляемых одной
+   *                  транзакцией (больше 0)
+   * @param pause     пауза между пакетами
+   */
+  public TaskPurgeJob(Duration retention, int batchSize, Duration pause) {
+    super(LOCK_KEY, batchSize, pause);
+    this.retention = retention;
+  }
+
+  /**
+   * Создаёт задание для базы данных указанного источника соединений.
+   *
+   * @param connections источник соединений
+   * @param retention   время хранения задачи после пометки удалённой и записи об удалении после
+   *                    физического удаления
+   * @param batchSize   количество задач (и отдельно записей об удалении), удаляемых одной
+   *                    транзакцией (больше 0)
+   * @param pause       пауза между пакетами
+   */
+  public TaskPurgeJob(ConnectionSource connections, Duration retention, int batchSize,
+      Duration pause) {
+    super(connections, LOCK_KEY, batchSize, pause);
+    this.retention = retention;
+  }
+
+  /**
+   * Удаляет пакет задач и пакет записей об удалении старше срока хранения.
+   *
+   * @param conn      соединение с открытой транзакцией
+   * @param batchSize максимальное количество задач и отдельно записей об удалении в пакете
+   * @return суммарное количество удалённых задач и записей об удалении
+   * @throws SQLException при ошибке SQL
+   */
+  @Override
+  protected int processBatch(Connection conn, int batchSize) throws SQLException {
+    Timestamp horizon = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+    try (PreparedStatement stmt = conn.prepareStatement(PURGE_SQL)) {
+      stmt.setTimestamp(1, horizon);
+      stmt.setInt(2, batchSize);
+      stmt.setTimestamp(3, horizon);
+      stmt.setInt(4, batchSize);
+      try (ResultSet rs = stmt.executeQuery()) {
+        rs.next();
+        return rs.getInt(1);
+      }
+    }
+  }
+}
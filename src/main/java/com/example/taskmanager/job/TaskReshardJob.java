@@ -0,0 +1,215 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.dao.ShardedTaskDao;
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.TaskChangeListener;
+import com.example.taskmanager.exception.DaoException;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Задание переноса задач между шардами при изменении их количества (см. {@link ShardedTaskDao}).
+ * <p>
+ * Для каждого слота, у которого при новом количестве шардов меняется шард, задачи переносятся
+ * пакетами в порядке id: пакет блокируется в исходном шарде, копируется в новый шард (повторно
+ * скопированные строки пропускаются), после фиксации копии удаляется из исходного шарда вместе с
+ * записями {@code task_tombstones}, чтобы клиенты не приняли перенос за удаление. Поэтому прерванное
+ * задание можно просто запустить снова. Идентификаторы задач при переносе не меняются. После
+ * переноса последовательности id всех шардов выравниваются по их номерам, а клиентам отправляется
+ * уведомление о необходимости перезагрузки.
+ * </p>
+ * <p>
+ * Переход с одной базы данных без шардов — это перенос с одного шарда: её адрес указывается первым
+ * в {@code db.shard.urls}. Клиенты на время переноса должны быть остановлены и запущены после него с
+ * новым списком шардов: изменение задачи, которая в этот момент переносится, будет отклонено как
+ * конфликт версий.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class TaskReshardJob {
+
+  private static final String COLUMNS =
+      "id, title, description, status, created_at, updated_at, version, archived, deleted_at";
+
+  private static final String SELECT_SQL = "SELECT " + COLUMNS + " FROM tasks "
+      + "WHERE id > ? AND id % " + ShardedTaskDao.SLOT_COUNT + " = ? ORDER BY id LIMIT ? FOR UPDATE";
+
+  private static final String INSERT_SQL = "INSERT INTO tasks (" + COLUMNS + ") "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+  private final List<? extends ConnectionSource> databases;
+  private final int fromShards;
+  private final int toShards;
+  private final int batchSize;
+
+  /**
+   * Создаёт задание.
+   *
+   * @param databases  базы данных шардов в порядке номеров; должно быть не меньше большего из
+   *                   количеств шардов
+   * @param fromShards текущее количество шардов (первые {@code fromShards} баз данных)
+   * @param toShards   новое количество шардов (первые {@code toShards} баз данных)
+   * @param batchSize  количество задач, переносимых за один пакет (больше 0)
+   */
+  public TaskReshardJob(List<? extends ConnectionSource> databases, int fromShards, int toShards,
+      int batchSize) {
+    int required = Math.max(fromShards, toShards);
+    if (fromShards < 1 || toShards < 1 || required > ShardedTaskDao.SLOT_COUNT) {
+      throw new IllegalArgumentException("Количество шардов должно быть от 1 до "
+          + ShardedTaskDao.SLOT_COUNT + ": " + fromShards + " -> " + toShards);
+    }
+    if (databases.size() < required) {
+      throw new IllegalArgumentException(
+          "Задано баз данных: " + databases.size() + ", требуется: " + required);
+    }
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Размер пакета должен быть положительным: " + batchSize);
+    }
+    this.databases = databases;
+    this.fromShards = fromShards;
+    this.toShards = toShards;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Переносит задачи всех слотов, у которых меняется шард, и выравнивает последовательности id.
+   *
+   * @return количество перенесённых задач
+   * @throws DaoException при ошибке SQL (пакеты, зафиксированные до ошибки, сохраняются)
+   */
+  public long run() {
+    long moved = 0;
+    for (int slot = 0; slot < ShardedTaskDao.SLOT_COUNT; slot++) {
+      int source = slot % fromShards;
+      int target = slot % toShards;
+      if (source != target) {
+        moved += moveSlot(slot, databases.get(source), databases.get(target));
+      }
+    }
+    for (int shard = 0; shard < toShards; shard++) {
+      ShardedTaskDao.alignIdSequence(databases.get(shard), shard);
+    }
+    for (int i = 0; i < Math.max(fromShards, toShards); i++) {
+      notifyReload(databases.get(i));
+    }
+    return moved;
+  }
+
+  /**
+   * Переносит все задачи слота из одного шарда в другой.
+   *
+   * @return количество перенесённых задач
+   */
+  private long moveSlot(int slot, ConnectionSource source, ConnectionSource target) {
+    long moved = 0;
+    int lastId = 0;
+    try (Connection from = source.getConnection();
+        Connection to = target.getConnection()) {
+      from.setAutoCommit(false);
+      to.setAutoCommit(false);
+      try (Statement fromSetup = from.createStatement();
+          Statement toSetup = to.createStatement();
+          PreparedStatement select = from.prepareStatement(SELECT_SQL);
+          PreparedStatement insert = to.prepareStatement(INSERT_SQL);
+          PreparedStatement delete = from.prepareStatement("DELETE FROM tasks WHERE id = ANY (?)");
+          PreparedStatement deleteTombstones = from.prepareStatement(
+              "DELETE FROM task_tombstones WHERE task_id = ANY (?)")) {
+        int count;
+        do {
+          fromSetup.execute("SET LOCAL taskmanager.suppress_notify = 'on'");
+          toSetup.execute("SET LOCAL taskmanager.suppress_notify = 'on'");
+          List<Integer> ids = copyBatch(select, insert, slot, lastId);
+          count = ids.size();
+          if (count == 0) {
+            from.rollback();
+            break;
+          }
+          insert.executeBatch();
+          to.commit();
+
+          Array idArray = from.createArrayOf("integer", ids.toArray());
+          delete.setArray(1, idArray);
+          delete.executeUpdate();
+          deleteTombstones.setArray(1, idArray);
+          deleteTombstones.executeUpdate();
+          from.commit();
+          moved += count;
+          lastId = ids.get(count - 1);
+        } while (count == batchSize);
+      } catch (SQLException | RuntimeException e) {
+        from.rollback();
+        to.rollback();
+        throw e;
+      } finally {
+        from.setAutoCommit(true);
+        to.setAutoCommit(true);
+      }
+      return moved;
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка переноса слота " + slot + " после " + moved + " задач", e);
+    }
+  }
+
+  /**
+   * Читает и блокирует очередной пакет задач слота в исходном шарде и добавляет их в пакет вставки
+   * в новый шард.
+   *
+   * @return идентификаторы задач пакета по возрастанию
+   */
+  private List<Integer> copyBatch(PreparedStatement select, PreparedStatement insert, int slot,
+      int afterId) throws SQLException {
+    select.setInt(1, afterId);
+    select.setInt(2, slot);
+    select.setInt(3, batchSize);
+    List<Integer> ids = new ArrayList<>(batchSize);
+    try (ResultSet rs = select.executeQuery()) {
+      while (rs.next()) {
+        ids.add(rs.getInt(1));
+        for (int column = 1; column <= 9; column++) {
+          insert.setObject(column, rs.getObject(column));
+        }
+        insert.addBatch();
+      }
+    }
+    return ids;
+  }
+
+  private static void notifyReload(ConnectionSource database) {
+    try (Connection conn = database.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("NOTIFY " + TaskChangeListener.CHANNEL + ", 'RELOAD:0'");
+    } catch (SQLException e) {
+      throw new DaoException("Ошибка отправки уведомления о перезагрузке", e);
+    }
+  }
+
+  /**
+   * Создаёт задание по шардам из параметра {@code db.shard.urls} с размером пакета из
+   * {@code reshard.batchSize} (по умолчанию 1000). Пулы соединений закрываются после выполнения.
+   *
+   * @param fromShards текущее количество шардов
+   * @param toShards   новое количество шардов
+   * @return количество перенесённых задач
+   * @throws DaoException при ошибке SQL
+   */
+  public static long runFromConfig(int fromShards, int toShards) {
+    List<HikariDataSource> pools = DatabaseConnection.createShardPools();
+    try {
+      List<ConnectionSource> databases = new ArrayList<>(pools.size());
+      pools.forEach(pool -> databases.add(pool::getConnection));
+      return new TaskReshardJob(databases, fromShards, toShards,
+          DatabaseConnection.getIntProperty("reshard.batchSize", 1000)).run();
+    } finally {
+      pools.forEach(HikariDataSource::close);
+    }
+  }
+}
@@ -0,0 +1,295 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.QueryCancellation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Асинхронный фасад над {@link TaskService}. Каждый вызов выполняется в отдельном виртуальном
+ * потоке (Java 21+) и сразу возвращает {@link CompletableFuture}, поэтому вызывающий поток не
+ * блокируется на JDBC.
+ * <p>
+ * Число одновременно выполняемых обращений к БД ограничено семафором, размер которого по
+ * умолчанию равен размеру пула соединений ({@code db.poolSize}): лишние вызовы ждут разрешения в
+ * дешёвых виртуальных потоках, а не истекают по таймауту ожидания соединения в пуле HikariCP. На
+ * JVM без виртуальных потоков используется фиксированный пул платформенных потоков того же
+ * размера.
+ * </p>
+ * <p>
+ * Каждое возвращаемое future завершается с {@link TimeoutException}, если результат не получен за
+ * заданное время. Отмена future (или истечение таймаута) снимает ещё не начатый вызов из очереди
+ * и прерывает поток уже начатого, а запрос, который уже выполняется драйвером, отменяется на
+ * сервере через {@link QueryCancellation}.
+ * </p>
+ *
+ * @author Shebeta N.I.
+ */
+public class AsyncTaskService implements AutoCloseable {
+
+  private final TaskService taskService;
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final Duration timeout;
+
+  /**
+   * Создаёт фасад с ограничением параллелизма по {@code db.poolSize} (по умолчанию 10) и таймаутом
+   * из {@code async.timeoutSeconds} (по умолчанию 30 секунд).
+   *
+   * @param taskService синхронный сервис, в который делегируются вызовы
+   */
+  public AsyncTaskService(TaskService taskService) {
+    this(taskService, DatabaseConnection.getIntProperty("db.poolSize", 10),
+        Duration.ofSeconds(DatabaseConnection.getIntProperty("async.timeoutSeconds", 30)));
+  }
+
+  /**
+   * Создаёт фасад с указанными ограничениями.
+   *
+   * @param taskService    синхронный сервис, в который делегируются вызовы
+   * @param maxConcurrency максимальное число одновременных обращений к сервису (больше 0)
+   * @param timeout        максимальное время выполнения одного вызова, включая ожидание в очереди
+   */
+  public AsyncTaskService(TaskService taskService, int maxConcurrency, Duration timeout) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException(
+          "Ограничение параллелизма должно быть положительным: " + maxConcurrency);
+    }
+    this.taskService = taskService;
+    this.permits = new Semaphore(maxConcurrency, true);
+    this.timeout = timeout;
+    this.executor = newExecutor(maxConcurrency);
+  }
+
+  /**
+   * Асинхронно создаёт задачу (см. {@link TaskService#createTask}).
+   *
+   * @param title       заголовок задачи
+   * @param description описание задачи
+   * @param status      статус задачи
+   * @return future созданной задачи
+   */
+  public CompletableFuture<Task> createTask(String title, String description, TaskStatus status) {
+    return submit(() -> taskService.createTask(title, description, status));
+  }
+
+  /**
+   * Асинхронно обновляет задачу (см. {@link TaskService#updateTask}).
+   *
+   * @param task задача с обновлёнными полями
+   * @return future обновлённой задачи
+   */
+  public CompletableFuture<Task> updateTask(Task task) {
+    return submit(() -> taskService.updateTask(task));
+  }
+
+  /**
+   * Асинхронно удаляет задачу (см. {@link TaskService#deleteTask}).
+   *
+   * @param id идентификатор задачи
+   * @return future, завершающееся после удаления
+   */
+  public CompletableFuture<Void> deleteTask(int id) {
+    return submit(() -> {
+      taskService.deleteTask(id);
+      return null;
+    });
+  }
+
+  /**
+   * Асинхронно сохраняет несколько задач пакетной операцией (см. {@link TaskService#saveTasks}).
+   *
+   * @param tasks задачи для сохранения
+   * @return future сохранённых задач
+   */
+  public CompletableFuture<List<Task>> saveTasks(Collection<Task> tasks) {
+    return submit(() -> taskService.saveTasks(tasks));
+  }
+
+  /**
+   * Асинхронно удаляет несколько задач пакетной операцией (см. {@link TaskService#deleteTasks}).
+   *
+   * @param ids идентификаторы задач
+   * @return future, завершающееся после удаления
+   */
+  public CompletableFuture<Void> deleteTasks(Collection<Integer> ids) {
+    return submit(() -> {
+      taskService.deleteTasks(ids);
+      return null;
+    });
+  }
+
+  /**
+   * Асинхронно загружает задачу по идентификатору (см. {@link TaskService#getTask}).
+   *
+   * @param id идентификатор задачи
+   * @return future с найденной задачей или пустым Optional
+   */
+  public CompletableFuture<Optional<Task>> getTask(int id) {
+    return submit(() -> taskService.getTask(id));
+  }
+
+  /**
+   * Асинхронно загружает все задачи (см. {@link TaskService#getAllTasks}).
+   *
+   * @return future списка задач
+   */
+  public CompletableFuture<List<Task>> getAllTasks() {
+    return submit(taskService::getAllTasks);
+  }
+
+  /**
+   * Асинхронно загружает задачи с указанным статусом (см. {@link TaskService#getTasksByStatus}).
+   *
+   * @param status статус для фильтрации
+   * @return future списка задач
+   */
+  public CompletableFuture<List<Task>> getTasksByStatus(TaskStatus status) {
+    return submit(() -> taskService.getTasksByStatus(status));
+  }
+
+  /**
+   * Асинхронно выполняет поиск задач по подстроке (см. {@link TaskService#searchTasks}).
+   *
+   * @param query строка поиска
+   * @return future списка найденных задач
+   */
+  public CompletableFuture<List<Task>> searchTasks(String query) {
+    return submit(() -> taskService.searchTasks(query));
+  }
+
+  /**
+   * Асинхронно загружает краткие представления всех задач (см. {@link
+   * TaskService#getAllTaskSummaries}).
+   *
+   * @return future списка кратких представлений
+   */
+  public CompletableFuture<List<TaskSummary>> getAllTaskSummaries() {
+    return submit(taskService::getAllTaskSummaries);
+  }
+
+  /**
+   * Асинхронно загружает краткие представления задач с указанным статусом (см. {@link
+   * TaskService#getTaskSummariesByStatus}).
+   *
+   * @param status статус для фильтрации
+   * @return future списка кратких представлений
+   */
+  public CompletableFuture<List<TaskSummary>> getTaskSummariesByStatus(TaskStatus status) {
+    return submit(() -> taskService.getTaskSummariesByStatus(status));
+  }
+
+  /**
+   * Асинхронно выполняет ранжированный поиск (см. {@link TaskService#searchTaskSummariesRanked}).
+   *
+   * @param query    строка поиска
+   * @param page     номер страницы, начиная с 0
+   * @param pageSize количество задач на странице
+   * @return future кратких представлений задач страницы
+   */
+  public CompletableFuture<List<TaskSummary>> searchTaskSummariesRanked(String query, int page,
+      int pageSize) {
+    return submit(() -> taskService.searchTaskSummariesRanked(query, page, pageSize));
+  }
+
+  /**
+   * Асинхронно выполняет составной запрос (см. {@link TaskService#findTaskSummaries}).
+   *
+   * @param query запрос
+   * @return future кратких представлений задач в порядке сортировки запроса
+   */
+  public CompletableFuture<List<TaskSummary>> findTaskSummaries(TaskQuery query) {
+    return submit(() -> taskService.findTaskSummaries(query));
+  }
+
+  /**
+   * Асинхронно подсчитывает задачи по статусам (см. {@link TaskService#countTasksByStatus}).
+   *
+   * @return future количества задач по статусам
+   */
+  public CompletableFuture<EnumMap<TaskStatus, Long>> countTasksByStatus() {
+    return submit(taskService::countTasksByStatus);
+  }
+
+  /**
+   * Прекращает приём новых вызовов и прерывает выполняющиеся. Future невыполненных вызовов
+   * остаются незавершёнными до истечения их таймаута.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Запускает вызов в отдельном потоке с учётом ограничения параллелизма и таймаута.
+   *
+   * @param call вызов синхронного сервиса
+   * @param <T>  тип результата
+   * @return future результата вызова
+   */
+  private <T> CompletableFuture<T> submit(Callable<T> call) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    QueryCancellation cancellation = new QueryCancellation();
+    Future<?> execution = executor.submit(() -> {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        result.cancel(false);
+        return;
+      }
+      try {
+        if (!result.isDone()) {
+          result.complete(cancellation.call(call));
+        }
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } finally {
+        permits.release();
+      }
+    });
+    result.whenComplete((value, error) -> {
+      if (result.isCancelled() || error instanceof TimeoutException) {
+        cancellation.cancel();
+        execution.cancel(true);
+      }
+    });
+    return result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Создаёт исполнитель с виртуальным потоком на каждый вызов, если JVM их поддерживает (Java 21+),
+   * иначе — фиксированный пул платформенных потоков-демонов.
+   *
+   * @param platformThreads число потоков для пула без виртуальных потоков
+   * @return исполнитель вызовов
+   */
+  private static ExecutorService newExecutor(int platformThreads) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(platformThreads, runnable -> {
+        Thread thread = new Thread(runnable, "async-task-service");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
@@ -2,12 +2,18 @@ package com.example.taskmanager.service;
 
 import com.example.taskmanager.dao.TaskDao;
 import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
 import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
 import com.example.taskmanager.util.TaskValidator;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Сервисный слой для работы с задачами. Содержит бизнес-логику: создание, обновление, удаление,
@@ -65,6 +71,49 @@ public record TaskService(TaskDao taskDao) {
     taskDao.delete(id);
   }
 
+  /**
+   * Восстанавливает удалённую задачу, если она ещё не удалена окончательно.
+   *
+   * @param id идентификатор задачи
+   * @return {@code true}, если задача восстановлена
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public boolean restoreTask(int id) {
+    return taskDao.restore(id);
+  }
+
+  /**
+   * Сохраняет несколько задач одной пакетной операцией (например, при импорте). Для новых задач
+   * без даты создания устанавливается текущий момент, у всех задач обновляется дата изменения.
+   * Валидация выполняется до обращения к БД, поэтому при ошибке ни одна задача не сохраняется.
+   *
+   * @param tasks задачи для сохранения (новые — с id == 0)
+   * @return сохранённые задачи с присвоенными идентификаторами
+   * @throws com.example.taskmanager.exception.ValidationException если валидация не пройдена
+   * @throws com.example.taskmanager.exception.DaoException        при ошибке доступа к БД
+   */
+  public List<Task> saveTasks(Collection<Task> tasks) {
+    LocalDateTime now = LocalDateTime.now();
+    for (Task task : tasks) {
+      if (task.getCreatedAt() == null) {
+        task.setCreatedAt(now);
+      }
+      task.setUpdatedAt(now);
+      TaskValidator.validate(task);
+    }
+    return taskDao.saveAll(tasks);
+  }
+
+  /**
+   * Удаляет несколько задач по идентификаторам одной пакетной операцией.
+   *
+   * @param ids идентификаторы задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public void deleteTasks(Collection<Integer> ids) {
+    taskDao.deleteAll(ids);
+  }
+
   /**
    * Возвращает задачу по идентификатору.
    *
@@ -107,4 +156,166 @@ public record TaskService(TaskDao taskDao) {
   public List<Task> searchTasks(String query) {
     return taskDao.search(query);
   }
-}
\ No newline at end of file
+
+  /**
+   * Выполняет поиск задач с ранжированием по релевантности и возвращает указанную страницу
+   * результатов.
+   *
+   * @param query    строка поиска
+   * @param page     номер страницы, начиная с 0
+   * @param pageSize количество задач на странице (больше 0)
+   * @return задачи страницы, от более релевантных к менее релевантным
+   * @throws IllegalArgumentException                       если номер или размер страницы
+   *                                                        некорректны
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<Task> searchTasksRanked(String query, int page, int pageSize) {
+    if (page < 0 || pageSize <= 0) {
+      throw new IllegalArgumentException(
+          "Некорректная страница: page=" + page + ", pageSize=" + pageSize);
+    }
+    return taskDao.searchRanked(query, pageSize, page * pageSize);
+  }
+
+  /**
+   * Возвращает краткие представления всех задач для отображения в списке.
+   *
+   * @return список кратких представлений задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<TaskSummary> getAllTaskSummaries() {
+    return taskDao.findAllSummaries();
+  }
+
+  /**
+   * Возвращает краткие представления задач с указанным статусом.
+   *
+   * @param status статус для фильтрации
+   * @return список кратких представлений задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<TaskSummary> getTaskSummariesByStatus(TaskStatus status) {
+    return taskDao.findSummariesByStatus(status);
+  }
+
+  /**
+   * Выполняет ранжированный поиск и возвращает указанную страницу результатов в кратком виде.
+   *
+   * @param query    строка поиска
+   * @param page     номер страницы, начиная с 0
+   * @param pageSize количество задач на странице (больше 0)
+   * @return краткие представления задач, от более релевантных к менее релевантным
+   * @throws IllegalArgumentException                       если номер или размер страницы
+   *                                                        некорректны
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<TaskSummary> searchTaskSummariesRanked(String query, int page, int pageSize) {
+    if (page < 0 || pageSize <= 0) {
+      throw new IllegalArgumentException(
+          "Некорректная страница: page=" + page + ", pageSize=" + pageSize);
+    }
+    return taskDao.searchSummariesRanked(query, pageSize, page * pageSize);
+  }
+
+  /**
+   * Выполняет составной запрос: отбор по статусам, тексту и датам, сортировку и постраничную
+   * выдачу (см. {@link TaskQuery}).
+   *
+   * @param query запрос
+   * @return задачи в порядке сортировки запроса
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<Task> findTasks(TaskQuery query) {
+    return taskDao.find(query);
+  }
+
+  /**
+   * Выполняет составной запрос и возвращает краткие представления задач для отображения в
+   * списке.
+   *
+   * @param query запрос
+   * @return краткие представления задач в порядке сортировки запроса
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public List<TaskSummary> findTaskSummaries(TaskQuery query) {
+    return taskDao.findSummaries(query);
+  }
+
+  /**
+   * Возвращает количество задач, удовлетворяющих условиям отбора запроса.
+   *
+   * @param query запрос
+   * @return количество задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public long countTasks(TaskQuery query) {
+    return taskDao.count(query);
+  }
+
+  /**
+   * Возвращает количество задач по каждому статусу.
+   *
+   * @return количество задач по статусам (0 для статусов без задач)
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public EnumMap<TaskStatus, Long> countTasksByStatus() {
+    return taskDao.countByStatus();
+  }
+
+  /**
+   * Возвращает изменения задач начиная с отметки времени (см. {@link TaskDao#findModifiedSince}).
+   *
+   * @param watermark отметка времени, начиная с которой нужны изменения
+   * @return изменённые и удалённые задачи и отметка для следующего вызова
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public TaskDelta getTaskChangesSince(LocalDateTime watermark) {
+    return taskDao.findModifiedSince(watermark);
+  }
+
+  /**
+   * Возвращает отметку синхронизации на текущий момент (см. {@link TaskDao#currentWatermark()}).
+   * Её следует получить до загрузки задач и передать в первый вызов
+   * {@link #getTaskChangesSince(LocalDateTime)}.
+   *
+   * @return отметка синхронизации
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public LocalDateTime getSyncWatermark() {
+    return taskDao.currentWatermark();
+  }
+
+  /**
+   * Возвращает поток всех задач без загрузки всей таблицы в память. Поток необходимо закрыть после
+   * использования, чтобы освободить соединение с БД.
+   *
+   * @return поток всех задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public Stream<Task> streamAllTasks() {
+    return taskDao.streamAll();
+  }
+
+  /**
+   * Возвращает поток задач с указанным статусом. Поток необходимо закрыть после использования.
+   *
+   * @param status статус для фильтрации
+   * @return поток задач с заданным статусом
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public Stream<Task> streamTasksByStatus(TaskStatus status) {
+    return taskDao.streamByStatus(status);
+  }
+
+  /**
+   * Возвращает поток задач, найденных по подстроке в заголовке или описании. Поток необходимо
+   * закрыть после использования.
+   *
+   * @param query строка поиска
+   * @return поток найденных задач
+   * @throws com.example.taskmanager.exception.DaoException при ошибке доступа к БД
+   */
+  public Stream<Task> streamSearchTasks(String query) {
+    return taskDao.streamSearch(query);
+  }
+}
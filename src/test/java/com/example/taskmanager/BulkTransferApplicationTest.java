@@ -0,0 +1,34 @@
+package com.example.taskmanager;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для проверки аргументов {@link BulkTransferApplication#run(String[])}. Неверные
+ * аргументы отклоняются до обращения к БД.
+ *
+ * @author Shebeta N.I.
+ */
+class BulkTransferApplicationTest {
+
+  /**
+   * Неизвестный формат завершается кодом 2 вместо необработанного исключения.
+   */
+  @Test
+  void run_shouldRejectUnknownFormat() {
+    assertEquals(2, BulkTransferApplication.run(new String[]{"export", "tasks.csv", "xml"}));
+    assertEquals(2,
+        BulkTransferApplication.run(new String[]{"import", "tasks.csv", "rejects.csv", "json"}));
+  }
+
+  /**
+   * Неизвестная команда и недостающие аргументы завершаются кодом 2.
+   */
+  @Test
+  void run_shouldRejectIncompleteOrUnknownCommand() {
+    assertEquals(2, BulkTransferApplication.run(new String[]{"export"}));
+    assertEquals(2, BulkTransferApplication.run(new String[]{"import", "tasks.csv"}));
+    assertEquals(2, BulkTransferApplication.run(new String[]{"copy", "tasks.csv"}));
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.taskmanager.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link CopyFormat}. Проверяют кодирование и разбор записей со
+ * спецсимволами и NULL-значениями.
+ *
+ * @author Shebeta N.I.
+ */
+class CopyFormatTest {
+
+  @ParameterizedTest
+  @EnumSource(CopyFormat.class)
+  void formatAndRead_shouldRoundTripSpecialCharactersAndNulls(CopyFormat format)
+      throws IOException {
+    List<String> record = Arrays.asList("1", "Заголовок, \"в кавычках\"", "строка 1\nстрока\t2\\",
+        null, "");
+    List<String> other = Arrays.asList("2", "Второй", null, "TODO", "2026-01-01 10:00:00");
+
+    BufferedReader reader = new BufferedReader(new StringReader(
+        format.formatRecord(record) + format.formatRecord(other)));
+
+    assertEquals(record, format.readRecord(reader));
+    assertEquals(other, format.readRecord(reader));
+    assertNull(format.readRecord(reader));
+  }
+
+  @Test
+  void readRecord_shouldAcceptCsvWithCrLfLineEndings() throws IOException {
+    BufferedReader reader = new BufferedReader(new StringReader("a,b\r\nc,\"d\"\r\n"));
+
+    assertEquals(List.of("a", "b"), CopyFormat.CSV.readRecord(reader));
+    assertEquals(List.of("c", "d"), CopyFormat.CSV.readRecord(reader));
+    assertNull(CopyFormat.CSV.readRecord(reader));
+  }
+
+  @Test
+  void readRecord_shouldFailOnUnterminatedQuote() {
+    BufferedReader reader = new BufferedReader(new StringReader("\"abc"));
+
+    assertThrows(IOException.class, () -> CopyFormat.CSV.readRecord(reader));
+  }
+}
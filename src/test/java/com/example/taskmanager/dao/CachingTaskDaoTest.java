@@ -0,0 +1,163 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link CachingTaskDao}. Исходный DAO заменяется заглушкой Mockito, а
+ * количество обращений к нему показывает, обслужен ли запрос из кэша.
+ *
+ * @author Shebeta N.I.
+ */
+@ExtendWith(MockitoExtension.class)
+class CachingTaskDaoTest {
+
+  @Mock
+  private TaskDao delegate;
+
+  private CachingTaskDao cachingDao;
+
+  @BeforeEach
+  void setUp() {
+    cachingDao = new CachingTaskDao(delegate, 2, 8);
+  }
+
+  @Test
+  void findById_shouldHitCacheAndReturnIndependentCopies() {
+    when(delegate.findById(1)).thenReturn(Optional.of(task(1, TaskStatus.TODO)));
+
+    Task first = cachingDao.findById(1).orElseThrow();
+    first.setTitle("изменено вызывающим кодом");
+    Task second = cachingDao.findById(1).orElseThrow();
+
+    verify(delegate, times(1)).findById(1);
+    assertEquals("Задача 1", second.getTitle());
+    assertEquals(1, cachingDao.stats().hits());
+    assertEquals(1, cachingDao.stats().misses());
+  }
+
+  @Test
+  void findById_shouldEvictLeastRecentlyUsedTask() {
+    when(delegate.findById(any(Integer.class)))
+        .thenAnswer(invocation -> Optional.of(task(invocation.getArgument(0), TaskStatus.TODO)));
+
+    cachingDao.findById(1);
+    cachingDao.findById(2);
+    cachingDao.findById(1);
+    cachingDao.findById(3);
+    cachingDao.findById(1);
+    cachingDao.findById(2);
+
+    verify(delegate, times(1)).findById(1);
+    verify(delegate, times(2)).findById(2);
+    assertEquals(2, cachingDao.stats().evictions());
+  }
+
+  @Test
+  void save_shouldInvalidateOnlyQueriesForAffectedStatuses() {
+    Task done = task(5, TaskStatus.DONE);
+    when(delegate.findSummariesByStatus(TaskStatus.TODO)).thenReturn(List.of());
+    when(delegate.findSummariesByStatus(TaskStatus.DONE))
+        .thenReturn(List.of(TaskSummary.of(done)));
+    when(delegate.findAllSummaries()).thenReturn(List.of(TaskSummary.of(done)));
+    when(delegate.findById(5)).thenReturn(Optional.of(done));
+    when(delegate.save(any(Task.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+    cachingDao.findById(5);
+    cachingDao.findSummariesByStatus(TaskStatus.TODO);
+    cachingDao.findSummariesByStatus(TaskStatus.DONE);
+    cachingDao.findAllSummaries();
+
+    Task edited = cachingDao.findById(5).orElseThrow();
+    edited.setTitle("Новый заголовок");
+    cachingDao.save(edited);
+
+    cachingDao.findSummariesByStatus(TaskStatus.TODO);
+    cachingDao.findSummariesByStatus(TaskStatus.DONE);
+    cachingDao.findAllSummaries();
+
+    verify(delegate, times(1)).findSummariesByStatus(TaskStatus.TODO);
+    verify(delegate, times(2)).findSummariesByStatus(TaskStatus.DONE);
+    verify(delegate, times(2)).findAllSummaries();
+    assertEquals("Новый заголовок", cachingDao.findById(5).orElseThrow().getTitle());
+  }
+
+  @Test
+  void delete_shouldRemoveTaskAndInvalidateQueries() {
+    when(delegate.findById(7)).thenReturn(Optional.of(task(7, TaskStatus.IN_PROGRESS)),
+        Optional.empty());
+    when(delegate.findAll()).thenReturn(List.of(task(7, TaskStatus.IN_PROGRESS)), List.of());
+
+    cachingDao.findById(7);
+    assertEquals(1, cachingDao.findAll().size());
+
+    cachingDao.delete(7);
+
+    assertTrue(cachingDao.findById(7).isEmpty());
+    assertTrue(cachingDao.findAll().isEmpty());
+    verify(delegate, times(2)).findAll();
+  }
+
+  @Test
+  void applyChanges_shouldRereadTaskChangedByAnotherClientOnPrimary() {
+    when(delegate.findById(3)).thenReturn(Optional.of(task(3, TaskStatus.TODO)));
+    when(delegate.findByIdOnPrimary(3)).thenReturn(Optional.of(task(3, TaskStatus.DONE)));
+    when(delegate.findSummariesByStatus(TaskStatus.DONE)).thenReturn(List.of());
+
+    cachingDao.findById(3);
+    cachingDao.findSummariesByStatus(TaskStatus.DONE);
+
+    // when
+    cachingDao.applyChanges(List.of(new TaskChangeEvent(TaskChangeEvent.Operation.UPDATE, 3),
+        new TaskChangeEvent(TaskChangeEvent.Operation.DELETE, 4)));
+
+    // then
+    assertEquals(TaskStatus.DONE, cachingDao.findById(3).orElseThrow().getStatus());
+    cachingDao.findSummariesByStatus(TaskStatus.DONE);
+    verify(delegate, times(1)).findById(3);
+    verify(delegate, never()).findByIdOnPrimary(4);
+    verify(delegate, times(2)).findSummariesByStatus(TaskStatus.DONE);
+  }
+
+  @Test
+  void save_shouldEvictStaleTaskOnVersionConflict() {
+    Task stale = task(4, TaskStatus.TODO);
+    Task latest = task(4, TaskStatus.DONE);
+    latest.setVersion(1);
+    when(delegate.findById(4)).thenReturn(Optional.of(stale), Optional.of(latest));
+    when(delegate.save(any(Task.class))).thenThrow(new OptimisticLockException(List.of(4)));
+
+    Task edited = cachingDao.findById(4).orElseThrow();
+
+    // when
+    assertThrows(OptimisticLockException.class, () -> cachingDao.save(edited));
+
+    // then
+    assertEquals(1, cachingDao.findById(4).orElseThrow().getVersion());
+    verify(delegate, times(2)).findById(4);
+  }
+
+  private static Task task(int id, TaskStatus status) {
+    LocalDateTime now = LocalDateTime.now();
+    return new Task(id, "Задача " + id, "Описание", status, now, now);
+  }
+}
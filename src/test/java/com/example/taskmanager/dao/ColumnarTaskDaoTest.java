@@ -0,0 +1,296 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link ColumnarTaskDao}.
+ *
+ * @author Shebeta N.I.
+ */
+class ColumnarTaskDaoTest {
+
+  private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 1, 1, 10, 0, 0, 123_456_000);
+
+  private ColumnarTaskDao dao;
+
+  @BeforeEach
+  void setUp() {
+    dao = new ColumnarTaskDao(16);
+  }
+
+  /**
+   * Новая задача получает следующий id и версию 0 и читается обратно со всеми полями, включая
+   * микросекунды дат.
+   */
+  @Test
+  void save_shouldInsertAndReturnTaskById() {
+    // given
+    Task task = newTask("Заголовок", "Описание", TaskStatus.IN_PROGRESS);
+
+    // when
+    Task saved = dao.save(task);
+
+    // then
+    assertEquals(1, saved.getId());
+    Task found = dao.findById(1).orElseThrow();
+    assertEquals("Заголовок", found.getTitle());
+    assertEquals("Описание", found.getDescription());
+    assertEquals(TaskStatus.IN_PROGRESS, found.getStatus());
+    assertEquals(CREATED_AT, found.getCreatedAt());
+    assertEquals(0, found.getVersion());
+  }
+
+  /**
+   * Пакет с устаревшей версией хотя бы одной задачи не сохраняется целиком.
+   */
+  @Test
+  void saveAll_shouldRejectWholeBatchOnVersionConflict() {
+    // given
+    Task first = dao.save(newTask("Первая", null, TaskStatus.TODO));
+    Task second = dao.save(newTask("Вторая", null, TaskStatus.TODO));
+    Task stale = new Task(second);
+    second.setTitle("Изменена");
+    dao.save(second);
+    first.setTitle("Не должна сохраниться");
+    stale.setTitle("Устаревшая");
+
+    // when
+    OptimisticLockException e = assertThrows(OptimisticLockException.class,
+        () -> dao.saveAll(List.of(first, stale)));
+
+    // then
+    assertEquals(List.of(second.getId()), e.getTaskIds());
+    assertEquals("Первая", dao.findById(first.getId()).orElseThrow().getTitle());
+    assertEquals(1, dao.findById(second.getId()).orElseThrow().getVersion());
+  }
+
+  /**
+   * Задачи, загруженные не по порядку id, выдаются отсортированными, а удаление большей части
+   * задач с уплотнением массивов не нарушает поиск по id и счётчики статусов.
+   */
+  @Test
+  void deleteAll_shouldCompactRowsAndKeepIndexConsistent() {
+    // given
+    List<Integer> ids = new ArrayList<>(IntStream.rangeClosed(1, 5_000).boxed().toList());
+    Collections.shuffle(ids, new Random(42));
+    for (int id : ids) {
+      Task task = newTask("Задача " + id, "Общее описание",
+          id % 2 == 0 ? TaskStatus.DONE : TaskStatus.TODO);
+      task.setId(id);
+      dao.put(task);
+    }
+
+    // when
+    dao.deleteAll(IntStream.rangeClosed(1, 5_000).filter(id -> id % 5 != 0).boxed().toList());
+
+    // then
+    List<Integer> remaining = dao.findAll().stream().map(Task::getId).toList();
+    assertEquals(IntStream.rangeClosed(1, 1_000).map(i -> i * 5).boxed().toList(), remaining);
+    assertEquals("Задача 2500", dao.findById(2_500).orElseThrow().getTitle());
+    assertTrue(dao.findById(2_501).isEmpty());
+    assertEquals(500L, dao.countByStatus().get(TaskStatus.DONE));
+    assertEquals(500L, dao.countByStatus().get(TaskStatus.TODO));
+    try (Stream<Task> stream = dao.streamByStatus(TaskStatus.DONE)) {
+      assertEquals(500, stream.count());
+    }
+  }
+
+  /**
+   * Поиск не зависит от регистра и находит задачи по общей строке описания.
+   */
+  @Test
+  void search_shouldMatchSharedStringsCaseInsensitively() {
+    // given
+    dao.save(newTask("Купить МОЛОКО", null, TaskStatus.TODO));
+    dao.save(newTask("Другое", "молоко и хлеб", TaskStatus.TODO));
+    dao.save(newTask("Третье", "молоко и хлеб", TaskStatus.DONE));
+    dao.save(newTask("Четвёртое", "сыр", TaskStatus.TODO));
+
+    // when
+    List<Integer> found = dao.search("Молоко").stream().map(Task::getId).toList();
+
+    // then
+    assertEquals(List.of(1, 2, 3), found);
+  }
+
+  /**
+   * Краткое представление содержит фрагмент описания и признак обрезки.
+   */
+  @Test
+  void findAllSummaries_shouldTruncateLongDescriptions() {
+    // given
+    dao.save(newTask("Длинная", "я".repeat(TaskSummary.SNIPPET_LENGTH + 50), TaskStatus.TODO));
+    dao.save(newTask("Короткая", "я".repeat(TaskSummary.SNIPPET_LENGTH), TaskStatus.TODO));
+
+    // when
+    List<TaskSummary> summaries = dao.findAllSummaries();
+
+    // then
+    assertTrue(summaries.get(0).descriptionTruncated());
+    assertEquals(TaskSummary.SNIPPET_LENGTH, summaries.get(0).descriptionSnippet().length());
+    assertFalse(summaries.get(1).descriptionTruncated());
+    assertEquals(TaskSummary.SNIPPET_LENGTH, summaries.get(1).descriptionSnippet().length());
+  }
+
+  /**
+   * Изменения после отметки включают изменённые задачи и id удалённых, но не прежние задачи.
+   */
+  @Test
+  void findModifiedSince_shouldReturnChangesAfterWatermark() {
+    // given
+    Task unchanged = dao.save(newTask("Без изменений", null, TaskStatus.TODO));
+    Task changed = dao.save(newTask("Будет изменена", null, TaskStatus.TODO));
+    Task deleted = dao.save(newTask("Будет удалена", null, TaskStatus.TODO));
+    LocalDateTime watermark = dao.findModifiedSince(LocalDateTime.now()).nextWatermark();
+    changed.setStatus(TaskStatus.DONE);
+    dao.save(changed);
+    dao.delete(deleted.getId());
+
+    // when
+    TaskDelta delta = dao.findModifiedSince(watermark);
+
+    // then
+    assertEquals(List.of(changed.getId()), delta.changed().stream().map(Task::getId).toList());
+    assertEquals(List.of(deleted.getId()), delta.deletedIds());
+    assertTrue(dao.findById(unchanged.getId()).isPresent());
+  }
+
+  /**
+   * Записи об удалении старше срока хранения отбрасываются при заполнении массива записей, а
+   * записи в пределах срока сохраняются.
+   */
+  @Test
+  void delete_shouldDropTombstonesOlderThanRetention() {
+    // given
+    ColumnarTaskDao expiring = new ColumnarTaskDao(16, Duration.ZERO);
+    ColumnarTaskDao retaining = new ColumnarTaskDao(16, Duration.ofDays(1));
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      ids.add(expiring.save(newTask("Задача " + i, null, TaskStatus.TODO)).getId());
+      retaining.save(newTask("Задача " + i, null, TaskStatus.TODO));
+    }
+    LocalDateTime watermark = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    // when
+    ids.forEach(expiring::delete);
+    ids.forEach(retaining::delete);
+
+    // then
+    assertEquals(ids.subList(32, 40), expiring.findModifiedSince(watermark).deletedIds());
+    assertEquals(ids, retaining.findModifiedSince(watermark).deletedIds());
+  }
+
+  /**
+   * Составной запрос с сортировкой не по id: отбор по статусам и тексту, сортировка по заголовку и
+   * постраничная выдача по курсору.
+   */
+  @Test
+  void find_shouldCombineFiltersSortAndCursor() {
+    // given
+    dao.save(newTask("Бета отчёт", null, TaskStatus.TODO));
+    dao.save(newTask("Альфа", "отчёт за месяц", TaskStatus.IN_PROGRESS));
+    dao.save(newTask("Гамма отчёт", null, TaskStatus.DONE));
+    dao.save(newTask("Дельта", null, TaskStatus.TODO));
+    dao.save(newTask("Альфа отчёт", null, TaskStatus.TODO));
+    TaskQuery query = TaskQuery.builder()
+        .statuses(TaskStatus.TODO, TaskStatus.IN_PROGRESS)
+        .text("ОТЧЁТ")
+        .sortBy(TaskQuery.SortKey.TITLE, TaskQuery.Direction.ASC)
+        .limit(2)
+        .build();
+
+    // when
+    List<TaskSummary> firstPage = dao.findSummaries(query);
+    List<TaskSummary> secondPage = dao.findSummaries(query.after(firstPage.get(1)));
+
+    // then
+    assertEquals(List.of(2, 5), firstPage.stream().map(TaskSummary::id).toList());
+    assertEquals(List.of(1), secondPage.stream().map(TaskSummary::id).toList());
+  }
+
+  /**
+   * Запросы по индексам статусов и триграмм совпадают с отбором задач через
+   * {@link TaskQuery#matches(Task)}, в том числе после изменения, удаления и уплотнения строк,
+   * сделанных уже после построения триграммного индекса.
+   */
+  @Test
+  void find_shouldMatchFullScanAfterIncrementalChanges() {
+    // given
+    Random random = new Random(7);
+    String[] words = {"отчёт", "Отчётность", "план", "бюджет", "report", "REPO", "ре"};
+    for (int i = 0; i < 6_000; i++) {
+      dao.save(newTask(words[random.nextInt(words.length)] + " " + random.nextInt(50),
+          random.nextBoolean() ? null : words[random.nextInt(words.length)],
+          TaskStatus.values()[random.nextInt(TaskStatus.values().length)]));
+    }
+    List<TaskQuery> queries = List.of(
+        TaskQuery.builder().statuses(TaskStatus.TODO, TaskStatus.DONE).build(),
+        TaskQuery.builder().text("ОТЧЁТ").statuses(TaskStatus.IN_PROGRESS).build(),
+        TaskQuery.builder().text("repo").limit(20).offset(5).build(),
+        TaskQuery.builder().text("ре").build(),
+        TaskQuery.builder().text("план 1")
+            .sortBy(TaskQuery.SortKey.ID, TaskQuery.Direction.DESC)
+            .after(new TaskQuery.Cursor(2_000, 2_000)).limit(30).build());
+    queries.forEach(query -> dao.find(query));
+
+    // when
+    for (int i = 0; i < 5_000; i++) {
+      int id = 1 + random.nextInt(6_000);
+      Optional<Task> task = dao.findById(id);
+      if (task.isEmpty()) {
+        continue;
+      }
+      if (random.nextBoolean()) {
+        dao.delete(id);
+      } else {
+        task.get().setTitle("новый отчёт " + i);
+        task.get().setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+        dao.save(task.get());
+      }
+    }
+
+    // then
+    List<Task> all = dao.findAll();
+    for (TaskQuery query : queries) {
+      Stream<Task> expected = all.stream()
+          .filter(task -> query.matches(task) && query.isAfterCursor(task))
+          .sorted(query.taskOrder())
+          .skip(query.offset());
+      List<Integer> expectedIds = (query.limit() > 0 ? expected.limit(query.limit()) : expected)
+          .map(Task::getId).toList();
+      assertEquals(expectedIds, dao.find(query).stream().map(Task::getId).toList(),
+          query.toString());
+      assertEquals(all.stream().filter(query::matches).count(), dao.count(query),
+          query.toString());
+    }
+  }
+
+  private static Task newTask(String title, String description, TaskStatus status) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setDescription(description);
+    task.setStatus(status);
+    task.setCreatedAt(CREATED_AT);
+    task.setUpdatedAt(CREATED_AT);
+    return task;
+  }
+}
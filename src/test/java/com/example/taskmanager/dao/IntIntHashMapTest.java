@@ -0,0 +1,60 @@
+package com.example.taskmanager.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link IntIntHashMap}.
+ *
+ * @author Shebeta N.I.
+ */
+class IntIntHashMapTest {
+
+  /**
+   * Случайная последовательность вставок, замен и удалений даёт тот же результат, что и
+   * {@link HashMap}: сдвиг записей при удалении не разрывает цепочки, а рост таблицы не теряет
+   * записи.
+   */
+  @Test
+  void randomOperations_shouldMatchHashMap() {
+    // given
+    IntIntHashMap map = new IntIntHashMap(4);
+    Map<Integer, Integer> expected = new HashMap<>();
+    Random random = new Random(7);
+
+    // when
+    for (int i = 0; i < 200_000; i++) {
+      int key = 1 + random.nextInt(5_000);
+      if (random.nextInt(3) == 0) {
+        Integer removed = expected.remove(key);
+        assertEquals(removed == null ? IntIntHashMap.MISSING : removed, map.remove(key));
+      } else {
+        expected.put(key, i);
+        map.put(key, i);
+      }
+    }
+
+    // then
+    assertEquals(expected.size(), map.size());
+    for (int key = 1; key <= 5_000; key++) {
+      assertEquals(expected.getOrDefault(key, IntIntHashMap.MISSING), map.get(key));
+    }
+  }
+
+  /**
+   * Ключ 0 обозначает свободную ячейку и не может быть добавлен.
+   */
+  @Test
+  void put_shouldRejectZeroKey() {
+    // given
+    IntIntHashMap map = new IntIntHashMap(16);
+
+    // when / then
+    assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+  }
+}
@@ -0,0 +1,109 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link JournaledTaskDao}: восстановление задач из снимка и журнала после
+ * штатного закрытия и после сбоя. Файлы хранилища создаются во временном каталоге.
+ *
+ * @author Shebeta N.I.
+ */
+class JournaledTaskDaoTest {
+
+  private static final Duration NO_PERIODIC_SNAPSHOTS = Duration.ofHours(1);
+  private static final long NO_EARLY_SNAPSHOTS = Long.MAX_VALUE;
+
+  @TempDir
+  Path directory;
+
+  /**
+   * После закрытия со снимком хранилище открывается из снимка без журнала, а новые id продолжают
+   * последовательность, не повторяя id удалённых задач. От каждого закрытия остаётся только снимок
+   * и пустое новое поколение журнала.
+   */
+  @Test
+  void open_shouldRestoreTasksFromSnapshotAfterClose() throws IOException {
+    // given
+    try (JournaledTaskDao dao = open()) {
+      dao.save(newTask("Первая", "Описание"));
+      dao.save(newTask("Вторая", null));
+      Task third = dao.save(newTask("Третья", "Описание"));
+      dao.delete(third.getId());
+    }
+
+    // when
+    try (JournaledTaskDao reopened = open()) {
+      Task next = reopened.save(newTask("Четвёртая", null));
+
+      // then
+      assertEquals(List.of("Первая", "Вторая", "Четвёртая"),
+          reopened.findAll().stream().map(Task::getTitle).toList());
+      assertEquals("Описание", reopened.findById(1).orElseThrow().getDescription());
+      assertNull(reopened.findById(2).orElseThrow().getDescription());
+      assertEquals(4, next.getId());
+    }
+    assertEquals(List.of("snapshot.bin", "wal-0000000000000002.log"), listFiles());
+  }
+
+  /**
+   * Изменения, подтверждённые до сбоя, восстанавливаются из журнала, а оборванная при сбое запись
+   * в конце журнала отбрасывается.
+   */
+  @Test
+  void open_shouldReplayJournalAndDropTornRecordAfterCrash() throws IOException {
+    // given
+    JournaledTaskDao crashed = open();
+    Task task = crashed.save(newTask("До снимка", null));
+    crashed.snapshot();
+    task.setStatus(TaskStatus.DONE);
+    crashed.save(task);
+    crashed.save(newTask("После снимка", null));
+    // Процесс «падает» без закрытия, успев записать начало следующей записи
+    Path journal = directory.resolve("wal-0000000000000001.log");
+    Files.write(journal, new byte[] {42, 0, 0, 0, 1, 2}, StandardOpenOption.APPEND);
+
+    // when
+    try (JournaledTaskDao reopened = open()) {
+
+      // then
+      assertEquals(TaskStatus.DONE, reopened.findById(task.getId()).orElseThrow().getStatus());
+      assertEquals(1, reopened.findById(task.getId()).orElseThrow().getVersion());
+      assertEquals("После снимка", reopened.findById(2).orElseThrow().getTitle());
+      assertEquals(2, reopened.countByStatus().values().stream().mapToLong(Long::longValue).sum());
+    }
+  }
+
+  private JournaledTaskDao open() {
+    return JournaledTaskDao.open(directory, NO_PERIODIC_SNAPSHOTS, NO_EARLY_SNAPSHOTS);
+  }
+
+  private List<String> listFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString()).sorted().toList();
+    }
+  }
+
+  private static Task newTask(String title, String description) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setDescription(description);
+    task.setStatus(TaskStatus.TODO);
+    task.setCreatedAt(LocalDateTime.now());
+    task.setUpdatedAt(task.getCreatedAt());
+    return task;
+  }
+}
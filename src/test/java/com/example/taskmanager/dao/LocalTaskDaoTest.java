@@ -0,0 +1,215 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.DaoException;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link LocalTaskDao} и {@link TaskSyncWorker}. Локальное хранилище
+ * создаётся в памяти H2, DAO PostgreSQL заменяется заглушкой Mockito.
+ *
+ * @author Shebeta N.I.
+ */
+@ExtendWith(MockitoExtension.class)
+class LocalTaskDaoTest {
+
+  private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+  @Mock
+  private TaskDao remote;
+
+  private LocalTaskDao localDao;
+  private TaskSyncWorker syncWorker;
+
+  @BeforeEach
+  void setUp() {
+    localDao = new LocalTaskDao("jdbc:h2:mem:local" + DATABASE_COUNTER.incrementAndGet());
+    localDao.setRemoteWatermark(LocalDateTime.now());
+    syncWorker = new TaskSyncWorker(localDao, () -> remote, Duration.ofSeconds(1), 100);
+  }
+
+  @AfterEach
+  void tearDown() {
+    localDao.close();
+  }
+
+  /**
+   * Без соединения с PostgreSQL новая задача получает временный отрицательный id, читается
+   * локально и попадает в очередь отправки.
+   */
+  @Test
+  void save_shouldStoreTaskLocallyWithTemporaryId() {
+    // given
+    Task task = newTask("Офлайн");
+
+    // when
+    Task saved = localDao.save(task);
+
+    // then
+    assertTrue(saved.getId() < 0);
+    assertEquals("Офлайн", localDao.findById(saved.getId()).orElseThrow().getTitle());
+    assertEquals(1, localDao.findByStatus(TaskStatus.TODO).size());
+    assertEquals(1, localDao.pendingCount());
+  }
+
+  /**
+   * Синхронизация отправляет новые задачи одним пакетом, заменяет временный id постоянным и
+   * очищает очередь; задача остаётся доступной и по временному id.
+   */
+  @Test
+  void syncOnce_shouldPushNewTasksAndReplaceTemporaryIds() {
+    // given
+    Task first = localDao.save(newTask("Первая"));
+    Task second = localDao.save(newTask("Вторая"));
+    int tempId = first.getId();
+    AtomicInteger nextId = new AtomicInteger(100);
+    doAnswer(invocation -> {
+      Collection<Task> tasks = invocation.getArgument(0);
+      tasks.forEach(task -> {
+        task.setId(nextId.incrementAndGet());
+        task.setVersion(task.getVersion() + 1);
+      });
+      return List.copyOf(tasks);
+    }).when(remote).saveAll(anyCollection());
+    when(remote.findModifiedSince(any())).thenReturn(
+        new TaskDelta(List.of(), List.of(), LocalDateTime.now()));
+
+    // when
+    boolean synced = syncWorker.syncOnce();
+
+    // then
+    assertTrue(synced);
+    assertEquals(0, localDao.pendingCount());
+    assertEquals(List.of(101, 102), localDao.findAll().stream().map(Task::getId).toList());
+    assertEquals(101, localDao.findById(tempId).orElseThrow().getId());
+    assertNotEquals(second.getId(), localDao.findAll().get(1).getId());
+  }
+
+  /**
+   * При конфликте версий принимается состояние PostgreSQL, если оно изменено позже локального.
+   */
+  @Test
+  void syncOnce_shouldAcceptRemoteStateWhenItIsNewer() {
+    // given
+    Task task = remoteTask(7, 3, "Исходная", LocalDateTime.now().minusHours(1));
+    localDao.applyRemoteChanges(List.of(task), List.of());
+    Task local = localDao.findById(7).orElseThrow();
+    local.setTitle("Локальная");
+    localDao.save(local);
+    Task newer = remoteTask(7, 5, "Чужая", LocalDateTime.now().plusHours(1));
+    when(remote.saveAll(anyCollection())).thenThrow(new OptimisticLockException(List.of(7)));
+    when(remote.findByIdOnPrimary(7)).thenReturn(Optional.of(newer));
+    when(remote.findModifiedSince(any())).thenReturn(
+        new TaskDelta(List.of(), List.of(), LocalDateTime.now()));
+
+    // when
+    boolean synced = syncWorker.syncOnce();
+
+    // then
+    assertTrue(synced);
+    assertEquals(0, localDao.pendingCount());
+    Task current = localDao.findById(7).orElseThrow();
+    assertEquals("Чужая", current.getTitle());
+    assertEquals(5, current.getVersion());
+  }
+
+  /**
+   * При конфликте версий локальное изменение сохраняется, если оно новее, и отправляется поверх
+   * текущей версии PostgreSQL.
+   */
+  @Test
+  void syncOnce_shouldRebaseLocalChangeWhenItIsNewer() {
+    // given
+    Task task = remoteTask(7, 3, "Исходная", LocalDateTime.now().minusHours(2));
+    localDao.applyRemoteChanges(List.of(task), List.of());
+    Task local = localDao.findById(7).orElseThrow();
+    local.setTitle("Локальная");
+    local.setUpdatedAt(LocalDateTime.now());
+    localDao.save(local);
+    Task older = remoteTask(7, 5, "Чужая", LocalDateTime.now().minusHours(1));
+    when(remote.saveAll(anyCollection()))
+        .thenThrow(new OptimisticLockException(List.of(7)))
+        .thenAnswer(invocation -> {
+          Collection<Task> tasks = invocation.getArgument(0);
+          Task pushed = tasks.iterator().next();
+          assertEquals(5, pushed.getVersion());
+          assertEquals("Локальная", pushed.getTitle());
+          pushed.setVersion(6);
+          return List.copyOf(tasks);
+        });
+    when(remote.findByIdOnPrimary(7)).thenReturn(Optional.of(older));
+    when(remote.findModifiedSince(any())).thenReturn(
+        new TaskDelta(List.of(), List.of(), LocalDateTime.now()));
+
+    // when
+    boolean synced = syncWorker.syncOnce();
+
+    // then
+    assertTrue(synced);
+    assertEquals(0, localDao.pendingCount());
+    Task current = localDao.findById(7).orElseThrow();
+    assertEquals("Локальная", current.getTitle());
+    assertEquals(6, current.getVersion());
+  }
+
+  /**
+   * Недоступность PostgreSQL не теряет очередь: цикл завершается неудачей, изменения ждут
+   * следующей попытки.
+   */
+  @Test
+  void syncOnce_shouldKeepOutboxWhenRemoteFails() {
+    // given
+    localDao.save(newTask("Ждёт сервер"));
+    when(remote.saveAll(anyCollection()))
+        .thenThrow(new DaoException("Нет соединения", null));
+
+    // when
+    boolean synced = syncWorker.syncOnce();
+
+    // then
+    assertFalse(synced);
+    assertEquals(1, localDao.pendingCount());
+    verify(remote).saveAll(anyCollection());
+  }
+
+  private static Task newTask(String title) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setDescription("Описание");
+    task.setStatus(TaskStatus.TODO);
+    task.setCreatedAt(LocalDateTime.now());
+    task.setUpdatedAt(task.getCreatedAt());
+    return task;
+  }
+
+  private static Task remoteTask(int id, int version, String title, LocalDateTime updatedAt) {
+    Task task = newTask(title);
+    task.setId(id);
+    task.setVersion(version);
+    task.setCreatedAt(updatedAt.minusDays(1));
+    task.setUpdatedAt(updatedAt);
+    return task;
+  }
+}
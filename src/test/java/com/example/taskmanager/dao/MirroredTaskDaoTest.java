@@ -0,0 +1,111 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.TaskChangeEvent;
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты для {@link MirroredTaskDao}. Делегатом служит {@link ColumnarTaskDao}, обёрнутый
+ * в spy Mockito: обращения к нему показывают, выполнен ли запрос по копии в памяти.
+ *
+ * @author Shebeta N.I.
+ */
+class MirroredTaskDaoTest {
+
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+  private ColumnarTaskDao delegate;
+  private MirroredTaskDao mirroredDao;
+
+  @BeforeEach
+  void setUp() {
+    delegate = spy(new ColumnarTaskDao());
+    delegate.save(task("Годовой отчёт", TaskStatus.TODO));
+    delegate.save(task("План работ", TaskStatus.IN_PROGRESS));
+    delegate.save(task("Отчёт за месяц", TaskStatus.DONE));
+    mirroredDao = new MirroredTaskDao(delegate, 4);
+  }
+
+  /**
+   * До загрузки копии запросы выполняются делегатом, после загрузки отбор по статусам и поиск
+   * подстроки выполняются в памяти, а поиск по словам по-прежнему передаётся делегату.
+   */
+  @Test
+  void find_shouldFallBackUntilLoadedAndThenAnswerLocally() {
+    // given
+    TaskQuery byStatus = TaskQuery.builder().statuses(TaskStatus.TODO, TaskStatus.DONE).build();
+    TaskQuery bySubstring = TaskQuery.builder().text("отчёт").build();
+    TaskQuery byWords = TaskQuery.builder().text("отчёт месяц").build();
+    assertEquals(2, mirroredDao.count(byStatus));
+    verify(delegate).count(byStatus);
+
+    // when
+    mirroredDao.load();
+    clearInvocations(delegate);
+
+    // then
+    assertTrue(mirroredDao.isComplete());
+    assertEquals(List.of(1, 3),
+        mirroredDao.findSummaries(byStatus).stream().map(TaskSummary::id).toList());
+    assertEquals(2, mirroredDao.count(bySubstring));
+    assertEquals(List.of(1, 3), mirroredDao.search("ОТЧЁТ").stream().map(Task::getId).toList());
+    verifyNoInteractions(delegate);
+    mirroredDao.find(byWords);
+    verify(delegate).find(byWords);
+  }
+
+  /**
+   * Изменения других клиентов перечитываются из делегата по id с основного сервера; когда задач
+   * становится больше допустимого, копия перестаёт отвечать на чтения.
+   */
+  @Test
+  void applyChanges_shouldRefreshChangedTasksAndDropOversizedMirror() {
+    // given
+    mirroredDao.load();
+    Task changed = delegate.findById(2).orElseThrow();
+    changed.setStatus(TaskStatus.DONE);
+    delegate.save(changed);
+    delegate.delete(1);
+
+    // when
+    mirroredDao.applyChanges(List.of(new TaskChangeEvent(Operation.UPDATE, 2),
+        new TaskChangeEvent(Operation.DELETE, 1)));
+
+    // then
+    verify(delegate).findByIdOnPrimary(2);
+    assertEquals(List.of(2, 3), mirroredDao.findByStatus(TaskStatus.DONE).stream()
+        .map(Task::getId).toList());
+    assertTrue(mirroredDao.findById(1).isEmpty());
+    Task first = delegate.save(task("Новая 1", TaskStatus.TODO));
+    Task second = delegate.save(task("Новая 2", TaskStatus.TODO));
+    Task third = delegate.save(task("Новая 3", TaskStatus.TODO));
+    mirroredDao.applyChanges(List.of(new TaskChangeEvent(Operation.INSERT, first.getId()),
+        new TaskChangeEvent(Operation.INSERT, second.getId()),
+        new TaskChangeEvent(Operation.INSERT, third.getId())));
+    assertFalse(mirroredDao.isComplete());
+    clearInvocations(delegate);
+    assertEquals(3, mirroredDao.findByStatus(TaskStatus.TODO).size());
+    verify(delegate).findByStatus(any());
+  }
+
+  private static Task task(String title, TaskStatus status) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setStatus(status);
+    task.setCreatedAt(DATE);
+    task.setUpdatedAt(DATE);
+    return task;
+  }
+}
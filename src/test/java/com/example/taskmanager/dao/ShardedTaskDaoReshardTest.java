@@ -0,0 +1,126 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.DatabaseConnection;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.job.TaskReshardJob;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка {@link ShardedTaskDao} и {@link TaskReshardJob} на трёх отдельных экземплярах
+ * PostgreSQL в Testcontainers. Пропускается, если Docker недоступен. Первый экземпляр служит
+ * основной базой данных {@link DatabaseConnection}, поэтому тест должен первым обращаться к ней в
+ * JVM.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class ShardedTaskDaoReshardTest {
+
+  private static final int ROWS = 1_000;
+
+  @Container
+  private static final PostgreSQLContainer<?> SHARD0 = new PostgreSQLContainer<>("postgres:16");
+
+  @Container
+  private static final PostgreSQLContainer<?> SHARD1 = new PostgreSQLContainer<>("postgres:16");
+
+  @Container
+  private static final PostgreSQLContainer<?> SHARD2 = new PostgreSQLContainer<>("postgres:16");
+
+  private static final List<HikariDataSource> pools = new ArrayList<>();
+
+  @BeforeAll
+  static void setUp() {
+    System.setProperty("db.url", SHARD0.getJdbcUrl());
+    System.setProperty("db.username", SHARD0.getUsername());
+    System.setProperty("db.password", SHARD0.getPassword());
+    for (PostgreSQLContainer<?> container : List.of(SHARD0, SHARD1, SHARD2)) {
+      HikariDataSource pool = new HikariDataSource();
+      pool.setJdbcUrl(container.getJdbcUrl());
+      pool.setUsername(container.getUsername());
+      pool.setPassword(container.getPassword());
+      pool.setMaximumPoolSize(4);
+      pools.add(pool);
+      LiquibaseRunner.runMigrations(pool::getConnection);
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    pools.forEach(HikariDataSource::close);
+    DatabaseConnection.close();
+  }
+
+  /**
+   * Задачи, созданные в одной базе данных, после переноса на три шарда и обратно на два остаются
+   * доступны по тем же id, а новые задачи попадают в шард, определяемый их id.
+   */
+  @Test
+  void reshard_shouldKeepIdsAndRouteTasksToNewShards() {
+    // given
+    List<Integer> ids = new ArrayList<>();
+    // Единственная база данных до перехода на шарды выдаёт id подряд
+    ShardedTaskDao single = new ShardedTaskDao(
+        List.of(new TaskDaoImpl(pools.get(0)::getConnection, 500, 1000)));
+    single.saveAll(newTasks()).forEach(task -> ids.add(task.getId()));
+    single.close();
+
+    // when
+    long movedTo3 = new TaskReshardJob(sources(), 1, 3, 100).run();
+    ShardedTaskDao threeShards = new ShardedTaskDao(List.of(shardDao(0), shardDao(1), shardDao(2)));
+    List<Integer> afterSplit = threeShards.findAll().stream().map(Task::getId).toList();
+    Task created = threeShards.save(newTasks().get(0));
+    threeShards.close();
+
+    long movedTo2 = new TaskReshardJob(sources(), 3, 2, 100).run();
+    ShardedTaskDao twoShards = new ShardedTaskDao(List.of(shardDao(0), shardDao(1)));
+
+    // then
+    assertTrue(movedTo3 > 0);
+    assertTrue(movedTo2 > 0);
+    assertEquals(ids, afterSplit);
+    assertEquals(ids.size() + 1, twoShards.findAll().size());
+    assertTrue(twoShards.findById(ids.get(ROWS / 2)).isPresent());
+    assertTrue(twoShards.findById(created.getId()).isPresent());
+    assertEquals(0, new TaskDaoImpl(pools.get(2)::getConnection, 500, 1000).findAll().size());
+    twoShards.close();
+  }
+
+  private static TaskDaoImpl shardDao(int shard) {
+    HikariDataSource pool = pools.get(shard);
+    ShardedTaskDao.alignIdSequence(pool::getConnection, shard);
+    return new TaskDaoImpl(pool::getConnection, 500, 1000);
+  }
+
+  private static List<ConnectionSource> sources() {
+    List<ConnectionSource> sources = new ArrayList<>();
+    pools.forEach(pool -> sources.add(pool::getConnection));
+    return sources;
+  }
+
+  private static List<Task> newTasks() {
+    LocalDateTime now = LocalDateTime.now();
+    List<Task> tasks = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      tasks.add(new Task(0, "Задача " + i, "Описание " + i, TaskStatus.TODO, now, now));
+    }
+    return tasks;
+  }
+}
@@ -0,0 +1,168 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link ShardedTaskDao}. DAO шардов заменяются заглушками Mockito.
+ *
+ * @author Shebeta N.I.
+ */
+@ExtendWith(MockitoExtension.class)
+class ShardedTaskDaoTest {
+
+  @Mock
+  private TaskDao shard0;
+
+  @Mock
+  private TaskDao shard1;
+
+  @Mock
+  private TaskDao shard2;
+
+  private ShardedTaskDao shardedDao;
+
+  @BeforeEach
+  void setUp() {
+    shardedDao = new ShardedTaskDao(List.of(shard0, shard1, shard2));
+  }
+
+  @AfterEach
+  void tearDown() {
+    shardedDao.close();
+  }
+
+  /**
+   * Запрос по id обращается только к шарду слота задачи: слот 4 хранится в шарде 4 % 3 = 1.
+   */
+  @Test
+  void findById_shouldRouteToShardOfIdSlot() {
+    // given
+    int id = 5 * ShardedTaskDao.SLOT_COUNT + 4;
+    when(shard1.findById(id)).thenReturn(Optional.of(task(id)));
+
+    // when
+    Optional<Task> found = shardedDao.findById(id);
+
+    // then
+    assertEquals(id, found.orElseThrow().getId());
+    verify(shard0, never()).findById(id);
+    verify(shard2, never()).findById(id);
+  }
+
+  /**
+   * Новые задачи пакета распределяются по шардам по кругу частями по размеру пакета записи, а
+   * существующая задача сохраняется в шарде своего id.
+   */
+  @Test
+  void saveAll_shouldSpreadNewTasksAcrossShardsByBatch() {
+    // given
+    ShardedTaskDao dao = new ShardedTaskDao(List.of(shard0, shard1, shard2), 2);
+    List<Task> inserts = List.of(task(0), task(0), task(0), task(0), task(0));
+    Task existing = task(ShardedTaskDao.SLOT_COUNT + 2);
+    List<Task> tasks = List.of(inserts.get(0), inserts.get(1), existing, inserts.get(2),
+        inserts.get(3), inserts.get(4));
+
+    // when
+    List<Task> saved = dao.saveAll(tasks);
+
+    // then
+    assertEquals(tasks, saved);
+    verify(shard0).saveAll(List.of(inserts.get(0), inserts.get(1)));
+    verify(shard1).saveAll(List.of(inserts.get(2), inserts.get(3)));
+    verify(shard2).saveAll(List.of(existing, inserts.get(4)));
+    dao.close();
+  }
+
+  /**
+   * Результаты шардов объединяются в один список, отсортированный по id.
+   */
+  @Test
+  void findAll_shouldMergeShardResultsInIdOrder() {
+    // given
+    when(shard0.findAll()).thenReturn(List.of(task(16), task(48)));
+    when(shard1.findAll()).thenReturn(List.of(task(1), task(17), task(65)));
+    when(shard2.findAll()).thenReturn(List.of());
+
+    // when
+    List<Integer> ids = shardedDao.findAll().stream().map(Task::getId).toList();
+
+    // then
+    assertEquals(List.of(1, 16, 17, 48, 65), ids);
+  }
+
+  /**
+   * Страница ранжированной выдачи составляется по позициям задач в выдачах шардов.
+   */
+  @Test
+  void searchSummariesRanked_shouldInterleaveShardRankings() {
+    // given
+    when(shard0.searchSummariesRanked("отчёт", 3, 0)).thenReturn(List.of(summary(32), summary(16)));
+    when(shard1.searchSummariesRanked("отчёт", 3, 0)).thenReturn(List.of(summary(1)));
+    when(shard2.searchSummariesRanked("отчёт", 3, 0)).thenReturn(List.of(summary(2), summary(18)));
+
+    // when
+    List<Integer> ids = shardedDao.searchSummariesRanked("отчёт", 2, 1).stream()
+        .map(TaskSummary::id).toList();
+
+    // then
+    assertEquals(List.of(1, 2), ids);
+  }
+
+  /**
+   * Выдачи шардов на составной запрос объединяются в порядке его сортировки (по дате изменения по
+   * убыванию, при равенстве — по id по убыванию) и ограничиваются общим лимитом.
+   */
+  @Test
+  void findSummaries_shouldMergeShardPagesInQueryOrder() {
+    // given
+    TaskQuery query = TaskQuery.builder()
+        .sortBy(TaskQuery.SortKey.UPDATED_AT, TaskQuery.Direction.DESC)
+        .limit(3)
+        .build();
+    LocalDateTime base = LocalDateTime.of(2026, 1, 1, 12, 0);
+    when(shard0.findSummaries(query)).thenReturn(
+        List.of(summary(16, base.plusHours(5)), summary(48, base.plusHours(1))));
+    when(shard1.findSummaries(query)).thenReturn(
+        List.of(summary(17, base.plusHours(3)), summary(1, base.plusHours(3))));
+    when(shard2.findSummaries(query)).thenReturn(List.of(summary(2, base.plusHours(4))));
+
+    // when
+    List<Integer> ids = shardedDao.findSummaries(query).stream().map(TaskSummary::id).toList();
+
+    // then
+    assertEquals(List.of(16, 2, 17), ids);
+  }
+
+  private static Task task(int id) {
+    LocalDateTime now = LocalDateTime.now();
+    return new Task(id, "Задача " + id, "Описание", TaskStatus.TODO, now, now);
+  }
+
+  private static TaskSummary summary(int id) {
+    return TaskSummary.of(task(id));
+  }
+
+  private static TaskSummary summary(int id, LocalDateTime updatedAt) {
+    Task task = task(id);
+    task.setUpdatedAt(updatedAt);
+    return TaskSummary.of(task);
+  }
+}
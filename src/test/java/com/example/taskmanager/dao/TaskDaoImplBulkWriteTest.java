@@ -0,0 +1,197 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.db.TaskChangeListener;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка пакетной записи {@link TaskDaoImpl#saveAll} и {@link TaskDaoImpl#deleteAll} на
+ * реальном PostgreSQL в Testcontainers. Пропускается, если Docker недоступен. Количество обращений
+ * к БД считается обёрткой над соединениями; сравнение времени пакетной и построчной записи
+ * выполняется бенчмарком {@code TaskDaoImplBenchmark} модуля benchmarks.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class TaskDaoImplBulkWriteTest {
+
+  private static final int ROWS = 5_000;
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+  private final AtomicInteger executeBatchCalls = new AtomicInteger();
+  private final AtomicInteger executeUpdateCalls = new AtomicInteger();
+
+  @BeforeAll
+  static void setUp() {
+    LiquibaseRunner.runMigrations(TaskDaoImplBulkWriteTest::connect);
+  }
+
+  /**
+   * Все задачи вставляются одним вызовом {@code executeBatch} и получают различные id, а удаляются
+   * одним запросом {@code UPDATE ... WHERE id = ANY(?)}, когда пакет вмещает все строки.
+   */
+  @Test
+  void saveAllAndDeleteAll_shouldWriteAllRowsInOneBatch() {
+    // given
+    TaskDaoImpl taskDao = new TaskDaoImpl(countingConnections(), 500, ROWS);
+    List<Task> tasks = newTasks();
+
+    // when
+    List<Task> saved = taskDao.saveAll(tasks);
+
+    // then
+    assertEquals(1, executeBatchCalls.get());
+    assertEquals(ROWS, saved.size());
+    assertTrue(saved.stream().allMatch(task -> task.getId() > 0));
+    assertEquals(ROWS, saved.stream().map(Task::getId).distinct().count());
+    assertEquals(ROWS, taskDao.findAll().size());
+    assertEquals(tasks.get(ROWS - 1).getTitle(),
+        taskDao.findById(saved.get(ROWS - 1).getId()).orElseThrow().getTitle());
+
+    executeUpdateCalls.set(0);
+    taskDao.deleteAll(saved.stream().map(Task::getId).toList());
+    assertEquals(1, executeUpdateCalls.get());
+    assertTrue(taskDao.findAll().isEmpty());
+  }
+
+  /**
+   * Задачи, не вмещающиеся в один пакет, вставляются несколькими вызовами {@code executeBatch}.
+   */
+  @Test
+  void saveAll_shouldSplitRowsIntoBatchesOfBatchSize() {
+    // given
+    TaskDaoImpl taskDao = new TaskDaoImpl(countingConnections(), 500, 1_000);
+
+    // when
+    List<Task> saved = taskDao.saveAll(newTasks());
+
+    // then
+    assertEquals(ROWS / 1_000, executeBatchCalls.get());
+    assertEquals(ROWS, saved.stream().map(Task::getId).distinct().count());
+    taskDao.deleteAll(saved.stream().map(Task::getId).toList());
+  }
+
+  /**
+   * Пакет больше {@link TaskChangeListener#MAX_BATCH_SIZE} задач отправляет слушателям одно
+   * уведомление RELOAD вместо построчных, а небольшой пакет — уведомление на каждую задачу.
+   */
+  @Test
+  void saveAllAndDeleteAll_shouldSendSingleReloadForLargeBatches() throws SQLException {
+    // given
+    TaskDaoImpl taskDao = new TaskDaoImpl(TaskDaoImplBulkWriteTest::connect, 500, 1_000);
+    try (Connection listener = connect()) {
+      try (Statement stmt = listener.createStatement()) {
+        stmt.execute("LISTEN " + TaskChangeListener.CHANNEL);
+      }
+
+      // when
+      List<Task> saved = taskDao.saveAll(newTasks());
+      List<String> afterSave = receiveNotifications(listener);
+      taskDao.deleteAll(saved.subList(0, 3).stream().map(Task::getId).toList());
+      List<String> afterSmallDelete = receiveNotifications(listener);
+      taskDao.deleteAll(saved.subList(3, ROWS).stream().map(Task::getId).toList());
+      List<String> afterDelete = receiveNotifications(listener);
+
+      // then
+      assertEquals(List.of("RELOAD:0"), afterSave);
+      assertEquals(saved.subList(0, 3).stream().map(task -> "DELETE:" + task.getId()).toList(),
+          afterSmallDelete);
+      assertEquals(List.of("RELOAD:0"), afterDelete);
+    }
+  }
+
+  /**
+   * Возвращает содержимое уведомлений, пришедших на соединение за время ожидания.
+   */
+  private static List<String> receiveNotifications(Connection conn) throws SQLException {
+    PGNotification[] notifications =
+        conn.unwrap(PGConnection.class).getNotifications(1_000);
+    List<String> payloads = new ArrayList<>();
+    if (notifications != null) {
+      for (PGNotification notification : notifications) {
+        payloads.add(notification.getParameter());
+      }
+    }
+    return payloads;
+  }
+
+  private static Connection connect() throws SQLException {
+    return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(),
+        POSTGRES.getPassword());
+  }
+
+  /**
+   * Возвращает источник соединений, подсчитывающий вызовы {@code executeBatch} и
+   * {@code executeUpdate} подготовленных запросов.
+   */
+  private ConnectionSource countingConnections() {
+    return () -> {
+      Connection connection = connect();
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+          new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            return result instanceof PreparedStatement statement
+                ? countingStatement(statement)
+                : result;
+          });
+    };
+  }
+
+  private PreparedStatement countingStatement(PreparedStatement statement) {
+    return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+          if (method.getName().equals("executeBatch")) {
+            executeBatchCalls.incrementAndGet();
+          } else if (method.getName().equals("executeUpdate")) {
+            executeUpdateCalls.incrementAndGet();
+          }
+          return invoke(statement, method, args);
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args)
+      throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static List<Task> newTasks() {
+    LocalDateTime now = LocalDateTime.now();
+    List<Task> tasks = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      tasks.add(new Task(0, "Задача " + i, "Описание " + i, TaskStatus.TODO, now, now));
+    }
+    return tasks;
+  }
+}
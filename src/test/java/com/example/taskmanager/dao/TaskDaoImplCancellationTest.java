@@ -0,0 +1,108 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.QueryCancellation;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.DaoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты регистрации запросов {@link TaskDaoImpl} в признаке отмены
+ * {@link QueryCancellation}. Соединение и запросы заменяются заглушками Mockito.
+ *
+ * @author Shebeta N.I.
+ */
+class TaskDaoImplCancellationTest {
+
+  private PreparedStatement statement;
+  private ResultSet resultSet;
+  private TaskDaoImpl taskDao;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    ConnectionSource connections = mock(ConnectionSource.class);
+    Connection connection = mock(Connection.class);
+    statement = mock(PreparedStatement.class);
+    resultSet = mock(ResultSet.class);
+    when(connections.getReadConnection()).thenReturn(connection);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(resultSet);
+    taskDao = new TaskDaoImpl(connections, 500, 1000);
+  }
+
+  /**
+   * После отмены ни один метод чтения не выполняет запрос, а завершается ошибкой отмены.
+   */
+  @Test
+  void readMethods_shouldNotExecuteQueriesAfterCancel() throws Exception {
+    // given
+    QueryCancellation cancellation = new QueryCancellation();
+    cancellation.cancel();
+    TaskQuery textQuery = TaskQuery.builder().text("отчёт").build();
+    List<Executable> reads = List.of(
+        () -> taskDao.findById(1),
+        () -> taskDao.findAll(),
+        () -> taskDao.findByStatus(TaskStatus.TODO),
+        () -> taskDao.search("отчёт"),
+        () -> taskDao.searchRanked("отчёт", 50, 0),
+        () -> taskDao.findAllSummaries(),
+        () -> taskDao.find(textQuery),
+        () -> taskDao.count(textQuery),
+        () -> taskDao.countByStatus(),
+        () -> taskDao.streamAll().close(),
+        () -> taskDao.streamByStatus(TaskStatus.DONE).close(),
+        () -> taskDao.streamSearch("отчёт").close());
+
+    // when / then
+    for (Executable read : reads) {
+      DaoException error = cancellation.call(() -> assertThrows(DaoException.class, read));
+      assertEquals("57014", ((SQLException) error.getCause()).getSQLState());
+    }
+    verify(statement, never()).executeQuery();
+  }
+
+  /**
+   * Запрос потока остаётся зарегистрированным, пока поток открыт, и снимается с регистрации при
+   * его закрытии.
+   */
+  @Test
+  void stream_shouldStayRegisteredUntilClosed() throws Exception {
+    // given
+    QueryCancellation cancellation = new QueryCancellation();
+    Stream<?> tasks = cancellation.call(() -> taskDao.streamAll());
+
+    // when
+    tasks.close();
+    cancellation.cancel();
+
+    // then
+    verify(statement, never()).cancel();
+
+    // given
+    QueryCancellation open = new QueryCancellation();
+    Stream<?> openTasks = open.call(() -> taskDao.streamAll());
+
+    // when
+    open.cancel();
+
+    // then
+    verify(statement).cancel();
+    openTasks.close();
+  }
+}
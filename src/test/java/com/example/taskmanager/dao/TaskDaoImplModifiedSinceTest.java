@@ -0,0 +1,199 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка {@link TaskDaoImpl#findModifiedSince}, на которой построена инкрементальная
+ * синхронизация, на реальном PostgreSQL в Testcontainers. Пропускается, если Docker недоступен.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class TaskDaoImplModifiedSinceTest {
+
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+  private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+  private static final ConnectionSource CONNECTIONS = () -> DriverManager.getConnection(
+      POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+
+  private final TaskDaoImpl taskDao = new TaskDaoImpl(CONNECTIONS, 500, 1000);
+
+  @BeforeAll
+  static void setUp() {
+    LiquibaseRunner.runMigrations(CONNECTIONS);
+  }
+
+  @BeforeEach
+  void cleanUp() throws SQLException {
+    execute("TRUNCATE tasks, task_tombstones, task_status_counters");
+  }
+
+  /**
+   * Возвращаются задачи, изменённые не раньше отметки, в порядке изменения: задача с
+   * {@code updated_at}, равным отметке, входит в результат, а изменённая на микросекунду раньше —
+   * нет.
+   */
+  @Test
+  void findModifiedSince_shouldReturnTasksUpdatedAtOrAfterWatermark() throws SQLException {
+    // given
+    Task before = taskDao.save(task("Раньше отметки", DATE));
+    Task atWatermark = taskDao.save(task("На отметке", DATE));
+    Task after = taskDao.save(task("После отметки", DATE));
+    Task earlierId = taskDao.save(task("Изменена позже", DATE));
+    taskDao.save(earlierId);
+    setUpdatedAt(before, DATE.minusNanos(1_000));
+    setUpdatedAt(atWatermark, DATE);
+    setUpdatedAt(after, DATE.plusMinutes(5));
+    setUpdatedAt(earlierId, DATE.plusMinutes(1));
+
+    // when
+    TaskDelta delta = taskDao.findModifiedSince(DATE);
+
+    // then
+    assertEquals(List.of(atWatermark.getId(), earlierId.getId(), after.getId()),
+        delta.changed().stream().map(Task::getId).toList());
+    assertEquals(1, delta.changed().get(1).getVersion());
+    assertTrue(delta.deletedIds().isEmpty());
+    assertFalse(delta.changed().stream().anyMatch(task -> task.getId() == before.getId()));
+    assertTrue(taskDao.findModifiedSince(DATE.plusMinutes(5).plusNanos(1_000)).changed()
+        .isEmpty());
+  }
+
+  /**
+   * Мягко удалённые и физически удалённые задачи возвращаются как удалённые, если удалены не
+   * раньше отметки, и не возвращаются среди изменённых; отметка следующего вызова отделяет уже
+   * полученные удаления от новых, а восстановленная задача возвращается как изменённая.
+   */
+  @Test
+  void findModifiedSince_shouldReturnDeletedIdsAfterWatermark() throws SQLException {
+    // given
+    Task softDeleted = taskDao.save(task("Мягко удалённая", DATE));
+    Task purged = taskDao.save(task("Удалённая физически", DATE));
+    Task restored = taskDao.save(task("Восстановленная", DATE));
+    Task oldTombstone = taskDao.save(task("Удалённая давно", DATE));
+    execute("DELETE FROM tasks WHERE id = " + oldTombstone.getId());
+    execute("UPDATE task_tombstones SET deleted_at = localtimestamp - interval '1 day' "
+        + "WHERE task_id = " + oldTombstone.getId());
+    LocalDateTime watermark = taskDao.findModifiedSince(FAR_FUTURE).nextWatermark();
+
+    // when
+    taskDao.delete(softDeleted.getId());
+    taskDao.delete(purged.getId());
+    execute("DELETE FROM tasks WHERE id = " + purged.getId());
+    taskDao.delete(restored.getId());
+    TaskDelta deleted = taskDao.findModifiedSince(watermark);
+    taskDao.restore(restored.getId());
+    TaskDelta next = taskDao.findModifiedSince(deleted.nextWatermark());
+
+    // then
+    assertEquals(List.of(softDeleted.getId(), purged.getId(), restored.getId()),
+        deleted.deletedIds());
+    assertTrue(deleted.changed().isEmpty());
+    assertFalse(deleted.nextWatermark().isBefore(watermark));
+    assertEquals(List.of(restored.getId()), next.changed().stream().map(Task::getId).toList());
+    assertTrue(next.deletedIds().isEmpty());
+    assertTrue(taskDao.findModifiedSince(watermark.minusDays(2)).deletedIds()
+        .contains(oldTombstone.getId()));
+  }
+
+  /**
+   * Время изменения проставляет сервер БД, а не клиент: задача, сохранённая с давним временем
+   * изменения (как у клиента с отстающими часами), получает время сервера и попадает в изменения
+   * после отметки, полученной до сохранения.
+   */
+  @Test
+  void save_shouldStampUpdatedAtWithServerTime() {
+    // given
+    LocalDateTime watermark = taskDao.currentWatermark();
+    Task inserted = task("Новая", DATE);
+    Task updated = taskDao.save(task("Изменённая", DATE));
+    updated.setUpdatedAt(DATE);
+    Task batched = taskDao.save(task("Изменённая пакетом", DATE));
+    batched.setUpdatedAt(DATE);
+
+    // when
+    taskDao.save(inserted);
+    taskDao.save(updated);
+    taskDao.saveAll(List.of(batched));
+    TaskDelta delta = taskDao.findModifiedSince(watermark);
+
+    // then
+    assertFalse(inserted.getUpdatedAt().isBefore(watermark));
+    assertFalse(updated.getUpdatedAt().isBefore(watermark));
+    assertFalse(batched.getUpdatedAt().isBefore(watermark));
+    assertEquals(List.of(updated.getId(), batched.getId(), inserted.getId()),
+        delta.changed().stream().map(Task::getId).sorted().toList());
+    assertEquals(batched.getUpdatedAt(), taskDao.findById(batched.getId()).orElseThrow()
+        .getUpdatedAt());
+  }
+
+  /**
+   * Изменение транзакции, которая записала задачу до выборки изменений, а завершилась после неё,
+   * не пропускается: отметка следующей синхронизации не позже начала этой транзакции.
+   */
+  @Test
+  void findModifiedSince_shouldNotSkipTransactionCommittedAfterSync() throws Exception {
+    // given
+    LocalDateTime watermark = taskDao.currentWatermark();
+    TaskDelta delta;
+    try (Connection writer = CONNECTIONS.getConnection();
+        Statement stmt = writer.createStatement()) {
+      writer.setAutoCommit(false);
+      stmt.execute("INSERT INTO tasks (title, status, created_at, updated_at) "
+          + "VALUES ('Долгая транзакция', 'TODO', localtimestamp, statement_timestamp())");
+      Thread.sleep(50);
+
+      // when
+      delta = taskDao.findModifiedSince(watermark);
+      writer.commit();
+    }
+    TaskDelta next = taskDao.findModifiedSince(delta.nextWatermark());
+
+    // then
+    assertTrue(delta.changed().isEmpty());
+    assertEquals(List.of("Долгая транзакция"),
+        next.changed().stream().map(Task::getTitle).toList());
+  }
+
+  private static void setUpdatedAt(Task task, LocalDateTime updatedAt) throws SQLException {
+    execute("UPDATE tasks SET updated_at = '" + Timestamp.valueOf(updatedAt) + "' WHERE id = "
+        + task.getId());
+  }
+
+  private static Task task(String title, LocalDateTime updatedAt) {
+    return new Task(0, title, "Описание", TaskStatus.TODO, DATE.minusDays(1), updatedAt);
+  }
+
+  private static void execute(String sql) throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute(sql);
+    }
+  }
+}
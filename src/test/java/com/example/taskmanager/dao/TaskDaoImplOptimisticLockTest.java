@@ -0,0 +1,140 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.exception.OptimisticLockException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка условного {@code UPDATE ... WHERE version = ?} в {@link TaskDaoImpl#save} и
+ * {@link TaskDaoImpl#saveAll} на реальном PostgreSQL в Testcontainers. Пропускается, если Docker
+ * недоступен.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class TaskDaoImplOptimisticLockTest {
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+  private static final ConnectionSource CONNECTIONS = () -> DriverManager.getConnection(
+      POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+
+  // Пакеты по две строки, чтобы конфликт приходился на пакет после уже выполненного
+  private final TaskDaoImpl taskDao = new TaskDaoImpl(CONNECTIONS, 500, 2);
+
+  @BeforeAll
+  static void setUp() {
+    LiquibaseRunner.runMigrations(CONNECTIONS);
+  }
+
+  @BeforeEach
+  void cleanUp() throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute("TRUNCATE tasks, task_tombstones, task_status_counters");
+    }
+  }
+
+  /**
+   * Сохранение задачи с устаревшей версией отклоняется, а в БД остаются изменения, сохранённые
+   * раньше.
+   */
+  @Test
+  void save_shouldRejectStaleVersion() {
+    // given
+    Task current = taskDao.save(task("Исходная"));
+    Task stale = new Task(current);
+    current.setTitle("Сохранена первой");
+    taskDao.save(current);
+    stale.setTitle("Устаревшая");
+
+    // when
+    OptimisticLockException e = assertThrows(OptimisticLockException.class,
+        () -> taskDao.save(stale));
+
+    // then
+    assertEquals(List.of(current.getId()), e.getTaskIds());
+    assertEquals(0, stale.getVersion());
+    Task found = taskDao.findById(current.getId()).orElseThrow();
+    assertEquals("Сохранена первой", found.getTitle());
+    assertEquals(1, found.getVersion());
+  }
+
+  /**
+   * Сохранение удалённой задачи, даже с актуальной версией, отклоняется и не восстанавливает её.
+   */
+  @Test
+  void save_shouldRejectUpdateOfDeletedTask() {
+    // given
+    Task task = taskDao.save(task("Будет удалена"));
+    taskDao.delete(task.getId());
+    task.setTitle("Изменена после удаления");
+
+    // when
+    OptimisticLockException e = assertThrows(OptimisticLockException.class,
+        () -> taskDao.save(task));
+
+    // then
+    assertEquals(List.of(task.getId()), e.getTaskIds());
+    assertTrue(taskDao.findById(task.getId()).isEmpty());
+    assertTrue(taskDao.findAll().isEmpty());
+  }
+
+  /**
+   * Конфликт одной задачи откатывает весь пакет: не сохраняются ни обновления из уже выполненного
+   * пакета, ни новые задачи, которым возвращается id 0, а версии в памяти не меняются.
+   */
+  @Test
+  void saveAll_shouldRollBackWholeBatchOnSingleConflict() {
+    // given
+    Task first = taskDao.save(task("Первая"));
+    Task second = taskDao.save(task("Вторая"));
+    Task third = taskDao.save(task("Третья"));
+    Task stale = new Task(third);
+    third.setTitle("Изменена другим клиентом");
+    taskDao.save(third);
+    first.setTitle("Первая изменена");
+    second.setTitle("Вторая изменена");
+    stale.setTitle("Устаревшая");
+    Task inserted = task("Новая");
+
+    // when
+    OptimisticLockException e = assertThrows(OptimisticLockException.class,
+        () -> taskDao.saveAll(List.of(first, second, stale, inserted)));
+
+    // then
+    assertEquals(List.of(third.getId()), e.getTaskIds());
+    assertEquals(0, inserted.getId());
+    assertEquals(0, first.getVersion());
+    assertEquals(0, second.getVersion());
+    assertEquals(List.of("Первая", "Вторая", "Изменена другим клиентом"),
+        taskDao.findAll().stream().map(Task::getTitle).toList());
+    assertEquals(List.of(0, 0, 1),
+        taskDao.findAll().stream().map(Task::getVersion).toList());
+  }
+
+  private static Task task(String title) {
+    LocalDateTime now = LocalDateTime.now();
+    return new Task(0, title, null, TaskStatus.TODO, now, now);
+  }
+}
@@ -0,0 +1,59 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.dao.TaskDaoImpl.SearchStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты выбора способа поиска {@link TaskDaoImpl#chooseSearchStrategy} и экранирования
+ * шаблона {@link TaskDaoImpl#escapeLikePattern}. От выбора способа поиска зависит и то, отвечает
+ * ли на запрос копия задач в памяти {@link MirroredTaskDao}.
+ *
+ * @author Shebeta N.I.
+ */
+class TaskDaoImplSearchStrategyTest {
+
+  /**
+   * Одно слово из одной-двух букв или цифр ищется по префиксу лексемы, а строка той же длины со
+   * спецсимволами — как подстрока, так как лексем из таких символов нет.
+   */
+  @Test
+  void chooseSearchStrategy_shouldUsePrefixOnlyForShortWords() {
+    assertEquals(SearchStrategy.PREFIX, TaskDaoImpl.chooseSearchStrategy("о"));
+    assertEquals(SearchStrategy.PREFIX, TaskDaoImpl.chooseSearchStrategy("от"));
+    assertEquals(SearchStrategy.PREFIX, TaskDaoImpl.chooseSearchStrategy("42"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("%"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("c#"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("_x"));
+  }
+
+  /**
+   * Одно слово от трёх символов ищется как подстрока, а несколько слов — полнотекстовым поиском;
+   * строка из нескольких слов со спецсимволами ищется как подстрока целиком.
+   */
+  @Test
+  void chooseSearchStrategy_shouldUseSubstringForLongWordAndFullTextForSeveralWords() {
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("отч"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("отчёт"));
+    assertEquals(SearchStrategy.FULL_TEXT, TaskDaoImpl.chooseSearchStrategy("отчёт месяц"));
+    assertEquals(SearchStrategy.FULL_TEXT, TaskDaoImpl.chooseSearchStrategy("а б"));
+    assertEquals(SearchStrategy.FULL_TEXT, TaskDaoImpl.chooseSearchStrategy("план\tна 2026"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("отчёт, месяц"));
+    assertEquals(SearchStrategy.SUBSTRING, TaskDaoImpl.chooseSearchStrategy("100% готово"));
+  }
+
+  /**
+   * Символы шаблона {@code LIKE} экранируются обратной косой чертой, а сама обратная косая черта
+   * экранируется первой, чтобы не удвоить экранирование остальных символов.
+   */
+  @Test
+  void escapeLikePattern_shouldEscapeWildcardsAndBackslash() {
+    assertEquals("отчёт", TaskDaoImpl.escapeLikePattern("отчёт"));
+    assertEquals("100\\%", TaskDaoImpl.escapeLikePattern("100%"));
+    assertEquals("snake\\_case", TaskDaoImpl.escapeLikePattern("snake_case"));
+    assertEquals("C:\\\\temp", TaskDaoImpl.escapeLikePattern("C:\\temp"));
+    assertEquals("\\\\\\%\\_", TaskDaoImpl.escapeLikePattern("\\%_"));
+    assertEquals("", TaskDaoImpl.escapeLikePattern(""));
+  }
+}
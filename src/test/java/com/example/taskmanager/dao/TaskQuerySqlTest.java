@@ -0,0 +1,115 @@
+package com.example.taskmanager.dao;
+
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link TaskQuerySql}. Проверяется построение запроса без обращения к БД.
+ *
+ * @author Shebeta N.I.
+ */
+class TaskQuerySqlTest {
+
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+  /**
+   * Запросы одного вида с разными значениями используют один и тот же текст SQL, а значения
+   * передаются только параметрами.
+   */
+  @Test
+  void compile_shouldReuseSqlTextForSameShape() {
+    // given
+    TaskQuery first = TaskQuery.builder()
+        .statuses(TaskStatus.TODO)
+        .text("отчёт")
+        .createdBetween(DATE, null)
+        .limit(50)
+        .build();
+    TaskQuery second = TaskQuery.builder()
+        .statuses(TaskStatus.TODO, TaskStatus.IN_PROGRESS)
+        .text("план")
+        .createdBetween(DATE.minusDays(7), null)
+        .limit(500)
+        .build();
+
+    // when
+    TaskQuerySql.Compiled compiledFirst = TaskQuerySql.compile("id", first);
+    TaskQuerySql.Compiled compiledSecond = TaskQuerySql.compile("id", second);
+
+    // then
+    assertSame(compiledFirst.sql(), compiledSecond.sql());
+    assertFalse(compiledFirst.sql().contains("отчёт"));
+    assertEquals(List.of("%план%", "%план%", DATE.minusDays(7), 500),
+        compiledSecond.parameters().subList(1, 5));
+  }
+
+  /**
+   * Количество параметров совпадает с количеством мест подстановки для всех способов поиска,
+   * сортировок и курсоров; курсор по заголовку сравнивается как строка по индексу
+   * {@code (title COLLATE "C", id)}, а отбор без DONE исключает архивную секцию.
+   */
+  @Test
+  void compile_shouldBindParameterForEveryPlaceholder() {
+    // given
+    TaskSummary last = new TaskSummary(42, "Заголовок", null, false, TaskStatus.TODO, DATE, DATE);
+
+    for (String text : new String[]{null, "два слова", "ab", "подстрока"}) {
+      for (TaskQuery.SortKey sortKey : TaskQuery.SortKey.values()) {
+        TaskQuery.Builder builder = TaskQuery.builder()
+            .statuses(TaskStatus.IN_PROGRESS)
+            .text(text)
+            .updatedBetween(DATE, DATE.plusDays(1))
+            .sortBy(sortKey, TaskQuery.Direction.DESC)
+            .limit(10);
+        if (sortKey != TaskQuery.SortKey.RELEVANCE) {
+          builder.after(last);
+        }
+
+        // when
+        TaskQuerySql.Compiled compiled = TaskQuerySql.compile("id", builder.build());
+
+        // then
+        long placeholders = compiled.sql().chars().filter(c -> c == '?').count();
+        assertEquals(placeholders, compiled.parameters().size(), compiled.sql());
+        assertTrue(compiled.sql().contains("archived = false"), compiled.sql());
+        if (sortKey == TaskQuery.SortKey.TITLE) {
+          assertTrue(compiled.sql().contains("(title COLLATE \"C\", id) < (?, ?)"), compiled.sql());
+        }
+      }
+    }
+  }
+
+  /**
+   * Смещение передаётся параметром после ограничения, а запрос количества задач сохраняет условия
+   * отбора, но не содержит сортировки, курсора, ограничения и смещения.
+   */
+  @Test
+  void compile_shouldBindOffsetAndOmitOrderingInCount() {
+    // given
+    TaskQuery query = TaskQuery.builder()
+        .statuses(TaskStatus.TODO)
+        .text("подстрока")
+        .sortBy(TaskQuery.SortKey.CREATED_AT, TaskQuery.Direction.ASC)
+        .limit(200)
+        .offset(4000)
+        .build();
+
+    // when
+    TaskQuerySql.Compiled page = TaskQuerySql.compile("id", query);
+    TaskQuerySql.Compiled count = TaskQuerySql.compileCount(query);
+
+    // then
+    assertTrue(page.sql().endsWith(" LIMIT ? OFFSET ?"), page.sql());
+    assertEquals(List.of(200, 4000), page.parameters().subList(3, 5));
+    assertTrue(count.sql().startsWith("SELECT count(*) FROM tasks WHERE"), count.sql());
+    assertFalse(count.sql().contains("ORDER BY"), count.sql());
+    assertEquals(count.sql().chars().filter(c -> c == '?').count(), count.parameters().size());
+  }
+}
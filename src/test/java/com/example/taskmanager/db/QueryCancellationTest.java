@@ -0,0 +1,81 @@
+package com.example.taskmanager.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты для {@link QueryCancellation}.
+ *
+ * @author Shebeta N.I.
+ */
+class QueryCancellationTest {
+
+  /**
+   * Отмена из другого потока вызывает {@link Statement#cancel()} у запроса, который выполняется
+   * в вызове с признаком отмены; завершённый запрос не отменяется.
+   */
+  @Test
+  void cancel_shouldCancelRunningStatementFromAnotherThread() throws Exception {
+    // given
+    QueryCancellation cancellation = new QueryCancellation();
+    Statement running = mock(Statement.class);
+    Statement finished = mock(Statement.class);
+    CountDownLatch registered = new CountDownLatch(1);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      cancelled.countDown();
+      return null;
+    }).when(running).cancel();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<Boolean> call = executor.submit(() -> cancellation.call(() -> {
+      QueryCancellation.register(finished).close();
+      try (QueryCancellation.Registration registration = QueryCancellation.register(running)) {
+        registered.countDown();
+        return cancelled.await(5, TimeUnit.SECONDS);
+      }
+    }));
+
+    // when
+    assertTrue(registered.await(5, TimeUnit.SECONDS));
+    cancellation.cancel();
+
+    // then
+    assertTrue(call.get(5, TimeUnit.SECONDS));
+    verify(running).cancel();
+    verify(finished, never()).cancel();
+    assertNull(QueryCancellation.current());
+    executor.shutdown();
+  }
+
+  /**
+   * После отмены новые запросы не выполняются, а вне вызова с признаком отмены регистрация ничего
+   * не делает.
+   */
+  @Test
+  void register_shouldRejectStatementsAfterCancel() throws Exception {
+    // given
+    QueryCancellation cancellation = new QueryCancellation();
+    Statement statement = mock(Statement.class);
+
+    // when
+    cancellation.cancel();
+
+    // then
+    SQLException error = assertThrows(SQLException.class,
+        () -> cancellation.call(() -> QueryCancellation.register(statement)));
+    assertEquals("57014", error.getSQLState());
+    assertTrue(cancellation.isCancelled());
+    QueryCancellation.register(statement).close();
+    verify(statement, never()).cancel();
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.taskmanager.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты для {@link ReplicaSet}.
+ *
+ * @author Shebeta N.I.
+ */
+class ReplicaSetTest {
+
+  /**
+   * Соединения выдаются исправными репликами по очереди.
+   */
+  @Test
+  void tryGetConnection_shouldRoundRobinBetweenReplicas() throws SQLException {
+    // given
+    Connection first = mock(Connection.class);
+    Connection second = mock(Connection.class);
+    ReplicaSet replicas = new ReplicaSet(List.of(dataSource(first), dataSource(second)),
+        Duration.ZERO);
+
+    // when / then
+    assertSame(first, replicas.tryGetConnection());
+    assertSame(second, replicas.tryGetConnection());
+    assertSame(first, replicas.tryGetConnection());
+  }
+
+  /**
+   * Реплика, не выдавшая соединение, пропускается до следующей успешной проверки, а при
+   * недоступности всех реплик возвращается {@code null}.
+   */
+  @Test
+  void tryGetConnection_shouldSkipFailedReplicaUntilHealthCheckPasses() throws SQLException {
+    // given
+    Connection healthy = mock(Connection.class);
+    Connection recovered = mock(Connection.class);
+    when(recovered.createStatement()).thenReturn(mock(Statement.class));
+    DataSource failing = mock(DataSource.class);
+    when(failing.getConnection())
+        .thenThrow(new SQLException("connection refused"))
+        .thenReturn(recovered);
+    DataSource other = dataSource(healthy);
+    ReplicaSet replicas = new ReplicaSet(List.of(failing, other), Duration.ZERO);
+
+    // when / then
+    assertSame(healthy, replicas.tryGetConnection());
+    assertSame(healthy, replicas.tryGetConnection());
+    verify(failing, times(1)).getConnection();
+
+    when(other.getConnection()).thenThrow(new SQLException("connection refused"));
+    assertNull(replicas.tryGetConnection());
+
+    replicas.checkHealth();
+    assertSame(recovered, replicas.tryGetConnection());
+  }
+
+  private static DataSource dataSource(Connection connection) throws SQLException {
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    return dataSource;
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.taskmanager.db;
+
+import com.example.taskmanager.db.TaskChangeEvent.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link TaskChangeListener#toEvents(List)} и {@link TaskChangeEvent#parse}.
+ *
+ * @author Shebeta N.I.
+ */
+class TaskChangeListenerTest {
+
+  /**
+   * Повторные уведомления об одной задаче сворачиваются в последнее.
+   */
+  @Test
+  void toEvents_shouldKeepLastEventPerTask() {
+    // when
+    List<TaskChangeEvent> events =
+        TaskChangeListener.toEvents(List.of("INSERT:1", "UPDATE:2", "UPDATE:1", "DELETE:1"));
+
+    // then
+    assertEquals(List.of(new TaskChangeEvent(Operation.UPDATE, 2),
+        new TaskChangeEvent(Operation.DELETE, 1)), events);
+  }
+
+  /**
+   * Слишком большой пакет и нераспознанное уведомление заменяются событием RELOAD.
+   */
+  @Test
+  void toEvents_shouldReplaceLargeOrUnknownBatchWithReload() {
+    // given
+    List<String> payloads = new ArrayList<>();
+    for (int i = 1; i <= TaskChangeListener.MAX_BATCH_SIZE + 1; i++) {
+      payloads.add("UPDATE:" + i);
+    }
+    List<TaskChangeEvent> reload = List.of(new TaskChangeEvent(Operation.RELOAD, 0));
+
+    // when / then
+    assertEquals(reload, TaskChangeListener.toEvents(payloads));
+    assertEquals(reload, TaskChangeListener.toEvents(List.of("UPDATE:1", "TRUNCATE")));
+  }
+}
@@ -0,0 +1,249 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskDelta;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import com.example.taskmanager.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты для {@link LazyTaskTableModel}. Запросы к БД выполняются синхронно в потоке
+ * обработки событий, а их результаты применяются следующей задачей этого потока.
+ *
+ * @author Shebeta N.I.
+ */
+@ExtendWith(MockitoExtension.class)
+class LazyTaskTableModelTest {
+
+  private static final int TOTAL = 1000;
+  private static final int PAGE_SIZE = 50;
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+  @Mock
+  private TaskService taskService;
+
+  private LazyTaskTableModel model;
+
+  /**
+   * Сервис возвращает задачи с id от 1 до {@link #TOTAL} в порядке id с учётом курсора, смещения и
+   * ограничения запроса.
+   */
+  @BeforeEach
+  void setUp() {
+    lenient().when(taskService.countTasks(any())).thenReturn((long) TOTAL);
+    lenient().when(taskService.findTaskSummaries(any())).thenAnswer(invocation -> {
+      TaskQuery query = invocation.getArgument(0);
+      int first = (query.cursor() == null ? 0 : query.cursor().id()) + query.offset() + 1;
+      return IntStream.rangeClosed(first, Math.min(TOTAL, first + query.limit() - 1))
+          .mapToObj(id -> new TaskSummary(id, "Задача " + id, "", false, TaskStatus.TODO, DATE,
+              DATE))
+          .toList();
+    });
+    model = new LazyTaskTableModel(taskService, PAGE_SIZE, 6, 2, Runnable::run);
+  }
+
+  /**
+   * После установки запроса известно общее количество строк и загружена первая страница;
+   * следующая страница загружается по курсору после последней строки первой, а не со смещением.
+   */
+  @Test
+  void getValueAt_shouldLoadNextPageByCursor() throws Exception {
+    // given
+    onEdt(() -> model.setQuery(TaskQuery.builder().build()));
+    onEdt(() -> {});
+
+    // when
+    onEdt(() -> assertNull(model.getValueAt(PAGE_SIZE, 0)));
+    onEdt(() -> {});
+
+    // then
+    onEdt(() -> {
+      assertEquals(TOTAL, model.getRowCount());
+      assertEquals(1, model.getValueAt(0, 0));
+      assertEquals(PAGE_SIZE + 1, model.getValueAt(PAGE_SIZE, 0));
+    });
+    ArgumentCaptor<TaskQuery> queries = ArgumentCaptor.forClass(TaskQuery.class);
+    verify(taskService, atLeast(2)).findTaskSummaries(queries.capture());
+    TaskQuery secondPage = queries.getAllValues().stream()
+        .filter(query -> query.cursor() != null && query.cursor().id() == PAGE_SIZE)
+        .findFirst()
+        .orElseThrow();
+    assertEquals(0, secondPage.offset());
+    assertEquals(PAGE_SIZE, secondPage.limit());
+  }
+
+  /**
+   * Переход к далёкой странице загружает её со смещением, а при прокрутке всей таблицы в памяти
+   * остаётся не больше заданного окна страниц.
+   */
+  @Test
+  void getValueAt_shouldJumpByOffsetAndKeepBoundedWindow() throws Exception {
+    // given
+    onEdt(() -> model.setQuery(TaskQuery.builder().build()));
+    onEdt(() -> {});
+
+    // when
+    int farRow = 15 * PAGE_SIZE + 7;
+    onEdt(() -> model.getValueAt(farRow, 0));
+    onEdt(() -> {});
+    onEdt(() -> assertEquals(farRow + 1, model.getValueAt(farRow, 0)));
+    for (int row = 0; row < TOTAL; row += PAGE_SIZE / 2) {
+      int visibleRow = row;
+      onEdt(() -> model.getValueAt(visibleRow, 1));
+      onEdt(() -> {});
+    }
+
+    // then
+    verify(taskService).findTaskSummaries(argThat(query ->
+        query.cursor() == null && query.offset() == 15 * PAGE_SIZE));
+    onEdt(() -> {
+      assertEquals("Задача " + TOTAL, model.getValueAt(TOTAL - 1, 1));
+      assertTrue(model.loadedPages() <= 6, "Загружено страниц: " + model.loadedPages());
+    });
+  }
+
+  /**
+   * После перечитывания таблица уведомляется только о строке, которая изменилась, а изменение
+   * задачи без смены её положения заменяет загруженную строку на месте.
+   */
+  @Test
+  void refresh_shouldFireEventsOnlyForChangedRows() throws Exception {
+    // given
+    onEdt(() -> model.setQuery(TaskQuery.builder().build()));
+    onEdt(() -> {});
+    List<Integer> updatedRows = new ArrayList<>();
+    onEdt(() -> model.addTableModelListener(e -> {
+      for (int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+        updatedRows.add(row);
+      }
+    }));
+    TaskSummary changed = new TaskSummary(8, "Изменённая", "", false, TaskStatus.TODO, DATE, DATE);
+    doAnswer(invocation -> {
+      TaskQuery query = invocation.getArgument(0);
+      int first = (query.cursor() == null ? 0 : query.cursor().id()) + query.offset() + 1;
+      return IntStream.rangeClosed(first, Math.min(TOTAL, first + query.limit() - 1))
+          .mapToObj(id -> id == 8 ? changed : new TaskSummary(id, "Задача " + id, "", false,
+              TaskStatus.TODO, DATE, DATE))
+          .toList();
+    }).when(taskService).findTaskSummaries(any());
+
+    // when
+    onEdt(() -> model.refresh());
+    onEdt(() -> {});
+    onEdt(() -> assertTrue(model.updateTask(new TaskSummary(9, "Тоже изменённая", "", false,
+        TaskStatus.TODO, DATE, DATE))));
+
+    // then
+    assertEquals(List.of(7, 8), updatedRows);
+    onEdt(() -> {
+      assertEquals("Изменённая", model.getValueAt(7, 1));
+      assertEquals("Тоже изменённая", model.getValueAt(8, 1));
+    });
+  }
+
+  /**
+   * Строки снимка прошлого сеанса показываются сразу, а загрузка того же запроса из БД уведомляет
+   * таблицу только об изменившейся строке и о добавленных строках, без полной перерисовки.
+   */
+  @Test
+  void setQuery_shouldReplaceSnapshotOnlyWithChangedRows() throws Exception {
+    // given
+    TaskQuery query = TaskQuery.builder().build();
+    List<TaskSummary> snapshot = IntStream.rangeClosed(1, PAGE_SIZE)
+        .mapToObj(id -> new TaskSummary(id, id == 3 ? "Старая" : "Задача " + id, "", false,
+            TaskStatus.TODO, DATE, DATE))
+        .toList();
+    onEdt(() -> model.showSnapshot(query, snapshot));
+    onEdt(() -> assertEquals("Старая", model.getValueAt(2, 1)));
+    verifyNoInteractions(taskService);
+    List<String> events = new ArrayList<>();
+    onEdt(() -> model.addTableModelListener(e -> events.add(e.getType() + ":" + e.getFirstRow()
+        + "-" + (e.getLastRow() == Integer.MAX_VALUE ? "all" : e.getLastRow()))));
+
+    // when
+    onEdt(() -> model.setQuery(query));
+    onEdt(() -> {});
+
+    // then
+    assertTrue(events.contains(TableModelEvent.UPDATE + ":2-2"), events.toString());
+    assertTrue(events.stream().noneMatch(event -> event.endsWith("all")), events.toString());
+    onEdt(() -> {
+      assertEquals(TOTAL, model.getRowCount());
+      assertEquals("Задача 3", model.getValueAt(2, 1));
+    });
+  }
+
+  /**
+   * Пока запрос не загружен из БД (показывается снимок прошлого сеанса или таблица пуста),
+   * синхронизация изменений не обращается к БД и не завершается ошибкой.
+   */
+  @Test
+  void refreshChanges_shouldDoNothingBeforeFirstLoad() throws Exception {
+    // given
+    TaskQuery query = TaskQuery.builder().build();
+    List<TaskSummary> snapshot = List.of(
+        new TaskSummary(1, "Задача 1", "", false, TaskStatus.TODO, DATE, DATE));
+
+    // when
+    onEdt(() -> model.refreshChanges());
+    onEdt(() -> model.showSnapshot(query, snapshot));
+    onEdt(() -> model.refreshChanges());
+    onEdt(() -> {});
+
+    // then
+    verifyNoInteractions(taskService);
+    onEdt(() -> assertEquals("Задача 1", model.getValueAt(0, 1)));
+  }
+
+  /**
+   * После загрузки запроса изменения запрашиваются с отметки сервера, полученной перед загрузкой,
+   * изменённая задача заменяется на месте, а следующая синхронизация начинается с отметки,
+   * возвращённой предыдущей.
+   */
+  @Test
+  void refreshChanges_shouldApplyChangesSinceLastLoad() throws Exception {
+    // given
+    LocalDateTime loaded = DATE.plusDays(1);
+    when(taskService.getSyncWatermark()).thenReturn(loaded);
+    onEdt(() -> model.setQuery(TaskQuery.builder().build()));
+    onEdt(() -> {});
+    LocalDateTime next = loaded.plusMinutes(1);
+    Task changed = new Task(5, "Изменённая", "", TaskStatus.TODO, DATE, DATE);
+    when(taskService.getTaskChangesSince(any()))
+        .thenReturn(new TaskDelta(List.of(changed), List.of(), next));
+
+    // when
+    onEdt(() -> model.refreshChanges());
+    onEdt(() -> {});
+    onEdt(() -> model.refreshChanges());
+    onEdt(() -> {});
+
+    // then
+    ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+    verify(taskService, times(2)).getTaskChangesSince(since.capture());
+    assertEquals(List.of(loaded, next), since.getAllValues());
+    onEdt(() -> assertEquals("Изменённая", model.getValueAt(4, 1)));
+  }
+
+  private static void onEdt(Runnable action) throws Exception {
+    SwingUtilities.invokeAndWait(action);
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link SessionSnapshot}.
+ *
+ * @author Shebeta N.I.
+ */
+class SessionSnapshotTest {
+
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Записанный снимок читается без изменений, в том числе строки без фрагмента описания.
+   */
+  @Test
+  void read_shouldReturnWrittenSnapshot() throws IOException {
+    // given
+    Path file = directory.resolve("nested").resolve("session");
+    SessionSnapshot snapshot = new SessionSnapshot("Выполнено", "отчёт", List.of(
+        new TaskSummary(1, "Годовой отчёт", "Собрать данные", true, TaskStatus.DONE, DATE,
+            DATE.plusHours(1)),
+        new TaskSummary(2, "Отчёт за месяц", null, false, TaskStatus.DONE, DATE, DATE)));
+
+    // when
+    snapshot.write(file);
+    Optional<SessionSnapshot> read = SessionSnapshot.read(file);
+
+    // then
+    assertEquals(Optional.of(snapshot), read);
+  }
+
+  /**
+   * Отсутствующий файл означает первый запуск, а файл неизвестного формата — ошибку чтения.
+   */
+  @Test
+  void read_shouldReturnEmptyForMissingFileAndFailForForeignFile() throws IOException {
+    // given
+    Path foreign = directory.resolve("foreign");
+    Files.writeString(foreign, "не снимок сеанса");
+
+    // when
+    Optional<SessionSnapshot> missing = SessionSnapshot.read(directory.resolve("missing"));
+
+    // then
+    assertTrue(missing.isEmpty());
+    assertThrows(IOException.class, () -> SessionSnapshot.read(foreign));
+  }
+}
@@ -0,0 +1,100 @@
+package com.example.taskmanager.gui;
+
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link TaskTableModel}.
+ *
+ * @author Shebeta N.I.
+ */
+class TaskTableModelTest {
+
+  private static final LocalDateTime DATE = LocalDateTime.of(2026, 1, 1, 10, 0);
+
+  /**
+   * Новый результат применяется минимальными событиями: удалённые и вставленные диапазоны и
+   * изменённая строка, без замены данных целиком.
+   */
+  @Test
+  void setTasks_shouldFireMinimalRowEvents() {
+    // given
+    TaskTableModel model = new TaskTableModel(tasks(1, 20));
+    List<String> events = record(model);
+    List<TaskSummary> fresh = new ArrayList<>(tasks(1, 20));
+    fresh.subList(3, 5).clear();                       // удалены задачи 4 и 5
+    fresh.set(9, task(12, "Изменённая"));              // изменена задача 12
+    fresh.add(0, task(100, "Новая"));                  // вставлена задача 100 в начало
+
+    // when
+    model.setTasks(fresh);
+
+    // then
+    assertEquals(List.of("DELETE 3-4", "INSERT 0-0", "UPDATE 10-10"), events);
+    assertEquals(fresh.size(), model.getRowCount());
+    for (int row = 0; row < fresh.size(); row++) {
+      assertEquals(fresh.get(row), model.getTaskAt(row));
+      assertEquals(row, model.indexOf(fresh.get(row).id()));
+    }
+    assertEquals(-1, model.indexOf(4));
+  }
+
+  /**
+   * Операции по идентификатору находят строку по индексу и после удаления строки индексы строк
+   * ниже неё остаются верными; другой порядок задач заменяет данные целиком.
+   */
+  @Test
+  void rowOperations_shouldKeepIdIndexConsistent() {
+    // given
+    TaskTableModel model = new TaskTableModel(tasks(1, 10));
+    List<String> events = record(model);
+    List<TaskSummary> reversed = new ArrayList<>(tasks(1, 10));
+    Collections.reverse(reversed);
+
+    // when
+    model.removeTask(3);
+    model.updateTask(task(7, "Изменённая"));
+    model.insertTask(0, task(50, "Новая"));
+    model.setTasks(reversed);
+
+    // then
+    assertEquals(List.of("DELETE 2-2", "UPDATE 5-5", "INSERT 0-0", "ALL"), events);
+    assertEquals(9, model.indexOf(1));
+    assertEquals(-1, model.indexOf(50));
+  }
+
+  private static List<String> record(TaskTableModel model) {
+    List<String> events = new ArrayList<>();
+    model.addTableModelListener(e -> {
+      if (e.getLastRow() == Integer.MAX_VALUE) {
+        events.add("ALL");
+        return;
+      }
+      String type = switch (e.getType()) {
+        case TableModelEvent.INSERT -> "INSERT";
+        case TableModelEvent.DELETE -> "DELETE";
+        default -> "UPDATE";
+      };
+      events.add(type + " " + e.getFirstRow() + "-" + e.getLastRow());
+    });
+    return events;
+  }
+
+  private static List<TaskSummary> tasks(int firstId, int lastId) {
+    return IntStream.rangeClosed(firstId, lastId).mapToObj(id -> task(id, "Задача " + id)).toList();
+  }
+
+  private static TaskSummary task(int id, String title) {
+    return new TaskSummary(id, title, "", false, TaskStatus.TODO, DATE, DATE);
+  }
+}
@@ -0,0 +1,165 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.dao.TaskDaoImpl;
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка переноса задач в архивную секцию заданием {@link TaskArchiveJob} на реальном
+ * PostgreSQL в Testcontainers. Пропускается, если Docker недоступен.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class TaskArchiveJobTest {
+
+  private static final Duration AGE = Duration.ofDays(30);
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+  private static final ConnectionSource CONNECTIONS = () -> DriverManager.getConnection(
+      POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+
+  private final TaskDaoImpl taskDao = new TaskDaoImpl(CONNECTIONS, 500, 1000);
+
+  @BeforeAll
+  static void setUp() {
+    LiquibaseRunner.runMigrations(CONNECTIONS);
+  }
+
+  @BeforeEach
+  void cleanUp() throws SQLException {
+    execute("TRUNCATE tasks, task_tombstones, task_status_counters");
+  }
+
+  /**
+   * В архив переносятся только давно выполненные задачи; после переноса они читаются без
+   * изменений, счётчики по статусам и изменения для синхронизации не меняются, а изменение
+   * архивной задачи возвращает её в рабочую секцию.
+   */
+  @Test
+  void run_shouldMoveOldDoneTasksWithoutVisibleChanges() throws SQLException {
+    // given
+    LocalDateTime old = LocalDateTime.now().minusDays(40).truncatedTo(ChronoUnit.SECONDS);
+    Task archived = saveUpdatedAt(task("Давно выполненная", TaskStatus.DONE), old);
+    Task recent = taskDao.save(task("Недавно выполненная", TaskStatus.DONE));
+    Task oldTodo = saveUpdatedAt(task("Давно не менялась", TaskStatus.TODO), old);
+    LocalDateTime watermark = taskDao.findModifiedSince(LocalDateTime.of(9999, 1, 1, 0, 0))
+        .nextWatermark();
+    EnumMap<TaskStatus, Long> counts = taskDao.countByStatus();
+
+    // when
+    long moved = new TaskArchiveJob(CONNECTIONS, AGE, 100).run();
+
+    // then
+    assertEquals(1, moved);
+    assertEquals(List.of(archived.getId()), archivedIds());
+    Task read = taskDao.findById(archived.getId()).orElseThrow();
+    assertEquals(archived.getTitle(), read.getTitle());
+    assertEquals(archived.getVersion(), read.getVersion());
+    assertEquals(archived.getUpdatedAt(), read.getUpdatedAt());
+    assertEquals(List.of(archived.getId(), recent.getId()),
+        taskDao.findByStatus(TaskStatus.DONE).stream().map(Task::getId).toList());
+    assertTrue(taskDao.findById(oldTodo.getId()).isPresent());
+    assertEquals(counts, taskDao.countByStatus());
+    assertTrue(taskDao.findModifiedSince(watermark).changed().isEmpty());
+
+    read.setTitle("Изменённая архивная");
+    taskDao.save(read);
+    assertTrue(archivedIds().isEmpty());
+    assertEquals("Изменённая архивная",
+        taskDao.findById(archived.getId()).orElseThrow().getTitle());
+    assertEquals(counts, taskDao.countByStatus());
+  }
+
+  /**
+   * Задача, id которой уже занят строкой архивной секции, не переносится, поэтому в таблице не
+   * появляются две задачи с одним id.
+   */
+  @Test
+  void run_shouldSkipTaskWhoseIdIsTakenInArchive() throws SQLException {
+    // given
+    LocalDateTime old = LocalDateTime.now().minusDays(40);
+    Task conflicting = saveUpdatedAt(task("Конфликт id", TaskStatus.DONE), old);
+    Task movable = saveUpdatedAt(task("Переносимая", TaskStatus.DONE), old);
+    execute("INSERT INTO tasks (id, title, status, created_at, updated_at, archived) VALUES ("
+        + conflicting.getId() + ", 'Чужая строка', 'DONE', localtimestamp, localtimestamp, true)");
+
+    // when
+    long moved = new TaskArchiveJob(CONNECTIONS, AGE, 100).run();
+
+    // then
+    assertEquals(1, moved);
+    assertEquals(List.of(conflicting.getId(), movable.getId()), archivedIds());
+    assertEquals(1, queryLong("SELECT count(*) FROM tasks_hot WHERE id = " + conflicting.getId()));
+  }
+
+  private static Task task(String title, TaskStatus status) {
+    LocalDateTime now = LocalDateTime.now();
+    return new Task(0, title, "Описание", status, now, now);
+  }
+
+  /**
+   * Сохраняет задачу и заменяет время изменения, которое проставляет БД, на указанное.
+   */
+  private Task saveUpdatedAt(Task task, LocalDateTime updatedAt) throws SQLException {
+    int id = taskDao.save(task).getId();
+    execute("UPDATE tasks SET updated_at = '" + Timestamp.valueOf(updatedAt) + "' WHERE id = "
+        + id);
+    return taskDao.findById(id).orElseThrow();
+  }
+
+  private static List<Integer> archivedIds() throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT id FROM tasks_cold ORDER BY id")) {
+      List<Integer> ids = new ArrayList<>();
+      while (rs.next()) {
+        ids.add(rs.getInt(1));
+      }
+      return ids;
+    }
+  }
+
+  private static void execute(String sql) throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute(sql);
+    }
+  }
+
+  private static long queryLong(String sql) throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+}
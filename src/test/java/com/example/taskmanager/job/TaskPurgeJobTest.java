@@ -0,0 +1,186 @@
+package com.example.taskmanager.job;
+
+import com.example.taskmanager.dao.TaskDaoImpl;
+import com.example.taskmanager.db.ConnectionSource;
+import com.example.taskmanager.db.LiquibaseRunner;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskQuery;
+import com.example.taskmanager.entity.TaskStatus;
+import com.example.taskmanager.entity.TaskSummary;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка мягкого удаления задач, их восстановления и физического удаления заданием
+ * {@link TaskPurgeJob} на реальном PostgreSQL в Testcontainers, в том числе счётчиков
+ * {@code task_status_counters}, которые поддерживают триггеры. Пропускается, если Docker
+ * недоступен. Время пометки удаления сдвигается в прошлое запросом к БД.
+ *
+ * @author Shebeta N.I.
+ */
+@Tag("integration")
+@Testcontainers(disabledWithoutDocker = true)
+class TaskPurgeJobTest {
+
+  private static final Duration RETENTION = Duration.ofDays(7);
+
+  @Container
+  private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+  private static final ConnectionSource CONNECTIONS = () -> DriverManager.getConnection(
+      POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+
+  private final TaskDaoImpl taskDao = new TaskDaoImpl(CONNECTIONS, 500, 1000);
+
+  @BeforeAll
+  static void setUp() {
+    LiquibaseRunner.runMigrations(CONNECTIONS);
+  }
+
+  @BeforeEach
+  void cleanUp() throws SQLException {
+    execute("TRUNCATE tasks, task_tombstones, task_status_counters");
+  }
+
+  /**
+   * Мягко удалённая задача не возвращается методами поиска и не учитывается счётчиками, а после
+   * восстановления снова возвращается и учитывается.
+   */
+  @Test
+  void deleteAndRestore_shouldHideTaskAndKeepCountersConsistent() {
+    // given
+    Task kept = taskDao.save(task("Отчёт за год", TaskStatus.TODO));
+    Task deleted = taskDao.save(task("Отчёт за месяц", TaskStatus.TODO));
+    taskDao.save(task("План", TaskStatus.DONE));
+
+    // when
+    taskDao.delete(deleted.getId());
+
+    // then
+    assertEquals(counts(1, 0, 1), taskDao.countByStatus());
+    assertTrue(taskDao.findById(deleted.getId()).isEmpty());
+    assertEquals(List.of(kept.getId()), ids(taskDao.findByStatus(TaskStatus.TODO)));
+    assertEquals(List.of(kept.getId()), ids(taskDao.search("Отчёт")));
+    assertEquals(2, taskDao.findAll().size());
+    assertEquals(List.of(kept.getId()), taskDao.findSummariesByStatus(TaskStatus.TODO).stream()
+        .map(TaskSummary::id).toList());
+    TaskQuery todo = TaskQuery.builder().statuses(TaskStatus.TODO).build();
+    assertEquals(1, taskDao.count(todo));
+    assertEquals(List.of(kept.getId()), ids(taskDao.find(todo)));
+
+    assertTrue(taskDao.restore(deleted.getId()));
+    assertFalse(taskDao.restore(deleted.getId()));
+    assertEquals(counts(2, 0, 1), taskDao.countByStatus());
+    assertEquals(List.of(kept.getId(), deleted.getId()),
+        ids(taskDao.findByStatus(TaskStatus.TODO)));
+  }
+
+  /**
+   * Задание удаляет физически только задачи, помеченные удалёнными дольше срока хранения; такие
+   * задачи больше нельзя восстановить, а счётчики при физическом удалении не меняются.
+   */
+  @Test
+  void run_shouldPurgeOnlyTasksDeletedBeforeRetention() throws SQLException {
+    // given
+    Task expired = taskDao.save(task("Давно удалённая", TaskStatus.DONE));
+    Task recent = taskDao.save(task("Недавно удалённая", TaskStatus.DONE));
+    Task live = taskDao.save(task("Рабочая", TaskStatus.IN_PROGRESS));
+    taskDao.delete(expired.getId());
+    taskDao.delete(recent.getId());
+    execute("UPDATE tasks SET deleted_at = localtimestamp - interval '8 days' WHERE id = "
+        + expired.getId());
+    execute("UPDATE tasks SET deleted_at = localtimestamp - interval '6 days' WHERE id = "
+        + recent.getId());
+    EnumMap<TaskStatus, Long> before = taskDao.countByStatus();
+
+    // when
+    long purged = new TaskPurgeJob(CONNECTIONS, RETENTION, 500, Duration.ZERO).run();
+
+    // then
+    assertEquals(1, purged);
+    assertEquals(before, taskDao.countByStatus());
+    assertEquals(counts(0, 1, 0), before);
+    assertEquals(2, queryLong("SELECT count(*) FROM tasks"));
+    assertFalse(taskDao.restore(expired.getId()));
+    assertTrue(taskDao.restore(recent.getId()));
+    assertEquals(counts(0, 1, 1), taskDao.countByStatus());
+    assertTrue(taskDao.findById(live.getId()).isPresent());
+  }
+
+  /**
+   * Записи об удалении старше срока хранения удаляются пакетами вместе с задачами, а запись,
+   * созданная самим заданием при физическом удалении, сохраняется до истечения её срока.
+   */
+  @Test
+  void run_shouldPruneTombstonesOlderThanRetention() throws SQLException {
+    // given
+    Task expired = taskDao.save(task("Давно удалённая", TaskStatus.TODO));
+    taskDao.delete(expired.getId());
+    execute("UPDATE tasks SET deleted_at = localtimestamp - interval '8 days' WHERE id = "
+        + expired.getId());
+    execute("INSERT INTO task_tombstones (task_id, deleted_at) "
+        + "SELECT 100000 + g, localtimestamp - interval '8 days' FROM generate_series(1, 5) g");
+    execute("INSERT INTO task_tombstones (task_id, deleted_at) "
+        + "VALUES (200000, localtimestamp - interval '6 days')");
+
+    // when
+    long processed = new TaskPurgeJob(CONNECTIONS, RETENTION, 2, Duration.ZERO).run();
+
+    // then
+    assertEquals(6, processed);
+    assertEquals(2, queryLong("SELECT count(*) FROM task_tombstones"));
+    assertEquals(1, queryLong("SELECT count(*) FROM task_tombstones WHERE task_id = "
+        + expired.getId()));
+    assertEquals(1, queryLong("SELECT count(*) FROM task_tombstones WHERE task_id = 200000"));
+  }
+
+  private static Task task(String title, TaskStatus status) {
+    LocalDateTime now = LocalDateTime.now();
+    return new Task(0, title, "Описание", status, now, now);
+  }
+
+  private static List<Integer> ids(List<Task> tasks) {
+    return tasks.stream().map(Task::getId).toList();
+  }
+
+  private static EnumMap<TaskStatus, Long> counts(long todo, long inProgress, long done) {
+    EnumMap<TaskStatus, Long> counts = new EnumMap<>(TaskStatus.class);
+    counts.put(TaskStatus.TODO, todo);
+    counts.put(TaskStatus.IN_PROGRESS, inProgress);
+    counts.put(TaskStatus.DONE, done);
+    return counts;
+  }
+
+  private static void execute(String sql) throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement()) {
+      stmt.execute(sql);
+    }
+  }
+
+  private static long queryLong(String sql) throws SQLException {
+    try (Connection conn = CONNECTIONS.getConnection();
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery(sql)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dao.TaskDao;
+import com.example.taskmanager.entity.Task;
+import com.example.taskmanager.entity.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link AsyncTaskService}. DAO заменяется заглушкой Mockito, которая
+ * имитирует время выполнения запроса и считает одновременные обращения к ней.
+ *
+ * @author Shebeta N.I.
+ */
+@ExtendWith(MockitoExtension.class)
+class AsyncTaskServiceTest {
+
+  private static final int POOL_SIZE = 10;
+  private static final int CALLERS = 1_000;
+
+  @Mock
+  private TaskDao taskDao;
+
+  private TaskService taskService;
+  private AsyncTaskService asyncService;
+
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() {
+    taskService = new TaskService(taskDao);
+    asyncService = new AsyncTaskService(taskService, POOL_SIZE, Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void tearDown() {
+    asyncService.close();
+  }
+
+  /**
+   * Проверяет, что при 1000 одновременных вызовах к DAO одновременно обращается не больше
+   * {@link #POOL_SIZE} потоков, ограничение действительно достигается и все вызовы завершаются.
+   */
+  @Test
+  void thousandConcurrentCallers_shouldNeverExceedPoolSize() throws Exception {
+    when(taskDao.findAll()).thenAnswer(invocation -> simulateQuery());
+
+    List<CompletableFuture<List<Task>>> futures = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      futures.add(asyncService.getAllTasks());
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+    assertEquals(POOL_SIZE, maxActive.get());
+    verify(taskDao, times(CALLERS)).findAll();
+  }
+
+  /**
+   * Проверяет, что вызов, не уложившийся в таймаут, завершается с {@link TimeoutException}.
+   */
+  @Test
+  void call_shouldFailWithTimeoutWhenDaoIsTooSlow() {
+    AsyncTaskService service = new AsyncTaskService(taskService, 1, Duration.ofMillis(50));
+    when(taskDao.findAll()).thenAnswer(invocation -> {
+      Thread.sleep(5_000);
+      return List.of();
+    });
+
+    ExecutionException error = assertThrows(ExecutionException.class,
+        () -> service.getAllTasks().get(5, TimeUnit.SECONDS));
+    assertInstanceOf(TimeoutException.class, error.getCause());
+    service.close();
+  }
+
+  /**
+   * Проверяет, что отменённый вызов, ожидающий свободного разрешения, не доходит до DAO.
+   */
+  @Test
+  void cancel_shouldPreventQueuedCallFromReachingDao() throws Exception {
+    AsyncTaskService service = new AsyncTaskService(taskService, 1, Duration.ofSeconds(30));
+    CountDownLatch release = new CountDownLatch(1);
+    when(taskDao.findAll()).thenAnswer(invocation -> {
+      release.await();
+      return List.of();
+    });
+
+    CompletableFuture<List<Task>> running = service.getAllTasks();
+    CompletableFuture<List<Task>> queued = service.getTasksByStatus(TaskStatus.DONE);
+    assertTrue(queued.cancel(true));
+    release.countDown();
+    running.get(5, TimeUnit.SECONDS);
+
+    verify(taskDao, never()).findByStatus(TaskStatus.DONE);
+    service.close();
+  }
+
+  /**
+   * Имитирует запрос к БД длительностью 5 мс и учитывает наибольшее число одновременных обращений
+   * к DAO, которое допускает {@link AsyncTaskService}.
+   */
+  private List<Task> simulateQuery() throws InterruptedException {
+    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(5);
+      return List.of();
+    } finally {
+      active.decrementAndGet();
+    }
+  }
+}
@@ -14,6 +14,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -106,4 +108,27 @@ class TaskServiceTest {
     assertThrows(ValidationException.class,
         () -> taskService.createTask("", "desc", TaskStatus.TODO));
   }
-}
\ No newline at end of file
+
+  /**
+   * Тестирует, что потоковое чтение задач делегируется DAO, а закрытие потока сервиса закрывает
+   * поток DAO (и тем самым освобождает соединение).
+   */
+  @Test
+  void streamAllTasks_shouldDelegateToDaoAndPropagateClose() {
+    // given
+    Task task = new Task(1, "Title", "Desc", TaskStatus.TODO, LocalDateTime.now(),
+        LocalDateTime.now());
+    boolean[] closed = {false};
+    when(taskDao.streamAll()).thenReturn(Stream.of(task).onClose(() -> closed[0] = true));
+
+    // when
+    List<Task> result;
+    try (Stream<Task> stream = taskService.streamAllTasks()) {
+      result = stream.toList();
+    }
+
+    // then
+    assertEquals(List.of(task), result);
+    assertTrue(closed[0]);
+  }
+}